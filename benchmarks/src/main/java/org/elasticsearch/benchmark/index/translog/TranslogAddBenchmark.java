@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index.translog;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogConfig;
+import org.elasticsearch.index.translog.TranslogDeletionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of {@link Translog#add} on a single shard's translog as the number of concurrently
+ * writing threads grows. Operations are only appended, the translog is fsynced and trimmed between invocations.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@OperationsPerInvocation(TranslogAddBenchmark.OPERATIONS)
+@State(Scope.Benchmark)
+public class TranslogAddBenchmark {
+    static final int OPERATIONS = 100_000;
+
+    @Param({ "1", "4", "16", "32" })
+    public int writers;
+
+    @Param({ "128", "1024" })
+    public int sourceSize;
+
+    private final PageCacheRecycler recycler = new PageCacheRecycler(Settings.EMPTY);
+    private final BigArrays bigArrays = new BigArrays(recycler, null, "REQUEST");
+    private final AtomicLong seqNo = new AtomicLong();
+
+    private Path path;
+    private TranslogDeletionPolicy deletionPolicy;
+    private Translog translog;
+    private ExecutorService executor;
+    private byte[] source;
+
+    @Setup
+    public void setUp() throws IOException {
+        path = Files.createTempDirectory("translog");
+        ShardId shardId = new ShardId("index", "_na_", 0);
+        IndexMetadata indexMetadata = IndexMetadata.builder("index")
+            .settings(
+                Settings.builder()
+                    .put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+                    .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
+                    .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
+            )
+            .build();
+        TranslogConfig config = new TranslogConfig(shardId, path, new IndexSettings(indexMetadata, Settings.EMPTY), bigArrays);
+        String translogUUID = Translog.createEmptyTranslog(path, SequenceNumbers.NO_OPS_PERFORMED, shardId, 1L);
+        deletionPolicy = new TranslogDeletionPolicy();
+        translog = new Translog(config, translogUUID, deletionPolicy, () -> SequenceNumbers.NO_OPS_PERFORMED, () -> 1L, s -> {});
+        executor = Executors.newFixedThreadPool(writers);
+        source = new byte[sourceSize];
+        new Random(0).nextBytes(source);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        IOUtils.close(translog);
+        IOUtils.rm(path);
+    }
+
+    /**
+     * Keep the translog from growing without bound across invocations, this happens outside of the measured section.
+     */
+    @TearDown(Level.Invocation)
+    public void trim() throws IOException {
+        translog.sync();
+        deletionPolicy.setLocalCheckpointOfSafeCommit(seqNo.get() - 1);
+        translog.rollGeneration();
+        translog.trimUnreferencedReaders();
+    }
+
+    @Benchmark
+    public void add() throws Exception {
+        final int operationsPerWriter = OPERATIONS / writers;
+        List<Future<?>> futures = new ArrayList<>(writers);
+        for (int w = 0; w < writers; w++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < operationsPerWriter; i++) {
+                    translog.add(new Translog.Index("id", seqNo.getAndIncrement(), 1L, source));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
+import org.elasticsearch.search.aggregations.BatchingBucketCollector;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.metrics.CompensatedSum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per document cost of collecting a {@code sum} over a single valued
+ * field one document at a time with collecting it in blocks through
+ * {@link BatchingBucketCollector}. With {@code collectsBlocks} set to {@code false}
+ * the collector doesn't collect blocks, like bucket aggregators, and the
+ * {@code inBlocks} benchmark measures the cost of the wrapping alone.
+ */
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(1_000_000)
+@State(Scope.Benchmark)
+public class BlockCollectionBenchmark {
+    private static final int LIMIT = 1_000_000;
+
+    /**
+     * The ratio of the documents that have a value.
+     */
+    @Param({ "1.0", "0.5" })
+    public double density;
+
+    /**
+     * Whether the collector {@link LeafBucketCollector#collectsBlocks() collects blocks}.
+     */
+    @Param({ "true", "false" })
+    public boolean collectsBlocks;
+
+    private double[] values;
+    private boolean[] hasValue;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        values = new double[LIMIT];
+        hasValue = new boolean[LIMIT];
+        for (int i = 0; i < LIMIT; i++) {
+            values[i] = random.nextDouble();
+            hasValue[i] = random.nextDouble() < density;
+        }
+    }
+
+    @Benchmark
+    public void perDocument(Blackhole bh) throws IOException {
+        SumCollector sum = new SumCollector();
+        LeafBucketCollector leaf = sum.getLeafCollector(null);
+        for (int doc = 0; doc < LIMIT; doc++) {
+            leaf.collect(doc, 0);
+        }
+        bh.consume(sum.sum.value());
+    }
+
+    @Benchmark
+    public void inBlocks(Blackhole bh) throws IOException {
+        SumCollector sum = new SumCollector();
+        BatchingBucketCollector batching = new BatchingBucketCollector(sum);
+        LeafBucketCollector leaf = batching.getLeafCollector(null);
+        for (int doc = 0; doc < LIMIT; doc++) {
+            leaf.collect(doc, 0);
+        }
+        batching.flush();
+        bh.consume(sum.sum.value());
+    }
+
+    /**
+     * Mirrors the single bucket, single valued collection of the {@code sum} aggregator.
+     */
+    private class SumCollector extends BucketCollector {
+        private final CompensatedSum sum = new CompensatedSum(0, 0);
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) {
+            final NumericDoubleValues docValues = new NumericDoubleValues() {
+                private int doc = -1;
+
+                @Override
+                public boolean advanceExact(int target) {
+                    doc = target;
+                    return hasValue[target];
+                }
+
+                @Override
+                public double doubleValue() {
+                    return values[doc];
+                }
+            };
+            return new LeafBucketCollector() {
+                private double[] buffer = new double[0];
+
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    if (docValues.advanceExact(doc)) {
+                        sum.add(docValues.doubleValue());
+                    }
+                }
+
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    buffer = ArrayUtil.grow(buffer, count);
+                    final int numValues = FieldData.fillValues(docValues, docs, count, buffer);
+                    for (int i = 0; i < numValues; i++) {
+                        sum.add(buffer[i]);
+                    }
+                }
+
+                @Override
+                public boolean collectsBlocks() {
+                    return collectsBlocks;
+                }
+            };
+        }
+
+        @Override
+        public void preCollection() {}
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+}
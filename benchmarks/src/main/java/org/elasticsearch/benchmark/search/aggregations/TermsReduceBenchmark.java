@@ -183,6 +183,9 @@ public class TermsReduceBenchmark {
     @Param({ "32", "512" })
     private int bufferSize;
 
+    @Param({ "false", "true" })
+    private boolean incremental;
+
     @Benchmark
     public SearchPhaseController.ReducedQueryPhase reduceAggs(TermsList candidateList) throws Exception {
         List<QuerySearchResult> shards = new ArrayList<>();
@@ -216,6 +219,7 @@ public class TermsReduceBenchmark {
             SearchProgressListener.NOOP,
             namedWriteableRegistry,
             shards.size(),
+            incremental,
             exc -> {}
         );
         CountDownLatch latch = new CountDownLatch(shards.size());
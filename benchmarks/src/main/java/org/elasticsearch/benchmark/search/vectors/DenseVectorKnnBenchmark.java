@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.vectors;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.xpack.vectors.codec.HnswGraph;
+import org.elasticsearch.xpack.vectors.codec.NeighborQueue;
+import org.elasticsearch.xpack.vectors.codec.OnHeapHnswGraph;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the nearest neighbours of a query vector by walking the graph of an indexed
+ * {@code dense_vector} field against scoring every encoded vector, like a {@code script_score}
+ * query with {@code l2norm} does.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DenseVectorKnnBenchmark {
+    private static final int K = 10;
+
+    @Param({ "100000" })
+    private int numVectors;
+
+    @Param({ "128" })
+    private int dims;
+
+    @Param({ "16" })
+    private int m;
+
+    @Param({ "100" })
+    private int efConstruction;
+
+    @Param({ "10", "100", "500" })
+    private int numCandidates;
+
+    private BytesRef[] encodedVectors;
+    private HnswGraph graph;
+    private float[] queryVector;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        int[] docs = new int[numVectors];
+        float[][] vectors = new float[numVectors][];
+        encodedVectors = new BytesRef[numVectors];
+        for (int i = 0; i < numVectors; i++) {
+            docs[i] = i;
+            vectors[i] = randomVector(random);
+            ByteBuffer byteBuffer = ByteBuffer.allocate((dims + 1) * Float.BYTES);
+            for (float value : vectors[i]) {
+                byteBuffer.putFloat(value);
+            }
+            encodedVectors[i] = new BytesRef(byteBuffer.array());
+        }
+        graph = OnHeapHnswGraph.build(VectorSimilarity.L2_NORM, m, efConstruction, docs, vectors);
+        queryVector = randomVector(random);
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+
+    @Benchmark
+    public NeighborQueue graph() throws IOException {
+        NeighborQueue results = graph.search(queryVector, numCandidates, null);
+        while (results.size() > K) {
+            results.pop();
+        }
+        return results;
+    }
+
+    @Benchmark
+    public NeighborQueue script() {
+        NeighborQueue results = new NeighborQueue(K, false);
+        for (int doc = 0; doc < encodedVectors.length; doc++) {
+            BytesRef vector = encodedVectors[doc];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(vector.bytes, vector.offset, vector.length);
+            double l2norm = 0;
+            for (float queryValue : queryVector) {
+                double diff = queryValue - byteBuffer.getFloat();
+                l2norm += diff * diff;
+            }
+            results.insertWithOverflow(doc, (float) (1 / (1 + l2norm)), K);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.lz4;
+
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4 block format</a>.
+ * Blocks produced by {@link Compressor#compress} can be read back by any LZ4 block decoder and {@link #decompress} accepts
+ * blocks produced by any conforming LZ4 encoder.
+ */
+public final class LZ4 {
+
+    static final int MIN_MATCH = 4;
+    static final int MAX_DISTANCE = (1 << 16) - 1;
+    // the last match must start at least 12 bytes before the end of the block
+    static final int MF_LIMIT = 12;
+    // the last 5 bytes of a block are always literals
+    static final int LAST_LITERALS = 5;
+    static final int HASH_LOG = 12;
+    static final int RUN_MASK = 0x0F;
+
+    private LZ4() {}
+
+    /**
+     * Returns the maximum number of bytes that compressing {@code length} bytes can produce.
+     */
+    public static int maxCompressedLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must be >= 0 but was [" + length + "]");
+        }
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Decompresses the LZ4 block {@code src[srcOff:srcOff+srcLen]} into {@code dest} starting at {@code destOff}, writing at most
+     * {@code maxDestLen} bytes.
+     *
+     * @return the number of decompressed bytes
+     * @throws IllegalArgumentException if the block is malformed or decompresses to more than {@code maxDestLen} bytes
+     */
+    public static int decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int maxDestLen) {
+        final int srcEnd = srcOff + srcLen;
+        final int destEnd = destOff + maxDestLen;
+        int s = srcOff;
+        int d = destOff;
+        while (true) {
+            if (s >= srcEnd) {
+                throw corrupted(s - srcOff);
+            }
+            final int token = src[s++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int len;
+                do {
+                    if (s >= srcEnd) {
+                        throw corrupted(s - srcOff);
+                    }
+                    len = src[s++] & 0xFF;
+                    literalLength += len;
+                } while (len == 0xFF);
+            }
+            if (literalLength < 0 || literalLength > srcEnd - s || literalLength > destEnd - d) {
+                throw corrupted(s - srcOff);
+            }
+            System.arraycopy(src, s, dest, d, literalLength);
+            s += literalLength;
+            d += literalLength;
+
+            if (s == srcEnd) {
+                // the last sequence of a block only has literals
+                return d - destOff;
+            }
+
+            if (srcEnd - s < 2) {
+                throw corrupted(s - srcOff);
+            }
+            final int offset = (src[s] & 0xFF) | ((src[s + 1] & 0xFF) << 8);
+            s += 2;
+            if (offset == 0 || offset > d - destOff) {
+                throw corrupted(s - srcOff);
+            }
+
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int len;
+                do {
+                    if (s >= srcEnd) {
+                        throw corrupted(s - srcOff);
+                    }
+                    len = src[s++] & 0xFF;
+                    matchLength += len;
+                } while (len == 0xFF);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength < 0 || matchLength > destEnd - d) {
+                throw corrupted(s - srcOff);
+            }
+            final int ref = d - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dest, ref, dest, d, matchLength);
+            } else {
+                // overlapping copy, which is how LZ4 encodes runs
+                for (int i = 0; i < matchLength; ++i) {
+                    dest[d + i] = dest[ref + i];
+                }
+            }
+            d += matchLength;
+        }
+    }
+
+    private static IllegalArgumentException corrupted(int position) {
+        return new IllegalArgumentException("malformed LZ4 block at offset [" + position + "]");
+    }
+
+    private static int readInt(byte[] buf, int off) {
+        return ((buf[off] & 0xFF) << 24) | ((buf[off + 1] & 0xFF) << 16) | ((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF);
+    }
+
+    private static int hash(int i) {
+        return (i * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    /**
+     * A reusable, non thread-safe, LZ4 block compressor. It only holds the hash table of the compressor so that it does not need
+     * to be allocated for every block.
+     */
+    public static final class Compressor {
+
+        private final int[] hashTable = new int[1 << HASH_LOG];
+
+        /**
+         * Compresses {@code src[srcOff:srcOff+srcLen]} into {@code dest} starting at {@code destOff}. {@code dest} must have
+         * room for at least {@link #maxCompressedLength(int) maxCompressedLength(srcLen)} bytes.
+         *
+         * @return the length of the compressed block
+         */
+        public int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+            final int srcEnd = srcOff + srcLen;
+            int anchor = srcOff;
+            int d = destOff;
+            if (srcLen > MF_LIMIT) {
+                Arrays.fill(hashTable, -1);
+                final int matchStartLimit = srcEnd - MF_LIMIT;
+                final int matchEndLimit = srcEnd - LAST_LITERALS;
+                int off = srcOff;
+                while (off < matchStartLimit) {
+                    final int sequence = readInt(src, off);
+                    final int h = hash(sequence);
+                    int ref = hashTable[h];
+                    hashTable[h] = off;
+                    if (ref == -1 || off - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                        ++off;
+                        continue;
+                    }
+                    // extend the match backwards over the pending literals
+                    while (off > anchor && ref > srcOff && src[off - 1] == src[ref - 1]) {
+                        --off;
+                        --ref;
+                    }
+                    // and forwards as far as the block allows
+                    int matchLength = MIN_MATCH;
+                    while (off + matchLength < matchEndLimit && src[ref + matchLength] == src[off + matchLength]) {
+                        ++matchLength;
+                    }
+                    d = writeSequence(src, anchor, off - anchor, off - ref, matchLength, dest, d);
+                    off += matchLength;
+                    anchor = off;
+                }
+            }
+            d = writeLastLiterals(src, anchor, srcEnd - anchor, dest, d);
+            return d - destOff;
+        }
+
+        private static int writeSequence(byte[] src, int anchor, int literalLength, int offset, int matchLength, byte[] dest, int d) {
+            final int tokenOff = d++;
+            final int matchRun = matchLength - MIN_MATCH;
+            dest[tokenOff] = (byte) ((Math.min(literalLength, RUN_MASK) << 4) | Math.min(matchRun, RUN_MASK));
+            if (literalLength >= RUN_MASK) {
+                d = writeLength(literalLength - RUN_MASK, dest, d);
+            }
+            System.arraycopy(src, anchor, dest, d, literalLength);
+            d += literalLength;
+            dest[d++] = (byte) offset;
+            dest[d++] = (byte) (offset >>> 8);
+            if (matchRun >= RUN_MASK) {
+                d = writeLength(matchRun - RUN_MASK, dest, d);
+            }
+            return d;
+        }
+
+        private static int writeLastLiterals(byte[] src, int anchor, int literalLength, byte[] dest, int d) {
+            dest[d++] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+            if (literalLength >= RUN_MASK) {
+                d = writeLength(literalLength - RUN_MASK, dest, d);
+            }
+            System.arraycopy(src, anchor, dest, d, literalLength);
+            return d + literalLength;
+        }
+
+        private static int writeLength(int length, byte[] dest, int d) {
+            while (length >= 0xFF) {
+                dest[d++] = (byte) 0xFF;
+                length -= 0xFF;
+            }
+            dest[d++] = (byte) length;
+            return d;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.lz4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link OutputStream} that splits its content in blocks of at most {@code blockSize} bytes and compresses each of them with
+ * {@link LZ4}. The stream starts with {@link #HEADER} and every block is prefixed by a {@link #BLOCK_HEADER_LENGTH} bytes header made
+ * of a token ({@link #COMPRESSED_BLOCK} or {@link #RAW_BLOCK}), the length of the block on the wire and its decompressed length, both
+ * as big-endian ints. Blocks that do not shrink when compressed are written raw. The stream ends with a single
+ * {@link #END_OF_STREAM} token, which is written by {@link #close()}.
+ * <p>
+ * Closing this stream closes the wrapped stream.
+ */
+public final class LZ4BlockOutputStream extends OutputStream {
+
+    public static final byte[] HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+    public static final byte END_OF_STREAM = 0;
+    public static final byte COMPRESSED_BLOCK = 1;
+    public static final byte RAW_BLOCK = 2;
+    public static final int BLOCK_HEADER_LENGTH = 1 + Integer.BYTES + Integer.BYTES;
+
+    private final OutputStream out;
+    private final LZ4.Compressor compressor;
+    private final byte[] buffer;
+    private final byte[] blockHeader = new byte[BLOCK_HEADER_LENGTH];
+    private byte[] compressed;
+    private int pending;
+    private boolean closed;
+
+    /**
+     * @param out        the stream to write compressed blocks to
+     * @param blockSize  the maximum number of uncompressed bytes per block
+     * @param compressor the compressor to use, it must not be used concurrently by another thread
+     */
+    public LZ4BlockOutputStream(OutputStream out, int blockSize, LZ4.Compressor compressor) throws IOException {
+        this(out, newBlockBuffer(blockSize), null, compressor);
+    }
+
+    /**
+     * Creates a stream that buffers blocks in the given arrays instead of allocating its own, so that callers can reuse them
+     * across streams. The arrays must not be used by anybody else until this stream is closed.
+     *
+     * @param out        the stream to write compressed blocks to
+     * @param buffer     the array to buffer uncompressed bytes in, its length is the maximum number of uncompressed bytes per block
+     * @param compressed the array to compress blocks into, it must hold at least
+     *                   {@link LZ4#maxCompressedLength(int) maxCompressedLength(buffer.length)} bytes, or {@code null} to allocate
+     *                   it on demand
+     * @param compressor the compressor to use, it must not be used concurrently by another thread
+     */
+    public LZ4BlockOutputStream(OutputStream out, byte[] buffer, byte[] compressed, LZ4.Compressor compressor) throws IOException {
+        if (buffer.length == 0) {
+            throw new IllegalArgumentException("blockSize must be > 0 but was [0]");
+        }
+        if (compressed != null && compressed.length < LZ4.maxCompressedLength(buffer.length)) {
+            throw new IllegalArgumentException("compressed buffer of [" + compressed.length + "] bytes can't hold a compressed block of ["
+                + buffer.length + "] bytes");
+        }
+        this.out = out;
+        this.compressor = compressor;
+        this.buffer = buffer;
+        this.compressed = compressed;
+        out.write(HEADER);
+    }
+
+    private static byte[] newBlockBuffer(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be > 0 but was [" + blockSize + "]");
+        }
+        return new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (pending == buffer.length) {
+            writeBlock();
+        }
+        buffer[pending++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (pending == buffer.length) {
+                writeBlock();
+            }
+            final int toCopy = Math.min(len, buffer.length - pending);
+            System.arraycopy(b, off, buffer, pending, toCopy);
+            pending += toCopy;
+            off += toCopy;
+            len -= toCopy;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed == false) {
+            try {
+                writeBlock();
+                out.write(END_OF_STREAM);
+                out.flush();
+            } finally {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+        final int maxCompressedLength = LZ4.maxCompressedLength(pending);
+        if (compressed == null || compressed.length < maxCompressedLength) {
+            compressed = new byte[maxCompressedLength];
+        }
+        final int compressedLength = compressor.compress(buffer, 0, pending, compressed, 0);
+        if (compressedLength < pending) {
+            writeBlockHeader(COMPRESSED_BLOCK, compressedLength, pending);
+            out.write(compressed, 0, compressedLength);
+        } else {
+            writeBlockHeader(RAW_BLOCK, pending, pending);
+            out.write(buffer, 0, pending);
+        }
+        pending = 0;
+    }
+
+    private void writeBlockHeader(byte token, int length, int decompressedLength) throws IOException {
+        blockHeader[0] = token;
+        writeInt(blockHeader, 1, length);
+        writeInt(blockHeader, 1 + Integer.BYTES, decompressedLength);
+        out.write(blockHeader);
+    }
+
+    private static void writeInt(byte[] buf, int off, int i) {
+        buf[off] = (byte) (i >>> 24);
+        buf[off + 1] = (byte) (i >>> 16);
+        buf[off + 2] = (byte) (i >>> 8);
+        buf[off + 3] = (byte) i;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.lz4;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class LZ4Tests extends ESTestCase {
+
+    public void testRoundTripRandomBytes() {
+        final byte[] bytes = randomByteArrayOfLength(randomIntBetween(0, 1 << 16));
+        assertRoundTrip(bytes);
+    }
+
+    public void testRoundTripCompressibleBytes() {
+        final byte[] bytes = new byte[randomIntBetween(0, 1 << 16)];
+        final byte[] alphabet = randomByteArrayOfLength(randomIntBetween(1, 8));
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = alphabet[randomInt(alphabet.length - 1)];
+        }
+        final int compressedLength = assertRoundTrip(bytes);
+        if (bytes.length > 1024) {
+            assertThat(compressedLength, lessThan(bytes.length));
+        }
+    }
+
+    public void testRoundTripRuns() {
+        final byte[] bytes = new byte[randomIntBetween(0, 1 << 16)];
+        int i = 0;
+        while (i < bytes.length) {
+            final int runLength = Math.min(bytes.length - i, randomIntBetween(1, 600));
+            Arrays.fill(bytes, i, i + runLength, randomByte());
+            i += runLength;
+        }
+        assertRoundTrip(bytes);
+    }
+
+    public void testCompressWithOffsets() {
+        final byte[] bytes = randomAlphaOfLength(randomIntBetween(20, 2000)).getBytes(StandardCharsets.UTF_8);
+        final int srcOff = randomIntBetween(0, bytes.length - 1);
+        final int srcLen = randomIntBetween(0, bytes.length - srcOff);
+        final int destOff = randomIntBetween(0, 10);
+        final byte[] compressed = new byte[destOff + LZ4.maxCompressedLength(srcLen)];
+        final int compressedLength = new LZ4.Compressor().compress(bytes, srcOff, srcLen, compressed, destOff);
+        final byte[] restored = new byte[srcLen + 3];
+        assertEquals(srcLen, LZ4.decompress(compressed, destOff, compressedLength, restored, 3, srcLen));
+        assertArrayEquals(Arrays.copyOfRange(bytes, srcOff, srcOff + srcLen), Arrays.copyOfRange(restored, 3, 3 + srcLen));
+    }
+
+    public void testDecompressRejectsMalformedBlocks() {
+        final byte[] bytes = new byte[1000];
+        Arrays.fill(bytes, (byte) 7);
+        final byte[] compressed = new byte[LZ4.maxCompressedLength(bytes.length)];
+        final int compressedLength = new LZ4.Compressor().compress(bytes, 0, bytes.length, compressed, 0);
+        final byte[] restored = new byte[bytes.length];
+
+        // truncated input
+        expectThrows(IllegalArgumentException.class, () -> LZ4.decompress(compressed, 0, compressedLength - 1, restored, 0, bytes.length));
+        // not enough room in the destination
+        expectThrows(IllegalArgumentException.class, () -> LZ4.decompress(compressed, 0, compressedLength, restored, 0, bytes.length - 1));
+        // a match that points before the start of the output
+        final byte[] badOffset = new byte[] { 0x10, 'a', 0x05, 0x00, 0x50, 'a', 'b', 'c', 'd', 'e' };
+        expectThrows(IllegalArgumentException.class, () -> LZ4.decompress(badOffset, 0, badOffset.length, restored, 0, bytes.length));
+    }
+
+    private static int assertRoundTrip(byte[] bytes) {
+        final LZ4.Compressor compressor = new LZ4.Compressor();
+        final byte[] compressed = new byte[LZ4.maxCompressedLength(bytes.length)];
+        final int compressedLength = compressor.compress(bytes, 0, bytes.length, compressed, 0);
+        final byte[] restored = new byte[bytes.length];
+        assertEquals(bytes.length, LZ4.decompress(compressed, 0, compressedLength, restored, 0, bytes.length));
+        assertArrayEquals(bytes, restored);
+        return compressedLength;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
+import org.elasticsearch.transport.netty4.Netty4Utils;
+
+/**
+ * Serializes a {@link ChunkedRestResponseBody} one chunk at a time. The {@link io.netty.handler.stream.ChunkedWriteHandler} only asks
+ * for the next chunk once the channel is writable again, so a slow client does not cause the whole body to be buffered in memory.
+ */
+class Netty4ChunkedHttpContent implements ChunkedInput<ByteBuf> {
+
+    /**
+     * The number of bytes after which a chunk is cut. This stays well below the smallest size that
+     * {@link Netty4HttpResponseCreator} splits full responses at, so that each chunk can be compressed on its own.
+     */
+    static final int CHUNK_SIZE_HINT = 128 * 1024;
+
+    private final ChunkedRestResponseBody body;
+    private final BigArrays bigArrays;
+    private final Channel channel;
+    private long progress;
+
+    Netty4ChunkedHttpContent(ChunkedRestResponseBody body, BigArrays bigArrays, Channel channel) {
+        this.body = body;
+        this.bigArrays = bigArrays;
+        this.channel = channel;
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return body.isDone();
+    }
+
+    @Override
+    public void close() {
+        // the chunks are released once they have been written
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        final ReleasableBytesReference chunk;
+        try {
+            chunk = body.encodeChunk(CHUNK_SIZE_HINT, bigArrays);
+        } catch (Exception e) {
+            // the response head has already been sent so the only way to signal the failure to the client is to close the connection
+            channel.close();
+            throw e;
+        }
+        progress += chunk.length();
+        final CompositeByteBuf buf = new CompositeByteBuf(allocator, false, 1) {
+            @Override
+            protected void deallocate() {
+                super.deallocate();
+                chunk.close();
+            }
+        };
+        buf.addComponent(true, Netty4Utils.toByteBuf(chunk));
+        return buf;
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+}
@@ -31,7 +31,9 @@ import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.http.HttpRequest;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.transport.netty4.Netty4Utils;
@@ -199,6 +201,16 @@ public class Netty4HttpRequest implements HttpRequest {
         return new Netty4HttpResponse(request.headers(), request.protocolVersion(), status, content);
     }
 
+    @Override
+    public boolean supportsChunkedResponses() {
+        return true;
+    }
+
+    @Override
+    public Netty4ChunkedHttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content, BigArrays bigArrays) {
+        return new Netty4ChunkedHttpResponse(request.protocolVersion(), status, content, bigArrays);
+    }
+
     @Override
     public Exception getInboundException() {
         return inboundException;
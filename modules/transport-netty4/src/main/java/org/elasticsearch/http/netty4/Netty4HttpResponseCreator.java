@@ -27,17 +27,21 @@ import io.netty.handler.codec.compression.JdkZlibEncoder;
 import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
-import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpUtil;
 import org.elasticsearch.common.Booleans;
+import org.elasticsearch.http.HttpResponse;
 import org.elasticsearch.transport.NettyAllocator;
 
 import java.util.List;
 
 /**
- * Split up large responses to prevent batch compression {@link JdkZlibEncoder} down the pipeline.
+ * Split up large responses to prevent batch compression {@link JdkZlibEncoder} down the pipeline. Chunked responses are turned into
+ * a response head followed by an {@link HttpChunkedInput} that the {@link io.netty.handler.stream.ChunkedWriteHandler} down the
+ * pipeline serializes as the channel becomes writable.
  */
 @ChannelHandler.Sharable
-class Netty4HttpResponseCreator extends MessageToMessageEncoder<Netty4HttpResponse> {
+class Netty4HttpResponseCreator extends MessageToMessageEncoder<HttpResponse> {
 
     private static final String DO_NOT_SPLIT = "es.unsafe.do_not_split_http_responses";
 
@@ -51,11 +55,20 @@ class Netty4HttpResponseCreator extends MessageToMessageEncoder<Netty4HttpRespon
     }
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, Netty4HttpResponse msg, List<Object> out) {
+    protected void encode(ChannelHandlerContext ctx, HttpResponse httpResponse, List<Object> out) {
+        if (httpResponse instanceof Netty4ChunkedHttpResponse) {
+            final Netty4ChunkedHttpResponse msg = (Netty4ChunkedHttpResponse) httpResponse;
+            HttpUtil.setTransferEncodingChunked(msg, true);
+            out.add(new DefaultHttpResponse(msg.protocolVersion(), msg.status(), msg.headers()));
+            out.add(new HttpChunkedInput(new Netty4ChunkedHttpContent(msg.body(), msg.bigArrays(), ctx.channel())));
+            return;
+        }
+        assert httpResponse instanceof Netty4HttpResponse : "Invalid message type: " + httpResponse.getClass();
+        final Netty4HttpResponse msg = (Netty4HttpResponse) httpResponse;
         if (DO_NOT_SPLIT_HTTP_RESPONSES || msg.content().readableBytes() <= SPLIT_THRESHOLD) {
             out.add(msg.retain());
         } else {
-            HttpResponse response = new DefaultHttpResponse(msg.protocolVersion(), msg.status(), msg.headers());
+            DefaultHttpResponse response = new DefaultHttpResponse(msg.protocolVersion(), msg.status(), msg.headers());
             out.add(response);
             ByteBuf content = msg.content();
             while (content.readableBytes() > SPLIT_THRESHOLD) {
@@ -20,6 +20,8 @@
 package org.elasticsearch.http.netty4;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
@@ -27,6 +29,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.socket.nio.NioChannelOption;
@@ -36,6 +39,12 @@ import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.util.AttributeKey;
@@ -67,6 +76,7 @@ import org.elasticsearch.transport.netty4.Netty4Utils;
 
 import java.net.InetSocketAddress;
 import java.net.SocketOption;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_MAX_CHUNK_SIZE;
@@ -130,6 +140,21 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
     public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE =
         Setting.byteSizeSetting("http.netty.receive_predictor_size", new ByteSizeValue(64, ByteSizeUnit.KB), Property.NodeScope);
 
+    /**
+     * Whether to accept cleartext HTTP/2 connections from clients that connect with prior knowledge, i.e. that start the connection with
+     * the HTTP/2 connection preface. Every HTTP/2 stream is handled as its own {@link HttpChannel} so that requests on the same
+     * connection do not wait for each other and closing a stream cancels the request that was sent on it.
+     */
+    public static final Setting<Boolean> SETTING_HTTP_H2C_ENABLED =
+        Setting.boolSetting("http.netty.h2c.enabled", false, Property.NodeScope);
+
+    public static final Setting<Integer> SETTING_HTTP_H2C_MAX_CONCURRENT_STREAMS =
+        Setting.intSetting("http.netty.h2c.max_concurrent_streams", 100, 1, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> SETTING_HTTP_H2C_INITIAL_WINDOW_SIZE =
+        Setting.byteSizeSetting("http.netty.h2c.initial_window_size", new ByteSizeValue(Http2CodecUtil.DEFAULT_WINDOW_SIZE),
+            new ByteSizeValue(0), new ByteSizeValue(Http2CodecUtil.MAX_INITIAL_WINDOW_SIZE), Property.NodeScope);
+
     private final ByteSizeValue maxInitialLineLength;
     private final ByteSizeValue maxHeaderSize;
     private final ByteSizeValue maxChunkSize;
@@ -142,6 +167,10 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
     private final int maxCompositeBufferComponents;
 
+    private final boolean h2cEnabled;
+    private final int h2cMaxConcurrentStreams;
+    private final int h2cInitialWindowSize;
+
     private volatile ServerBootstrap serverBootstrap;
     private volatile SharedGroupFactory.SharedGroup sharedGroup;
 
@@ -162,13 +191,17 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
         this.readTimeoutMillis = Math.toIntExact(SETTING_HTTP_READ_TIMEOUT.get(settings).getMillis());
 
+        this.h2cEnabled = SETTING_HTTP_H2C_ENABLED.get(settings);
+        this.h2cMaxConcurrentStreams = SETTING_HTTP_H2C_MAX_CONCURRENT_STREAMS.get(settings);
+        this.h2cInitialWindowSize = SETTING_HTTP_H2C_INITIAL_WINDOW_SIZE.get(settings).bytesAsInt();
+
         ByteSizeValue receivePredictor = SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE.get(settings);
         recvByteBufAllocator = new FixedRecvByteBufAllocator(receivePredictor.bytesAsInt());
 
         logger.debug("using max_chunk_size[{}], max_header_size[{}], max_initial_line_length[{}], max_content_length[{}], " +
-                "receive_predictor[{}], max_composite_buffer_components[{}], pipelining_max_events[{}]",
+                "receive_predictor[{}], max_composite_buffer_components[{}], pipelining_max_events[{}], h2c_enabled[{}]",
             maxChunkSize, maxHeaderSize, maxInitialLineLength, maxContentLength, receivePredictor, maxCompositeBufferComponents,
-            pipeliningMaxEvents);
+            pipeliningMaxEvents, h2cEnabled);
     }
 
     public Settings settings() {
@@ -305,25 +338,70 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
             ch.attr(HTTP_CHANNEL_KEY).set(nettyHttpChannel);
             ch.pipeline().addLast("byte_buf_sizer", byteBufSizer);
             ch.pipeline().addLast("read_timeout", new ReadTimeoutHandler(transport.readTimeoutMillis, TimeUnit.MILLISECONDS));
+            if (transport.h2cEnabled) {
+                // the protocol is only known once the client sent the first bytes of the connection
+                ch.pipeline().addLast("protocol_detector", new Http2PriorKnowledgeDetector(this));
+            } else {
+                configureHttp1Pipeline(ch.pipeline());
+            }
+            transport.serverAcceptedChannel(nettyHttpChannel);
+        }
+
+        private void configureHttp1Pipeline(ChannelPipeline pipeline) {
             final HttpRequestDecoder decoder = new HttpRequestDecoder(
                 handlingSettings.getMaxInitialLineLength(),
                 handlingSettings.getMaxHeaderSize(),
                 handlingSettings.getMaxChunkSize());
             decoder.setCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
-            ch.pipeline().addLast("decoder", decoder);
-            ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
-            ch.pipeline().addLast("encoder", new HttpResponseEncoder());
+            pipeline.addLast("decoder", decoder);
+            pipeline.addLast("decoder_compress", new HttpContentDecompressor());
+            pipeline.addLast("encoder", new HttpResponseEncoder());
+            addHttpObjectHandlers(pipeline);
+        }
+
+        private void configureHttp2Pipeline(ChannelPipeline pipeline) {
+            final Http2Settings http2Settings = Http2Settings.defaultSettings()
+                .maxConcurrentStreams(transport.h2cMaxConcurrentStreams)
+                .initialWindowSize(transport.h2cInitialWindowSize)
+                .maxHeaderListSize(handlingSettings.getMaxHeaderSize());
+            pipeline.addLast("http2_codec", Http2FrameCodecBuilder.forServer().initialSettings(http2Settings).build());
+            pipeline.addLast("http2_multiplex", new Http2MultiplexHandler(new Http2StreamChannelHandler()));
+            // only handles exceptions that are not specific to a stream
+            pipeline.addLast("handler", requestHandler);
+        }
+
+        /**
+         * Adds the handlers that turn the decoded {@link io.netty.handler.codec.http.HttpObject}s of a HTTP/1.1 connection or of a
+         * HTTP/2 stream into requests for the {@link Netty4HttpServerTransport} and its responses back into HTTP objects.
+         */
+        private void addHttpObjectHandlers(ChannelPipeline pipeline) {
             final HttpObjectAggregator aggregator = new HttpObjectAggregator(handlingSettings.getMaxContentLength());
             aggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
-            ch.pipeline().addLast("aggregator", aggregator);
+            pipeline.addLast("aggregator", aggregator);
             if (handlingSettings.isCompression()) {
-                ch.pipeline().addLast("encoder_compress", new HttpContentCompressor(handlingSettings.getCompressionLevel()));
+                pipeline.addLast("encoder_compress", new HttpContentCompressor(handlingSettings.getCompressionLevel()));
+            }
+            pipeline.addLast("chunked_writer", new ChunkedWriteHandler());
+            pipeline.addLast("request_creator", requestCreator);
+            pipeline.addLast("response_creator", responseCreator);
+            pipeline.addLast("pipelining", new Netty4HttpPipeliningHandler(logger, transport.pipeliningMaxEvents));
+            pipeline.addLast("handler", requestHandler);
+        }
+
+        /**
+         * Initializes the child channel of a HTTP/2 stream. Each stream carries a single request and is exposed as its own
+         * {@link Netty4HttpChannel}, so that the stream being reset by the client closes the channel and cancels the request.
+         * Flow control is applied per stream by the multiplexer as the stream's channel consumes its data.
+         */
+        private class Http2StreamChannelHandler extends ChannelInitializer<Channel> {
+
+            @Override
+            protected void initChannel(Channel ch) {
+                ch.attr(HTTP_CHANNEL_KEY).set(new Netty4HttpChannel(ch));
+                ch.pipeline().addLast("http2_stream_codec", new Http2StreamFrameToHttpObjectCodec(true));
+                ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
+                addHttpObjectHandlers(ch.pipeline());
             }
-            ch.pipeline().addLast("request_creator", requestCreator);
-            ch.pipeline().addLast("response_creator", responseCreator);
-            ch.pipeline().addLast("pipelining", new Netty4HttpPipeliningHandler(logger, transport.pipeliningMaxEvents));
-            ch.pipeline().addLast("handler", requestHandler);
-            transport.serverAcceptedChannel(nettyHttpChannel);
         }
 
         @Override
@@ -333,6 +411,34 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
         }
     }
 
+    /**
+     * Configures the pipeline for HTTP/2 if the client starts the connection with the HTTP/2 connection preface and for HTTP/1.1
+     * otherwise. The bytes that were read are passed on to the configured handlers once this handler removed itself.
+     */
+    private static class Http2PriorKnowledgeDetector extends ByteToMessageDecoder {
+
+        private static final ByteBuf CONNECTION_PREFACE = Http2CodecUtil.connectionPrefaceBuf();
+
+        private final HttpChannelHandler channelHandler;
+
+        private Http2PriorKnowledgeDetector(HttpChannelHandler channelHandler) {
+            this.channelHandler = channelHandler;
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            final int prefaceLength = CONNECTION_PREFACE.readableBytes();
+            final int bytesToCompare = Math.min(in.readableBytes(), prefaceLength);
+            if (ByteBufUtil.equals(CONNECTION_PREFACE, CONNECTION_PREFACE.readerIndex(), in, in.readerIndex(), bytesToCompare) == false) {
+                channelHandler.configureHttp1Pipeline(ctx.pipeline());
+                ctx.pipeline().remove(this);
+            } else if (bytesToCompare == prefaceLength) {
+                channelHandler.configureHttp2Pipeline(ctx.pipeline());
+                ctx.pipeline().remove(this);
+            }
+        }
+    }
+
     @ChannelHandler.Sharable
     private static class ServerChannelExceptionHandler extends ChannelInboundHandlerAdapter {
 
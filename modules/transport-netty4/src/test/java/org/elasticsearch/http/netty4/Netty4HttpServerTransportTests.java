@@ -20,16 +20,20 @@
 package org.elasticsearch.http.netty4;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.PoolArenaMetric;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocatorMetric;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
@@ -37,26 +41,49 @@ import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.codec.http2.HttpConversionUtil;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.http.BindHttpException;
 import org.elasticsearch.http.CorsHandler;
 import org.elasticsearch.http.HttpServerTransport;
@@ -64,6 +91,8 @@ import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.http.NullDispatcher;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.test.ESTestCase;
@@ -75,12 +104,16 @@ import org.elasticsearch.transport.NettyAllocator;
 import org.junit.After;
 import org.junit.Before;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_ORIGIN;
@@ -89,6 +122,7 @@ import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
 import static org.elasticsearch.rest.RestStatus.OK;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 
@@ -462,6 +496,401 @@ public class Netty4HttpServerTransportTests extends ESTestCase {
         }
     }
 
+    public void testH2cEnabledServesHttp1() throws InterruptedException {
+        final Settings settings = createBuilderWithPort().put(Netty4HttpServerTransport.SETTING_HTTP_H2C_ENABLED.getKey(), true).build();
+        final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
+            @Override
+            public void dispatchRequest(RestRequest request, RestChannel channel, ThreadContext threadContext) {
+                channel.sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, new BytesArray(request.uri())));
+            }
+
+            @Override
+            public void dispatchBadRequest(RestChannel channel, ThreadContext threadContext, Throwable cause) {
+                throw new AssertionError();
+            }
+        };
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool,
+                xContentRegistry(), dispatcher, clusterSettings, new SharedGroupFactory(settings))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+            try (Netty4HttpClient client = new Netty4HttpClient()) {
+                final FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/http1");
+                final FullHttpResponse response = client.send(remoteAddress.address(), request);
+                try {
+                    assertThat(response.status(), equalTo(HttpResponseStatus.OK));
+                    assertThat(response.content().toString(StandardCharsets.UTF_8), equalTo("/http1"));
+                } finally {
+                    response.release();
+                }
+            }
+        }
+    }
+
+    public void testH2cMultiplexesRequestsAndCancelsOnStreamReset() throws Exception {
+        final Settings settings = createBuilderWithPort().put(Netty4HttpServerTransport.SETTING_HTTP_H2C_ENABLED.getKey(), true).build();
+        final AtomicReference<RestChannel> slowChannel = new AtomicReference<>();
+        final CountDownLatch slowRequestReceived = new CountDownLatch(1);
+        final CountDownLatch resetRequestReceived = new CountDownLatch(1);
+        final CountDownLatch resetStreamClosed = new CountDownLatch(1);
+        final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
+            @Override
+            public void dispatchRequest(RestRequest request, RestChannel channel, ThreadContext threadContext) {
+                if (request.uri().equals("/slow")) {
+                    slowChannel.set(channel);
+                    slowRequestReceived.countDown();
+                } else if (request.uri().equals("/reset")) {
+                    request.getHttpChannel().addCloseListener(ActionListener.wrap(resetStreamClosed::countDown));
+                    resetRequestReceived.countDown();
+                } else {
+                    channel.sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, new BytesArray(request.uri())));
+                }
+            }
+
+            @Override
+            public void dispatchBadRequest(RestChannel channel, ThreadContext threadContext, Throwable cause) {
+                throw new AssertionError();
+            }
+        };
+
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool,
+                xContentRegistry(), dispatcher, clusterSettings, new SharedGroupFactory(settings))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+
+            final Bootstrap clientBootstrap = new Bootstrap()
+                .option(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator())
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forClient().build());
+                        ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelHandlerAdapter() {}));
+                    }
+                }).group(group);
+            final Channel connection = clientBootstrap.connect(remoteAddress.address()).sync().channel();
+            try {
+                final PlainActionFuture<FullHttpResponse> slowResponse = new PlainActionFuture<>();
+                sendH2cRequest(connection, "/slow", slowResponse);
+                assertTrue(slowRequestReceived.await(30, TimeUnit.SECONDS));
+
+                // the pending response on the first stream does not hold up the responses on other streams of the connection
+                final int numRequests = randomIntBetween(1, 5);
+                for (int i = 0; i < numRequests; i++) {
+                    final PlainActionFuture<FullHttpResponse> fastResponse = new PlainActionFuture<>();
+                    sendH2cRequest(connection, "/fast" + i, fastResponse);
+                    final FullHttpResponse response = fastResponse.actionGet(30, TimeUnit.SECONDS);
+                    assertThat(response.status(), equalTo(HttpResponseStatus.OK));
+                    assertThat(response.content().toString(StandardCharsets.UTF_8), equalTo("/fast" + i));
+                }
+                assertFalse(slowResponse.isDone());
+
+                // resetting a stream closes its channel, which cancels the request that was sent on it
+                final Channel resetStream = sendH2cRequest(connection, "/reset", new PlainActionFuture<>());
+                assertTrue(resetRequestReceived.await(30, TimeUnit.SECONDS));
+                resetStream.close().sync();
+                assertTrue(resetStreamClosed.await(30, TimeUnit.SECONDS));
+                assertTrue(connection.isOpen());
+
+                slowChannel.get().sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, new BytesArray("done")));
+                assertThat(slowResponse.actionGet(30, TimeUnit.SECONDS).content().toString(StandardCharsets.UTF_8), equalTo("done"));
+                assertThat(transport.stats().getServerOpen(), equalTo(1L));
+            } finally {
+                connection.close().sync();
+            }
+        } finally {
+            group.shutdownGracefully().await();
+        }
+    }
+
+    public void testChunkedResponse() throws Exception {
+        final MockBigArrays bigArrays =
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new ByteSizeValue(100, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final List<ToXContent> parts = new ArrayList<>();
+        parts.add((builder, params) -> builder.startObject().startArray("parts"));
+        final int numParts = randomIntBetween(1000, 2000);
+        for (int i = 0; i < numParts; i++) {
+            final String value = randomAlphaOfLengthBetween(100, 300);
+            parts.add((builder, params) -> builder.value(value));
+        }
+        parts.add((builder, params) -> builder.endArray().endObject());
+        final XContentBuilder expected = JsonXContent.contentBuilder();
+        for (ToXContent part : parts) {
+            part.toXContent(expected, ToXContent.EMPTY_PARAMS);
+        }
+        assertThat(BytesReference.bytes(expected).length(), greaterThan(2 * Netty4ChunkedHttpContent.CHUNK_SIZE_HINT));
+
+        final AtomicInteger encodedChunks = new AtomicInteger();
+        final HttpServerTransport.Dispatcher dispatcher = chunkedResponseDispatcher(channel -> {
+            final ChunkedRestResponseBody body =
+                ChunkedRestResponseBody.fromXContent(params -> parts.iterator(), channel.request(), channel);
+            return new ChunkedRestResponseBody() {
+                @Override
+                public boolean isDone() {
+                    return body.isDone();
+                }
+
+                @Override
+                public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException {
+                    encodedChunks.incrementAndGet();
+                    return body.encodeChunk(sizeHint, bigArrays);
+                }
+
+                @Override
+                public String getResponseContentTypeString() {
+                    return body.getResponseContentTypeString();
+                }
+            };
+        });
+
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(Settings.EMPTY, networkService, bigArrays, threadPool,
+                xContentRegistry(), dispatcher, clusterSettings, new SharedGroupFactory(Settings.EMPTY))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+            final ResponseRecorder recorder = new ResponseRecorder();
+            final Channel connection = sendRequestWithoutAggregation(group, remoteAddress, "/chunked", recorder);
+            try {
+                final io.netty.handler.codec.http.HttpResponse head = recorder.head.actionGet(30, TimeUnit.SECONDS);
+                assertThat(head.status(), equalTo(HttpResponseStatus.OK));
+                assertTrue(HttpUtil.isTransferEncodingChunked(head));
+                assertFalse(HttpUtil.isContentLengthSet(head));
+                assertThat(head.headers().get(HttpHeaderNames.CONTENT_TYPE), containsString("application/json"));
+                assertTrue("the response must end with the last chunk", recorder.complete.actionGet(30, TimeUnit.SECONDS));
+                assertThat(recorder.content(), equalTo(BytesReference.bytes(expected).utf8ToString()));
+                assertThat(encodedChunks.get(), greaterThan(1));
+                // the connection is kept alive and all chunks were released once they were written
+                assertTrue(connection.isOpen());
+                assertBusy(() -> assertThat(breaker.getUsed(), equalTo(0L)));
+            } finally {
+                connection.close().sync();
+            }
+        } finally {
+            group.shutdownGracefully().await();
+        }
+    }
+
+    public void testChunkedResponseClientDisconnectsMidStream() throws Exception {
+        final MockBigArrays bigArrays =
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new ByteSizeValue(100, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final byte[] bytes = randomAlphaOfLength(1024).getBytes(StandardCharsets.UTF_8);
+        final AtomicInteger encodedChunks = new AtomicInteger();
+        final CountDownLatch channelClosed = new CountDownLatch(1);
+        final HttpServerTransport.Dispatcher dispatcher = chunkedResponseDispatcher(channel -> {
+            channel.request().getHttpChannel().addCloseListener(ActionListener.wrap(channelClosed::countDown));
+            // a body that never ends, so that the client is guaranteed to disconnect while the response is being sent
+            return new ChunkedRestResponseBody() {
+                @Override
+                public boolean isDone() {
+                    return false;
+                }
+
+                @Override
+                public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) {
+                    final ReleasableBytesStreamOutput chunk = new ReleasableBytesStreamOutput(sizeHint, bigArrays);
+                    while (chunk.size() < sizeHint) {
+                        chunk.writeBytes(bytes, 0, bytes.length);
+                    }
+                    encodedChunks.incrementAndGet();
+                    return new ReleasableBytesReference(chunk.bytes(), chunk);
+                }
+
+                @Override
+                public String getResponseContentTypeString() {
+                    return BytesRestResponse.TEXT_CONTENT_TYPE;
+                }
+            };
+        });
+
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(Settings.EMPTY, networkService, bigArrays, threadPool,
+                xContentRegistry(), dispatcher, clusterSettings, new SharedGroupFactory(Settings.EMPTY))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+            final ResponseRecorder recorder = new ResponseRecorder();
+            final Channel connection = sendRequestWithoutAggregation(group, remoteAddress, "/endless", recorder);
+            try {
+                assertTrue(HttpUtil.isTransferEncodingChunked(recorder.head.actionGet(30, TimeUnit.SECONDS)));
+                assertTrue(recorder.contentReceived.await(30, TimeUnit.SECONDS));
+            } finally {
+                connection.close().sync();
+            }
+            assertFalse(recorder.complete.actionGet(30, TimeUnit.SECONDS));
+
+            assertTrue(channelClosed.await(30, TimeUnit.SECONDS));
+            assertThat(encodedChunks.get(), greaterThan(0));
+            // the chunks that were encoded but not written when the channel closed are released
+            assertBusy(() -> {
+                assertThat(breaker.getUsed(), equalTo(0L));
+                assertThat(transport.stats().getServerOpen(), equalTo(0L));
+            });
+        } finally {
+            group.shutdownGracefully().await();
+        }
+    }
+
+    public void testChunkedResponseSerializationFailureAfterHeadersSent() throws Exception {
+        final MockBigArrays bigArrays =
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new ByteSizeValue(100, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final String firstChunk = "{\"field\":\"" + randomAlphaOfLengthBetween(1, 100) + "\"";
+        final HttpServerTransport.Dispatcher dispatcher = chunkedResponseDispatcher(channel -> new ChunkedRestResponseBody() {
+
+            private boolean first = true;
+
+            @Override
+            public boolean isDone() {
+                return false;
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException {
+                if (first == false) {
+                    throw new IOException("simulated serialization failure");
+                }
+                first = false;
+                final ReleasableBytesStreamOutput chunk = new ReleasableBytesStreamOutput(sizeHint, bigArrays);
+                chunk.writeBytes(firstChunk.getBytes(StandardCharsets.UTF_8));
+                return new ReleasableBytesReference(chunk.bytes(), chunk);
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return "application/json";
+            }
+        });
+
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(Settings.EMPTY, networkService, bigArrays, threadPool,
+                xContentRegistry(), dispatcher, clusterSettings, new SharedGroupFactory(Settings.EMPTY))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+            final ResponseRecorder recorder = new ResponseRecorder();
+            final Channel connection = sendRequestWithoutAggregation(group, remoteAddress, "/failing", recorder);
+            try {
+                // the status was already sent, so the failure can only be signalled by closing the connection before the last chunk
+                final io.netty.handler.codec.http.HttpResponse head = recorder.head.actionGet(30, TimeUnit.SECONDS);
+                assertThat(head.status(), equalTo(HttpResponseStatus.OK));
+                assertTrue(HttpUtil.isTransferEncodingChunked(head));
+                assertFalse("the response must not end with the last chunk", recorder.complete.actionGet(30, TimeUnit.SECONDS));
+                assertThat(recorder.content(), equalTo(firstChunk));
+                assertFalse(connection.isOpen());
+            } finally {
+                connection.close().sync();
+            }
+            assertBusy(() -> {
+                assertThat(breaker.getUsed(), equalTo(0L));
+                assertThat(transport.stats().getServerOpen(), equalTo(0L));
+            });
+        } finally {
+            group.shutdownGracefully().await();
+        }
+    }
+
+    private static HttpServerTransport.Dispatcher chunkedResponseDispatcher(
+        CheckedFunction<RestChannel, ChunkedRestResponseBody, IOException> bodySupplier) {
+        return new HttpServerTransport.Dispatcher() {
+            @Override
+            public void dispatchRequest(RestRequest request, RestChannel channel, ThreadContext threadContext) {
+                try {
+                    channel.sendResponse(new ChunkedRestResponse(OK, bodySupplier.apply(channel)));
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+
+            @Override
+            public void dispatchBadRequest(RestChannel channel, ThreadContext threadContext, Throwable cause) {
+                throw new AssertionError(cause);
+            }
+        };
+    }
+
+    /**
+     * Sends a HTTP/1.1 request on a new connection whose response is not aggregated, so that the response head and the way that the
+     * body ends can be observed.
+     */
+    private static Channel sendRequestWithoutAggregation(NioEventLoopGroup group, TransportAddress remoteAddress, String uri,
+                                                         ResponseRecorder recorder) throws InterruptedException {
+        final Bootstrap clientBootstrap = new Bootstrap()
+            .option(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator())
+            .channel(NioSocketChannel.class)
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.pipeline().addLast(new HttpClientCodec());
+                    ch.pipeline().addLast(recorder);
+                }
+            }).group(group);
+        final Channel connection = clientBootstrap.connect(remoteAddress.address()).sync().channel();
+        connection.writeAndFlush(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri));
+        return connection;
+    }
+
+    private static class ResponseRecorder extends SimpleChannelInboundHandler<HttpObject> {
+
+        private final PlainActionFuture<io.netty.handler.codec.http.HttpResponse> head = new PlainActionFuture<>();
+        // completed with true once the last chunk was received and with false if the connection was closed before
+        private final PlainActionFuture<Boolean> complete = new PlainActionFuture<>();
+        private final CountDownLatch contentReceived = new CountDownLatch(1);
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws IOException {
+            if (msg instanceof io.netty.handler.codec.http.HttpResponse) {
+                head.onResponse((io.netty.handler.codec.http.HttpResponse) msg);
+            }
+            if (msg instanceof HttpContent) {
+                final ByteBuf buf = ((HttpContent) msg).content();
+                if (buf.isReadable()) {
+                    synchronized (content) {
+                        buf.readBytes(content, buf.readableBytes());
+                    }
+                    contentReceived.countDown();
+                }
+                // a connection that is closed in the middle of a chunked response is decoded as a failed last chunk
+                if (msg instanceof LastHttpContent && msg.decoderResult().isSuccess()) {
+                    complete.onResponse(true);
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            complete.onResponse(false);
+            super.channelInactive(ctx);
+        }
+
+        String content() {
+            synchronized (content) {
+                return new String(content.toByteArray(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private static Channel sendH2cRequest(Channel connection, String uri, ActionListener<FullHttpResponse> listener) {
+        final Http2StreamChannel stream = new Http2StreamChannelBootstrap(connection).handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(false));
+                ch.pipeline().addLast(new HttpObjectAggregator(new ByteSizeValue(1, ByteSizeUnit.MB).bytesAsInt()));
+                ch.pipeline().addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                        listener.onResponse(response.replace(Unpooled.copiedBuffer(response.content())));
+                    }
+                });
+            }
+        }).open().syncUninterruptibly().getNow();
+        final FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.HOST, "localhost");
+        request.headers().set(HttpConversionUtil.ExtensionHeaderNames.SCHEME.text(), "http");
+        stream.writeAndFlush(request);
+        return stream;
+    }
+
     private Settings createSettings() {
         return createBuilderWithPort().build();
     }
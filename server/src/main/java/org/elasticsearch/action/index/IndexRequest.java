@@ -132,6 +132,8 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         }
         id = in.readOptionalString();
         routing = in.readOptionalString();
+        // copied rather than sliced out of the network buffers: bulk shard requests outlive their transport handler while they are
+        // rerouted, wait for mapping updates and are replicated, and nothing releases their items once they completed
         source = in.readBytesReference();
         opType = OpType.fromId(in.readByte());
         version = in.readLong();
@@ -642,6 +644,7 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         }
         out.writeOptionalString(id);
         out.writeOptionalString(routing);
+        // sources are never releasable (see the constructor above), so bulk shard and replica requests always copy them
         out.writeBytesReference(source);
         out.writeByte(opType.getId());
         out.writeLong(version);
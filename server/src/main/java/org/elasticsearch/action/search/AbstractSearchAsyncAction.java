@@ -33,6 +33,7 @@ import org.elasticsearch.action.search.TransportSearchAction.SearchTimeProvider;
 import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
@@ -220,13 +221,105 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                 }
             }
 
+            final NodeShardsPhase<Result> nodeShardsPhase = nodeShardsPhase();
+            final Map<String, List<NodeShardRequest>> shardRequestsPerNode = nodeShardsPhase != null ? new HashMap<>() : null;
             for (int i = 0; i < shardsIts.size(); i++) {
                 final SearchShardIterator shardRoutings = shardsIts.get(i);
                 assert shardRoutings.skip() == false;
                 assert shardItIndexMap.containsKey(shardRoutings);
                 int shardIndex = shardItIndexMap.get(shardRoutings);
-                performPhaseOnShard(shardIndex, shardRoutings, shardRoutings.nextOrNull());
+                final SearchShardTarget shard = shardRoutings.nextOrNull();
+                if (shardRequestsPerNode != null && shard != null && shard.getClusterAlias() == null) {
+                    shardRequestsPerNode.computeIfAbsent(shard.getNodeId(), n -> new ArrayList<>())
+                        .add(new NodeShardRequest(shardIndex, shardRoutings, shard));
+                } else {
+                    performPhaseOnShard(shardIndex, shardRoutings, shard);
+                }
             }
+            if (shardRequestsPerNode != null) {
+                for (Map.Entry<String, List<NodeShardRequest>> entry : shardRequestsPerNode.entrySet()) {
+                    performPhaseOnNode(nodeShardsPhase, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a single request for several shards that are allocated on the same node.
+     */
+    @FunctionalInterface
+    interface NodeShardsPhase<Result extends SearchPhaseResult> {
+        /**
+         * @param connection the connection to the node
+         * @param shardIts the iterators of the shards, whose current shard routings are all allocated on the node
+         * @param listeners the listeners to notify on the response of each shard, in the same order as the shard iterators
+         */
+        void executePhaseOnShards(Transport.Connection connection,
+                                  List<SearchShardIterator> shardIts,
+                                  List<SearchActionListener<Result>> listeners);
+    }
+
+    /**
+     * Returns how to send the initial requests of this phase to the shards that are allocated on the same node of the local cluster
+     * in a single request, or {@code null} to send them one shard at a time. Requests to further copies of shards that failed are
+     * always sent one shard at a time.
+     */
+    @Nullable
+    protected NodeShardsPhase<Result> nodeShardsPhase() {
+        return null;
+    }
+
+    private void performPhaseOnNode(NodeShardsPhase<Result> nodeShardsPhase, String nodeId, List<NodeShardRequest> shardRequests) {
+        final Transport.Connection connection;
+        try {
+            connection = getConnection(null, nodeId);
+        } catch (Exception e) {
+            for (NodeShardRequest shardRequest : shardRequests) {
+                fork(() -> onShardFailure(shardRequest.shardIndex, shardRequest.shard, shardRequest.shardIt, e));
+            }
+            return;
+        }
+        if (shardRequests.size() == 1 || connection.getVersion().before(Version.V_8_0_0)) {
+            // nothing to batch, or the node does not support batched requests
+            for (NodeShardRequest shardRequest : shardRequests) {
+                performPhaseOnShard(shardRequest.shardIndex, shardRequest.shardIt, shardRequest.shard);
+            }
+            return;
+        }
+        final List<SearchShardIterator> shardIts = new ArrayList<>(shardRequests.size());
+        final List<SearchActionListener<Result>> listeners = new ArrayList<>(shardRequests.size());
+        for (NodeShardRequest shardRequest : shardRequests) {
+            shardIts.add(shardRequest.shardIt);
+            listeners.add(new SearchActionListener<Result>(shardRequest.shard, shardRequest.shardIndex) {
+                @Override
+                public void innerOnResponse(Result result) {
+                    onShardResult(result, shardRequest.shardIt);
+                }
+
+                @Override
+                public void onFailure(Exception t) {
+                    onShardFailure(shardRequest.shardIndex, shardRequest.shard, shardRequest.shardIt, t);
+                }
+            });
+        }
+        try {
+            nodeShardsPhase.executePhaseOnShards(connection, shardIts, listeners);
+        } catch (final Exception e) {
+            for (NodeShardRequest shardRequest : shardRequests) {
+                fork(() -> onShardFailure(shardRequest.shardIndex, shardRequest.shard, shardRequest.shardIt, e));
+            }
+        }
+    }
+
+    private static final class NodeShardRequest {
+        private final int shardIndex;
+        private final SearchShardIterator shardIt;
+        private final SearchShardTarget shard;
+
+        private NodeShardRequest(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard) {
+            this.shardIndex = shardIndex;
+            this.shardIt = shardIt;
+            this.shard = shard;
         }
     }
 
@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.query.CoordinatorRewriteContext;
 import org.elasticsearch.index.query.CoordinatorRewriteContextProvider;
+import org.elasticsearch.index.shard.ShardFieldRangeSummary;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.SearchService.CanMatchResponse;
 import org.elasticsearch.search.SearchShardTarget;
@@ -89,8 +90,15 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
     @Override
     protected void executePhaseOnShard(SearchShardIterator shardIt, SearchShardTarget shard,
                                        SearchActionListener<CanMatchResponse> listener) {
+        final ShardFieldRangeSummaryCache fieldRangeSummaryCache = getSearchTransport().getFieldRangeSummaryCache();
         getSearchTransport().sendCanMatch(getConnection(shard.getClusterAlias(), shard.getNodeId()),
-            buildShardSearchRequest(shardIt, listener.requestIndex), getTask(), listener);
+            buildShardSearchRequest(shardIt, listener.requestIndex), getTask(),
+            ActionListener.delegateFailure(listener, (delegate, response) -> {
+                if (shard.getClusterAlias() == null) {
+                    fieldRangeSummaryCache.onCanMatchResponse(shardIt.shardId(), response.fieldRangeSummary());
+                }
+                delegate.onResponse(response);
+            }));
     }
 
     @Override
@@ -137,7 +145,7 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
     @Override
     protected void performPhaseOnShard(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard) {
         CoordinatorRewriteContext coordinatorRewriteContext =
-            coordinatorRewriteContextProvider.getCoordinatorRewriteContext(shardIt.shardId().getIndex());
+            coordinatorRewriteContextProvider.getCoordinatorRewriteContext(shardIt.shardId().getIndex(), getFieldRangeSummary(shardIt));
 
         if (coordinatorRewriteContext == null) {
             super.performPhaseOnShard(shardIndex, shardIt, shard);
@@ -168,6 +176,22 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
         }
     }
 
+    /**
+     * Returns the cached summary of the field ranges of the given shard if it can be used to rewrite this search request.
+     */
+    private ShardFieldRangeSummary getFieldRangeSummary(SearchShardIterator shardIt) {
+        if (shardIt.getClusterAlias() != null) {
+            // the metadata of remote indices is not in our cluster state so we can't tell whether the summary is still valid
+            return null;
+        }
+        SearchSourceBuilder source = getRequest().source();
+        if (source != null && source.runtimeMappings().isEmpty() == false) {
+            // runtime fields may shadow the fields that were summarized
+            return null;
+        }
+        return getSearchTransport().getFieldRangeSummaryCache().get(shardIt.shardId());
+    }
+
     private static List<SearchShardIterator> sortShards(GroupShardsIterator<SearchShardIterator> shardsIts,
                                                         MinAndMax<?>[] minAndMaxes,
                                                         SortOrder order) {
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTermsAccumulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reduces the top level aggregations of shard results incrementally when they support it. Shard results are merged into
+ * a {@link StringTermsAccumulator} per aggregation as they are consumed so that the cost of a partial reduce only depends
+ * on the size of the new results. Aggregations that cannot be accumulated are returned to the caller to be reduced with
+ * {@link InternalAggregations#topLevelReduce}.
+ * This class is not thread safe, {@link QueryPhaseResultConsumer} runs a single partial reduce at a time.
+ */
+final class IncrementalAggsReducer implements Releasable {
+    private final BigArrays bigArrays;
+    private final Map<String, StringTermsAccumulator> accumulators = new HashMap<>();
+    private final Set<String> nonIncremental = new HashSet<>();
+
+    IncrementalAggsReducer(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+    }
+
+    /**
+     * Merges the aggregations of a shard result that can be reduced incrementally into their accumulator and returns
+     * the aggregations that must be reduced the regular way.
+     */
+    InternalAggregations accept(InternalAggregations aggregations) {
+        final List<InternalAggregation> remaining = new ArrayList<>();
+        for (Aggregation aggregation : aggregations) {
+            final InternalAggregation internalAggregation = (InternalAggregation) aggregation;
+            final String name = internalAggregation.getName();
+            if (nonIncremental.contains(name) == false && StringTermsAccumulator.canAccumulate(internalAggregation)) {
+                accumulators.computeIfAbsent(name, k -> new StringTermsAccumulator(bigArrays)).accept(internalAggregation);
+            } else {
+                // once a result cannot be accumulated we hand the accumulated state over to the regular reduce
+                nonIncremental.add(name);
+                final StringTermsAccumulator accumulator = accumulators.remove(name);
+                if (accumulator != null) {
+                    try (accumulator) {
+                        remaining.add(accumulator.build());
+                    }
+                }
+                remaining.add(internalAggregation);
+            }
+        }
+        return InternalAggregations.from(remaining);
+    }
+
+    /**
+     * Returns the provided partially reduced aggregations together with the accumulated ones.
+     */
+    InternalAggregations build(InternalAggregations reduced) {
+        if (accumulators.isEmpty()) {
+            return reduced;
+        }
+        final List<InternalAggregation> aggregations = reduced.copyResults();
+        for (StringTermsAccumulator accumulator : accumulators.values()) {
+            aggregations.add(accumulator.build());
+        }
+        return InternalAggregations.from(aggregations);
+    }
+
+    /**
+     * The memory used by the accumulators.
+     */
+    long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (StringTermsAccumulator accumulator : accumulators.values()) {
+            ramBytesUsed += accumulator.ramBytesUsed();
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(accumulators.values());
+        accumulators.clear();
+    }
+}
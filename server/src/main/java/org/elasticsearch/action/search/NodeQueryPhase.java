@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.tasks.TaskCancelledException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Executes the query phase on the shards of a {@link SearchTransportService.NodeQueryRequest}, with at most
+ * {@link SearchTransportService.NodeQueryRequest#getMaxConcurrentShardRequests()} shards at a time, and responds once all shards
+ * completed. Shards that are not started yet fail without being executed once the task is cancelled.
+ */
+final class NodeQueryPhase {
+    private final List<ShardSearchRequest> shardRequests;
+    private final int maxConcurrentShardRequests;
+    private final SearchShardTask task;
+    private final BiConsumer<ShardSearchRequest, ActionListener<SearchPhaseResult>> executeQueryPhase;
+    private final ActionListener<SearchTransportService.NodeQueryResponse> listener;
+    private final SearchPhaseResult[] results;
+    private final Exception[] failures;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final CountDown countDown;
+
+    NodeQueryPhase(List<ShardSearchRequest> shardRequests, int maxConcurrentShardRequests, SearchShardTask task,
+                   BiConsumer<ShardSearchRequest, ActionListener<SearchPhaseResult>> executeQueryPhase,
+                   ActionListener<SearchTransportService.NodeQueryResponse> listener) {
+        this.shardRequests = shardRequests;
+        this.maxConcurrentShardRequests = Math.max(1, maxConcurrentShardRequests);
+        this.task = task;
+        this.executeQueryPhase = executeQueryPhase;
+        this.listener = listener;
+        this.results = new SearchPhaseResult[shardRequests.size()];
+        this.failures = new Exception[shardRequests.size()];
+        this.countDown = new CountDown(shardRequests.size());
+    }
+
+    void start() {
+        if (shardRequests.isEmpty()) {
+            listener.onResponse(new SearchTransportService.NodeQueryResponse(results, failures));
+            return;
+        }
+        final int concurrentShardRequests = Math.min(maxConcurrentShardRequests, shardRequests.size());
+        for (int i = 0; i < concurrentShardRequests; i++) {
+            executeShards();
+        }
+    }
+
+    /**
+     * Executes shards one after the other until a shard completes asynchronously, in which case its listener carries on. Shards
+     * that complete on the calling thread, for instance because they fail straight away, are handled by this loop rather than by
+     * recursing from their listener, so that a node request for many shards cannot overflow the stack.
+     */
+    private void executeShards() {
+        int shard;
+        while ((shard = nextShard.getAndIncrement()) < shardRequests.size()) {
+            // whichever of this thread and the listener of the shard gets here second executes the next shard
+            final AtomicBoolean handOff = new AtomicBoolean();
+            executeShard(shard, () -> {
+                if (handOff.compareAndSet(false, true) == false) {
+                    executeShards();
+                }
+            });
+            if (handOff.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void executeShard(int shard, Runnable next) {
+        if (task.isCancelled()) {
+            onShardFailure(shard, new TaskCancelledException("cancelled"), next);
+            return;
+        }
+        try {
+            executeQueryPhase.accept(shardRequests.get(shard), new ActionListener<>() {
+                @Override
+                public void onResponse(SearchPhaseResult result) {
+                    final QuerySearchResult queryResult = result.queryResult();
+                    if (queryResult != null) {
+                        // the coordinating node only measures the round trip of the whole node request, so it must not use the
+                        // queue size and service time of the node for adaptive replica selection as if this shard was sent alone
+                        queryResult.nodeQueueSize(-1);
+                        queryResult.serviceTimeEWMA(-1);
+                    }
+                    results[shard] = result;
+                    onShardDone(next);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    onShardFailure(shard, e, next);
+                }
+            });
+        } catch (Exception e) {
+            onShardFailure(shard, e, next);
+        }
+    }
+
+    private void onShardFailure(int shard, Exception e, Runnable next) {
+        failures[shard] = e;
+        onShardDone(next);
+    }
+
+    private void onShardDone(Runnable next) {
+        next.run();
+        if (countDown.countDown()) {
+            listener.onResponse(new SearchTransportService.NodeQueryResponse(results, failures));
+        }
+    }
+}
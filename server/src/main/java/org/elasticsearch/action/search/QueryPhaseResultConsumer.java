@@ -29,6 +29,7 @@ import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
@@ -75,11 +76,14 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
     private final boolean performFinalReduce;
 
     private final PendingMerges pendingMerges;
+    private final IncrementalAggsReducer incrementalAggsReducer;
     private final Consumer<Exception> onPartialMergeFailure;
 
     /**
      * Creates a {@link QueryPhaseResultConsumer} that incrementally reduces aggregation results
-     * as shard results are consumed.
+     * as shard results are consumed. If <code>incrementalAggsReduce</code> is set, top level terms
+     * aggregations are merged into mutable accumulators on partial reduces instead of being rebuilt
+     * on every partial reduce.
      */
     public QueryPhaseResultConsumer(SearchRequest request,
                                     Executor executor,
@@ -88,6 +92,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
                                     SearchProgressListener progressListener,
                                     NamedWriteableRegistry namedWriteableRegistry,
                                     int expectedResultSize,
+                                    boolean incrementalAggsReduce,
                                     Consumer<Exception> onPartialMergeFailure) {
         super(expectedResultSize);
         this.executor = executor;
@@ -105,11 +110,13 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         this.hasAggs = source != null && source.aggregations() != null;
         int batchReduceSize = (hasAggs || hasTopDocs) ? Math.min(request.getBatchedReduceSize(), expectedResultSize)  : expectedResultSize;
         this.pendingMerges = new PendingMerges(batchReduceSize, request.resolveTrackTotalHitsUpTo());
+        this.incrementalAggsReducer = hasAggs && incrementalAggsReduce
+            ? new IncrementalAggsReducer(BigArrays.NON_RECYCLING_INSTANCE) : null;
     }
 
     @Override
     public void close() {
-        Releasables.close(pendingMerges);
+        Releasables.close(pendingMerges, incrementalAggsReducer);
     }
 
     @Override
@@ -189,7 +196,8 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
                 aggsList.add(lastMerge.reducedAggs);
             }
             for (QuerySearchResult result : toConsume) {
-                aggsList.add(result.consumeAggs().expand());
+                InternalAggregations shardAggs = result.consumeAggs().expand();
+                aggsList.add(incrementalAggsReducer != null ? incrementalAggsReducer.accept(shardAggs) : shardAggs);
             }
             newAggs = InternalAggregations.topLevelReduce(aggsList, aggReduceContextBuilder.forPartialReduction());
         } else {
@@ -203,10 +211,20 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             SearchShardTarget target = result.getSearchShardTarget();
             processedShards.add(new SearchShard(target.getClusterAlias(), target.getShardId()));
         }
-        progressListener.notifyPartialReduce(processedShards, topDocsStats.getTotalHits(), newAggs, numReducePhases);
+        final InternalAggregations partialAggs;
+        if (incrementalAggsReducer != null && progressListener != SearchProgressListener.NOOP) {
+            // only materialize the accumulated aggregations if someone listens to partial results
+            partialAggs = incrementalAggsReducer.build(newAggs);
+        } else {
+            partialAggs = newAggs;
+        }
+        progressListener.notifyPartialReduce(processedShards, topDocsStats.getTotalHits(), partialAggs, numReducePhases);
         // we leave the results un-serialized because serializing is slow but we compute the serialized
         // size as an estimate of the memory used by the newly reduced aggregations.
         long serializedSize = hasAggs ? newAggs.getSerializedSize() : 0;
+        if (incrementalAggsReducer != null) {
+            serializedSize += incrementalAggsReducer.ramBytesUsed();
+        }
         return new MergeResult(processedShards, newTopDocs, newAggs, hasAggs ? serializedSize : 0);
     }
 
@@ -461,7 +479,8 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             }
             List<InternalAggregations> aggsList = new ArrayList<>();
             if (mergeResult != null) {
-                aggsList.add(mergeResult.reducedAggs);
+                aggsList.add(incrementalAggsReducer != null
+                    ? incrementalAggsReducer.build(mergeResult.reducedAggs) : mergeResult.reducedAggs);
             }
             for (QuerySearchResult result : buffer) {
                 aggsList.add(result.consumeAggs().expand());
@@ -20,8 +20,11 @@
 package org.elasticsearch.action.search;
 
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.transport.Transport;
 
@@ -31,30 +34,44 @@ import java.util.function.BiFunction;
 /**
  * A wrapper of search action listeners (search results) that unwraps the query
  * result to get the piggybacked queue size and service time EWMA, adding those
- * values to the coordinating nodes' {@link ResponseCollectorService}.
+ * values to the coordinating nodes' {@link ResponseCollectorService}. It also
+ * reports the query time of the shard copy and tracks the request as being in
+ * flight to that copy until it completes.
  */
 public final class SearchExecutionStatsCollector implements ActionListener<SearchPhaseResult> {
 
     private final ActionListener<SearchPhaseResult> listener;
     private final String nodeId;
+    @Nullable
+    private final ShardId shardId;
     private final ResponseCollectorService collector;
     private final long startNanos;
 
     SearchExecutionStatsCollector(ActionListener<SearchPhaseResult> listener,
                                   ResponseCollectorService collector,
-                                  String nodeId) {
+                                  String nodeId,
+                                  @Nullable ShardId shardId) {
         this.listener = Objects.requireNonNull(listener, "listener cannot be null");
         this.collector = Objects.requireNonNull(collector, "response collector cannot be null");
         this.startNanos = System.nanoTime();
         this.nodeId = nodeId;
+        this.shardId = shardId;
+        if (nodeId != null && shardId != null) {
+            collector.onShardCopyRequestStart(shardId, nodeId);
+        }
     }
 
     public static BiFunction<Transport.Connection, SearchActionListener, ActionListener> makeWrapper(ResponseCollectorService service) {
-        return (connection, originalListener) -> new SearchExecutionStatsCollector(originalListener, service, connection.getNode().getId());
+        return (connection, originalListener) -> {
+            final SearchShardTarget target = originalListener.getSearchShardTarget();
+            return new SearchExecutionStatsCollector(originalListener, service, connection.getNode().getId(),
+                target == null ? null : target.getShardId());
+        };
     }
 
     @Override
     public void onResponse(SearchPhaseResult response) {
+        onRequestEnd();
         QuerySearchResult queryResult = response.queryResult();
         if (nodeId != null && queryResult != null) {
             final long serviceTimeEWMA = queryResult.serviceTimeEWMA();
@@ -64,12 +81,23 @@ public final class SearchExecutionStatsCollector implements ActionListener<Searc
             if (serviceTimeEWMA > 0 && queueSize >= 0) {
                 collector.addNodeStatistics(nodeId, queueSize, responseDuration, serviceTimeEWMA);
             }
+            // the query time may be -1 if the query node doesn't support capturing it
+            if (shardId != null && queryResult.queryTookNanos() >= 0) {
+                collector.addShardCopyStatistics(shardId, nodeId, queryResult.queryTookNanos());
+            }
         }
         listener.onResponse(response);
     }
 
     @Override
     public void onFailure(Exception e) {
+        onRequestEnd();
         listener.onFailure(e);
     }
+
+    private void onRequestEnd() {
+        if (nodeId != null && shardId != null) {
+            collector.onShardCopyRequestEnd(shardId, nodeId);
+        }
+    }
 }
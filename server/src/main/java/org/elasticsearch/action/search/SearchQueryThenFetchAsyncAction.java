@@ -32,6 +32,8 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.transport.Transport;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
@@ -48,6 +50,8 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPh
     private final int trackTotalHitsUpTo;
     private volatile BottomSortValuesCollector bottomSortCollector;
 
+    private final boolean batchShardRequestsPerNode;
+
     SearchQueryThenFetchAsyncAction(final Logger logger, final SearchTransportService searchTransportService,
                                     final BiFunction<String, String, Transport.Connection> nodeIdToConnection,
                                     final Map<String, AliasFilter> aliasFilter,
@@ -58,9 +62,25 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPh
                                     final GroupShardsIterator<SearchShardIterator> shardsIts,
                                     final TransportSearchAction.SearchTimeProvider timeProvider,
                                     ClusterState clusterState, SearchTask task, SearchResponse.Clusters clusters) {
+        this(logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts, searchPhaseController, executor,
+            resultConsumer, request, listener, shardsIts, timeProvider, clusterState, task, clusters, false);
+    }
+
+    SearchQueryThenFetchAsyncAction(final Logger logger, final SearchTransportService searchTransportService,
+                                    final BiFunction<String, String, Transport.Connection> nodeIdToConnection,
+                                    final Map<String, AliasFilter> aliasFilter,
+                                    final Map<String, Float> concreteIndexBoosts,
+                                    final SearchPhaseController searchPhaseController, final Executor executor,
+                                    final QueryPhaseResultConsumer resultConsumer, final SearchRequest request,
+                                    final ActionListener<SearchResponse> listener,
+                                    final GroupShardsIterator<SearchShardIterator> shardsIts,
+                                    final TransportSearchAction.SearchTimeProvider timeProvider,
+                                    ClusterState clusterState, SearchTask task, SearchResponse.Clusters clusters,
+                                    boolean batchShardRequestsPerNode) {
         super("query", logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts,
                 executor, request, listener, shardsIts, timeProvider, clusterState, task,
                 resultConsumer, request.getMaxConcurrentShardRequests(), clusters);
+        this.batchShardRequestsPerNode = batchShardRequestsPerNode;
         this.topDocsSize = getTopDocsSize(request);
         this.trackTotalHitsUpTo = request.resolveTrackTotalHitsUpTo();
         this.searchPhaseController = searchPhaseController;
@@ -82,6 +102,23 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPh
         getSearchTransport().sendExecuteQuery(getConnection(shard.getClusterAlias(), shard.getNodeId()), request, getTask(), listener);
     }
 
+    @Override
+    protected NodeShardsPhase<SearchPhaseResult> nodeShardsPhase() {
+        return batchShardRequestsPerNode ? this::executeQueryOnShards : null;
+    }
+
+    private void executeQueryOnShards(Transport.Connection connection,
+                                      List<SearchShardIterator> shardIts,
+                                      List<SearchActionListener<SearchPhaseResult>> listeners) {
+        final List<ShardSearchRequest> requests = new ArrayList<>(shardIts.size());
+        for (int i = 0; i < shardIts.size(); i++) {
+            requests.add(rewriteShardSearchRequest(super.buildShardSearchRequest(shardIts.get(i), listeners.get(i).requestIndex)));
+        }
+        final SearchTransportService.NodeQueryRequest request = new SearchTransportService.NodeQueryRequest(
+            getRequest().source(), requests, getRequest().getMaxConcurrentShardRequests());
+        getSearchTransport().sendExecuteQuery(connection, request, getTask(), listeners);
+    }
+
     @Override
     protected void onShardGroupFailure(int shardIndex, SearchShardTarget shardTarget, Exception exc) {
         progressListener.notifyQueryFailure(shardIndex, shardTarget, exc);
@@ -32,12 +32,14 @@ import org.elasticsearch.client.OriginSettingClient;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.QueryFetchSearchResult;
@@ -50,6 +52,7 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
+import org.elasticsearch.tasks.Task;
 import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.RemoteClusterService;
@@ -62,10 +65,16 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 /**
  * An encapsulation of {@link org.elasticsearch.search.SearchService} operations exposed through
@@ -79,6 +88,7 @@ public class SearchTransportService {
     public static final String DFS_ACTION_NAME = "indices:data/read/search[phase/dfs]";
     public static final String QUERY_ACTION_NAME = "indices:data/read/search[phase/query]";
     public static final String QUERY_ID_ACTION_NAME = "indices:data/read/search[phase/query/id]";
+    public static final String NODE_QUERY_ACTION_NAME = "indices:data/read/search[phase/query/node]";
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
@@ -89,6 +99,7 @@ public class SearchTransportService {
     private final NodeClient client;
     private final BiFunction<Transport.Connection, SearchActionListener, ActionListener> responseWrapper;
     private final Map<String, Long> clientConnections = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final ShardFieldRangeSummaryCache fieldRangeSummaryCache = new ShardFieldRangeSummaryCache();
 
     public SearchTransportService(TransportService transportService, NodeClient client,
                                   BiFunction<Transport.Connection, SearchActionListener, ActionListener> responseWrapper) {
@@ -124,6 +135,13 @@ public class SearchTransportService {
             TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, SearchService.CanMatchResponse::new));
     }
 
+    /**
+     * Returns the summaries of the field ranges of shards that this node coordinated can_match requests for.
+     */
+    ShardFieldRangeSummaryCache getFieldRangeSummaryCache() {
+        return fieldRangeSummaryCache;
+    }
+
     public void sendClearAllScrollContexts(Transport.Connection connection, final ActionListener<TransportResponse> listener) {
         transportService.sendRequest(connection, CLEAR_SCROLL_CONTEXTS_ACTION_NAME, TransportRequest.Empty.INSTANCE,
             TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, (in) -> TransportResponse.Empty.INSTANCE));
@@ -147,6 +165,41 @@ public class SearchTransportService {
                 new ConnectionCountingHandler<>(handler, reader, clientConnections, connection.getNode().getId()));
     }
 
+    /**
+     * Executes the query phase on several shards of the same node with a single request. The listeners are notified with the result
+     * of each shard, in the same order as the shard requests of the given node request.
+     */
+    public void sendExecuteQuery(Transport.Connection connection, final NodeQueryRequest request, SearchTask task,
+                                 final List<SearchActionListener<SearchPhaseResult>> listeners) {
+        assert request.getShardRequests().size() == listeners.size();
+        final List<ActionListener> handlers = new ArrayList<>(listeners.size());
+        for (SearchActionListener<SearchPhaseResult> listener : listeners) {
+            handlers.add(responseWrapper.apply(connection, listener));
+        }
+        final ActionListener<NodeQueryResponse> handler = new ActionListener<>() {
+            @Override
+            public void onResponse(NodeQueryResponse response) {
+                for (int i = 0; i < handlers.size(); i++) {
+                    final Exception failure = response.getFailure(i);
+                    if (failure != null) {
+                        handlers.get(i).onFailure(failure);
+                    } else {
+                        handlers.get(i).onResponse(response.getResult(i));
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                for (ActionListener shardHandler : handlers) {
+                    shardHandler.onFailure(e);
+                }
+            }
+        };
+        transportService.sendChildRequest(connection, NODE_QUERY_ACTION_NAME, request, task,
+                new ConnectionCountingHandler<>(handler, NodeQueryResponse::new, clientConnections, connection.getNode().getId()));
+    }
+
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final SearchActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
@@ -287,6 +340,142 @@ public class SearchTransportService {
         }
     }
 
+    /**
+     * A request to execute the query phase on several shards of the same node. The search source that the shard requests have in
+     * common is only serialized once.
+     */
+    public static final class NodeQueryRequest extends TransportRequest implements IndicesRequest {
+        @Nullable
+        private final SearchSourceBuilder source;
+        private final List<ShardSearchRequest> shardRequests;
+        private final int maxConcurrentShardRequests;
+
+        NodeQueryRequest(@Nullable SearchSourceBuilder source, List<ShardSearchRequest> shardRequests, int maxConcurrentShardRequests) {
+            this.source = source;
+            this.shardRequests = shardRequests;
+            this.maxConcurrentShardRequests = maxConcurrentShardRequests;
+        }
+
+        NodeQueryRequest(StreamInput in) throws IOException {
+            super(in);
+            source = in.readOptionalWriteable(SearchSourceBuilder::new);
+            maxConcurrentShardRequests = in.readVInt();
+            final int size = in.readVInt();
+            shardRequests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final boolean sharesSource = in.readBoolean();
+                final ShardSearchRequest shardRequest = new ShardSearchRequest(in);
+                if (sharesSource) {
+                    shardRequest.source(source);
+                }
+                shardRequests.add(shardRequest);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeOptionalWriteable(source);
+            out.writeVInt(maxConcurrentShardRequests);
+            out.writeVInt(shardRequests.size());
+            for (ShardSearchRequest shardRequest : shardRequests) {
+                // shard requests usually share the source of the search request, unless it was rewritten for this shard
+                final boolean sharesSource = source != null && shardRequest.source() == source;
+                out.writeBoolean(sharesSource);
+                shardRequest.writeTo(out, sharesSource == false);
+            }
+        }
+
+        public List<ShardSearchRequest> getShardRequests() {
+            return shardRequests;
+        }
+
+        /**
+         * Returns the maximum number of shards of this request to execute concurrently on the node.
+         */
+        public int getMaxConcurrentShardRequests() {
+            return maxConcurrentShardRequests;
+        }
+
+        @Override
+        public String[] indices() {
+            final Set<String> indices = new LinkedHashSet<>();
+            for (ShardSearchRequest shardRequest : shardRequests) {
+                if (shardRequest.indices() != null) {
+                    indices.addAll(Arrays.asList(shardRequest.indices()));
+                }
+            }
+            return indices.toArray(Strings.EMPTY_ARRAY);
+        }
+
+        @Override
+        public IndicesOptions indicesOptions() {
+            return shardRequests.isEmpty() ? null : shardRequests.get(0).indicesOptions();
+        }
+
+        @Override
+        public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+            return new SearchShardTask(id, type, action, getDescription(), parentTaskId, headers);
+        }
+
+        @Override
+        public String getDescription() {
+            return "shardIds" + shardRequests.stream().map(ShardSearchRequest::shardId).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * The results of the query phase on the shards of a {@link NodeQueryRequest}, in the same order as its shard requests. Each shard
+     * either has a result or a failure.
+     */
+    public static final class NodeQueryResponse extends TransportResponse {
+        private final SearchPhaseResult[] results;
+        private final Exception[] failures;
+
+        NodeQueryResponse(SearchPhaseResult[] results, Exception[] failures) {
+            assert results.length == failures.length;
+            this.results = results;
+            this.failures = failures;
+        }
+
+        NodeQueryResponse(StreamInput in) throws IOException {
+            super(in);
+            final int size = in.readVInt();
+            results = new SearchPhaseResult[size];
+            failures = new Exception[size];
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    results[i] = new QuerySearchResult(in);
+                } else {
+                    failures[i] = in.readException();
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(results.length);
+            for (int i = 0; i < results.length; i++) {
+                if (failures[i] == null) {
+                    out.writeBoolean(true);
+                    results[i].writeTo(out);
+                } else {
+                    out.writeBoolean(false);
+                    out.writeException(failures[i]);
+                }
+            }
+        }
+
+        public SearchPhaseResult getResult(int shard) {
+            return results[shard];
+        }
+
+        @Nullable
+        public Exception getFailure(int shard) {
+            return failures[shard];
+        }
+    }
+
     static boolean keepStatesInContext(Version version) {
         return version.before(Version.V_7_10_0);
     }
@@ -329,6 +518,15 @@ public class SearchTransportService {
         TransportActionProxy.registerProxyActionWithDynamicResponseType(transportService, QUERY_ACTION_NAME, true,
             (request) -> ((ShardSearchRequest)request).numberOfShards() == 1 ? QueryFetchSearchResult::new : QuerySearchResult::new);
 
+        transportService.registerRequestHandler(NODE_QUERY_ACTION_NAME, ThreadPool.Names.SAME, NodeQueryRequest::new,
+            (request, channel, task) -> {
+                final boolean keepStatesInContext = keepStatesInContext(channel.getVersion());
+                new NodeQueryPhase(request.getShardRequests(), request.getMaxConcurrentShardRequests(), (SearchShardTask) task,
+                    (shardRequest, listener) -> searchService.executeQueryPhase(shardRequest, keepStatesInContext, (SearchShardTask) task,
+                        listener),
+                    new ChannelActionListener<>(channel, NODE_QUERY_ACTION_NAME, request)).start();
+            });
+
         transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, ThreadPool.Names.SAME, QuerySearchRequest::new,
             (request, channel, task) -> {
                 searchService.executeQueryPhase(request, (SearchShardTask) task,
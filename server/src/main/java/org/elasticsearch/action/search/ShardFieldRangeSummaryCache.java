@@ -0,0 +1,62 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.index.shard.ShardFieldRangeSummary;
+import org.elasticsearch.index.shard.ShardId;
+
+/**
+ * Caches the {@link ShardFieldRangeSummary} that shards return with their can_match responses on the coordinating node, so that
+ * subsequent searches can skip shards that cannot match without sending them a can_match request. Whether a cached summary may still
+ * be used is decided against the cluster state at the time of the search, see
+ * {@link org.elasticsearch.index.query.CoordinatorRewriteContextProvider}.
+ */
+final class ShardFieldRangeSummaryCache {
+
+    /**
+     * The maximum number of shards to keep a summary for, summaries of the least recently used shards are evicted first.
+     */
+    static final int MAX_SHARDS = 10_000;
+
+    private final Cache<ShardId, ShardFieldRangeSummary> cache = CacheBuilder.<ShardId, ShardFieldRangeSummary>builder()
+        .setMaximumWeight(MAX_SHARDS)
+        .build();
+
+    @Nullable
+    ShardFieldRangeSummary get(ShardId shardId) {
+        return cache.get(shardId);
+    }
+
+    /**
+     * Records the summary that the given shard returned with its can_match response. Only primaries return summaries, so a response
+     * without a summary does not drop the cached one: if the shard became writable again, the cluster state tells.
+     */
+    void onCanMatchResponse(ShardId shardId, @Nullable ShardFieldRangeSummary summary) {
+        if (summary != null) {
+            cache.put(shardId, summary);
+        }
+    }
+
+    int count() {
+        return cache.count();
+    }
+}
@@ -104,6 +104,20 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", Long.MAX_VALUE, 1L, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Whether top level terms aggregations are merged into mutable accumulators as shard results are consumed on the
+     * coordinating node, instead of being rebuilt on every partial reduce.
+     */
+    public static final Setting<Boolean> INCREMENTAL_AGGS_REDUCE_SETTING = Setting.boolSetting(
+            "search.aggs.incremental_reduce", false, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * Whether the query phase sends a single request to each node that holds several of the targeted shards, instead of one request
+     * per shard.
+     */
+    public static final Setting<Boolean> BATCHED_QUERY_PHASE_SETTING = Setting.boolSetting(
+            "search.query.batched_per_node", false, Property.Dynamic, Property.NodeScope);
+
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
@@ -789,8 +803,9 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 };
             }, clusters, searchService.getCoordinatorRewriteContextProvider(timeProvider::getAbsoluteStartMillis));
         } else {
+            final boolean incrementalAggsReduce = clusterService.getClusterSettings().get(INCREMENTAL_AGGS_REDUCE_SETTING);
             final QueryPhaseResultConsumer queryResultConsumer = searchPhaseController.newSearchPhaseResults(executor,
-                circuitBreaker, task.getProgressListener(), searchRequest, shardIterators.size(),
+                circuitBreaker, task.getProgressListener(), searchRequest, shardIterators.size(), incrementalAggsReduce,
                 exc -> searchTransportService.cancelSearchTask(task, "failed to merge result [" + exc.getMessage() + "]"));
             AbstractSearchAsyncAction<? extends SearchPhaseResult> searchAsyncAction;
             switch (searchRequest.searchType()) {
@@ -800,9 +815,10 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                         executor, queryResultConsumer, searchRequest, listener, shardIterators, timeProvider, clusterState, task, clusters);
                     break;
                 case QUERY_THEN_FETCH:
+                    final boolean batchedQueryPhase = clusterService.getClusterSettings().get(BATCHED_QUERY_PHASE_SETTING);
                     searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, connectionLookup,
                         aliasFilter, concreteIndexBoosts, searchPhaseController, executor, queryResultConsumer,
-                        searchRequest, listener, shardIterators, timeProvider, clusterState, task, clusters);
+                        searchRequest, listener, shardIterators, timeProvider, clusterState, task, clusters, batchedQueryPhase);
                     break;
                 default:
                     throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
@@ -71,6 +71,7 @@ import org.elasticsearch.tasks.Task;
 import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.RawIndexingDataTransportRequest;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -1108,7 +1109,8 @@ public abstract class TransportReplicationAction<
     }
 
     /** a wrapper class to encapsulate a request when being sent to a specific allocation id **/
-    public static class ConcreteShardRequest<R extends TransportRequest> extends TransportRequest {
+    public static class ConcreteShardRequest<R extends TransportRequest> extends TransportRequest
+        implements RawIndexingDataTransportRequest {
 
         /** {@link AllocationId#getId()} of the shard this request is sent to **/
         private final String targetAllocationID;
@@ -1187,6 +1189,12 @@ public abstract class TransportReplicationAction<
             return localRerouteInitiatedByNodeClient;
         }
 
+        @Override
+        public boolean isRawIndexingData() {
+            return request instanceof RawIndexingDataTransportRequest
+                && ((RawIndexingDataTransportRequest) request).isRawIndexingData();
+        }
+
         public R getRequest() {
             return request;
         }
@@ -253,15 +253,15 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         final int seed = shuffler.nextSeed();
         if (allInitializingShards.isEmpty()) {
             return new PlainShardIterator(shardId,
-                    rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
+                    rankShardsAndUpdateStats(shardId, shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
         }
 
         ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
         List<ShardRouting> rankedActiveShards =
-                rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts);
+                rankShardsAndUpdateStats(shardId, shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts);
         ordered.addAll(rankedActiveShards);
         List<ShardRouting> rankedInitializingShards =
-                rankShardsAndUpdateStats(allInitializingShards, collector, nodeSearchCounts);
+                rankShardsAndUpdateStats(shardId, allInitializingShards, collector, nodeSearchCounts);
         ordered.addAll(rankedInitializingShards);
         return new PlainShardIterator(shardId, ordered);
     }
@@ -284,14 +284,27 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return nodeStats;
     }
 
-    private static Map<String, Double> rankNodes(final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats,
-                                                 final Map<String, Long> nodeSearchCounts) {
+    private static Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>>
+        getShardCopyStats(final ShardId shardId, final Set<String> nodeIds, final ResponseCollectorService collector) {
+
+        final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats = new HashMap<>(nodeIds.size());
+        for (String nodeId : nodeIds) {
+            shardCopyStats.put(nodeId, collector.getShardCopyStatistics(shardId, nodeId));
+        }
+        return shardCopyStats;
+    }
+
+    private static Map<String, Double> rankNodes(
+            final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats,
+            final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats,
+            final Map<String, Long> nodeSearchCounts) {
         final Map<String, Double> nodeRanks = new HashMap<>(nodeStats.size());
         for (Map.Entry<String, Optional<ResponseCollectorService.ComputedNodeStats>> entry : nodeStats.entrySet()) {
             Optional<ResponseCollectorService.ComputedNodeStats> maybeStats = entry.getValue();
             maybeStats.ifPresent(stats -> {
                 final String nodeId = entry.getKey();
-                nodeRanks.put(nodeId, stats.rank(nodeSearchCounts.getOrDefault(nodeId, 1L)));
+                final ResponseCollectorService.ComputedShardCopyStats copyStats = shardCopyStats.get(nodeId).orElse(null);
+                nodeRanks.put(nodeId, stats.rank(nodeSearchCounts.getOrDefault(nodeId, 1L), copyStats));
             });
         }
         return nodeRanks;
@@ -327,7 +340,30 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         }
     }
 
-    private static List<ShardRouting> rankShardsAndUpdateStats(List<ShardRouting> shards, final ResponseCollectorService collector,
+    /**
+     * Adjust the query times of the non-winning copies of the shard for the same reason and in the same way as
+     * {@link #adjustStats} adjusts the statistics of the non-winning nodes.
+     */
+    private static void adjustShardCopyStats(final ResponseCollectorService collector,
+                                             final ShardId shardId,
+                                             final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats,
+                                             final String minNodeId) {
+        final Optional<ResponseCollectorService.ComputedShardCopyStats> maybeMinStats = shardCopyStats.get(minNodeId);
+        if (maybeMinStats.isPresent() == false || maybeMinStats.get().queryTook < 0) {
+            return;
+        }
+        final double minQueryTook = maybeMinStats.get().queryTook;
+        for (Map.Entry<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> entry : shardCopyStats.entrySet()) {
+            final String nodeId = entry.getKey();
+            final Optional<ResponseCollectorService.ComputedShardCopyStats> maybeStats = entry.getValue();
+            if (nodeId.equals(minNodeId) == false && maybeStats.isPresent() && maybeStats.get().queryTook >= 0) {
+                collector.addShardCopyStatistics(shardId, nodeId, (long) (minQueryTook + maybeStats.get().queryTook) / 2);
+            }
+        }
+    }
+
+    private static List<ShardRouting> rankShardsAndUpdateStats(final ShardId shardId, List<ShardRouting> shards,
+                                                               final ResponseCollectorService collector,
                                                                final Map<String, Long> nodeSearchCounts) {
         if (collector == null || nodeSearchCounts == null || shards.size() <= 1) {
             return shards;
@@ -336,9 +372,11 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         // Retrieve which nodes we can potentially send the query to
         final Set<String> nodeIds = getAllNodeIds(shards);
         final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats = getNodeStats(nodeIds, collector);
+        final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats =
+            getShardCopyStats(shardId, nodeIds, collector);
 
         // Retrieve all the nodes the shards exist on
-        final Map<String, Double> nodeRanks = rankNodes(nodeStats, nodeSearchCounts);
+        final Map<String, Double> nodeRanks = rankNodes(nodeStats, shardCopyStats, nodeSearchCounts);
 
         // sort all shards based on the shard rank
         ArrayList<ShardRouting> sortedShards = new ArrayList<>(shards);
@@ -354,6 +392,7 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
                 Optional<ResponseCollectorService.ComputedNodeStats> maybeMinStats = nodeStats.get(minNodeId);
                 if (maybeMinStats.isPresent()) {
                     adjustStats(collector, nodeStats, minNodeId, maybeMinStats.get());
+                    adjustShardCopyStats(collector, shardId, shardCopyStats, minNodeId);
                     // Increase the number of searches for the "winning" node by one.
                     // Note that this doesn't actually affect the "real" counts, instead
                     // it only affects the captured node search counts, which is
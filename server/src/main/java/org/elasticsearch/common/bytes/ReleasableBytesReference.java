@@ -21,11 +21,14 @@ package org.elasticsearch.common.bytes;
 
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.io.stream.FilterStreamInput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
+import org.elasticsearch.common.util.concurrent.RefCounted;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -33,7 +36,7 @@ import java.io.OutputStream;
  * An extension to {@link BytesReference} that requires releasing its content. This
  * class exists to make it explicit when a bytes reference needs to be released, and when not.
  */
-public final class ReleasableBytesReference implements Releasable, BytesReference {
+public final class ReleasableBytesReference implements RefCounted, Releasable, BytesReference {
 
     public static final Releasable NO_OP = () -> {};
     private final BytesReference delegate;
@@ -67,6 +70,21 @@ public final class ReleasableBytesReference implements Releasable, BytesReferenc
         return new ReleasableBytesReference(delegate.slice(from, length), refCounted);
     }
 
+    @Override
+    public void incRef() {
+        refCounted.incRef();
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return refCounted.tryIncRef();
+    }
+
+    @Override
+    public boolean decRef() {
+        return refCounted.decRef();
+    }
+
     @Override
     public void close() {
         refCounted.decRef();
@@ -104,7 +122,23 @@ public final class ReleasableBytesReference implements Releasable, BytesReferenc
 
     @Override
     public StreamInput streamInput() throws IOException {
-        return delegate.streamInput();
+        return new FilterStreamInput(delegate.streamInput()) {
+            @Override
+            public ReleasableBytesReference readReleasableBytesReference() throws IOException {
+                final int length = readVInt();
+                if (length == 0) {
+                    return ReleasableBytesReference.wrap(BytesArray.EMPTY);
+                }
+                final int offset = ReleasableBytesReference.this.length() - available();
+                if (length < 0 || length > available()) {
+                    throw new EOFException("tried to read: " + length + " bytes but only " + available() + " remaining");
+                }
+                final ReleasableBytesReference slice = retainedSlice(offset, length);
+                final long skipped = skip(length);
+                assert skipped == length : skipped + " vs " + length;
+                return slice;
+            }
+        };
     }
 
     @Override
@@ -19,10 +19,20 @@
 
 package org.elasticsearch.common.collect;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class Iterators {
+
+    /**
+     * Returns an iterator over the single given element.
+     */
+    public static <T> Iterator<T> single(T element) {
+        return Collections.singletonList(element).iterator();
+    }
+
+    @SafeVarargs
     public static <T> Iterator<T> concat(Iterator<? extends T>... iterators) {
         if (iterators == null) {
             throw new NullPointerException("iterators");
@@ -36,6 +46,7 @@ public class Iterators {
         private final Iterator<? extends T>[] iterators;
         private int index = 0;
 
+        @SafeVarargs
         ConcatenatedIterator(Iterator<? extends T>... iterators) {
             if (iterators == null) {
                 throw new NullPointerException("iterators");
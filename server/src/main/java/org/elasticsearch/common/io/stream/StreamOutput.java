@@ -170,6 +170,15 @@ public abstract class StreamOutput extends OutputStream {
         bytes.writeTo(this);
     }
 
+    /**
+     * Writes the bytes reference, including a length header, like {@link #writeBytesReference(BytesReference)}. Streams that are sent
+     * over the network as a list of pages may retain a {@link org.elasticsearch.common.bytes.ReleasableBytesReference} instead of
+     * copying it and release it once the message it is part of has been sent. Any other bytes reference is copied.
+     */
+    public void writeZeroCopyBytesReference(@Nullable BytesReference bytes) throws IOException {
+        writeBytesReference(bytes);
+    }
+
     /**
      * Writes an optional bytes reference including a length header. Use this if you need to differentiate between null and empty bytes
      * references. Use {@link #writeBytesReference(BytesReference)} and {@link StreamInput#readBytesReference()} if you do not.
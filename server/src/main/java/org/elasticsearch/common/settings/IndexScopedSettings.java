@@ -35,6 +35,7 @@ import org.elasticsearch.index.MergePolicyConfig;
 import org.elasticsearch.index.MergeSchedulerConfig;
 import org.elasticsearch.index.SearchSlowLog;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.engine.EngineConfig;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.FieldMapper;
@@ -130,6 +131,8 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSettings.MAX_REGEX_LENGTH_SETTING,
             ShardsLimitAllocationDecider.INDEX_TOTAL_SHARDS_PER_NODE_SETTING,
             IndexSettings.INDEX_GC_DELETES_SETTING,
+            IndexSettings.INDEX_VERSION_MAP_PAGED_SETTING,
+            IndexSettings.INDEX_ID_BLOOM_FILTER_SETTING,
             IndexSettings.INDEX_SOFT_DELETES_SETTING,
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING,
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING,
@@ -154,6 +157,9 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             MapperService.INDEX_MAPPING_DEPTH_LIMIT_SETTING,
             MapperService.INDEX_MAPPING_FIELD_NAME_LENGTH_LIMIT_SETTING,
             BitsetFilterCache.INDEX_LOAD_RANDOM_ACCESS_FILTERS_EAGERLY_SETTING,
+            PreAggregationCache.INDEX_PRE_AGGREGATION_DIMENSIONS_SETTING,
+            PreAggregationCache.INDEX_PRE_AGGREGATION_METRICS_SETTING,
+            PreAggregationCache.INDEX_PRE_AGGREGATION_MAX_ORDINALS_SETTING,
             IndexModule.INDEX_STORE_TYPE_SETTING,
             IndexModule.INDEX_STORE_PRE_LOAD_SETTING,
             IndexModule.INDEX_RECOVERY_TYPE_SETTING,
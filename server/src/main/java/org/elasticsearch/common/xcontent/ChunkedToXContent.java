@@ -0,0 +1,35 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.xcontent;
+
+import java.util.Iterator;
+
+/**
+ * An object that can render itself as xcontent in a sequence of parts, such that a large object can be serialized incrementally
+ * rather than into a single buffer at once. Writing all parts, in order, into the same {@link XContentBuilder} produces a complete
+ * xcontent object.
+ */
+public interface ChunkedToXContent {
+
+    /**
+     * Returns the parts that serialize this object when written one after the other into the same {@link XContentBuilder}.
+     */
+    Iterator<? extends ToXContent> toXContentChunked(ToXContent.Params params);
+}
@@ -57,6 +57,11 @@ public class XContentHelper {
             }
             final XContentType contentType = XContentFactory.xContentType(compressedInput);
             return XContentFactory.xContent(contentType).createParser(xContentRegistry, deprecationHandler, compressedInput);
+        } else if (bytes instanceof BytesArray) {
+            // parse the array in place rather than through a stream that copies it in chunks
+            final BytesArray array = (BytesArray) bytes;
+            return XContentFactory.xContent(xContentType(bytes)).createParser(
+                    xContentRegistry, deprecationHandler, array.array(), array.offset(), array.length());
         } else {
             return XContentFactory.xContent(xContentType(bytes)).createParser(xContentRegistry, deprecationHandler, bytes.streamInput());
         }
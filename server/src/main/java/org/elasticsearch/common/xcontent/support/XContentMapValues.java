@@ -25,11 +25,15 @@ import org.apache.lucene.util.automaton.CharacterRunAutomaton;
 import org.apache.lucene.util.automaton.Operations;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Booleans;
+import org.elasticsearch.common.CheckedBiConsumer;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -211,16 +215,52 @@ public class XContentMapValues {
      */
     public static Function<Map<String, ?>, Map<String, Object>> filter(String[] includes, String[] excludes) {
         CharacterRunAutomaton matchAllAutomaton = new CharacterRunAutomaton(Automata.makeAnyString());
+        CharacterRunAutomaton include = includeAutomaton(includes, matchAllAutomaton);
+        CharacterRunAutomaton exclude = excludeAutomaton(excludes);
 
-        CharacterRunAutomaton include;
+        // NOTE: We cannot use Operations.minus because of the special case that
+        // we want all sub properties to match as soon as an object matches
+
+        return (map) -> filter(map,
+            include, 0,
+            exclude, 0,
+            matchAllAutomaton);
+    }
+
+    /**
+     * Returns a function that copies the object the parser is positioned on to the builder, keeping the same
+     * properties as {@link #filter(String[], String[])} would keep but without materializing the object as a map.
+     * Properties are written in the order of the parsed content and objects or arrays that are empty after filtering
+     * are dropped unless they matched an include.
+     * @see #filter(Map, String[], String[]) for details
+     */
+    public static CheckedBiConsumer<XContentParser, XContentBuilder, IOException> filterStream(String[] includes, String[] excludes) {
+        CharacterRunAutomaton matchAllAutomaton = new CharacterRunAutomaton(Automata.makeAnyString());
+        CharacterRunAutomaton include = includeAutomaton(includes, matchAllAutomaton);
+        CharacterRunAutomaton exclude = excludeAutomaton(excludes);
+
+        return (parser, builder) -> {
+            XContentParser.Token token = parser.currentToken() == null ? parser.nextToken() : parser.currentToken();
+            if (token != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("expected an object but got [{}]", token);
+            }
+            FilteredContentBuilder out = new FilteredContentBuilder(builder);
+            out.push(null, true);
+            filter(parser, out, include, 0, exclude, 0, matchAllAutomaton);
+            out.pop(true);
+        };
+    }
+
+    private static CharacterRunAutomaton includeAutomaton(String[] includes, CharacterRunAutomaton matchAllAutomaton) {
         if (includes == null || includes.length == 0) {
-            include = matchAllAutomaton;
-        } else {
-            Automaton includeA = Regex.simpleMatchToAutomaton(includes);
-            includeA = makeMatchDotsInFieldNames(includeA);
-            include = new CharacterRunAutomaton(includeA);
+            return matchAllAutomaton;
         }
+        Automaton includeA = Regex.simpleMatchToAutomaton(includes);
+        includeA = makeMatchDotsInFieldNames(includeA);
+        return new CharacterRunAutomaton(includeA);
+    }
 
+    private static CharacterRunAutomaton excludeAutomaton(String[] excludes) {
         Automaton excludeA;
         if (excludes == null || excludes.length == 0) {
             excludeA = Automata.makeEmpty();
@@ -228,15 +268,7 @@ public class XContentMapValues {
             excludeA = Regex.simpleMatchToAutomaton(excludes);
             excludeA = makeMatchDotsInFieldNames(excludeA);
         }
-        CharacterRunAutomaton exclude = new CharacterRunAutomaton(excludeA);
-
-        // NOTE: We cannot use Operations.minus because of the special case that
-        // we want all sub properties to match as soon as an object matches
-
-        return (map) -> filter(map,
-            include, 0,
-            exclude, 0,
-            matchAllAutomaton);
+        return new CharacterRunAutomaton(excludeA);
     }
 
     /** Make matches on objects also match dots in field names.
@@ -361,6 +393,180 @@ public class XContentMapValues {
         return filtered;
     }
 
+    /**
+     * Streaming counterpart of {@link #filter(Map, CharacterRunAutomaton, int, CharacterRunAutomaton, int, CharacterRunAutomaton)},
+     * the parser must be positioned on the start of the object and is left on its end.
+     */
+    private static void filter(XContentParser parser, FilteredContentBuilder out,
+            CharacterRunAutomaton includeAutomaton, int initialIncludeState,
+            CharacterRunAutomaton excludeAutomaton, int initialExcludeState,
+            CharacterRunAutomaton matchAllAutomaton) throws IOException {
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            assert token == XContentParser.Token.FIELD_NAME : token;
+            String key = parser.currentName();
+            token = parser.nextToken();
+
+            int includeState = step(includeAutomaton, key, initialIncludeState);
+            if (includeState == -1) {
+                parser.skipChildren();
+                continue;
+            }
+
+            int excludeState = step(excludeAutomaton, key, initialExcludeState);
+            if (excludeState != -1 && excludeAutomaton.isAccept(excludeState)) {
+                parser.skipChildren();
+                continue;
+            }
+
+            CharacterRunAutomaton subIncludeAutomaton = includeAutomaton;
+            int subIncludeState = includeState;
+            if (includeAutomaton.isAccept(includeState)) {
+                if (excludeState == -1 || excludeAutomaton.step(excludeState, '.') == -1) {
+                    // the exclude has no chances to match inner properties
+                    out.copy(key, parser);
+                    continue;
+                } else {
+                    // the object matched, so consider that the include matches every inner property
+                    // we only care about excludes now
+                    subIncludeAutomaton = matchAllAutomaton;
+                    subIncludeState = 0;
+                }
+            }
+
+            if (token == XContentParser.Token.START_OBJECT) {
+
+                subIncludeState = subIncludeAutomaton.step(subIncludeState, '.');
+                if (subIncludeState == -1) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (excludeState != -1) {
+                    excludeState = excludeAutomaton.step(excludeState, '.');
+                }
+
+                out.push(key, true);
+                filter(parser, out, subIncludeAutomaton, subIncludeState, excludeAutomaton, excludeState, matchAllAutomaton);
+                out.pop(includeAutomaton.isAccept(includeState));
+
+            } else if (token == XContentParser.Token.START_ARRAY) {
+
+                out.push(key, false);
+                filterArray(parser, out, subIncludeAutomaton, subIncludeState, excludeAutomaton, excludeState, matchAllAutomaton);
+                out.pop(includeAutomaton.isAccept(includeState));
+
+            } else {
+
+                // leaf property
+                if (includeAutomaton.isAccept(includeState)
+                        && (excludeState == -1 || excludeAutomaton.isAccept(excludeState) == false)) {
+                    out.copy(key, parser);
+                }
+
+            }
+        }
+    }
+
+    /**
+     * Streaming counterpart of {@link #filter(Iterable, CharacterRunAutomaton, int, CharacterRunAutomaton, int, CharacterRunAutomaton)},
+     * the parser must be positioned on the start of the array and is left on its end.
+     */
+    private static void filterArray(XContentParser parser, FilteredContentBuilder out,
+            CharacterRunAutomaton includeAutomaton, int initialIncludeState,
+            CharacterRunAutomaton excludeAutomaton, int initialExcludeState,
+            CharacterRunAutomaton matchAllAutomaton) throws IOException {
+        boolean isInclude = includeAutomaton.isAccept(initialIncludeState);
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.START_OBJECT) {
+                int includeState = includeAutomaton.step(initialIncludeState, '.');
+                int excludeState = initialExcludeState;
+                if (excludeState != -1) {
+                    excludeState = excludeAutomaton.step(excludeState, '.');
+                }
+                out.push(null, true);
+                filter(parser, out, includeAutomaton, includeState, excludeAutomaton, excludeState, matchAllAutomaton);
+                out.pop(false);
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                out.push(null, false);
+                filterArray(parser, out, includeAutomaton, initialIncludeState, excludeAutomaton, initialExcludeState, matchAllAutomaton);
+                out.pop(false);
+            } else if (isInclude) {
+                // #22557: only accept this array value if the key we are on is accepted:
+                out.copy(null, parser);
+            }
+        }
+    }
+
+    /**
+     * Wraps the builder of a streaming filter so that objects and arrays are only started once they get a value,
+     * which allows to drop the ones that are empty after filtering.
+     */
+    private static class FilteredContentBuilder {
+
+        private final XContentBuilder builder;
+        private final List<String> names = new ArrayList<>();
+        private final List<Boolean> objects = new ArrayList<>();
+        private int started = 0;
+
+        FilteredContentBuilder(XContentBuilder builder) {
+            this.builder = builder;
+        }
+
+        /**
+         * Opens an object or an array, which is written lazily. The name is {@code null} for array values.
+         */
+        void push(String name, boolean object) {
+            names.add(name);
+            objects.add(object);
+        }
+
+        /**
+         * Closes the current object or array, which is written even if it is empty when {@code force} is set.
+         */
+        void pop(boolean force) throws IOException {
+            if (force) {
+                start();
+            }
+            int last = names.size() - 1;
+            if (started > last) {
+                if (objects.get(last)) {
+                    builder.endObject();
+                } else {
+                    builder.endArray();
+                }
+                started = last;
+            }
+            names.remove(last);
+            objects.remove(last);
+        }
+
+        /**
+         * Copies the value the parser is positioned on, including its children.
+         */
+        void copy(String name, XContentParser parser) throws IOException {
+            start();
+            if (name != null) {
+                builder.field(name);
+            }
+            builder.copyCurrentStructure(parser);
+        }
+
+        private void start() throws IOException {
+            for (; started < names.size(); started++) {
+                String name = names.get(started);
+                if (name != null) {
+                    builder.field(name);
+                }
+                if (objects.get(started)) {
+                    builder.startObject();
+                } else {
+                    builder.startArray();
+                }
+            }
+        }
+    }
+
     public static boolean isObject(Object node) {
         return node instanceof Map;
     }
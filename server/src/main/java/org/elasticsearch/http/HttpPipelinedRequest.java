@@ -20,6 +20,8 @@
 package org.elasticsearch.http;
 
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
@@ -76,6 +78,16 @@ public class HttpPipelinedRequest implements HttpRequest, HttpPipelinedMessage {
         return new HttpPipelinedResponse(sequence, delegate.createResponse(status, content));
     }
 
+    @Override
+    public boolean supportsChunkedResponses() {
+        return delegate.supportsChunkedResponses();
+    }
+
+    @Override
+    public HttpPipelinedResponse createResponse(RestStatus status, ChunkedRestResponseBody content, BigArrays bigArrays) {
+        return new HttpPipelinedResponse(sequence, delegate.createResponse(status, content, bigArrays));
+    }
+
     @Override
     public void release() {
         delegate.release();
@@ -21,6 +21,8 @@ package org.elasticsearch.http;
 
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
@@ -86,6 +88,21 @@ public interface HttpRequest {
      */
     HttpResponse createResponse(RestStatus status, BytesReference content);
 
+    /**
+     * Whether {@link #createResponse(RestStatus, ChunkedRestResponseBody, BigArrays)} can be used to respond to this request.
+     */
+    default boolean supportsChunkedResponses() {
+        return false;
+    }
+
+    /**
+     * Create an http response from this request and the supplied status whose content is serialized into pages of the given
+     * {@link BigArrays} in chunks, as the response is written to the network.
+     */
+    default HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content, BigArrays bigArrays) {
+        throw new UnsupportedOperationException("chunked responses are not supported by [" + getClass().getName() + "]");
+    }
+
     @Nullable
     Exception getInboundException();
 
@@ -231,6 +231,21 @@ public final class IndexSettings {
         Setting.timeSetting("index.gc_deletes", DEFAULT_GC_DELETES, new TimeValue(-1, TimeUnit.MILLISECONDS),
             Property.Dynamic, Property.IndexScope);
 
+    /**
+     * Specifies if the engine should keep the versions of documents that were updated since the last refresh in pages obtained from
+     * {@link org.elasticsearch.common.util.BigArrays} rather than in a concurrent hash map. This reduces the number of objects that
+     * update heavy indices with long refresh intervals keep on the heap at the cost of materializing versions on every lookup.
+     */
+    public static final Setting<Boolean> INDEX_VERSION_MAP_PAGED_SETTING =
+        Setting.boolSetting("index.version_map.paged", false, Property.IndexScope);
+
+    /**
+     * Specifies if the {@code _id} field should be indexed with a per-segment bloom filter in front of its terms dictionary. This lets
+     * id lookups skip segments that cannot contain the id, which speeds up indexing with explicit ids that are rarely updated.
+     */
+    public static final Setting<Boolean> INDEX_ID_BLOOM_FILTER_SETTING =
+        Setting.boolSetting("index.id_bloom_filter.enabled", false, Property.IndexScope);
+
     /**
      * Specifies if the index should use soft-delete instead of hard-delete for update/delete operations.
      * Soft-deletes is enabled by default for 7.0 indices and mandatory for 8.0 indices.
@@ -354,6 +369,8 @@ public final class IndexSettings {
     private final IndexScopedSettings scopedSettings;
     private long gcDeletesInMillis = DEFAULT_GC_DELETES.millis();
     private final boolean softDeleteEnabled;
+    private final boolean versionMapPaged;
+    private final boolean idBloomFilterEnabled;
     private volatile long softDeleteRetentionOperations;
 
     private volatile long retentionLeaseMillis;
@@ -489,6 +506,8 @@ public final class IndexSettings {
         mergeSchedulerConfig = new MergeSchedulerConfig(this);
         gcDeletesInMillis = scopedSettings.get(INDEX_GC_DELETES_SETTING).getMillis();
         softDeleteEnabled = scopedSettings.get(INDEX_SOFT_DELETES_SETTING);
+        versionMapPaged = scopedSettings.get(INDEX_VERSION_MAP_PAGED_SETTING);
+        idBloomFilterEnabled = scopedSettings.get(INDEX_ID_BLOOM_FILTER_SETTING);
         assert softDeleteEnabled || version.before(Version.V_8_0_0) : "soft deletes must be enabled in version " + version;
         softDeleteRetentionOperations = scopedSettings.get(INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING);
         retentionLeaseMillis = scopedSettings.get(INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING).millis();
@@ -971,6 +990,20 @@ public final class IndexSettings {
         return softDeleteEnabled;
     }
 
+    /**
+     * Returns <code>true</code> if the engine should keep its live version map in paged storage.
+     */
+    public boolean isVersionMapPaged() {
+        return versionMapPaged;
+    }
+
+    /**
+     * Returns <code>true</code> if the <code>_id</code> field should be indexed with a per-segment bloom filter.
+     */
+    public boolean isIdBloomFilterEnabled() {
+        return idBloomFilterEnabled;
+    }
+
     private void setSoftDeleteRetentionOperations(long ops) {
         this.softDeleteRetentionOperations = ops;
     }
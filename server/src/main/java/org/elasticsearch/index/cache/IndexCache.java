@@ -23,6 +23,7 @@ import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.cache.query.QueryCache;
 
 import java.io.Closeable;
@@ -32,11 +33,14 @@ public class IndexCache extends AbstractIndexComponent implements Closeable {
 
     private final QueryCache queryCache;
     private final BitsetFilterCache bitsetFilterCache;
+    private final PreAggregationCache preAggregationCache;
 
-    public IndexCache(IndexSettings indexSettings, QueryCache queryCache, BitsetFilterCache bitsetFilterCache) {
+    public IndexCache(IndexSettings indexSettings, QueryCache queryCache, BitsetFilterCache bitsetFilterCache,
+                      PreAggregationCache preAggregationCache) {
         super(indexSettings);
         this.queryCache = queryCache;
         this.bitsetFilterCache = bitsetFilterCache;
+        this.preAggregationCache = preAggregationCache;
     }
 
     public QueryCache query() {
@@ -50,14 +54,22 @@ public class IndexCache extends AbstractIndexComponent implements Closeable {
         return bitsetFilterCache;
     }
 
+    /**
+     * Return the {@link PreAggregationCache} for this index.
+     */
+    public PreAggregationCache preAggregationCache() {
+        return preAggregationCache;
+    }
+
     @Override
     public void close() throws IOException {
-        IOUtils.close(queryCache, bitsetFilterCache);
+        IOUtils.close(queryCache, bitsetFilterCache, preAggregationCache);
     }
 
     public void clear(String reason) {
         queryCache.clear(reason);
         bitsetFilterCache.clear(reason);
+        preAggregationCache.clear(reason);
     }
 
 }
@@ -0,0 +1,477 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.preaggregation;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.IndexWarmer;
+import org.elasticsearch.index.IndexWarmer.TerminationHandle;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.fielddata.plain.SortedNumericIndexFieldData;
+import org.elasticsearch.index.fielddata.plain.SortedSetOrdinalsIndexFieldData;
+import org.elasticsearch.index.mapper.DocCountFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.search.aggregations.metrics.CompensatedSum;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * A cache of per-segment rollups of the {@code index.pre_aggregation.metrics} fields of an index grouped by each of its
+ * {@code index.pre_aggregation.dimensions} fields. Aggregations that only group by a dimension and only compute metrics on
+ * metric fields can read a segment's buckets from its rollup instead of collecting all of its documents.
+ * <p>
+ * Rollups are built when new segments are warmed after a refresh, flush or merge, and on first use otherwise. They are
+ * kept until the segment is closed. Only segments without deleted documents and without a {@code _doc_count} field are
+ * rolled up, and only if the dimension has at most {@code index.pre_aggregation.max_ordinals} distinct values in the segment.
+ * Rollups are only built from the doc values of mapped fields, never from scripts, and their memory is accounted on the
+ * {@link CircuitBreaker#FIELDDATA} circuit breaker. A segment whose rollup would trip the breaker is collected document by
+ * document instead.
+ * <p>
+ * The settings are <b>final</b> and can only be defined at index creation.
+ */
+public final class PreAggregationCache extends AbstractIndexComponent implements IndexReader.ClosedListener, Closeable {
+
+    /**
+     * The keyword fields that pre-aggregated aggregations may group by.
+     */
+    public static final Setting<List<String>> INDEX_PRE_AGGREGATION_DIMENSIONS_SETTING =
+        Setting.listSetting("index.pre_aggregation.dimensions", Collections.emptyList(),
+            Function.identity(), Property.IndexScope, Property.Final);
+
+    /**
+     * The numeric fields that pre-aggregated aggregations may compute metrics on.
+     */
+    public static final Setting<List<String>> INDEX_PRE_AGGREGATION_METRICS_SETTING =
+        Setting.listSetting("index.pre_aggregation.metrics", Collections.emptyList(),
+            Function.identity(), Property.IndexScope, Property.Final);
+
+    /**
+     * The maximum number of distinct values of a dimension in a segment for the segment to be rolled up.
+     */
+    public static final Setting<Integer> INDEX_PRE_AGGREGATION_MAX_ORDINALS_SETTING =
+        Setting.intSetting("index.pre_aggregation.max_ordinals", 10_000, 1, Property.IndexScope, Property.Final);
+
+    private final Set<String> dimensions;
+    private final Set<String> metrics;
+    private final int maxOrdinals;
+    private final CircuitBreakerService circuitBreakerService;
+    private final Cache<IndexReader.CacheKey, Cache<RollupKey, Rollup>> rollups;
+
+    public PreAggregationCache(IndexSettings indexSettings, CircuitBreakerService circuitBreakerService) {
+        super(indexSettings);
+        this.dimensions = Collections.unmodifiableSet(new HashSet<>(indexSettings.getValue(INDEX_PRE_AGGREGATION_DIMENSIONS_SETTING)));
+        this.metrics = Collections.unmodifiableSet(new HashSet<>(indexSettings.getValue(INDEX_PRE_AGGREGATION_METRICS_SETTING)));
+        this.maxOrdinals = indexSettings.getValue(INDEX_PRE_AGGREGATION_MAX_ORDINALS_SETTING);
+        this.circuitBreakerService = circuitBreakerService;
+        this.rollups = CacheBuilder.<IndexReader.CacheKey, Cache<RollupKey, Rollup>>builder()
+            .removalListener(notification -> notification.getValue().invalidateAll())
+            .build();
+    }
+
+    public IndexWarmer.Listener createListener(ThreadPool threadPool, IndexFieldDataService indexFieldDataService) {
+        return new RollupWarmer(threadPool, indexFieldDataService);
+    }
+
+    /**
+     * Returns true if the given field is configured as a dimension.
+     */
+    public boolean isDimension(String field) {
+        return dimensions.contains(field);
+    }
+
+    /**
+     * Returns true if the given field is configured as a metric.
+     */
+    public boolean isMetric(String field) {
+        return metrics.contains(field);
+    }
+
+    /**
+     * Returns true if the values of the given field data can be rolled up, that is if it reads the doc values
+     * of a configured dimension.
+     */
+    public boolean isDimension(IndexOrdinalsFieldData fieldData) {
+        return fieldData instanceof SortedSetOrdinalsIndexFieldData && isDimension(fieldData.getFieldName());
+    }
+
+    /**
+     * Returns true if the values of the given field data can be rolled up, that is if it reads the doc values
+     * of a configured metric.
+     */
+    public boolean isMetric(IndexNumericFieldData fieldData) {
+        return fieldData instanceof SortedNumericIndexFieldData && isMetric(fieldData.getFieldName());
+    }
+
+    /**
+     * The number of bytes held by the cached rollups.
+     */
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Cache<RollupKey, Rollup> segmentRollups : rollups.values()) {
+            for (Rollup rollup : segmentRollups.values()) {
+                ramBytesUsed += rollup.ramBytesUsed();
+            }
+        }
+        return ramBytesUsed;
+    }
+
+    /**
+     * Returns the rollup of the segment grouped by the ordinals of {@code dimension}, building it if it isn't cached yet. If
+     * {@code metric} is {@code null} the rollup only holds the document count of each ordinal, otherwise it holds the statistics
+     * of the values of {@code metric}.
+     *
+     * @return the rollup or {@code null} if the segment can't be rolled up by these fields
+     */
+    @Nullable
+    public Rollup getRollup(LeafReaderContext context, IndexOrdinalsFieldData dimension,
+                            @Nullable IndexNumericFieldData metric) throws IOException {
+        if (isDimension(dimension) == false || (metric != null && isMetric(metric) == false)) {
+            return null;
+        }
+        if (context.reader().getLiveDocs() != null || context.reader().getFieldInfos().fieldInfo(DocCountFieldMapper.NAME) != null) {
+            // the rollups would have to be rebuilt whenever a document is deleted and can't weigh documents
+            return null;
+        }
+        final IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+        if (cacheHelper == null) {
+            return null;
+        }
+        final Cache<RollupKey, Rollup> segmentRollups;
+        try {
+            segmentRollups = rollups.computeIfAbsent(cacheHelper.getKey(), key -> {
+                cacheHelper.addClosedListener(PreAggregationCache.this);
+                return CacheBuilder.<RollupKey, Rollup>builder()
+                    .removalListener(notification -> breaker().addWithoutBreaking(-notification.getValue().ramBytesUsed()))
+                    .build();
+            });
+        } catch (ExecutionException e) {
+            throw ExceptionsHelper.convertToElastic(e);
+        }
+        try {
+            final Rollup rollup = segmentRollups.computeIfAbsent(new RollupKey(dimension, metric),
+                k -> buildRollup(context, dimension, metric));
+            return rollup == Rollup.NONE ? null : rollup;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CircuitBreakingException) {
+                // the rollup is an optimization, the segment can still be collected document by document
+                logger.debug("not enough memory to pre-aggregate segment [{}] by [{}]", context.ord, dimension.getFieldName());
+                return null;
+            }
+            throw ExceptionsHelper.convertToElastic(e);
+        }
+    }
+
+    private CircuitBreaker breaker() {
+        return circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA);
+    }
+
+    private Rollup buildRollup(LeafReaderContext context, IndexOrdinalsFieldData dimension,
+                               @Nullable IndexNumericFieldData metric) throws IOException {
+        final SortedSetDocValues ordinals = dimension.load(context).getOrdinalsValues();
+        if (ordinals.getValueCount() > maxOrdinals) {
+            return Rollup.NONE;
+        }
+        final int size = (int) ordinals.getValueCount();
+        final long ramBytesUsed = Rollup.ramBytesUsed(size, metric != null);
+        breaker().addEstimateBytesAndMaybeBreak(ramBytesUsed, "<pre_aggregation>");
+        try {
+            return buildRollup(ordinals, size, metric == null ? null : metric.load(context).getDoubleValues());
+        } catch (Exception e) {
+            breaker().addWithoutBreaking(-ramBytesUsed);
+            throw e;
+        }
+    }
+
+    private static Rollup buildRollup(SortedSetDocValues ordinals, int size, @Nullable SortedNumericDoubleValues values)
+            throws IOException {
+        final long[] counts = new long[size];
+        if (values == null) {
+            for (int doc = ordinals.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = ordinals.nextDoc()) {
+                for (long ord = ordinals.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = ordinals.nextOrd()) {
+                    counts[(int) ord]++;
+                }
+            }
+            return new Rollup(counts, null, null, null);
+        }
+        final double[] sums = new double[size];
+        final double[] compensations = new double[size];
+        final double[] mins = new double[size];
+        final double[] maxes = new double[size];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+        final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
+        double[] docValues = new double[1];
+        for (int doc = ordinals.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = ordinals.nextDoc()) {
+            if (values.advanceExact(doc) == false) {
+                continue;
+            }
+            final int valueCount = values.docValueCount();
+            if (docValues.length < valueCount) {
+                docValues = new double[valueCount];
+            }
+            for (int i = 0; i < valueCount; i++) {
+                docValues[i] = values.nextValue();
+            }
+            for (long ord = ordinals.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = ordinals.nextOrd()) {
+                final int o = (int) ord;
+                counts[o] += valueCount;
+                kahanSummation.reset(sums[o], compensations[o]);
+                for (int i = 0; i < valueCount; i++) {
+                    kahanSummation.add(docValues[i]);
+                    mins[o] = Math.min(mins[o], docValues[i]);
+                    maxes[o] = Math.max(maxes[o], docValues[i]);
+                }
+                sums[o] = kahanSummation.value();
+                compensations[o] = kahanSummation.delta();
+            }
+        }
+        return new Rollup(counts, sums, mins, maxes);
+    }
+
+    @Override
+    public void onClose(IndexReader.CacheKey ownerCoreCacheKey) {
+        rollups.invalidate(ownerCoreCacheKey);
+    }
+
+    @Override
+    public void close() {
+        clear("close");
+    }
+
+    public void clear(String reason) {
+        logger.debug("clearing all pre-aggregated rollups because [{}]", reason);
+        rollups.invalidateAll();
+    }
+
+    /**
+     * The statistics of a segment grouped by the segment ordinals of a dimension.
+     */
+    public static final class Rollup implements Accountable {
+
+        /**
+         * Marks segments whose dimension has too many distinct values to be rolled up.
+         */
+        private static final Rollup NONE = new Rollup(new long[0], null, null, null);
+
+        private final long[] counts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxes;
+
+        private Rollup(long[] counts, double[] sums, double[] mins, double[] maxes) {
+            this.counts = counts;
+            this.sums = sums;
+            this.mins = mins;
+            this.maxes = maxes;
+        }
+
+        private static long ramBytesUsed(int size, boolean hasMetric) {
+            final long counts = RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) size * Long.BYTES);
+            final long doubles = RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) size * Double.BYTES);
+            return RamUsageEstimator.shallowSizeOfInstance(Rollup.class) + counts + (hasMetric ? 3 * doubles : 0);
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return this == NONE ? 0 : ramBytesUsed(size(), sums != null);
+        }
+
+        /**
+         * The number of segment ordinals of the dimension.
+         */
+        public int size() {
+            return counts.length;
+        }
+
+        /**
+         * The number of documents with the given ordinal, or the number of metric values of these documents if the rollup
+         * holds a metric.
+         */
+        public long count(long ord) {
+            return counts[(int) ord];
+        }
+
+        public double sum(long ord) {
+            return sums[(int) ord];
+        }
+
+        public double min(long ord) {
+            return mins[(int) ord];
+        }
+
+        public double max(long ord) {
+            return maxes[(int) ord];
+        }
+    }
+
+    /**
+     * Identifies the doc values a rollup was read from. The field data implementation and value type are part of the key
+     * so that a rollup is never shared by field data that read a field differently.
+     */
+    private static final class RollupKey {
+        private final String dimension;
+        private final Class<?> dimensionImpl;
+        private final String metric;
+        private final Class<?> metricImpl;
+        private final IndexNumericFieldData.NumericType metricType;
+
+        RollupKey(IndexOrdinalsFieldData dimension, @Nullable IndexNumericFieldData metric) {
+            this.dimension = dimension.getFieldName();
+            this.dimensionImpl = dimension.getClass();
+            this.metric = metric == null ? null : metric.getFieldName();
+            this.metricImpl = metric == null ? null : metric.getClass();
+            this.metricType = metric == null ? null : metric.getNumericType();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RollupKey that = (RollupKey) o;
+            return dimension.equals(that.dimension)
+                && dimensionImpl == that.dimensionImpl
+                && Objects.equals(metric, that.metric)
+                && metricImpl == that.metricImpl
+                && metricType == that.metricType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, dimensionImpl, metric, metricImpl, metricType);
+        }
+    }
+
+    final class RollupWarmer implements IndexWarmer.Listener {
+
+        private final Executor executor;
+        private final IndexFieldDataService indexFieldDataService;
+
+        RollupWarmer(ThreadPool threadPool, IndexFieldDataService indexFieldDataService) {
+            this.executor = threadPool.executor(ThreadPool.Names.WARMER);
+            this.indexFieldDataService = indexFieldDataService;
+        }
+
+        @Override
+        public TerminationHandle warmReader(final IndexShard indexShard, final ElasticsearchDirectoryReader reader) {
+            if (indexSettings.getIndex().equals(indexShard.indexSettings().getIndex()) == false) {
+                // this is from a different index
+                return TerminationHandle.NO_WAIT;
+            }
+            if (dimensions.isEmpty()) {
+                return TerminationHandle.NO_WAIT;
+            }
+
+            final MapperService mapperService = indexShard.mapperService();
+            final List<IndexOrdinalsFieldData> dimensionFieldData = new ArrayList<>();
+            for (String dimension : dimensions) {
+                final IndexFieldData<?> fieldData = fieldData(mapperService, dimension);
+                if (fieldData instanceof IndexOrdinalsFieldData) {
+                    dimensionFieldData.add((IndexOrdinalsFieldData) fieldData);
+                }
+            }
+            final List<IndexNumericFieldData> metricFieldData = new ArrayList<>();
+            for (String metric : metrics) {
+                final IndexFieldData<?> fieldData = fieldData(mapperService, metric);
+                if (fieldData instanceof IndexNumericFieldData) {
+                    metricFieldData.add((IndexNumericFieldData) fieldData);
+                }
+            }
+            if (dimensionFieldData.isEmpty()) {
+                return TerminationHandle.NO_WAIT;
+            }
+
+            final CountDownLatch latch = new CountDownLatch(reader.leaves().size());
+            for (final LeafReaderContext ctx : reader.leaves()) {
+                executor.execute(() -> {
+                    try {
+                        final long start = System.nanoTime();
+                        for (IndexOrdinalsFieldData dimension : dimensionFieldData) {
+                            getRollup(ctx, dimension, null);
+                            for (IndexNumericFieldData metric : metricFieldData) {
+                                getRollup(ctx, dimension, metric);
+                            }
+                        }
+                        if (indexShard.warmerService().logger().isTraceEnabled()) {
+                            indexShard.warmerService().logger().trace("warmed pre-aggregated rollups for segment [{}], took [{}]",
+                                ctx.ord, TimeValue.timeValueNanos(System.nanoTime() - start));
+                        }
+                    } catch (Exception e) {
+                        indexShard.warmerService().logger().warn(() -> new ParameterizedMessage("failed to warm-up pre-aggregated " +
+                            "rollups for segment [{}]", ctx.ord), e);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            return () -> latch.await();
+        }
+
+        private IndexFieldData<?> fieldData(MapperService mapperService, String field) {
+            final MappedFieldType fieldType = mapperService.fieldType(field);
+            if (fieldType == null || fieldType.isAggregatable() == false) {
+                return null;
+            }
+            return indexFieldDataService.getForField(fieldType, indexFieldDataService.index().getName(), () -> {
+                throw new UnsupportedOperationException("search lookup not available when warming an index");
+            });
+        }
+    }
+}
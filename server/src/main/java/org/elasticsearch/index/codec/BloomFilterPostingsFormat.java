@@ -0,0 +1,403 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.NormsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PostingsFormat} that wraps another postings format and additionally writes a bloom filter of the terms of every field
+ * of a segment. {@link TermsEnum#seekExact(BytesRef)} consults the filter before it seeks the terms dictionary of the wrapped
+ * format so that lookups of terms that a segment does not contain, such as the lookup of a new {@code _id}, are mostly answered
+ * without touching the terms index.
+ * <p>
+ * The filter is sized from the number of documents of the segment, which makes it only suitable for fields that have at most one
+ * term per document.
+ */
+public final class BloomFilterPostingsFormat extends PostingsFormat {
+
+    public static final String NAME = "ESBloomFilter";
+
+    static final String BLOOM_CODEC_NAME = "ESBloomFilter";
+    static final String BLOOM_EXTENSION = "bfi";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    private final PostingsFormat delegate;
+
+    /**
+     * Used by SPI to read segments. The wrapped format is recorded in the segment.
+     */
+    public BloomFilterPostingsFormat() {
+        super(NAME);
+        this.delegate = null;
+    }
+
+    public BloomFilterPostingsFormat(PostingsFormat delegate) {
+        super(NAME);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        if (delegate == null) {
+            throw new UnsupportedOperationException("[" + NAME + "] postings format has been created without a delegate format");
+        }
+        return new BloomFilteredFieldsConsumer(delegate, state);
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return new BloomFilteredFieldsProducer(state);
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(" + delegate + ")";
+    }
+
+    private static final class BloomFilteredFieldsConsumer extends FieldsConsumer {
+        private final PostingsFormat delegateFormat;
+        private final FieldsConsumer delegate;
+        private final SegmentWriteState state;
+        private final Map<FieldInfo, BloomFilter> filters = new LinkedHashMap<>();
+
+        BloomFilteredFieldsConsumer(PostingsFormat delegateFormat, SegmentWriteState state) throws IOException {
+            this.delegateFormat = delegateFormat;
+            this.delegate = delegateFormat.fieldsConsumer(state);
+            this.state = state;
+        }
+
+        @Override
+        public void write(Fields fields, NormsProducer norms) throws IOException {
+            delegate.write(fields, norms);
+            final MurmurHash3.Hash128 scratch = new MurmurHash3.Hash128();
+            for (String field : fields) {
+                final Terms terms = fields.terms(field);
+                if (terms == null) {
+                    continue;
+                }
+                final BloomFilter filter = BloomFilter.forNumTerms(state.segmentInfo.maxDoc());
+                final TermsEnum termsEnum = terms.iterator();
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    filter.add(term, scratch);
+                }
+                filters.put(state.fieldInfos.fieldInfo(field), filter);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean success = false;
+            try {
+                final String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, BLOOM_EXTENSION);
+                try (IndexOutput out = state.directory.createOutput(fileName, state.context)) {
+                    CodecUtil.writeIndexHeader(out, BLOOM_CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+                    out.writeString(delegateFormat.getName());
+                    out.writeVInt(filters.size());
+                    for (Map.Entry<FieldInfo, BloomFilter> entry : filters.entrySet()) {
+                        out.writeVInt(entry.getKey().number);
+                        entry.getValue().writeTo(out);
+                    }
+                    CodecUtil.writeFooter(out);
+                }
+                success = true;
+            } finally {
+                if (success) {
+                    delegate.close();
+                } else {
+                    IOUtils.closeWhileHandlingException(delegate);
+                }
+            }
+        }
+    }
+
+    private static final class BloomFilteredFieldsProducer extends FieldsProducer {
+        private final FieldsProducer delegate;
+        private final Map<String, BloomFilter> filters;
+
+        BloomFilteredFieldsProducer(SegmentReadState state) throws IOException {
+            final String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, BLOOM_EXTENSION);
+            final Map<String, BloomFilter> filters = new HashMap<>();
+            String delegateFormatName = null;
+            try (ChecksumIndexInput in = state.directory.openChecksumInput(fileName, state.context)) {
+                Throwable priorE = null;
+                try {
+                    CodecUtil.checkIndexHeader(in, BLOOM_CODEC_NAME, VERSION_START, VERSION_CURRENT,
+                        state.segmentInfo.getId(), state.segmentSuffix);
+                    delegateFormatName = in.readString();
+                    final int numFields = in.readVInt();
+                    for (int i = 0; i < numFields; i++) {
+                        final int fieldNumber = in.readVInt();
+                        final FieldInfo fieldInfo = state.fieldInfos.fieldInfo(fieldNumber);
+                        if (fieldInfo == null) {
+                            throw new CorruptIndexException("invalid field number [" + fieldNumber + "]", in);
+                        }
+                        filters.put(fieldInfo.name, BloomFilter.readFrom(in));
+                    }
+                } catch (Throwable exception) {
+                    priorE = exception;
+                } finally {
+                    CodecUtil.checkFooter(in, priorE);
+                }
+            }
+            this.filters = filters;
+            this.delegate = PostingsFormat.forName(delegateFormatName).fieldsProducer(state);
+        }
+
+        @Override
+        public Terms terms(String field) throws IOException {
+            final Terms terms = delegate.terms(field);
+            final BloomFilter filter = filters.get(field);
+            if (terms == null || filter == null) {
+                return terms;
+            }
+            return new BloomFilteredTerms(terms, filter);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return delegate.iterator();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            // the filters are verified against their checksum when the segment is opened
+            delegate.checkIntegrity();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            long ramBytesUsed = delegate.ramBytesUsed();
+            for (BloomFilter filter : filters.values()) {
+                ramBytesUsed += filter.ramBytesUsed();
+            }
+            return ramBytesUsed;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            final List<Accountable> resources = new ArrayList<>(Accountables.namedAccountables("field", filters));
+            resources.add(Accountables.namedAccountable("delegate", delegate));
+            return resources;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(fields=" + filters.keySet() + ",delegate=" + delegate + ")";
+        }
+    }
+
+    /**
+     * {@link Terms} of a field that has a bloom filter. Keeps track of how often the filter answered exact seeks, which can
+     * be used to tell whether the filter is effective.
+     */
+    public static final class BloomFilteredTerms extends FilterLeafReader.FilterTerms {
+        private final BloomFilter filter;
+
+        BloomFilteredTerms(Terms in, BloomFilter filter) {
+            super(in);
+            this.filter = filter;
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            return new BloomFilteredTermsEnum(in.iterator(), filter);
+        }
+
+        @Override
+        public TermsEnum intersect(CompiledAutomaton compiled, BytesRef startTerm) throws IOException {
+            return in.intersect(compiled, startTerm);
+        }
+
+        /**
+         * The number of exact seeks on this segment's terms.
+         */
+        public long getLookupCount() {
+            return filter.lookups.count();
+        }
+
+        /**
+         * The number of exact seeks that the filter answered without seeking the terms dictionary.
+         */
+        public long getSkippedCount() {
+            return filter.skipped.count();
+        }
+
+        /**
+         * The number of exact seeks that passed the filter for terms that the segment does not contain.
+         */
+        public long getFalsePositiveCount() {
+            return filter.falsePositives.count();
+        }
+    }
+
+    private static final class BloomFilteredTermsEnum extends FilterLeafReader.FilterTermsEnum {
+        private final BloomFilter filter;
+        private final MurmurHash3.Hash128 scratch = new MurmurHash3.Hash128();
+
+        BloomFilteredTermsEnum(TermsEnum in, BloomFilter filter) {
+            super(in);
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean seekExact(BytesRef text) throws IOException {
+            filter.lookups.inc();
+            if (filter.mayContain(text, scratch) == false) {
+                filter.skipped.inc();
+                return false;
+            }
+            final boolean found = in.seekExact(text);
+            if (found == false) {
+                filter.falsePositives.inc();
+            }
+            return found;
+        }
+    }
+
+    /**
+     * A bloom filter over the terms of a field that uses double hashing of the 128 bit murmur3 hash of a term. With
+     * {@link #BITS_PER_TERM} bits per term and {@link #NUM_HASH_FUNCTIONS} hash functions the false positive probability is
+     * just under 1%.
+     */
+    static final class BloomFilter implements Accountable {
+        static final int BITS_PER_TERM = 10;
+        static final int NUM_HASH_FUNCTIONS = 7;
+        static final long MAX_NUM_BITS = 1L << 32;
+
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BloomFilter.class)
+            + 3 * RamUsageEstimator.shallowSizeOfInstance(CounterMetric.class);
+
+        private final long numBits;
+        private final int numHashFunctions;
+        private final long[] words;
+
+        // the counters are kept per segment, they are dropped together with the segment when it is merged away
+        final CounterMetric lookups = new CounterMetric();
+        final CounterMetric skipped = new CounterMetric();
+        final CounterMetric falsePositives = new CounterMetric();
+
+        BloomFilter(long numBits, int numHashFunctions, long[] words) {
+            assert words.length == numWords(numBits);
+            this.numBits = numBits;
+            this.numHashFunctions = numHashFunctions;
+            this.words = words;
+        }
+
+        static BloomFilter forNumTerms(int numTerms) {
+            final long numBits = Math.max(Long.SIZE, Math.min((long) numTerms * BITS_PER_TERM, MAX_NUM_BITS));
+            return new BloomFilter(numBits, NUM_HASH_FUNCTIONS, new long[numWords(numBits)]);
+        }
+
+        private static int numWords(long numBits) {
+            return Math.toIntExact((numBits + Long.SIZE - 1) >>> 6);
+        }
+
+        void add(BytesRef term, MurmurHash3.Hash128 scratch) {
+            MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, scratch);
+            for (int i = 0; i < numHashFunctions; i++) {
+                final long bit = ((scratch.h1 + i * scratch.h2) & Long.MAX_VALUE) % numBits;
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mayContain(BytesRef term, MurmurHash3.Hash128 scratch) {
+            MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, scratch);
+            for (int i = 0; i < numHashFunctions; i++) {
+                final long bit = ((scratch.h1 + i * scratch.h2) & Long.MAX_VALUE) % numBits;
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeVLong(numBits);
+            out.writeVInt(numHashFunctions);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+
+        static BloomFilter readFrom(DataInput in) throws IOException {
+            final long numBits = in.readVLong();
+            final int numHashFunctions = in.readVInt();
+            if (numBits <= 0 || numBits > MAX_NUM_BITS || numHashFunctions <= 0) {
+                throw new CorruptIndexException("invalid bloom filter with [" + numBits + "] bits and [" + numHashFunctions
+                    + "] hash functions", in.toString());
+            }
+            final long[] words = new long[numWords(numBits)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return new BloomFilter(numBits, numHashFunctions, words);
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(words);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.DocValuesFormat;
+
+/**
+ * Implemented by {@link org.elasticsearch.index.mapper.MappedFieldType}s that need to write their doc values
+ * with a custom {@link DocValuesFormat}, for instance to build additional per-segment data structures at flush
+ * and merge time. The format must be registered through SPI so that segments can be read back.
+ */
+public interface DocValuesFormatProvider {
+
+    /**
+     * Returns the {@link DocValuesFormat} to use for this field, or {@code null} to use the codec's default.
+     */
+    DocValuesFormat docValuesFormat();
+}
@@ -21,11 +21,13 @@ package org.elasticsearch.index.codec;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.lucene87.Lucene87StoredFieldsFormat;
 import org.apache.lucene.codecs.lucene87.Lucene87Codec;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.mapper.CompletionFieldMapper;
+import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
 
@@ -40,6 +42,7 @@ import org.elasticsearch.index.mapper.MapperService;
 public class PerFieldMappingPostingFormatCodec extends Lucene87Codec {
     private final Logger logger;
     private final MapperService mapperService;
+    private final PostingsFormat idPostingsFormat;
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMappingPostingFormatCodec.class) :
@@ -50,10 +53,18 @@ public class PerFieldMappingPostingFormatCodec extends Lucene87Codec {
         super(compressionMode);
         this.mapperService = mapperService;
         this.logger = logger;
+        if (mapperService.getIndexSettings().isIdBloomFilterEnabled()) {
+            this.idPostingsFormat = new BloomFilterPostingsFormat(super.getPostingsFormatForField(IdFieldMapper.NAME));
+        } else {
+            this.idPostingsFormat = null;
+        }
     }
 
     @Override
     public PostingsFormat getPostingsFormatForField(String field) {
+        if (idPostingsFormat != null && IdFieldMapper.NAME.equals(field)) {
+            return idPostingsFormat;
+        }
         final MappedFieldType fieldType = mapperService.fieldType(field);
         if (fieldType == null) {
             logger.warn("no index mapper found for field: [{}] returning default postings format", field);
@@ -63,4 +74,16 @@ public class PerFieldMappingPostingFormatCodec extends Lucene87Codec {
         return super.getPostingsFormatForField(field);
     }
 
+    @Override
+    public DocValuesFormat getDocValuesFormatForField(String field) {
+        final MappedFieldType fieldType = mapperService.fieldType(field);
+        if (fieldType instanceof DocValuesFormatProvider) {
+            final DocValuesFormat format = ((DocValuesFormatProvider) fieldType).docValuesFormat();
+            if (format != null) {
+                return format;
+            }
+        }
+        return super.getDocValuesFormatForField(field);
+    }
+
 }
@@ -30,6 +30,7 @@ import org.apache.lucene.index.SegmentCommitInfo;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
@@ -59,6 +60,7 @@ import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.codec.BloomFilterPostingsFormat.BloomFilteredTerms;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
@@ -797,6 +799,16 @@ public abstract class Engine implements Closeable {
         stats.addNormsMemoryInBytes(guardedRamBytesUsed(segmentReader.getNormsReader()));
         stats.addPointsMemoryInBytes(guardedRamBytesUsed(segmentReader.getPointsReader()));
         stats.addDocValuesMemoryInBytes(guardedRamBytesUsed(segmentReader.getDocValuesReader()));
+        try {
+            final Terms idTerms = segmentReader.terms(IdFieldMapper.NAME);
+            if (idTerms instanceof BloomFilteredTerms) {
+                final BloomFilteredTerms bloomFilteredTerms = (BloomFilteredTerms) idTerms;
+                stats.addIdBloomFilterStats(bloomFilteredTerms.getLookupCount(), bloomFilteredTerms.getSkippedCount(),
+                    bloomFilteredTerms.getFalsePositiveCount());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
         if (includeSegmentFileSizes) {
             // TODO: consider moving this to StoreStats
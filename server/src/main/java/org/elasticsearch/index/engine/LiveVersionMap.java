@@ -32,6 +32,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 /** Maps _uid value to its version information. */
 final class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
@@ -42,7 +43,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
 
         /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones,
          *  we only account for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not
-         *  clear this RAM. */
+         *  clear this RAM. Unused if the map accounts for itself, see {@link #ramBytesUsed()}. */
         final AtomicLong ramBytesUsed = new AtomicLong();
 
         private static final VersionLookup EMPTY = new VersionLookup(Collections.emptyMap());
@@ -68,6 +69,15 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             this.map = map;
         }
 
+        /** Whether the map knows how much memory it uses, rather than having it estimated per entry. */
+        boolean isSelfAccounting() {
+            return map instanceof Accountable;
+        }
+
+        long ramBytesUsed() {
+            return isSelfAccounting() ? ((Accountable) map).ramBytesUsed() : ramBytesUsed.get();
+        }
+
         VersionValue get(BytesRef key) {
             return map.get(key);
         }
@@ -116,16 +126,19 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         boolean needsSafeAccess;
         final boolean previousMapsNeededSafeAccess;
 
+        // creates the map for a new current lookup given the expected number of entries
+        final IntFunction<Map<BytesRef, VersionValue>> mapFactory;
 
-        Maps(VersionLookup current, VersionLookup old, boolean previousMapsNeededSafeAccess) {
+        Maps(VersionLookup current, VersionLookup old, boolean previousMapsNeededSafeAccess,
+             IntFunction<Map<BytesRef, VersionValue>> mapFactory) {
             this.current = current;
             this.old = old;
             this.previousMapsNeededSafeAccess = previousMapsNeededSafeAccess;
+            this.mapFactory = mapFactory;
         }
 
-        Maps() {
-            this(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency()),
-                VersionLookup.EMPTY, false);
+        Maps(IntFunction<Map<BytesRef, VersionValue>> mapFactory) {
+            this(new VersionLookup(mapFactory.apply(16)), VersionLookup.EMPTY, false, mapFactory);
         }
 
         boolean isSafeAccessMode() {
@@ -143,18 +156,21 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
          * Builds a new map for the refresh transition this should be called in beforeRefresh()
          */
         Maps buildTransitionMap() {
-            return new Maps(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(current.size())), current,
-                shouldInheritSafeAccess());
+            return new Maps(new VersionLookup(mapFactory.apply(current.size())), current, shouldInheritSafeAccess(), mapFactory);
         }
 
         /**
          * builds a new map that invalidates the old map but maintains the current. This should be called in afterRefresh()
          */
         Maps invalidateOldMap() {
-            return new Maps(current, VersionLookup.EMPTY, previousMapsNeededSafeAccess);
+            return new Maps(current, VersionLookup.EMPTY, previousMapsNeededSafeAccess, mapFactory);
         }
 
         void put(BytesRef uid, VersionValue version) {
+            if (current.isSelfAccounting()) {
+                current.put(uid, version);
+                return;
+            }
             long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
             long ramAccounting = BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed;
             VersionValue previousValue = current.put(uid, version);
@@ -172,7 +188,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         void remove(BytesRef uid, DeleteVersionValue deleted) {
             VersionValue previousValue = current.remove(uid);
             current.updateMinDeletedTimestamp(deleted);
-            if (previousValue != null) {
+            if (previousValue != null && current.isSelfAccounting() == false) {
                 long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
                 adjustRam(-(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed));
             }
@@ -191,10 +207,26 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
     // All deletes also go here, and delete "tombstones" are retained after refresh:
     private final Map<BytesRef, DeleteVersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-    private volatile Maps maps = new Maps();
+    private final IntFunction<Map<BytesRef, VersionValue>> mapFactory;
+    private volatile Maps maps;
     // we maintain a second map that only receives the updates that we skip on the actual map (unsafe ops)
     // this map is only maintained if assertions are enabled
-    private volatile Maps unsafeKeysMap = new Maps();
+    private volatile Maps unsafeKeysMap;
+
+    LiveVersionMap() {
+        this(false);
+    }
+
+    /**
+     * @param paged whether to keep the updates between two refreshes in {@link PagedVersionMap}s rather than in concurrent hash maps
+     */
+    LiveVersionMap(boolean paged) {
+        this.mapFactory = paged
+            ? PagedVersionMap::new
+            : ConcurrentCollections::newConcurrentMapWithAggressiveConcurrency;
+        this.maps = new Maps(mapFactory);
+        this.unsafeKeysMap = new Maps(mapFactory);
+    }
 
     /**
      * Bytes consumed for each BytesRef UID:
@@ -415,7 +447,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * Called when this index is closed.
      */
     synchronized void clear() {
-        maps = new Maps();
+        maps = new Maps(mapFactory);
         tombstones.clear();
         // NOTE: we can't zero this here, because a refresh thread could be calling InternalEngine.pruneDeletedTombstones at the same time,
         // and this will lead to an assert trip.  Presumably it's fine if our ramBytesUsedTombstones is non-zero after clear since the
@@ -425,7 +457,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
 
     @Override
     public long ramBytesUsed() {
-        return maps.current.ramBytesUsed.get() + ramBytesUsedTombstones.get();
+        return maps.current.ramBytesUsed() + ramBytesUsedTombstones.get();
     }
 
     /**
@@ -433,7 +465,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * don't clear on refresh.
      */
     long ramBytesUsedForRefresh() {
-        return maps.current.ramBytesUsed.get();
+        return maps.current.ramBytesUsed();
     }
 
     /**
@@ -441,7 +473,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * except does not include tombstones because they don't clear on refresh.
      */
     long getRefreshingBytes() {
-        return maps.old.ramBytesUsed.get();
+        return maps.old.ramBytesUsed();
     }
 
     @Override
@@ -0,0 +1,244 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map from _uid to {@link IndexVersionValue} that keeps its keys and values in pages obtained from {@link BigArrays} rather than
+ * in an object per entry. {@link LiveVersionMap} uses it for the maps that collect the updates between two refreshes when
+ * {@link org.elasticsearch.index.IndexSettings#INDEX_VERSION_MAP_PAGED_SETTING} is set, which keeps the number of objects the
+ * garbage collector has to trace constant no matter how many documents are updated between refreshes. Values are materialized on
+ * every {@link #get}.
+ * <p>
+ * The map is split into segments by the top bits of the key's hash, each guarded by its own monitor. Removed entries keep their
+ * slot until the whole map is dropped on refresh. The pages are never recycled: a lookup that raced with a refresh may still read
+ * from a map that {@link LiveVersionMap} already dropped.
+ */
+final class PagedVersionMap extends AbstractMap<BytesRef, VersionValue> implements Accountable {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private static final byte REMOVED = 0;
+    private static final byte NO_LOCATION = 1;
+    private static final byte WITH_LOCATION = 2;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    PagedVersionMap(int expectedSize) {
+        final int segmentCapacity = Math.max(16, expectedSize / SEGMENTS);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    private Segment segment(int hash) {
+        // the hash table in the segment uses the low bits
+        return segments[hash >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    @Override
+    public VersionValue get(Object key) {
+        final BytesRef uid = (BytesRef) key;
+        final int hash = uid.hashCode();
+        return segment(hash).get(uid, hash);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public VersionValue put(BytesRef key, VersionValue value) {
+        assert value instanceof IndexVersionValue : "only index versions are kept in the live maps but got " + value;
+        final int hash = key.hashCode();
+        return segment(hash).put(key, hash, value);
+    }
+
+    @Override
+    public VersionValue remove(Object key) {
+        final BytesRef uid = (BytesRef) key;
+        final int hash = uid.hashCode();
+        return segment(hash).remove(uid, hash);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a point in time copy of the entries. This materializes every entry and is only meant for tests and assertions.
+     */
+    @Override
+    public Set<Entry<BytesRef, VersionValue>> entrySet() {
+        final Map<BytesRef, VersionValue> copy = new HashMap<>();
+        for (Segment segment : segments) {
+            segment.copyTo(copy);
+        }
+        return Collections.unmodifiableMap(copy).entrySet();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Segment segment : segments) {
+            ramBytesUsed += segment.ramBytesUsed();
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    private static final class Segment {
+        private final BigArrays bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+        private final BytesRefHash keys;
+        private LongArray versions;
+        private LongArray seqNos;
+        private LongArray terms;
+        private LongArray locationGenerations;
+        private LongArray locationOffsets;
+        private IntArray locationSizes;
+        // one of REMOVED, NO_LOCATION or WITH_LOCATION
+        private ByteArray states;
+        private int size;
+
+        Segment(int capacity) {
+            keys = new BytesRefHash(capacity, bigArrays);
+            versions = bigArrays.newLongArray(capacity, false);
+            seqNos = bigArrays.newLongArray(capacity, false);
+            terms = bigArrays.newLongArray(capacity, false);
+            locationGenerations = bigArrays.newLongArray(capacity, false);
+            locationOffsets = bigArrays.newLongArray(capacity, false);
+            locationSizes = bigArrays.newIntArray(capacity, false);
+            states = bigArrays.newByteArray(capacity, false);
+        }
+
+        synchronized VersionValue get(BytesRef uid, int hash) {
+            final long id = keys.find(uid, hash);
+            return id < 0 ? null : read(id);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int hash, VersionValue value) {
+            long id = keys.add(uid, hash);
+            final VersionValue previous;
+            if (id < 0) {
+                id = -1 - id;
+                previous = read(id);
+            } else {
+                previous = null;
+                versions = bigArrays.grow(versions, id + 1);
+                seqNos = bigArrays.grow(seqNos, id + 1);
+                terms = bigArrays.grow(terms, id + 1);
+                locationGenerations = bigArrays.grow(locationGenerations, id + 1);
+                locationOffsets = bigArrays.grow(locationOffsets, id + 1);
+                locationSizes = bigArrays.grow(locationSizes, id + 1);
+                states = bigArrays.grow(states, id + 1);
+            }
+            versions.set(id, value.version);
+            seqNos.set(id, value.seqNo);
+            terms.set(id, value.term);
+            final Translog.Location location = value.getLocation();
+            if (location == null) {
+                states.set(id, NO_LOCATION);
+            } else {
+                locationGenerations.set(id, location.generation);
+                locationOffsets.set(id, location.translogLocation);
+                locationSizes.set(id, location.size);
+                states.set(id, WITH_LOCATION);
+            }
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+
+        synchronized VersionValue remove(BytesRef uid, int hash) {
+            final long id = keys.find(uid, hash);
+            if (id < 0) {
+                return null;
+            }
+            final VersionValue previous = read(id);
+            if (previous != null) {
+                states.set(id, REMOVED);
+                size--;
+            }
+            return previous;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void copyTo(Map<BytesRef, VersionValue> copy) {
+            for (long id = 0; id < keys.size(); id++) {
+                final VersionValue value = read(id);
+                if (value != null) {
+                    copy.put(BytesRef.deepCopyOf(keys.get(id, new BytesRef())), value);
+                }
+            }
+        }
+
+        synchronized long ramBytesUsed() {
+            return keys.ramBytesUsed() + versions.ramBytesUsed() + seqNos.ramBytesUsed() + terms.ramBytesUsed()
+                + locationGenerations.ramBytesUsed() + locationOffsets.ramBytesUsed() + locationSizes.ramBytesUsed()
+                + states.ramBytesUsed();
+        }
+
+        private VersionValue read(long id) {
+            final byte state = states.get(id);
+            if (state == REMOVED) {
+                return null;
+            }
+            final Translog.Location location = state == NO_LOCATION
+                ? null
+                : new Translog.Location(locationGenerations.get(id), locationOffsets.get(id), locationSizes.get(id));
+            return new IndexVersionValue(location, versions.get(id), seqNos.get(id), terms.get(id));
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.engine;
 
 import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -44,6 +45,9 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
     private long versionMapMemoryInBytes;
     private long maxUnsafeAutoIdTimestamp = Long.MIN_VALUE;
     private long bitsetMemoryInBytes;
+    private long idBloomFilterLookups;
+    private long idBloomFilterSkipped;
+    private long idBloomFilterFalsePositives;
     private ImmutableOpenMap<String, Long> fileSizes = ImmutableOpenMap.of();
 
     /*
@@ -78,6 +82,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
             .fPut("tvd", "Term Vector Documents")
             .fPut("tvf", "Term Vector Fields")
             .fPut("liv", "Live Documents")
+            .fPut("bfi", "Bloom Filter")
             .build();
 
     public SegmentsStats() {}
@@ -95,6 +100,11 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         versionMapMemoryInBytes = in.readLong();
         bitsetMemoryInBytes = in.readLong();
         maxUnsafeAutoIdTimestamp = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            idBloomFilterLookups = in.readVLong();
+            idBloomFilterSkipped = in.readVLong();
+            idBloomFilterFalsePositives = in.readVLong();
+        }
 
         int size = in.readVInt();
         ImmutableOpenMap.Builder<String, Long> map = ImmutableOpenMap.builder(size);
@@ -151,6 +161,12 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         this.bitsetMemoryInBytes += bitsetMemoryInBytes;
     }
 
+    public void addIdBloomFilterStats(long lookups, long skipped, long falsePositives) {
+        this.idBloomFilterLookups += lookups;
+        this.idBloomFilterSkipped += skipped;
+        this.idBloomFilterFalsePositives += falsePositives;
+    }
+
     public void addFileSizes(ImmutableOpenMap<String, Long> fileSizes) {
         ImmutableOpenMap.Builder<String, Long> map = ImmutableOpenMap.builder(this.fileSizes);
 
@@ -181,6 +197,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         addIndexWriterMemoryInBytes(mergeStats.indexWriterMemoryInBytes);
         addVersionMapMemoryInBytes(mergeStats.versionMapMemoryInBytes);
         addBitsetMemoryInBytes(mergeStats.bitsetMemoryInBytes);
+        addIdBloomFilterStats(mergeStats.idBloomFilterLookups, mergeStats.idBloomFilterSkipped, mergeStats.idBloomFilterFalsePositives);
         addFileSizes(mergeStats.fileSizes);
     }
 
@@ -301,6 +318,27 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         return new ByteSizeValue(bitsetMemoryInBytes);
     }
 
+    /**
+     * The number of <code>_id</code> lookups on segments that have a bloom filter for the <code>_id</code> field.
+     */
+    public long getIdBloomFilterLookups() {
+        return idBloomFilterLookups;
+    }
+
+    /**
+     * The number of <code>_id</code> lookups that the bloom filter answered without seeking the terms dictionary.
+     */
+    public long getIdBloomFilterSkipped() {
+        return idBloomFilterSkipped;
+    }
+
+    /**
+     * The number of <code>_id</code> lookups that passed the bloom filter for ids that the segment does not contain.
+     */
+    public long getIdBloomFilterFalsePositives() {
+        return idBloomFilterFalsePositives;
+    }
+
     public ImmutableOpenMap<String, Long> getFileSizes() {
         return fileSizes;
     }
@@ -328,6 +366,11 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         builder.humanReadableField(Fields.VERSION_MAP_MEMORY_IN_BYTES, Fields.VERSION_MAP_MEMORY, getVersionMapMemory());
         builder.humanReadableField(Fields.FIXED_BIT_SET_MEMORY_IN_BYTES, Fields.FIXED_BIT_SET, getBitsetMemory());
         builder.field(Fields.MAX_UNSAFE_AUTO_ID_TIMESTAMP, maxUnsafeAutoIdTimestamp);
+        builder.startObject(Fields.ID_BLOOM_FILTER);
+        builder.field(Fields.LOOKUPS, idBloomFilterLookups);
+        builder.field(Fields.SKIPPED, idBloomFilterSkipped);
+        builder.field(Fields.FALSE_POSITIVES, idBloomFilterFalsePositives);
+        builder.endObject();
         builder.startObject(Fields.FILE_SIZES);
         for (ObjectObjectCursor<String, Long> entry : fileSizes) {
             builder.startObject(entry.key);
@@ -364,6 +407,10 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         static final String MAX_UNSAFE_AUTO_ID_TIMESTAMP = "max_unsafe_auto_id_timestamp";
         static final String FIXED_BIT_SET = "fixed_bit_set";
         static final String FIXED_BIT_SET_MEMORY_IN_BYTES = "fixed_bit_set_memory_in_bytes";
+        static final String ID_BLOOM_FILTER = "id_bloom_filter";
+        static final String LOOKUPS = "lookups";
+        static final String SKIPPED = "skipped";
+        static final String FALSE_POSITIVES = "false_positives";
         static final String FILE_SIZES = "file_sizes";
         static final String SIZE = "size";
         static final String SIZE_IN_BYTES = "size_in_bytes";
@@ -384,6 +431,11 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         out.writeLong(versionMapMemoryInBytes);
         out.writeLong(bitsetMemoryInBytes);
         out.writeLong(maxUnsafeAutoIdTimestamp);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(idBloomFilterLookups);
+            out.writeVLong(idBloomFilterSkipped);
+            out.writeVLong(idBloomFilterFalsePositives);
+        }
 
         out.writeVInt(fileSizes.size());
         for (ObjectObjectCursor<String, Long> entry : fileSizes) {
@@ -245,6 +245,20 @@ public enum FieldData {
         return null;
     }
 
+    /**
+     * Loads the values of the first {@code count} documents of {@code docs}, which must be sorted
+     * by increasing doc id, into {@code buffer} and returns the number of documents that have a value.
+     */
+    public static int fillValues(NumericDoubleValues values, int[] docs, int count, double[] buffer) throws IOException {
+        int numValues = 0;
+        for (int i = 0; i < count; i++) {
+            if (values.advanceExact(docs[i])) {
+                buffer[numValues++] = values.doubleValue();
+            }
+        }
+        return numValues;
+    }
+
     /**
      * Returns a multi-valued view over the provided {@link GeoPointValues}.
      */
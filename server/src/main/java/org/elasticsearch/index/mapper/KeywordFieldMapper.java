@@ -23,9 +23,11 @@ import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
@@ -52,6 +54,11 @@ public final class KeywordFieldMapper extends FieldMapper {
 
     public static final String CONTENT_TYPE = "keyword";
 
+    /**
+     * The suffix of the doc values field that holds the precomputed hashes of a keyword field.
+     */
+    public static final String PRECOMPUTED_HASH_SUFFIX = "#hash";
+
     public static class Defaults {
         public static final FieldType FIELD_TYPE = new FieldType();
 
@@ -100,6 +107,9 @@ public final class KeywordFieldMapper extends FieldMapper {
         private final Parameter<Boolean> splitQueriesOnWhitespace
             = Parameter.boolParam("split_queries_on_whitespace", true, m -> toType(m).splitQueriesOnWhitespace, false);
 
+        private final Parameter<Boolean> precomputeHash
+            = Parameter.boolParam("precompute_hash", false, m -> toType(m).precomputeHash, false);
+
         private final Parameter<Map<String, String>> meta = Parameter.metaParam();
 
         private final IndexAnalyzers indexAnalyzers;
@@ -133,10 +143,15 @@ public final class KeywordFieldMapper extends FieldMapper {
             return this;
         }
 
+        public Builder precomputeHash(boolean precomputeHash) {
+            this.precomputeHash.setValue(precomputeHash);
+            return this;
+        }
+
         @Override
         protected List<Parameter<?>> getParameters() {
             return List.of(indexed, hasDocValues, stored, nullValue, eagerGlobalOrdinals, ignoreAbove,
-                indexOptions, hasNorms, similarity, normalizer, splitQueriesOnWhitespace, meta);
+                indexOptions, hasNorms, similarity, normalizer, splitQueriesOnWhitespace, precomputeHash, meta);
         }
 
         private KeywordFieldType buildFieldType(ContentPath contentPath, FieldType fieldType) {
@@ -180,6 +195,7 @@ public final class KeywordFieldMapper extends FieldMapper {
         private final int ignoreAbove;
         private final String nullValue;
         private final NamedAnalyzer normalizer;
+        private final boolean precomputeHash;
 
         public KeywordFieldType(String name, FieldType fieldType,
                                 NamedAnalyzer normalizer, NamedAnalyzer searchAnalyzer, Builder builder) {
@@ -193,6 +209,7 @@ public final class KeywordFieldMapper extends FieldMapper {
             this.normalizer = normalizer;
             this.ignoreAbove = builder.ignoreAbove.getValue();
             this.nullValue = builder.nullValue.getValue();
+            this.precomputeHash = builder.precomputeHash.getValue();
         }
 
         public KeywordFieldType(String name, boolean isSearchable, boolean hasDocValues, Map<String, String> meta) {
@@ -200,6 +217,7 @@ public final class KeywordFieldMapper extends FieldMapper {
             this.normalizer = Lucene.KEYWORD_ANALYZER;
             this.ignoreAbove = Integer.MAX_VALUE;
             this.nullValue = null;
+            this.precomputeHash = false;
         }
 
         public KeywordFieldType(String name) {
@@ -214,6 +232,7 @@ public final class KeywordFieldMapper extends FieldMapper {
             this.normalizer = Lucene.KEYWORD_ANALYZER;
             this.ignoreAbove = Integer.MAX_VALUE;
             this.nullValue = null;
+            this.precomputeHash = false;
         }
 
         public KeywordFieldType(String name, NamedAnalyzer analyzer) {
@@ -221,6 +240,7 @@ public final class KeywordFieldMapper extends FieldMapper {
             this.normalizer = Lucene.KEYWORD_ANALYZER;
             this.ignoreAbove = Integer.MAX_VALUE;
             this.nullValue = null;
+            this.precomputeHash = false;
         }
 
         @Override
@@ -306,6 +326,14 @@ public final class KeywordFieldMapper extends FieldMapper {
         public int ignoreAbove() {
             return ignoreAbove;
         }
+
+        /**
+         * Returns the name of the doc values field that holds the 64 bits murmur3 hash of each value
+         * or null if hashes are not precomputed at index time for this field.
+         */
+        public String precomputedHashFieldName() {
+            return precomputeHash ? name() + PRECOMPUTED_HASH_SUFFIX : null;
+        }
     }
 
     private final boolean indexed;
@@ -318,6 +346,7 @@ public final class KeywordFieldMapper extends FieldMapper {
     private final SimilarityProvider similarity;
     private final String normalizerName;
     private final boolean splitQueriesOnWhitespace;
+    private final boolean precomputeHash;
 
     private final IndexAnalyzers indexAnalyzers;
 
@@ -335,6 +364,7 @@ public final class KeywordFieldMapper extends FieldMapper {
         this.similarity = builder.similarity.getValue();
         this.normalizerName = builder.normalizer.getValue();
         this.splitQueriesOnWhitespace = builder.splitQueriesOnWhitespace.getValue();
+        this.precomputeHash = builder.precomputeHash.getValue();
 
         this.indexAnalyzers = builder.indexAnalyzers;
     }
@@ -381,6 +411,12 @@ public final class KeywordFieldMapper extends FieldMapper {
         if (fieldType().hasDocValues()) {
             context.doc().add(new SortedSetDocValuesField(fieldType().name(), binaryValue));
         }
+
+        if (precomputeHash) {
+            final MurmurHash3.Hash128 hash = MurmurHash3.hash128(binaryValue.bytes, binaryValue.offset, binaryValue.length,
+                0, new MurmurHash3.Hash128());
+            context.doc().add(new SortedNumericDocValuesField(fieldType().precomputedHashFieldName(), hash.h1));
+        }
     }
 
     private static String normalizeValue(NamedAnalyzer normalizer, String field, String value) throws IOException {
@@ -102,6 +102,16 @@ public final class MappingLookup {
             }
             indexAnalyzers.putAll(mapper.indexAnalyzers());
         }
+        for (FieldMapper mapper : mappers) {
+            // keyword fields may index hashes of their values into a hidden doc values field that no other field may write to
+            if (mapper.fieldType() instanceof KeywordFieldMapper.KeywordFieldType) {
+                String hashFieldName = ((KeywordFieldMapper.KeywordFieldType) mapper.fieldType()).precomputedHashFieldName();
+                if (hashFieldName != null && fieldMappers.containsKey(hashFieldName)) {
+                    throw new MapperParsingException("Field [" + hashFieldName + "] is reserved for the precomputed hashes of field ["
+                        + mapper.name() + "]");
+                }
+            }
+        }
         this.metadataFieldCount = metadataFieldCount;
 
         for (FieldAliasMapper aliasMapper : aliasMappers) {
@@ -27,6 +27,8 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.shard.IndexLongFieldRange;
+import org.elasticsearch.index.shard.ShardFieldRangeSummary;
+import org.elasticsearch.index.shard.ShardLongFieldRange;
 
 import java.util.function.LongSupplier;
 
@@ -35,12 +37,18 @@ import java.util.function.LongSupplier;
  * Instances of this object rely on information stored in the {@code IndexMetadata} for certain indices.
  * Right now this context object is able to rewrite range queries that include a known timestamp field
  * (i.e. the timestamp field for DataStreams) into a MatchNoneQueryBuilder and skip the shards that
- * don't hold queried data. See IndexMetadata#getTimestampMillisRange() for more details
+ * don't hold queried data. See IndexMetadata#getTimestampMillisRange() for more details.
+ * It can also rewrite range queries on any date field of a single shard for which the coordinator has cached a
+ * {@link ShardFieldRangeSummary}.
  */
 public class CoordinatorRewriteContext extends QueryRewriteContext {
     private final Index index;
-    private IndexLongFieldRange indexLongFieldRange;
+    @Nullable
+    private final IndexLongFieldRange indexLongFieldRange;
+    @Nullable
     private final DateFieldMapper.DateFieldType timestampFieldType;
+    @Nullable
+    private final ShardFieldRangeSummary shardFieldRangeSummary;
 
     public CoordinatorRewriteContext(NamedXContentRegistry xContentRegistry,
                                      NamedWriteableRegistry writeableRegistry,
@@ -49,31 +57,50 @@ public class CoordinatorRewriteContext extends QueryRewriteContext {
                                      Index index,
                                      IndexLongFieldRange indexLongFieldRange,
                                      DateFieldMapper.DateFieldType timestampFieldType) {
+        this(xContentRegistry, writeableRegistry, client, nowInMillis, index, indexLongFieldRange, timestampFieldType, null);
+    }
+
+    public CoordinatorRewriteContext(NamedXContentRegistry xContentRegistry,
+                                     NamedWriteableRegistry writeableRegistry,
+                                     Client client,
+                                     LongSupplier nowInMillis,
+                                     Index index,
+                                     @Nullable IndexLongFieldRange indexLongFieldRange,
+                                     @Nullable DateFieldMapper.DateFieldType timestampFieldType,
+                                     @Nullable ShardFieldRangeSummary shardFieldRangeSummary) {
         super(xContentRegistry, writeableRegistry, client, nowInMillis);
+        assert (indexLongFieldRange == null) == (timestampFieldType == null);
         this.index = index;
         this.indexLongFieldRange = indexLongFieldRange;
         this.timestampFieldType = timestampFieldType;
+        this.shardFieldRangeSummary = shardFieldRangeSummary;
     }
 
-    long getMinTimestamp() {
-        return indexLongFieldRange.getMin();
-    }
-
-    long getMaxTimestamp() {
-        return indexLongFieldRange.getMax();
-    }
-
-    boolean hasTimestampData() {
-        return indexLongFieldRange.isComplete() && indexLongFieldRange != IndexLongFieldRange.EMPTY;
+    /**
+     * @return the range of the given field, or {@link ShardLongFieldRange#UNKNOWN} if it is not known on the coordinator
+     */
+    ShardLongFieldRange getFieldRange(String fieldName) {
+        if (timestampFieldType != null && fieldName.equals(timestampFieldType.name())) {
+            if (indexLongFieldRange.isComplete() == false || indexLongFieldRange == IndexLongFieldRange.EMPTY) {
+                return ShardLongFieldRange.EMPTY;
+            }
+            return ShardLongFieldRange.of(indexLongFieldRange.getMin(), indexLongFieldRange.getMax());
+        }
+        if (shardFieldRangeSummary != null) {
+            return shardFieldRangeSummary.getFieldRange(fieldName);
+        }
+        return ShardLongFieldRange.UNKNOWN;
     }
 
     @Nullable
     public MappedFieldType getFieldType(String fieldName) {
-        if (fieldName.equals(timestampFieldType.name()) == false) {
-            return null;
+        if (timestampFieldType != null && fieldName.equals(timestampFieldType.name())) {
+            return timestampFieldType;
         }
-
-        return timestampFieldType;
+        if (shardFieldRangeSummary != null) {
+            return shardFieldRangeSummary.getFieldType(fieldName);
+        }
+        return null;
     }
 
     @Override
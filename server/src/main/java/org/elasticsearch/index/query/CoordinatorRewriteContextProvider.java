@@ -28,6 +28,7 @@ import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.shard.IndexLongFieldRange;
+import org.elasticsearch.index.shard.ShardFieldRangeSummary;
 
 import java.util.function.Function;
 import java.util.function.LongSupplier;
@@ -57,27 +58,50 @@ public class CoordinatorRewriteContextProvider {
 
     @Nullable
     public CoordinatorRewriteContext getCoordinatorRewriteContext(Index index) {
+        return getCoordinatorRewriteContext(index, null);
+    }
+
+    /**
+     * Returns a context to rewrite queries against a single shard of the given index on the coordinator, or {@code null} if the
+     * coordinator knows nothing about the shard that would allow it to skip it.
+     *
+     * @param shardFieldRangeSummary the summary of the field ranges of the shard that the coordinator has cached, if any. It is only
+     *                               used if it is still valid according to the current metadata of the index.
+     */
+    @Nullable
+    public CoordinatorRewriteContext getCoordinatorRewriteContext(Index index, @Nullable ShardFieldRangeSummary shardFieldRangeSummary) {
         ClusterState clusterState = clusterStateSupplier.get();
         IndexMetadata indexMetadata = clusterState.metadata().index(index);
 
-        if (indexMetadata == null || indexMetadata.getTimestampMillisRange().containsAllShardRanges() == false) {
+        if (indexMetadata == null) {
             return null;
         }
 
-        DateFieldMapper.DateFieldType dateFieldType = mappingSupplier.apply(index);
+        IndexLongFieldRange timestampMillisRange = null;
+        DateFieldMapper.DateFieldType dateFieldType = null;
+        if (indexMetadata.getTimestampMillisRange().containsAllShardRanges()) {
+            dateFieldType = mappingSupplier.apply(index);
+            if (dateFieldType != null) {
+                timestampMillisRange = indexMetadata.getTimestampMillisRange();
+            }
+        }
+
+        if (shardFieldRangeSummary != null && shardFieldRangeSummary.isValidFor(indexMetadata) == false) {
+            shardFieldRangeSummary = null;
+        }
 
-        if (dateFieldType == null) {
+        if (dateFieldType == null && shardFieldRangeSummary == null) {
             return null;
         }
 
-        IndexLongFieldRange timestampMillisRange = indexMetadata.getTimestampMillisRange();
         return new CoordinatorRewriteContext(xContentRegistry,
             writeableRegistry,
             client,
             nowInMillis,
             index,
             timestampMillisRange,
-            dateFieldType
+            dateFieldType,
+            shardFieldRangeSummary
         );
     }
 }
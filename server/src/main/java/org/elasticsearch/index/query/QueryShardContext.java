@@ -409,6 +409,14 @@ public class QueryShardContext extends QueryRewriteContext {
         return this.lookup;
     }
 
+    /**
+     * Returns whether {@link #lookup()} was called, in which case scripts or runtime fields may
+     * read the documents of the search through it.
+     */
+    public boolean hasLookup() {
+        return this.lookup != null;
+    }
+
     public NestedScope nestedScope() {
         return nestedScope;
     }
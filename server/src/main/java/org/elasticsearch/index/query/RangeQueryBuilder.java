@@ -35,6 +35,7 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.mapper.FieldNamesFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.shard.ShardLongFieldRange;
 
 import java.io.IOException;
 import java.time.DateTimeException;
@@ -434,14 +435,15 @@ public class RangeQueryBuilder extends AbstractQueryBuilder<RangeQueryBuilder> i
             final MappedFieldType fieldType = coordinatorRewriteContext.getFieldType(fieldName);
             if (fieldType instanceof DateFieldMapper.DateFieldType) {
                 final DateFieldMapper.DateFieldType dateFieldType = (DateFieldMapper.DateFieldType) fieldType;
-                if (coordinatorRewriteContext.hasTimestampData() == false) {
+                final ShardLongFieldRange fieldRange = coordinatorRewriteContext.getFieldRange(fieldName);
+                if (fieldRange == ShardLongFieldRange.EMPTY) {
                     return MappedFieldType.Relation.DISJOINT;
                 }
-                long minTimestamp = coordinatorRewriteContext.getMinTimestamp();
-                long maxTimestamp = coordinatorRewriteContext.getMaxTimestamp();
-                DateMathParser dateMathParser = getForceDateParser();
-                return dateFieldType.isFieldWithinQuery(minTimestamp, maxTimestamp, from, to, includeLower,
-                    includeUpper, timeZone, dateMathParser, queryRewriteContext);
+                if (fieldRange != ShardLongFieldRange.UNKNOWN) {
+                    DateMathParser dateMathParser = getForceDateParser();
+                    return dateFieldType.isFieldWithinQuery(fieldRange.getMin(), fieldRange.getMax(), from, to, includeLower,
+                        includeUpper, timeZone, dateMathParser, queryRewriteContext);
+                }
             }
         }
 
@@ -28,6 +28,7 @@ import org.apache.lucene.index.CheckIndex;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FilterDirectoryReader;
 import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.Term;
@@ -62,6 +63,7 @@ import org.elasticsearch.common.CheckedFunction;
 import org.elasticsearch.common.CheckedRunnable;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
@@ -145,6 +147,7 @@ import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.IndexingMemoryController;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.TranslogGroupCommitService;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.recovery.PeerRecoveryTargetService;
@@ -190,6 +193,7 @@ import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.seqno.RetentionLeaseActions.RETAIN_ALL;
@@ -287,6 +291,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final AtomicReference<Translog.Location> pendingRefreshLocation = new AtomicReference<>();
     private final RefreshPendingLocationListener refreshPendingLocationListener;
     private volatile boolean useRetentionLeasesInPeerRecovery;
+    // the last summary of the field ranges of this shard along with the key of the reader it was taken from
+    private volatile Tuple<IndexReader.CacheKey, ShardFieldRangeSummary> lastFieldRangeSummary;
 
     public IndexShard(
             final ShardRouting shardRouting,
@@ -1756,6 +1762,65 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return ShardLongFieldRange.of(rawTimestampFieldRange.getMin(), rawTimestampFieldRange.getMax());
     }
 
+    /**
+     * Summarizes the ranges of the date fields of this shard for coordinating nodes to cache. Coordinating nodes only learn about the
+     * write block of the index from the cluster state, so a summary is only taken once this shard has verified that it has seen all
+     * the writes it will ever see: it must be the primary, the write block must be applied, and no operation may hold a permit. Writes
+     * check the applied cluster blocks after acquiring their permit, so once they are all drained the block keeps out any later write,
+     * much like the verification of a block added through the add index block API.
+     *
+     * @param writeBlockApplied whether the write block of the index is part of the cluster state that was applied on this node before
+     *                          calling this method
+     * @return the summary, or {@code null} if this shard may still receive writes, has unrefreshed changes or has not applied the
+     *         mapping of its index yet, in which case the summary could become outdated without coordinating nodes noticing
+     */
+    @Nullable
+    public ShardFieldRangeSummary getFieldRangeSummary(boolean writeBlockApplied) throws IOException {
+        final IndexMetadata indexMetadata = indexSettings.getIndexMetadata();
+        if (writeBlockApplied == false || mapperService() == null || ShardFieldRangeSummary.isWriteBlocked(indexMetadata) == false) {
+            return null;
+        }
+        // a replica may not have received all the writes that the primary has processed yet
+        if (state != IndexShardState.STARTED || shardRouting.primary() == false) {
+            return null;
+        }
+        // writes that acquired their permit before the block was applied may still be in flight
+        if (getActiveOperationsCount() != 0) {
+            return null;
+        }
+        final SeqNoStats seqNoStats = seqNoStats();
+        if (seqNoStats.getLocalCheckpoint() != seqNoStats.getMaxSeqNo()) {
+            return null;
+        }
+        if (hasRefreshPending() || getEngine().refreshNeeded()) {
+            return null;
+        }
+        // the mapping is applied after the rest of the index metadata, so the field types may not match the mapping version yet
+        final MappingMetadata mapping = indexMetadata.mapping();
+        final DocumentMapper documentMapper = mapperService().documentMapper();
+        final CompressedXContent mappingSource = mapping == null ? null : mapping.source();
+        if (Objects.equals(mappingSource, documentMapper == null ? null : documentMapper.mappingSource()) == false) {
+            return null;
+        }
+        // the searcher must be acquired after the checks above so that it contains all writes, and it must not be wrapped since the
+        // summary is shared by all users of the coordinating node
+        try (Engine.Searcher searcher = getEngine().acquireSearcher(Engine.CAN_MATCH_SEARCH_SOURCE, Engine.SearcherScope.EXTERNAL)) {
+            // the reader does not change once the shard is write blocked, so the summary is only taken once per reader
+            final IndexReader.CacheHelper cacheHelper = searcher.getDirectoryReader().getReaderCacheHelper();
+            final Tuple<IndexReader.CacheKey, ShardFieldRangeSummary> lastSummary = lastFieldRangeSummary;
+            if (cacheHelper != null && lastSummary != null && lastSummary.v1() == cacheHelper.getKey()
+                && lastSummary.v2().isValidFor(indexMetadata)) {
+                return lastSummary.v2();
+            }
+            final ShardFieldRangeSummary summary =
+                ShardFieldRangeSummary.summarize(indexMetadata, mapperService()::fieldType, searcher.getDirectoryReader());
+            if (cacheHelper != null) {
+                lastFieldRangeSummary = new Tuple<>(cacheHelper.getKey(), summary);
+            }
+            return summary;
+        }
+    }
+
     /**
      * perform the last stages of recovery once all translog operations are done.
      * note that you should still call {@link #postRecovery(String)}.
@@ -3177,6 +3242,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     }
 
     private final AsyncIOProcessor<Translog.Location> translogSyncProcessor;
+    private volatile TranslogGroupCommitService translogGroupCommitService;
 
     private static AsyncIOProcessor<Translog.Location> createTranslogSyncProcessor(Logger logger, ThreadContext threadContext,
                                                                                    Supplier<Engine> engineSupplier) {
@@ -3207,7 +3273,20 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      */
     public final void sync(Translog.Location location, Consumer<Exception> syncListener) {
         verifyNotClosed();
-        translogSyncProcessor.put(location, syncListener);
+        final TranslogGroupCommitService groupCommit = translogGroupCommitService;
+        if (groupCommit != null) {
+            groupCommit.sync(this, location, syncListener);
+        } else {
+            translogSyncProcessor.put(location, syncListener);
+        }
+    }
+
+    /**
+     * Makes {@link #sync(Translog.Location, Consumer)} batch syncs with the other shards on the same data path instead of syncing
+     * this shard's translog on its own.
+     */
+    public void setTranslogGroupCommitService(TranslogGroupCommitService translogGroupCommitService) {
+        this.translogGroupCommitService = translogGroupCommitService;
     }
 
     public void sync() throws IOException {
@@ -3215,6 +3294,22 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         getEngine().syncTranslog();
     }
 
+    /**
+     * Syncs the given locations with the underlying storage unless already synced, blocking until they are durable. This is meant
+     * for callers that batch syncs themselves, see {@link TranslogGroupCommitService}; everybody else
+     * should use {@link #sync(Translog.Location, Consumer)}.
+     *
+     * @return {@code true} if this call fsynced the translog, {@code false} if the locations were already durable
+     */
+    public boolean syncTranslog(Stream<Translog.Location> locations) throws IOException {
+        try {
+            return getEngine().ensureTranslogSynced(locations);
+        } catch (AlreadyClosedException ex) {
+            // that's fine since we already synced everything on engine close
+            return false;
+        }
+    }
+
     /**
      * Checks if the underlying storage sync is required.
      */
@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.shard;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.PointValues;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.time.DateFormatter;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A summary of the (inclusive) ranges of the date fields of a single shard, taken from a searcher of a primary that cannot receive
+ * writes any more, see {@link IndexShard#getFieldRangeSummary(boolean)}. Coordinating nodes cache these summaries so that they can
+ * rewrite range queries on any of these fields themselves and skip the shard without a can_match round-trip. A summary is only valid
+ * for as long as the index keeps the write block, settings and mapping that it had when the summary was taken, see
+ * {@link #isValidFor(IndexMetadata)}.
+ */
+public final class ShardFieldRangeSummary implements Writeable {
+
+    private final long settingsVersion;
+    private final long mappingVersion;
+    private final Map<String, FieldRange> fieldRanges;
+
+    public ShardFieldRangeSummary(long settingsVersion, long mappingVersion, Map<String, FieldRange> fieldRanges) {
+        this.settingsVersion = settingsVersion;
+        this.mappingVersion = mappingVersion;
+        this.fieldRanges = Collections.unmodifiableMap(fieldRanges);
+    }
+
+    public ShardFieldRangeSummary(StreamInput in) throws IOException {
+        this.settingsVersion = in.readVLong();
+        this.mappingVersion = in.readVLong();
+        this.fieldRanges = in.readMap(StreamInput::readString, FieldRange::new);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(settingsVersion);
+        out.writeVLong(mappingVersion);
+        out.writeMap(fieldRanges, StreamOutput::writeString, (o, fieldRange) -> fieldRange.writeTo(o));
+    }
+
+    /**
+     * Summarizes the ranges of all searchable date fields of the given reader.
+     *
+     * @param indexMetadata   the metadata of the index that the reader belongs to
+     * @param fieldTypeLookup the lookup of the mapped field types of the index, which must reflect the mapping of the metadata
+     * @param reader          the reader to summarize
+     */
+    public static ShardFieldRangeSummary summarize(IndexMetadata indexMetadata, Function<String, MappedFieldType> fieldTypeLookup,
+                                                   DirectoryReader reader) throws IOException {
+        final Map<String, FieldRange> fieldRanges = new HashMap<>();
+        for (FieldInfo fieldInfo : FieldInfos.getMergedFieldInfos(reader)) {
+            final MappedFieldType fieldType = fieldTypeLookup.apply(fieldInfo.name);
+            if (fieldType instanceof DateFieldMapper.DateFieldType == false || fieldType.isSearchable() == false) {
+                continue;
+            }
+            final byte[] minPackedValue = PointValues.getMinPackedValue(reader, fieldInfo.name);
+            final byte[] maxPackedValue = PointValues.getMaxPackedValue(reader, fieldInfo.name);
+            final ShardLongFieldRange range;
+            if (minPackedValue == null || maxPackedValue == null) {
+                range = ShardLongFieldRange.EMPTY;
+            } else {
+                range = ShardLongFieldRange.of(LongPoint.decodeDimension(minPackedValue, 0), LongPoint.decodeDimension(maxPackedValue, 0));
+            }
+            fieldRanges.put(fieldInfo.name, new FieldRange((DateFieldMapper.DateFieldType) fieldType, range));
+        }
+        return new ShardFieldRangeSummary(indexMetadata.getSettingsVersion(), indexMetadata.getMappingVersion(), fieldRanges);
+    }
+
+    /**
+     * @return whether the shard that this summary was taken from can still not receive writes according to the given metadata of its
+     * index, and whether the settings and the mapping that the summary was taken with still apply. The write block does not prevent
+     * mapping updates, which may for instance add a runtime field that shadows a summarized field.
+     */
+    public boolean isValidFor(IndexMetadata indexMetadata) {
+        return settingsVersion == indexMetadata.getSettingsVersion()
+            && mappingVersion == indexMetadata.getMappingVersion()
+            && isWriteBlocked(indexMetadata);
+    }
+
+    /**
+     * @return whether the given index cannot receive writes, which is a prerequisite for summarizing its shards
+     */
+    public static boolean isWriteBlocked(IndexMetadata indexMetadata) {
+        return IndexMetadata.INDEX_BLOCKS_WRITE_SETTING.get(indexMetadata.getSettings())
+            || IndexMetadata.INDEX_READ_ONLY_SETTING.get(indexMetadata.getSettings());
+    }
+
+    /**
+     * @return the type of the given field, or {@code null} if the field is not summarized
+     */
+    @Nullable
+    public DateFieldMapper.DateFieldType getFieldType(String fieldName) {
+        final FieldRange fieldRange = fieldRanges.get(fieldName);
+        return fieldRange == null ? null : fieldRange.fieldType;
+    }
+
+    /**
+     * @return the range of the given field, or {@link ShardLongFieldRange#UNKNOWN} if the field is not summarized
+     */
+    public ShardLongFieldRange getFieldRange(String fieldName) {
+        final FieldRange fieldRange = fieldRanges.get(fieldName);
+        return fieldRange == null ? ShardLongFieldRange.UNKNOWN : fieldRange.range;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardFieldRangeSummary{settingsVersion=" + settingsVersion + ", mappingVersion=" + mappingVersion
+            + ", fieldRanges=" + fieldRanges + "}";
+    }
+
+    /**
+     * The range of a single date field, along with what is needed to parse the bounds of range queries on this field.
+     */
+    public static final class FieldRange implements Writeable {
+        private final DateFieldMapper.DateFieldType fieldType;
+        private final ShardLongFieldRange range;
+
+        public FieldRange(DateFieldMapper.DateFieldType fieldType, ShardLongFieldRange range) {
+            this.fieldType = fieldType;
+            this.range = range;
+        }
+
+        FieldRange(StreamInput in) throws IOException {
+            final String name = in.readString();
+            final DateFormatter formatter = DateFormatter.forPattern(in.readString()).withLocale(Locale.forLanguageTag(in.readString()));
+            final DateFieldMapper.Resolution resolution = DateFieldMapper.Resolution.ofOrdinal(in.readVInt());
+            this.fieldType = new DateFieldMapper.DateFieldType(name, resolution, formatter);
+            this.range = ShardLongFieldRange.readFrom(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(fieldType.name());
+            out.writeString(fieldType.dateTimeFormatter().pattern());
+            out.writeString(fieldType.dateTimeFormatter().locale().toLanguageTag());
+            out.writeVInt(fieldType.resolution().ordinal());
+            range.writeTo(out);
+        }
+
+        @Override
+        public String toString() {
+            return range.toString();
+        }
+    }
+}
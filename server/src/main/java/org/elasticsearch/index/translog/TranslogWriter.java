@@ -28,14 +28,16 @@ import org.elasticsearch.Assertions;
 import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
-import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.io.DiskIoBufferPool;
-import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.seqno.SequenceNumbers;
@@ -47,10 +49,13 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.LongConsumer;
 import java.util.function.LongSupplier;
@@ -88,7 +93,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     private LongArrayList nonFsyncedSequenceNumbers = new LongArrayList(64);
     private final int forceWriteThreshold;
     private volatile long bufferedBytes;
-    private ReleasableBytesStreamOutput buffer;
+    private OpsBuffer buffer;
 
     private final Map<Long, Tuple<BytesReference, Exception>> seenSequenceNumbers;
 
@@ -179,6 +184,10 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
 
     /**
      * Add the given bytes to the translog with the specified sequence number; returns the location the bytes were written to.
+     * <p>
+     * Only the reservation of the location and the sequence number bookkeeping happen under this writer's monitor; the bytes are
+     * copied into the reserved range afterwards so that concurrent writers don't serialize on the copy. Whichever thread drains the
+     * buffer to disk waits for all reserved ranges to be filled first, see {@link OpsBuffer#awaitCopies()}.
      *
      * @param data  the bytes to write
      * @param seqNo the sequence number associated with the operation
@@ -192,15 +201,16 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         }
 
         final Translog.Location location;
+        final OpsBuffer.Reservation reservation;
         synchronized (this) {
             ensureOpen();
             if (buffer == null) {
-                buffer = new ReleasableBytesStreamOutput(bigArrays);
+                buffer = new OpsBuffer(bigArrays);
             }
-            assert bufferedBytes == buffer.size();
+            assert bufferedBytes == buffer.reservedBytes();
             final long offset = totalOffset;
+            reservation = buffer.reserve(data.length());
             totalOffset += data.length();
-            data.writeTo(buffer);
 
             assert minSeqNo != SequenceNumbers.NO_OPS_PERFORMED || operationCounter == 0;
             assert maxSeqNo != SequenceNumbers.NO_OPS_PERFORMED || operationCounter == 0;
@@ -215,9 +225,10 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
             assert assertNoSeqNumberConflict(seqNo, data);
 
             location = new Translog.Location(generation, offset, data.length());
-            bufferedBytes = buffer.size();
+            bufferedBytes = buffer.reservedBytes();
         }
 
+        reservation.copy(data);
         return location;
     }
 
@@ -404,7 +415,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                     // the lock we should check again since if this code is busy we might have fsynced enough already
                     final Checkpoint checkpointToSync;
                     final LongArrayList flushedSequenceNumbers;
-                    final ReleasableBytesReference toWrite;
+                    final OpsBuffer toWrite;
                     try (ReleasableLock toClose = writeLock.acquire()) {
                         synchronized (this) {
                             ensureOpen();
@@ -455,24 +466,27 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         }
     }
 
-    private synchronized ReleasableBytesReference pollOpsToWrite() {
+    /**
+     * Detaches the current buffer so that new operations go to a fresh one. Returns {@code null} if nothing was buffered.
+     */
+    private synchronized OpsBuffer pollOpsToWrite() {
         ensureOpen();
-        if (this.buffer != null) {
-            ReleasableBytesStreamOutput toWrite = this.buffer;
-            this.buffer = null;
-            this.bufferedBytes = 0;
-            return new ReleasableBytesReference(toWrite.bytes(), toWrite);
-        } else {
-            return ReleasableBytesReference.wrap(BytesArray.EMPTY);
-        }
+        final OpsBuffer toWrite = this.buffer;
+        this.buffer = null;
+        this.bufferedBytes = 0;
+        return toWrite;
     }
 
-    private void writeAndReleaseOps(ReleasableBytesReference toWrite) throws IOException {
-        try (ReleasableBytesReference toClose = toWrite) {
+    private void writeAndReleaseOps(OpsBuffer toWrite) throws IOException {
+        if (toWrite == null) {
+            return;
+        }
+        try (OpsBuffer toClose = toWrite) {
             assert writeLock.isHeldByCurrentThread();
+            toWrite.awaitCopies();
             ByteBuffer ioBuffer = DiskIoBufferPool.getIoBuffer();
 
-            BytesRefIterator iterator = toWrite.iterator();
+            BytesRefIterator iterator = toWrite.bytes().iterator();
             BytesRef current;
             while ((current = iterator.next()) != null) {
                 int currentBytesConsumed = 0;
@@ -552,6 +566,10 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     public final void close() throws IOException {
         if (closed.compareAndSet(false, true)) {
             synchronized (this) {
+                if (buffer != null) {
+                    // writers may still be copying into their reserved ranges, don't hand the pages back before they are done
+                    buffer.awaitCopiesWhileHandlingException();
+                }
                 Releasables.closeWhileHandlingException(buffer);
                 buffer = null;
                 bufferedBytes = 0;
@@ -563,4 +581,138 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     protected final boolean isClosed() {
         return closed.get();
     }
+
+    /**
+     * The operations that were added to this writer since the buffer was last drained to disk. The buffer is a list of pages that
+     * only ever grows while it is the writer's current buffer. Ranges are reserved under the writer's monitor and filled outside of
+     * it; a thread that drains the buffer first detaches it from the writer, so no further ranges get reserved, and then waits until
+     * all reserved ranges have been filled.
+     */
+    static final class OpsBuffer implements Releasable {
+
+        private static final int PAGE_SIZE = PageCacheRecycler.BYTE_PAGE_SIZE;
+
+        private final BigArrays bigArrays;
+        // guarded by the writer's monitor until the buffer is detached
+        private final List<ByteArray> pages = new ArrayList<>();
+        private long reservedBytes;
+        private final AtomicLong copiedBytes = new AtomicLong();
+        private volatile Exception copyFailure;
+
+        OpsBuffer(BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+        }
+
+        long reservedBytes() {
+            return reservedBytes;
+        }
+
+        /**
+         * Reserves the next {@code length} bytes of this buffer. Must be called under the writer's monitor.
+         */
+        Reservation reserve(int length) {
+            final long start = reservedBytes;
+            final long end = start + length;
+            while ((long) pages.size() * PAGE_SIZE < end) {
+                pages.add(bigArrays.newByteArray(PAGE_SIZE, false));
+            }
+            final int firstPage = (int) (start / PAGE_SIZE);
+            final int lastPage = length == 0 ? firstPage : (int) ((end - 1) / PAGE_SIZE);
+            // hand out the pages the range spans so that filling it doesn't need to read the (growing) page list
+            final ByteArray[] target = length == 0 ? new ByteArray[0] : pages.subList(firstPage, lastPage + 1).toArray(new ByteArray[0]);
+            reservedBytes = end;
+            return new Reservation(target, (int) (start % PAGE_SIZE), length);
+        }
+
+        /**
+         * Waits until all reserved ranges have been filled and rethrows the failure of any writer that failed to fill its range.
+         */
+        void awaitCopies() {
+            final long reserved = reservedBytes;
+            int spins = 0;
+            while (copiedBytes.get() != reserved) {
+                // copies are plain memory copies of a single operation, so spinning briefly is cheaper than parking
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            if (copyFailure != null) {
+                throw new IllegalStateException("failed to copy operation into the translog buffer", copyFailure);
+            }
+        }
+
+        void awaitCopiesWhileHandlingException() {
+            try {
+                awaitCopies();
+            } catch (IllegalStateException e) {
+                // the buffer is about to be discarded
+            }
+        }
+
+        BytesReference bytes() {
+            final BytesReference[] references = new BytesReference[pages.size()];
+            long remaining = reservedBytes;
+            for (int i = 0; i < references.length; i++) {
+                final int length = (int) Math.min(PAGE_SIZE, remaining);
+                references[i] = BytesReference.fromByteArray(pages.get(i), length);
+                remaining -= length;
+            }
+            return CompositeBytesReference.of(references);
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(pages);
+        }
+
+        /**
+         * A range of the buffer that was reserved for a single operation.
+         */
+        final class Reservation {
+
+            private final ByteArray[] target;
+            private final int startInFirstPage;
+            private final int length;
+
+            private Reservation(ByteArray[] target, int startInFirstPage, int length) {
+                this.target = target;
+                this.startInFirstPage = startInFirstPage;
+                this.length = length;
+            }
+
+            /**
+             * Fills the reserved range with the given bytes. Must be called exactly once, without holding the writer's monitor.
+             */
+            void copy(BytesReference data) throws IOException {
+                assert data.length() == length;
+                try {
+                    int page = 0;
+                    int pageOffset = startInFirstPage;
+                    final BytesRefIterator iterator = data.iterator();
+                    BytesRef current;
+                    while ((current = iterator.next()) != null) {
+                        int consumed = 0;
+                        while (consumed != current.length) {
+                            if (pageOffset == PAGE_SIZE) {
+                                page++;
+                                pageOffset = 0;
+                            }
+                            final int toCopy = Math.min(current.length - consumed, PAGE_SIZE - pageOffset);
+                            target[page].set(pageOffset, current.bytes, current.offset + consumed, toCopy);
+                            consumed += toCopy;
+                            pageOffset += toCopy;
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    copyFailure = e;
+                    throw e;
+                } finally {
+                    // count the range even if it failed so that the thread draining the buffer doesn't wait forever
+                    copiedBytes.addAndGet(length);
+                }
+            }
+        }
+    }
 }
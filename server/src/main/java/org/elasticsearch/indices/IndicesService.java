@@ -218,6 +218,7 @@ public class IndicesService extends AbstractLifecycleComponent
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final Map<String, IndexStorePlugin.SnapshotCommitSupplier> snapshotCommitSuppliers;
     private final IndexingMemoryController indexingMemoryController;
+    private final TranslogGroupCommitService translogGroupCommitService;
     private final TimeValue cleanInterval;
     final IndicesRequestCache indicesRequestCache; // pkg-private for testing
     private final IndicesQueryCache indicesQueryCache;
@@ -273,6 +274,7 @@ public class IndicesService extends AbstractLifecycleComponent
         indexingMemoryController = new IndexingMemoryController(settings, threadPool,
                                                                 // ensure we pull an iter with new shards - flatten makes a copy
                                                                 () -> Iterables.flatten(this).iterator());
+        translogGroupCommitService = new TranslogGroupCommitService(settings, threadPool);
         this.indexScopedSettings = indexScopedSettings;
         this.circuitBreakerService = circuitBreakerService;
         this.bigArrays = bigArrays;
@@ -317,6 +319,7 @@ public class IndicesService extends AbstractLifecycleComponent
                     IOUtils.close(
                             analysisRegistry,
                             indexingMemoryController,
+                            translogGroupCommitService,
                             indicesFieldDataCache,
                             cacheCleaner,
                             indicesRequestCache,
@@ -400,6 +403,13 @@ public class IndicesService extends AbstractLifecycleComponent
         return closeLatch.await(timeout, timeUnit);
     }
 
+    /**
+     * Returns the service that coalesces request level translog syncs of all shards on this node.
+     */
+    public TranslogGroupCommitService getTranslogGroupCommitService() {
+        return translogGroupCommitService;
+    }
+
     public NodeIndicesStats stats(CommonStatsFlags flags) {
         CommonStats commonStats = new CommonStats(flags);
         // the cumulative statistics also account for shards that are no longer on this node, which is tracked by oldShardsStats
@@ -781,6 +791,9 @@ public class IndicesService extends AbstractLifecycleComponent
         RecoveryState recoveryState = indexService.createRecoveryState(shardRouting, targetNode, sourceNode);
         IndexShard indexShard = indexService.createShard(shardRouting, globalCheckpointSyncer, retentionLeaseSyncer);
         indexShard.addShardFailureCallback(onShardFailure);
+        if (translogGroupCommitService.isEnabled()) {
+            indexShard.setTranslogGroupCommitService(translogGroupCommitService);
+        }
         indexShard.startRecovery(recoveryState, recoveryTargetService, recoveryListener, repositoriesService,
             mapping -> {
                 assert recoveryState.getRecoverySource().getType() == RecoverySource.Type.LOCAL_SHARDS:
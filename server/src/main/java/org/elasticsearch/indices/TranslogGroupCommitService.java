@@ -0,0 +1,305 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.common.CheckedBiFunction;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Coalesces the translog syncs that write requests wait for when {@code index.translog.durability} is {@code request}. Syncs are
+ * collected per data path and executed in batches: each shard that has pending syncs in a batch is fsynced once for all of them, and
+ * the shards of a batch are fsynced concurrently, each shard's requests being acknowledged as soon as its own fsync completes.
+ * <p>
+ * A data path runs one batch at a time and starts at most one batch per {@link #GROUP_COMMIT_WINDOW_SETTING}. Syncs that arrive on an
+ * idle data path are executed right away, so only syncs that arrive while the data path is busy are delayed, and those would otherwise
+ * have queued behind the fsync that is in flight on their shard. fsync works per file, so the shards of a batch can't share a single
+ * fsync: the savings come from syncing each shard once for all of the requests that reached it within the window.
+ */
+public class TranslogGroupCommitService implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(TranslogGroupCommitService.class);
+
+    /**
+     * The minimum time between the starts of two batches of translog syncs on a data path. The default of {@code 0} disables group
+     * commit so that every shard syncs its translog on its own.
+     */
+    public static final Setting<TimeValue> GROUP_COMMIT_WINDOW_SETTING = Setting.timeSetting(
+        "indices.translog.group_commit.window",
+        TimeValue.ZERO,
+        TimeValue.ZERO,
+        TimeValue.timeValueMillis(100),
+        Property.NodeScope);
+
+    private final ThreadPool threadPool;
+    private final long windowNanos;
+    private final LongSupplier relativeTimeInNanos;
+    private final CheckedBiFunction<IndexShard, Stream<Translog.Location>, Boolean, IOException> shardSyncer;
+    private final ConcurrentMap<Path, DataPathSyncs> dataPathSyncs = ConcurrentCollections.newConcurrentMap();
+    private final CounterMetric syncCount = new CounterMetric();
+    private final CounterMetric fsyncCount = new CounterMetric();
+
+    TranslogGroupCommitService(Settings settings, ThreadPool threadPool) {
+        this(settings, threadPool, System::nanoTime, IndexShard::syncTranslog);
+    }
+
+    /**
+     * @param relativeTimeInNanos the clock that batches are spaced by, the cached time of the thread pool is too coarse for the window
+     * @param shardSyncer         syncs the given locations of a shard's translog and returns whether this required an fsync
+     */
+    TranslogGroupCommitService(Settings settings, ThreadPool threadPool, LongSupplier relativeTimeInNanos,
+                               CheckedBiFunction<IndexShard, Stream<Translog.Location>, Boolean, IOException> shardSyncer) {
+        this.threadPool = threadPool;
+        this.windowNanos = GROUP_COMMIT_WINDOW_SETTING.get(settings).nanos();
+        this.relativeTimeInNanos = relativeTimeInNanos;
+        this.shardSyncer = shardSyncer;
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    /**
+     * Adds the given location of the shard's translog to the next batch of its data path, notifying the listener once it is durable.
+     */
+    public void sync(IndexShard shard, Translog.Location location, Consumer<Exception> listener) {
+        assert isEnabled() : "group commit is disabled";
+        final Path dataPath = shard.shardPath().getRootDataPath();
+        final Supplier<ThreadContext.StoredContext> restorableContext = threadPool.getThreadContext().newRestorableContext(false);
+        final Consumer<Exception> contextPreservingListener = e -> {
+            try (ThreadContext.StoredContext ignore = restorableContext.get()) {
+                listener.accept(e);
+            }
+        };
+        syncCount.inc();
+        dataPathSyncs.computeIfAbsent(dataPath, DataPathSyncs::new).add(new PendingSync(shard, location, contextPreservingListener));
+    }
+
+    /**
+     * The number of syncs that were requested from this service.
+     */
+    long syncCount() {
+        return syncCount.count();
+    }
+
+    /**
+     * The number of translog fsyncs that this service executed for the requested syncs.
+     */
+    long fsyncCount() {
+        return fsyncCount.count();
+    }
+
+    @Override
+    public void close() {
+        // shards sync their translog when they are closed, anything still pending is durable or will fail on its own
+        for (DataPathSyncs syncs : dataPathSyncs.values()) {
+            for (Map.Entry<IndexShard, List<PendingSync>> entry : groupByShard(syncs.takePending()).entrySet()) {
+                syncShard(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static Map<IndexShard, List<PendingSync>> groupByShard(List<PendingSync> syncs) {
+        final Map<IndexShard, List<PendingSync>> byShard = new IdentityHashMap<>();
+        for (PendingSync sync : syncs) {
+            byShard.computeIfAbsent(sync.shard, s -> new ArrayList<>()).add(sync);
+        }
+        return byShard;
+    }
+
+    /**
+     * Syncs the translog of the given shard once for all of its pending syncs and notifies their listeners.
+     */
+    private void syncShard(IndexShard shard, List<PendingSync> syncs) {
+        Exception failure = null;
+        try {
+            if (shardSyncer.apply(shard, syncs.stream().map(s -> s.location))) {
+                fsyncCount.inc();
+            }
+        } catch (Exception e) {
+            logger.debug(new ParameterizedMessage("{} failed to sync translog", shard.shardId()), e);
+            failure = e;
+        }
+        notifyListeners(syncs, failure);
+    }
+
+    private static void notifyListeners(List<PendingSync> syncs, Exception failure) {
+        for (PendingSync sync : syncs) {
+            try {
+                sync.listener.accept(failure);
+            } catch (Exception e) {
+                logger.warn("failed to notify translog sync listener", e);
+            }
+        }
+    }
+
+    private static final class PendingSync {
+        private final IndexShard shard;
+        private final Translog.Location location;
+        private final Consumer<Exception> listener;
+
+        private PendingSync(IndexShard shard, Translog.Location location, Consumer<Exception> listener) {
+            this.shard = shard;
+            this.location = location;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * The pending syncs of all shards on a single data path.
+     */
+    private final class DataPathSyncs extends AbstractRunnable {
+        private final Path dataPath;
+        private List<PendingSync> pending = new ArrayList<>(); // guarded by this
+        private boolean active; // whether a batch is scheduled or running, guarded by this
+        private long lastBatchStartNanos; // guarded by this
+
+        private DataPathSyncs(Path dataPath) {
+            this.dataPath = dataPath;
+            this.lastBatchStartNanos = relativeTimeInNanos.getAsLong() - windowNanos;
+        }
+
+        void add(PendingSync sync) {
+            final long delayNanos;
+            synchronized (this) {
+                pending.add(sync);
+                if (active) {
+                    // joins the next batch, which is started once the active one is done
+                    return;
+                }
+                active = true;
+                delayNanos = nextBatchDelayNanos();
+            }
+            scheduleBatch(delayNanos);
+        }
+
+        synchronized List<PendingSync> takePending() {
+            final List<PendingSync> batch = pending;
+            pending = new ArrayList<>();
+            return batch;
+        }
+
+        private long nextBatchDelayNanos() {
+            assert Thread.holdsLock(this);
+            return Math.max(0L, lastBatchStartNanos + windowNanos - relativeTimeInNanos.getAsLong());
+        }
+
+        private void scheduleBatch(long delayNanos) {
+            // the batch runs on behalf of many requests, don't leak the context of the one that happened to schedule it
+            try (ThreadContext.StoredContext ignore = threadPool.getThreadContext().stashContext()) {
+                if (delayNanos == 0L) {
+                    threadPool.executor(ThreadPool.Names.GENERIC).execute(this);
+                } else {
+                    threadPool.schedule(this, TimeValue.timeValueNanos(delayNanos), ThreadPool.Names.GENERIC);
+                }
+            } catch (Exception e) {
+                onRejection(e);
+            }
+        }
+
+        @Override
+        protected void doRun() {
+            final List<PendingSync> batch;
+            synchronized (this) {
+                batch = takePending();
+                lastBatchStartNanos = relativeTimeInNanos.getAsLong();
+            }
+            final Map<IndexShard, List<PendingSync>> byShard = groupByShard(batch);
+            if (byShard.isEmpty()) {
+                onBatchCompleted();
+                return;
+            }
+            final CountDown countDown = new CountDown(byShard.size());
+            final Iterator<Map.Entry<IndexShard, List<PendingSync>>> iterator = byShard.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<IndexShard, List<PendingSync>> entry = iterator.next();
+                final Runnable shardSync = () -> {
+                    syncShard(entry.getKey(), entry.getValue());
+                    if (countDown.countDown()) {
+                        onBatchCompleted();
+                    }
+                };
+                if (iterator.hasNext()) {
+                    // fsyncs of different files don't wait for each other, so the shards of a batch are synced concurrently
+                    try {
+                        threadPool.executor(ThreadPool.Names.GENERIC).execute(shardSync);
+                    } catch (EsRejectedExecutionException e) {
+                        shardSync.run();
+                    }
+                } else {
+                    shardSync.run();
+                }
+            }
+        }
+
+        private void onBatchCompleted() {
+            final long delayNanos;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    active = false;
+                    return;
+                }
+                // the syncs that arrived while the batch was running form the next batch
+                delayNanos = nextBatchDelayNanos();
+            }
+            scheduleBatch(delayNanos);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            // batches notify all of their listeners themselves, we only get here if a batch could not be started at all
+            final List<PendingSync> failed;
+            synchronized (this) {
+                failed = takePending();
+                active = false;
+            }
+            logger.warn(new ParameterizedMessage("failed to sync translogs on data path [{}]", dataPath), e);
+            notifyListeners(failed, e);
+        }
+    }
+}
@@ -26,7 +26,9 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.store.Store;
@@ -71,7 +73,10 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
         throws IOException {
         assert Transports.assertNotTransportThread("multi_file_writer");
         final FileChunkWriter writer = fileChunkWriters.computeIfAbsent(fileMetadata.name(), name -> new FileChunkWriter());
-        writer.writeChunk(new FileChunk(fileMetadata, content, position, lastChunk));
+        // out of order chunks are buffered, so we must hold on to network buffers the content may be a slice of
+        final BytesReference retained =
+            content instanceof ReleasableBytesReference ? ((ReleasableBytesReference) content).retain() : content;
+        writer.writeChunk(new FileChunk(fileMetadata, retained, position, lastChunk));
     }
 
     /** Get a temporary name for the provided file name. */
@@ -151,6 +156,9 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
 
     @Override
     protected void closeInternal() {
+        for (FileChunkWriter writer : fileChunkWriters.values()) {
+            writer.releasePendingChunks();
+        }
         fileChunkWriters.clear();
         // clean open index outputs
         Iterator<Map.Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
@@ -179,7 +187,7 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
         store.renameTempFilesSafe(tempFileNames);
     }
 
-    static final class FileChunk {
+    static final class FileChunk implements Releasable {
         final StoreFileMetadata md;
         final BytesReference content;
         final long position;
@@ -190,6 +198,13 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
             this.position = position;
             this.lastChunk = lastChunk;
         }
+
+        @Override
+        public void close() {
+            if (content instanceof ReleasableBytesReference) {
+                ((ReleasableBytesReference) content).close();
+            }
+        }
     }
 
     private final class FileChunkWriter {
@@ -210,10 +225,13 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
                     }
                     pendingChunks.remove();
                 }
-                innerWriteFileChunk(chunk.md, chunk.position, chunk.content, chunk.lastChunk);
+                final int chunkLength = chunk.content.length();
+                try (chunk) {
+                    innerWriteFileChunk(chunk.md, chunk.position, chunk.content, chunk.lastChunk);
+                }
                 synchronized (this) {
                     assert lastPosition == chunk.position : "last_position " + lastPosition + " != chunk_position " + chunk.position;
-                    lastPosition += chunk.content.length();
+                    lastPosition += chunkLength;
                     if (chunk.lastChunk) {
                         assert pendingChunks.isEmpty() : "still have pending chunks [" + pendingChunks + "]";
                         fileChunkWriters.remove(chunk.md.name());
@@ -222,5 +240,10 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
                 }
             }
         }
+
+        synchronized void releasePendingChunks() {
+            Releasables.close(pendingChunks);
+            pendingChunks.clear();
+        }
     }
 }
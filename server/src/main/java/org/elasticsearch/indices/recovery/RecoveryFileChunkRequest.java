@@ -21,20 +21,22 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.util.Version;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.StoreFileMetadata;
+import org.elasticsearch.transport.RawIndexingDataTransportRequest;
 
 import java.io.IOException;
 
-public final class RecoveryFileChunkRequest extends RecoveryTransportRequest {
+public final class RecoveryFileChunkRequest extends RecoveryTransportRequest implements RawIndexingDataTransportRequest {
     private final boolean lastChunk;
     private final long recoveryId;
     private final ShardId shardId;
     private final long position;
-    private final BytesReference content;
+    private final ReleasableBytesReference content;
     private final StoreFileMetadata metadata;
     private final long sourceThrottleTimeInNanos;
 
@@ -48,13 +50,22 @@ public final class RecoveryFileChunkRequest extends RecoveryTransportRequest {
         position = in.readVLong();
         long length = in.readVLong();
         String checksum = in.readString();
-        content = in.readBytesReference();
-        Version writtenBy = Lucene.parseVersionLenient(in.readString(), null);
-        assert writtenBy != null;
-        metadata = new StoreFileMetadata(name, length, checksum, writtenBy);
-        lastChunk = in.readBoolean();
-        totalTranslogOps = in.readVInt();
-        sourceThrottleTimeInNanos = in.readLong();
+        // the content is a slice of the network buffers if the stream supports it, it is released when this request is released
+        content = in.readReleasableBytesReference();
+        boolean success = false;
+        try {
+            Version writtenBy = Lucene.parseVersionLenient(in.readString(), null);
+            assert writtenBy != null;
+            metadata = new StoreFileMetadata(name, length, checksum, writtenBy);
+            lastChunk = in.readBoolean();
+            totalTranslogOps = in.readVInt();
+            sourceThrottleTimeInNanos = in.readLong();
+            success = true;
+        } finally {
+            if (success == false) {
+                content.close();
+            }
+        }
     }
 
     public RecoveryFileChunkRequest(long recoveryId, final long requestSeqNo, ShardId shardId, StoreFileMetadata metadata, long position,
@@ -64,7 +75,9 @@ public final class RecoveryFileChunkRequest extends RecoveryTransportRequest {
         this.shardId = shardId;
         this.metadata = metadata;
         this.position = position;
-        this.content = content;
+        // releasable content is sent without copying it, the transport retains it until it was written
+        this.content = content instanceof ReleasableBytesReference
+            ? (ReleasableBytesReference) content : ReleasableBytesReference.wrap(content);
         this.lastChunk = lastChunk;
         this.totalTranslogOps = totalTranslogOps;
         this.sourceThrottleTimeInNanos = sourceThrottleTimeInNanos;
@@ -111,13 +124,28 @@ public final class RecoveryFileChunkRequest extends RecoveryTransportRequest {
         out.writeVLong(position);
         out.writeVLong(metadata.length());
         out.writeString(metadata.checksum());
-        out.writeBytesReference(content);
+        out.writeZeroCopyBytesReference(content);
         out.writeString(metadata.writtenBy().toString());
         out.writeBoolean(lastChunk);
         out.writeVInt(totalTranslogOps);
         out.writeLong(sourceThrottleTimeInNanos);
     }
 
+    @Override
+    public void incRef() {
+        content.incRef();
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return content.tryIncRef();
+    }
+
+    @Override
+    public boolean decRef() {
+        return content.decRef();
+    }
+
     @Override
     public String toString() {
         return shardId + ": name='" + name() + '\'' +
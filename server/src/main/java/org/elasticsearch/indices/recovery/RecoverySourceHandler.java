@@ -43,7 +43,7 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.CheckedRunnable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
-import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.logging.Loggers;
@@ -874,17 +874,16 @@ public class RecoverySourceHandler {
 
     private static class FileChunk implements MultiChunkTransfer.ChunkRequest, Releasable {
         final StoreFileMetadata md;
-        final BytesReference content;
+        // the transport retains the content until it was written to the network, so it may outlive this chunk
+        final ReleasableBytesReference content;
         final long position;
         final boolean lastChunk;
-        final Releasable onClose;
 
-        FileChunk(StoreFileMetadata md, BytesReference content, long position, boolean lastChunk, Releasable onClose) {
+        FileChunk(StoreFileMetadata md, ReleasableBytesReference content, long position, boolean lastChunk) {
             this.md = md;
             this.content = content;
             this.position = position;
             this.lastChunk = lastChunk;
-            this.onClose = onClose;
         }
 
         @Override
@@ -894,7 +893,7 @@ public class RecoverySourceHandler {
 
         @Override
         public void close() {
-            onClose.close();
+            content.close();
         }
     }
 
@@ -931,8 +930,9 @@ public class RecoverySourceHandler {
                         throw new CorruptIndexException("file truncated; length=" + md.length() + " offset=" + offset, md.name());
                     }
                     final boolean lastChunk = offset + bytesRead == md.length();
-                    final FileChunk chunk = new FileChunk(md, new BytesArray(buffer, 0, bytesRead), offset, lastChunk,
-                        () -> buffers.addFirst(buffer));
+                    final ReleasableBytesReference content =
+                        new ReleasableBytesReference(new BytesArray(buffer, 0, bytesRead), () -> buffers.addFirst(buffer));
+                    final FileChunk chunk = new FileChunk(md, content, offset, lastChunk);
                     offset += bytesRead;
                     return chunk;
                 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.node;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -27,48 +28,79 @@ import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.common.xcontent.ToXContent.Params;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * Class representing statistics about adaptive replica selection. This includes
  * EWMA of queue size, service time, and response time, as well as outgoing
- * searches to each node and the "rank" based on the ARS formula.
+ * searches to each node and the "rank" based on the ARS formula. The query time
+ * and outgoing searches of each copy of a shard on a node are included with
+ * the rank of that copy.
  */
 public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
 
     private final Map<String, Long> clientOutgoingConnections;
     private final Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats;
+    private final Map<ShardId, Map<String, ResponseCollectorService.ComputedShardCopyStats>> shardCopyComputedStats;
 
     public AdaptiveSelectionStats(Map<String, Long> clientConnections,
                                   Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats) {
+        this(clientConnections, nodeComputedStats, Collections.emptyMap());
+    }
+
+    public AdaptiveSelectionStats(Map<String, Long> clientConnections,
+                                  Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats,
+                                  Map<ShardId, Map<String, ResponseCollectorService.ComputedShardCopyStats>> shardCopyComputedStats) {
         this.clientOutgoingConnections = clientConnections;
         this.nodeComputedStats = nodeComputedStats;
+        this.shardCopyComputedStats = shardCopyComputedStats;
     }
 
     public AdaptiveSelectionStats(StreamInput in) throws IOException {
         this.clientOutgoingConnections = in.readMap(StreamInput::readString, StreamInput::readLong);
         this.nodeComputedStats = in.readMap(StreamInput::readString, ResponseCollectorService.ComputedNodeStats::new);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            this.shardCopyComputedStats = in.readMap(ShardId::new,
+                i -> i.readMap(StreamInput::readString, ResponseCollectorService.ComputedShardCopyStats::new));
+        } else {
+            this.shardCopyComputedStats = Collections.emptyMap();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeMap(this.clientOutgoingConnections, StreamOutput::writeString, StreamOutput::writeLong);
         out.writeMap(this.nodeComputedStats, StreamOutput::writeString, (stream, stats) -> stats.writeTo(stream));
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeMap(this.shardCopyComputedStats, (stream, shardId) -> shardId.writeTo(stream),
+                (stream, copies) -> stream.writeMap(copies, StreamOutput::writeString, (s, stats) -> stats.writeTo(s)));
+        }
     }
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("adaptive_selection");
         Set<String> allNodeIds = Sets.union(clientOutgoingConnections.keySet(), nodeComputedStats.keySet());
+        Map<String, Map<ShardId, ResponseCollectorService.ComputedShardCopyStats>> shardCopiesByNode = new HashMap<>();
+        for (Map.Entry<ShardId, Map<String, ResponseCollectorService.ComputedShardCopyStats>> shard : shardCopyComputedStats.entrySet()) {
+            for (Map.Entry<String, ResponseCollectorService.ComputedShardCopyStats> copy : shard.getValue().entrySet()) {
+                shardCopiesByNode.computeIfAbsent(copy.getKey(), k -> new TreeMap<>()).put(shard.getKey(), copy.getValue());
+            }
+        }
         for (String nodeId : allNodeIds) {
             builder.startObject(nodeId);
             ResponseCollectorService.ComputedNodeStats stats = nodeComputedStats.get(nodeId);
+            Map<ShardId, ResponseCollectorService.ComputedShardCopyStats> shardCopies = shardCopiesByNode.get(nodeId);
             if (stats != null) {
                 long outgoingSearches = clientOutgoingConnections.getOrDefault(nodeId, 0L);
                 builder.field("outgoing_searches", outgoingSearches);
@@ -82,6 +114,24 @@ public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
                 }
                 builder.field("avg_response_time_ns", (long) stats.responseTime);
                 builder.field("rank", String.format(Locale.ROOT, "%.1f", stats.rank(outgoingSearches)));
+                if (shardCopies != null) {
+                    builder.startObject("shards");
+                    for (Map.Entry<ShardId, ResponseCollectorService.ComputedShardCopyStats> copy : shardCopies.entrySet()) {
+                        ResponseCollectorService.ComputedShardCopyStats copyStats = copy.getValue();
+                        builder.startObject(copy.getKey().toString());
+                        builder.field("outgoing_searches", copyStats.inFlightRequests);
+                        if (copyStats.queryTook >= 0) {
+                            if (builder.humanReadable()) {
+                                builder.field("avg_query_time",
+                                    new TimeValue((long) copyStats.queryTook, TimeUnit.NANOSECONDS).toString());
+                            }
+                            builder.field("avg_query_time_ns", (long) copyStats.queryTook);
+                        }
+                        builder.field("rank", String.format(Locale.ROOT, "%.1f", stats.rank(outgoingSearches, copyStats)));
+                        builder.endObject();
+                    }
+                    builder.endObject();
+                }
             }
             builder.endObject();
         }
@@ -103,6 +153,33 @@ public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
         return nodeComputedStats;
     }
 
+    /**
+     * Returns a map of shard id to node id to the computed stats of the copy of the shard on the node
+     */
+    public Map<ShardId, Map<String, ResponseCollectorService.ComputedShardCopyStats>> getShardCopyComputedStats() {
+        return shardCopyComputedStats;
+    }
+
+    /**
+     * Returns a map of shard id to node id to the ranking of the copy of the shard on the node based on the adaptive replica
+     * formula. Only copies on nodes with computed stats are ranked.
+     */
+    public Map<ShardId, Map<String, Double>> getShardCopyRanks() {
+        final Map<ShardId, Map<String, Double>> ranks = new HashMap<>(shardCopyComputedStats.size());
+        for (Map.Entry<ShardId, Map<String, ResponseCollectorService.ComputedShardCopyStats>> shard : shardCopyComputedStats.entrySet()) {
+            final Map<String, Double> copyRanks = new HashMap<>(shard.getValue().size());
+            for (Map.Entry<String, ResponseCollectorService.ComputedShardCopyStats> copy : shard.getValue().entrySet()) {
+                final ResponseCollectorService.ComputedNodeStats stats = nodeComputedStats.get(copy.getKey());
+                if (stats != null) {
+                    final long outgoingSearches = clientOutgoingConnections.getOrDefault(copy.getKey(), 0L);
+                    copyRanks.put(copy.getKey(), stats.rank(outgoingSearches, copy.getValue()));
+                }
+            }
+            ranks.put(shard.getKey(), copyRanks);
+        }
+        return ranks;
+    }
+
     /**
      * Returns a map of node id to the ranking of the nodes based on the adaptive replica formula
      */
@@ -24,10 +24,13 @@ import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -35,17 +38,22 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Collects statistics about queue size, response time, and service time of
  * tasks executed on each node, making the EWMA of the values available to the
- * coordinating node.
+ * coordinating node. It also collects the time the query phase took on each
+ * copy of a shard and the number of requests that are in flight to each copy,
+ * since a node may be busy for some of its shards only.
  */
 public final class ResponseCollectorService implements ClusterStateListener {
 
     private static final double ALPHA = 0.3;
 
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<ShardId, ConcurrentMap<String, ShardCopyStatistics>> shardCopyStats =
+        ConcurrentCollections.newConcurrentMap();
 
     public ResponseCollectorService(ClusterService clusterService) {
         clusterService.addListener(this);
@@ -58,10 +66,16 @@ public final class ResponseCollectorService implements ClusterStateListener {
                 removeNode(removedNode.getId());
             }
         }
+        for (Index index : event.indicesDeleted()) {
+            shardCopyStats.keySet().removeIf(shardId -> shardId.getIndex().equals(index));
+        }
     }
 
     void removeNode(String nodeId) {
         nodeIdToStats.remove(nodeId);
+        for (ConcurrentMap<String, ShardCopyStatistics> copies : shardCopyStats.values()) {
+            copies.remove(nodeId);
+        }
     }
 
     public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
@@ -79,6 +93,60 @@ public final class ResponseCollectorService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Records the time the query phase took on the copy of the given shard on the given node.
+     */
+    public void addShardCopyStatistics(ShardId shardId, String nodeId, long queryTookNanos) {
+        shardCopyStatistics(shardId, nodeId).addQueryTook(queryTookNanos);
+    }
+
+    /**
+     * Marks the start of a request to the copy of the given shard on the given node. Each call must be followed by a call to
+     * {@link #onShardCopyRequestEnd(ShardId, String)} once the request completed.
+     */
+    public void onShardCopyRequestStart(ShardId shardId, String nodeId) {
+        shardCopyStatistics(shardId, nodeId).inFlightRequests.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a request that was started with {@link #onShardCopyRequestStart(ShardId, String)}.
+     */
+    public void onShardCopyRequestEnd(ShardId shardId, String nodeId) {
+        final Map<String, ShardCopyStatistics> copies = shardCopyStats.get(shardId);
+        final ShardCopyStatistics stats = copies == null ? null : copies.get(nodeId);
+        // the statistics may have been removed together with the node or the index while the request was in flight
+        if (stats != null) {
+            stats.inFlightRequests.updateAndGet(inFlight -> Math.max(0L, inFlight - 1));
+        }
+    }
+
+    private ShardCopyStatistics shardCopyStatistics(ShardId shardId, String nodeId) {
+        return shardCopyStats.computeIfAbsent(shardId, id -> ConcurrentCollections.newConcurrentMap())
+            .computeIfAbsent(nodeId, id -> new ShardCopyStatistics());
+    }
+
+    /**
+     * Optionally return a {@code ComputedShardCopyStats} for the copy of the given shard on the given node, if any requests were
+     * sent to it.
+     */
+    public Optional<ComputedShardCopyStats> getShardCopyStatistics(ShardId shardId, String nodeId) {
+        final Map<String, ShardCopyStatistics> copies = shardCopyStats.get(shardId);
+        if (copies == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(copies.get(nodeId)).map(ComputedShardCopyStats::new);
+    }
+
+    public Map<ShardId, Map<String, ComputedShardCopyStats>> getAllShardCopyStatistics() {
+        final Map<ShardId, Map<String, ComputedShardCopyStats>> stats = new HashMap<>(shardCopyStats.size());
+        shardCopyStats.forEach((shardId, copies) -> {
+            final Map<String, ComputedShardCopyStats> computed = new HashMap<>(copies.size());
+            copies.forEach((nodeId, copy) -> computed.put(nodeId, new ComputedShardCopyStats(copy)));
+            stats.put(shardId, computed);
+        });
+        return stats;
+    }
+
     public Map<String, ComputedNodeStats> getAllNodeStatistics() {
         final int clientNum = nodeIdToStats.size();
         // Transform the mutable object internally used for accounting into the computed version
@@ -90,7 +158,7 @@ public final class ResponseCollectorService implements ClusterStateListener {
     }
 
     public AdaptiveSelectionStats getAdaptiveStats(Map<String, Long> clientSearchConnections) {
-        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics());
+        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics(), getAllShardCopyStatistics());
     }
 
     /**
@@ -156,11 +224,12 @@ public final class ResponseCollectorService implements ClusterStateListener {
          * Rank this copy of the data, according to the adaptive replica selection formula from the C3 paper
          * https://www.usenix.org/system/files/conference/nsdi15/nsdi15-paper-suresh.pdf
          */
-        private double innerRank(long outstandingRequests) {
+        private double innerRank(long outstandingRequests, long shardCopyOutstandingRequests, double shardCopyQueryTook) {
             // the concurrency compensation is defined as the number of
             // outstanding requests from the client to the node times the number
-            // of clients in the system
-            double concurrencyCompensation = outstandingRequests * clientNum;
+            // of clients in the system. Requests to the same copy of a shard
+            // compete for the same shard-level resources, so they count twice
+            double concurrencyCompensation = (outstandingRequests + shardCopyOutstandingRequests) * clientNum;
 
             // Cubic queue adjustment factor. The paper chose 3 though we could
             // potentially make this configurable if desired.
@@ -177,16 +246,31 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
             // The final formula
             double rank = rS - (1.0 / muBarS) + (Math.pow(qHatS, queueAdjustmentFactor) / muBarS);
+            if (shardCopyQueryTook > 0) {
+                // the time the copy of the shard is expected to take for this request, given the requests to it that are in flight
+                rank += (1 + shardCopyOutstandingRequests) * shardCopyQueryTook / FACTOR;
+            }
             return rank;
         }
 
         public double rank(long outstandingRequests) {
             if (cachedRank == 0) {
-                cachedRank = innerRank(outstandingRequests);
+                cachedRank = innerRank(outstandingRequests, 0, -1);
             }
             return cachedRank;
         }
 
+        /**
+         * Rank the copy of a shard on this node. On top of the rank of the node this accounts for the requests in flight to the copy
+         * and the time the query phase took on it, such that a node that is only slow for some of its shards is only avoided for those.
+         */
+        public double rank(long outstandingRequests, @Nullable ComputedShardCopyStats shardCopyStats) {
+            if (shardCopyStats == null) {
+                return rank(outstandingRequests);
+            }
+            return innerRank(outstandingRequests, shardCopyStats.inFlightRequests, shardCopyStats.queryTook);
+        }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder("ComputedNodeStats[");
@@ -201,6 +285,44 @@ public final class ResponseCollectorService implements ClusterStateListener {
         }
     }
 
+    /**
+     * Struct-like class encapsulating a point-in-time snapshot of the statistics
+     * of a copy of a shard: the EWMA of the time the query phase took on it, or
+     * -1 if no query result was received from it yet, and the number of requests
+     * to it that are currently in flight.
+     */
+    public static class ComputedShardCopyStats implements Writeable {
+
+        public final double queryTook;
+        public final long inFlightRequests;
+
+        public ComputedShardCopyStats(double queryTook, long inFlightRequests) {
+            this.queryTook = queryTook;
+            this.inFlightRequests = inFlightRequests;
+        }
+
+        ComputedShardCopyStats(ShardCopyStatistics stats) {
+            this(stats.queryTook == null ? -1 : stats.queryTook.getAverage(), stats.inFlightRequests.get());
+        }
+
+        ComputedShardCopyStats(StreamInput in) throws IOException {
+            this.queryTook = in.readDouble();
+            this.inFlightRequests = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeDouble(queryTook);
+            out.writeVLong(inFlightRequests);
+        }
+
+        @Override
+        public String toString() {
+            return "ComputedShardCopyStats[query took: " + String.format(Locale.ROOT, "%.1f", queryTook)
+                + ", in flight: " + inFlightRequests + "]";
+        }
+    }
+
     /**
      * Class encapsulating a node's exponentially weighted queue size, response
      * time, and service time, however, this class is private and intended only
@@ -222,4 +344,22 @@ public final class ResponseCollectorService implements ClusterStateListener {
             this.serviceTime = serviceTimeEWMA;
         }
     }
+
+    /**
+     * Class encapsulating the exponentially weighted query time of a copy of a
+     * shard and the number of requests in flight to it, only intended to be used
+     * for the internal accounting of {@code ResponseCollectorService}.
+     */
+    private static class ShardCopyStatistics {
+        final AtomicLong inFlightRequests = new AtomicLong();
+        volatile ExponentiallyWeightedMovingAverage queryTook;
+
+        synchronized void addQueryTook(long queryTookNanos) {
+            if (queryTook == null) {
+                queryTook = new ExponentiallyWeightedMovingAverage(ALPHA, queryTookNanos);
+            } else {
+                queryTook.addValue((double) queryTookNanos);
+            }
+        }
+    }
 }
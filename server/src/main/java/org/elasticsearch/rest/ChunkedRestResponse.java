@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link RestResponse} whose body is serialized in chunks while it is sent to the client. HTTP implementations that do not support
+ * sending chunks fall back to {@link #content()}, which serializes the whole body at once.
+ */
+public class ChunkedRestResponse extends RestResponse {
+
+    /**
+     * The number of bytes after which {@link #content()} starts a new chunk
+     */
+    private static final int CONTENT_CHUNK_SIZE = 1 << 16;
+
+    private final RestStatus status;
+    private final ChunkedRestResponseBody body;
+    private BytesReference content;
+
+    public ChunkedRestResponse(RestStatus status, ChunkedRestResponseBody body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    @Override
+    public String contentType() {
+        return body.getResponseContentTypeString();
+    }
+
+    @Override
+    public ChunkedRestResponseBody chunkedContent() {
+        return content == null ? body : null;
+    }
+
+    @Override
+    public BytesReference content() {
+        if (content == null) {
+            final List<BytesReference> chunks = new ArrayList<>();
+            try {
+                while (body.isDone() == false) {
+                    chunks.add(body.encodeChunk(CONTENT_CHUNK_SIZE, BigArrays.NON_RECYCLING_INSTANCE));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            content = CompositeBytesReference.of(chunks.toArray(new BytesReference[0]));
+        }
+        return content;
+    }
+
+    @Override
+    public RestStatus status() {
+        return status;
+    }
+}
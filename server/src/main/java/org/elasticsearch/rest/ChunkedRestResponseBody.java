@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * The body of a {@link RestResponse} that is serialized in chunks while it is being sent, such that the whole body never has to be
+ * held in memory at once. Chunks are only requested as fast as the client consumes them.
+ */
+public interface ChunkedRestResponseBody {
+
+    /**
+     * @return true once this body has been fully serialized
+     */
+    boolean isDone();
+
+    /**
+     * Serializes the next chunk of this body.
+     *
+     * @param sizeHint the number of bytes after which serialization of the chunk should stop
+     * @param bigArrays the pages to serialize the chunk into
+     * @return the serialized chunk, which must be released by the caller once it has been sent
+     */
+    ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException;
+
+    /**
+     * @return the value of the content-type header of this body
+     */
+    String getResponseContentTypeString();
+
+    /**
+     * Creates a body that serializes the given object as xcontent of the type that the given channel's request asks for.
+     */
+    static ChunkedRestResponseBody fromXContent(ChunkedToXContent chunkedToXContent, ToXContent.Params params,
+                                                RestChannel channel) throws IOException {
+        return new ChunkedRestResponseBody() {
+
+            private final ChunkOutputStream out = new ChunkOutputStream();
+            private final XContentBuilder builder = channel.newBuilder(channel.request().getXContentType(), null, true, out);
+            private final Iterator<? extends ToXContent> parts = chunkedToXContent.toXContentChunked(params);
+
+            @Override
+            public boolean isDone() {
+                return parts.hasNext() == false;
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException {
+                assert isDone() == false : "body was already fully serialized";
+                final ReleasableBytesStreamOutput chunk = new ReleasableBytesStreamOutput(sizeHint, bigArrays);
+                out.target = chunk;
+                boolean success = false;
+                try {
+                    while (parts.hasNext() && chunk.size() < sizeHint) {
+                        parts.next().toXContent(builder, params);
+                    }
+                    if (parts.hasNext()) {
+                        builder.flush();
+                    } else {
+                        builder.close();
+                    }
+                    success = true;
+                    return new ReleasableBytesReference(chunk.bytes(), chunk);
+                } finally {
+                    out.target = null;
+                    if (success == false) {
+                        chunk.close();
+                    }
+                }
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return builder.contentType().mediaType();
+            }
+        };
+    }
+
+    /**
+     * Forwards the bytes written by an {@link XContentBuilder} to the chunk that is currently being serialized.
+     */
+    final class ChunkOutputStream extends OutputStream {
+
+        private ReleasableBytesStreamOutput target;
+
+        private ChunkOutputStream() {
+        }
+
+        @Override
+        public void write(int b) {
+            target.writeByte((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target.writeBytes(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            // the chunks are released once they have been sent
+        }
+    }
+}
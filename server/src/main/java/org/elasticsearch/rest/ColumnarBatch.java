@@ -0,0 +1,207 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A table of values that is built up row by row and is written column by column by {@link ColumnarResponseWriter}. The type of a
+ * column is inferred from the values that were added to it, so that callers don't have to know the types of the fields up front.
+ */
+public final class ColumnarBatch {
+
+    /**
+     * The type of the values of a column.
+     */
+    public enum ElementType {
+        INT64((byte) 0),
+        FLOAT64((byte) 1),
+        BOOLEAN((byte) 2),
+        UTF8((byte) 3);
+
+        private final byte id;
+
+        ElementType(byte id) {
+            this.id = id;
+        }
+
+        public byte id() {
+            return id;
+        }
+    }
+
+    private final String name;
+    private final List<Column> columns = new ArrayList<>();
+    private int rowCount;
+
+    public ColumnarBatch(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public List<Column> columns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Adds a column to this batch. Rows that were added before the column are null in it.
+     *
+     * @param list whether each row of the column holds a list of values rather than a single value
+     */
+    public Column addColumn(String name, boolean list) {
+        final Column column = new Column(name, list);
+        while (column.rows < rowCount) {
+            column.appendNull();
+        }
+        columns.add(column);
+        return column;
+    }
+
+    /**
+     * Completes the current row. Columns that no value was appended to since the last row are null in it.
+     */
+    public void endRow() {
+        rowCount++;
+        for (Column column : columns) {
+            assert column.rows <= rowCount : "column [" + column.name + "] has more rows than the batch";
+            if (column.rows < rowCount) {
+                column.appendNull();
+            }
+        }
+    }
+
+    /**
+     * A column of a {@link ColumnarBatch}.
+     */
+    public static final class Column {
+
+        private final String name;
+        private final boolean list;
+        private final BitSet validity = new BitSet();
+        private final List<Object> values = new ArrayList<>();
+        private final IntArrayList offsets = new IntArrayList();
+        private int rows;
+
+        private Column(String name, boolean list) {
+            this.name = name;
+            this.list = list;
+            if (list) {
+                offsets.add(0);
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public boolean isList() {
+            return list;
+        }
+
+        /**
+         * Sets the value of this column in the current row, or null if the value is null.
+         */
+        public void append(Object value) {
+            assert list == false : "column [" + name + "] holds lists";
+            if (value == null) {
+                appendNull();
+            } else {
+                validity.set(rows++);
+                values.add(value);
+            }
+        }
+
+        /**
+         * Sets the list of values of this column in the current row, or null if the list is null. Null values in the list are skipped.
+         */
+        public void appendList(Collection<?> list) {
+            assert this.list : "column [" + name + "] does not hold lists";
+            if (list == null) {
+                appendNull();
+            } else {
+                validity.set(rows++);
+                for (Object value : list) {
+                    if (value != null) {
+                        values.add(value);
+                    }
+                }
+                offsets.add(values.size());
+            }
+        }
+
+        private void appendNull() {
+            rows++;
+            if (list) {
+                offsets.add(values.size());
+            }
+        }
+
+        /**
+         * The type of the values of this column: {@link ElementType#INT64} if all values are integral numbers,
+         * {@link ElementType#FLOAT64} if all values are numbers, {@link ElementType#BOOLEAN} if all values are booleans and
+         * {@link ElementType#UTF8} otherwise, in which case values are written as their string representation.
+         */
+        public ElementType elementType() {
+            boolean integral = true;
+            boolean numeric = true;
+            boolean bool = true;
+            for (Object value : values) {
+                integral &= value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+                numeric &= value instanceof Number;
+                bool &= value instanceof Boolean;
+            }
+            if (values.isEmpty()) {
+                return ElementType.UTF8;
+            } else if (integral) {
+                return ElementType.INT64;
+            } else if (numeric) {
+                return ElementType.FLOAT64;
+            } else if (bool) {
+                return ElementType.BOOLEAN;
+            }
+            return ElementType.UTF8;
+        }
+
+        BitSet validity() {
+            return validity;
+        }
+
+        List<Object> values() {
+            return values;
+        }
+
+        IntArrayList offsets() {
+            return offsets;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.ParsedMediaType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Writes {@link ColumnarBatch}es in a binary columnar format, as an alternative to rendering responses as xcontent for clients that
+ * consume large tabular results. The layout of each column follows the Apache Arrow columnar format so that clients can read the
+ * values without parsing them:
+ * <ul>
+ *     <li>all numbers are little-endian and every buffer starts at an offset that is a multiple of 8 bytes</li>
+ *     <li>the response starts with the magic bytes {@code ESCF}, an int32 format version and an int32 number of batches</li>
+ *     <li>each batch starts with its name, an int32 row count and an int32 column count followed by the name, the
+ *     {@link ColumnarBatch.ElementType#id() element type} and a list flag byte of each of its columns</li>
+ *     <li>the metadata of a batch is followed by the buffers of each of its columns: a validity bitmap with one bit per row,
+ *     int32 list offsets with one entry per row plus one if the column holds lists, and then the values. Values are either int64,
+ *     float64, a bitmap for booleans or int32 offsets followed by the utf-8 bytes for strings</li>
+ *     <li>strings in the metadata are written as an int32 length followed by their utf-8 bytes</li>
+ * </ul>
+ */
+public final class ColumnarResponseWriter {
+
+    /**
+     * The media type that selects this format in the {@code Accept} header of a request.
+     */
+    public static final String CONTENT_TYPE = "application/vnd.elasticsearch.columnar";
+
+    static final byte[] MAGIC = new byte[] { 'E', 'S', 'C', 'F' };
+    static final int VERSION = 1;
+
+    private static final int ALIGNMENT = 8;
+
+    private ColumnarResponseWriter() {}
+
+    /**
+     * @return true if the given request asks for a response in the columnar format
+     */
+    public static boolean isRequested(RestRequest request) {
+        final ParsedMediaType accept = request.getParsedAccept();
+        return accept != null && CONTENT_TYPE.equals(accept.mediaTypeWithoutParameters());
+    }
+
+    /**
+     * Writes the given batches into a single response body.
+     */
+    public static BytesReference write(List<ColumnarBatch> batches) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeBytes(MAGIC);
+            writeInt(out, VERSION);
+            writeInt(out, batches.size());
+            for (ColumnarBatch batch : batches) {
+                writeBatch(out, batch);
+            }
+            return out.bytes();
+        }
+    }
+
+    private static void writeBatch(BytesStreamOutput out, ColumnarBatch batch) throws IOException {
+        align(out);
+        writeString(out, batch.name());
+        writeInt(out, batch.rowCount());
+        writeInt(out, batch.columns().size());
+        final List<ColumnarBatch.ElementType> types = new ArrayList<>(batch.columns().size());
+        for (ColumnarBatch.Column column : batch.columns()) {
+            final ColumnarBatch.ElementType type = column.elementType();
+            types.add(type);
+            writeString(out, column.name());
+            out.writeByte(type.id());
+            out.writeBoolean(column.isList());
+        }
+        for (int i = 0; i < types.size(); i++) {
+            final ColumnarBatch.Column column = batch.columns().get(i);
+            writeBitmap(out, column.validity(), batch.rowCount());
+            if (column.isList()) {
+                writeOffsets(out, column.offsets());
+            }
+            writeValues(out, types.get(i), column.values());
+        }
+    }
+
+    private static void writeValues(BytesStreamOutput out, ColumnarBatch.ElementType type, List<Object> values) throws IOException {
+        switch (type) {
+            case INT64:
+                align(out);
+                for (Object value : values) {
+                    writeLong(out, ((Number) value).longValue());
+                }
+                break;
+            case FLOAT64:
+                align(out);
+                for (Object value : values) {
+                    writeLong(out, Double.doubleToRawLongBits(((Number) value).doubleValue()));
+                }
+                break;
+            case BOOLEAN:
+                final BitSet bits = new BitSet(values.size());
+                for (int i = 0; i < values.size(); i++) {
+                    bits.set(i, (Boolean) values.get(i));
+                }
+                writeBitmap(out, bits, values.size());
+                break;
+            case UTF8:
+                final List<BytesRef> bytes = new ArrayList<>(values.size());
+                final IntArrayList offsets = new IntArrayList(values.size() + 1);
+                offsets.add(0);
+                int length = 0;
+                for (Object value : values) {
+                    final BytesRef ref = new BytesRef(value.toString());
+                    bytes.add(ref);
+                    length += ref.length;
+                    offsets.add(length);
+                }
+                writeOffsets(out, offsets);
+                align(out);
+                for (BytesRef ref : bytes) {
+                    out.writeBytes(ref.bytes, ref.offset, ref.length);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown element type [" + type + "]");
+        }
+    }
+
+    private static void writeBitmap(BytesStreamOutput out, BitSet bits, int length) {
+        align(out);
+        // BitSet#toByteArray uses the same least-significant-bit first order as arrow, but omits trailing zero bytes
+        final byte[] bytes = bits.toByteArray();
+        final int byteLength = (length + 7) / 8;
+        assert bytes.length <= byteLength : "bitmap has bits set beyond its length";
+        out.writeBytes(bytes, 0, bytes.length);
+        for (int i = bytes.length; i < byteLength; i++) {
+            out.writeByte((byte) 0);
+        }
+    }
+
+    private static void writeOffsets(BytesStreamOutput out, IntArrayList offsets) throws IOException {
+        align(out);
+        for (int i = 0; i < offsets.size(); i++) {
+            writeInt(out, offsets.get(i));
+        }
+    }
+
+    private static void writeString(BytesStreamOutput out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeInt(BytesStreamOutput out, int value) throws IOException {
+        out.writeInt(Integer.reverseBytes(value));
+    }
+
+    private static void writeLong(BytesStreamOutput out, long value) throws IOException {
+        out.writeLong(Long.reverseBytes(value));
+    }
+
+    private static void align(BytesStreamOutput out) {
+        while (out.position() % ALIGNMENT != 0) {
+            out.writeByte((byte) 0);
+        }
+    }
+}
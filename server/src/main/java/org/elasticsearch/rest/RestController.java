@@ -44,6 +44,7 @@ import org.elasticsearch.usage.UsageService;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -502,6 +503,13 @@ public class RestController implements HttpServerTransport.Dispatcher {
                 .withCompatibleMajorVersion(compatibleVersion.major);
         }
 
+        @Override
+        public XContentBuilder newBuilder(XContentType xContentType, XContentType responseContentType, boolean useFiltering,
+                                          OutputStream outputStream) throws IOException {
+            return delegate.newBuilder(xContentType, responseContentType, useFiltering, outputStream)
+                .withCompatibleMajorVersion(compatibleVersion.major);
+        }
+
         @Override
         public BytesStreamOutput bytesOutput() {
             return delegate.bytesOutput();
@@ -20,6 +20,7 @@
 package org.elasticsearch.rest;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 
 import java.util.ArrayList;
@@ -44,6 +45,14 @@ public abstract class RestResponse {
      */
     public abstract BytesReference content();
 
+    /**
+     * The response content if it is to be serialized in chunks while it is sent rather than upfront, {@code null} otherwise.
+     */
+    @Nullable
+    public ChunkedRestResponseBody chunkedContent() {
+        return null;
+    }
+
     /**
      * The rest status code.
      */
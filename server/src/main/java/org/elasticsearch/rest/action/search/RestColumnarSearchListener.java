@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ColumnarBatch;
+import org.elasticsearch.rest.ColumnarResponseWriter;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.action.RestResponseListener;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sends a {@link SearchResponse} in the {@link ColumnarResponseWriter columnar format}. The response is made of the following batches:
+ * <ul>
+ *     <li>{@code response} holds a single row with the took time, the hit totals and the shard counts</li>
+ *     <li>{@code hits} holds a row per hit with its index, id and score and a list column per field in the {@code fields} of the
+ *     hits, which is where {@code fields} and {@code docvalue_fields} are returned</li>
+ *     <li>{@code aggregations} holds a single row with a column per top-level single value numeric metric aggregation</li>
+ *     <li>{@code aggregations.<name>} holds a row per bucket of each top-level multi-bucket aggregation with its key, its
+ *     document count and a column per single value numeric metric sub-aggregation</li>
+ * </ul>
+ * Other parts of the response, like sources, highlights and aggregations that don't fit in a table, are only available as xcontent.
+ */
+public class RestColumnarSearchListener extends RestResponseListener<SearchResponse> {
+
+    public RestColumnarSearchListener(RestChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public RestResponse buildResponse(SearchResponse response) throws Exception {
+        return new BytesRestResponse(response.status(), ColumnarResponseWriter.CONTENT_TYPE,
+            ColumnarResponseWriter.write(toBatches(response)));
+    }
+
+    static List<ColumnarBatch> toBatches(SearchResponse response) {
+        final List<ColumnarBatch> batches = new ArrayList<>();
+        batches.add(responseBatch(response));
+        batches.add(hitsBatch(response.getHits()));
+        if (response.getAggregations() != null) {
+            addAggregationBatches(response.getAggregations(), batches);
+        }
+        return batches;
+    }
+
+    private static ColumnarBatch responseBatch(SearchResponse response) {
+        final ColumnarBatch batch = new ColumnarBatch("response");
+        final TotalHits totalHits = response.getHits().getTotalHits();
+        batch.addColumn("took", false).append(response.getTook().millis());
+        batch.addColumn("timed_out", false).append(response.isTimedOut());
+        batch.addColumn("terminated_early", false).append(response.isTerminatedEarly());
+        batch.addColumn("hits.total.value", false).append(totalHits == null ? null : totalHits.value);
+        batch.addColumn("hits.total.relation", false)
+            .append(totalHits == null ? null : totalHits.relation == TotalHits.Relation.EQUAL_TO ? "eq" : "gte");
+        batch.addColumn("hits.max_score", false).append(score(response.getHits().getMaxScore()));
+        batch.addColumn("_shards.total", false).append(response.getTotalShards());
+        batch.addColumn("_shards.successful", false).append(response.getSuccessfulShards());
+        batch.addColumn("_shards.skipped", false).append(response.getSkippedShards());
+        batch.addColumn("_shards.failed", false).append(response.getFailedShards());
+        batch.endRow();
+        return batch;
+    }
+
+    private static ColumnarBatch hitsBatch(SearchHits hits) {
+        final ColumnarBatch batch = new ColumnarBatch("hits");
+        final ColumnarBatch.Column index = batch.addColumn("_index", false);
+        final ColumnarBatch.Column id = batch.addColumn("_id", false);
+        final ColumnarBatch.Column score = batch.addColumn("_score", false);
+        final Set<String> fieldNames = new TreeSet<>();
+        for (SearchHit hit : hits) {
+            fieldNames.addAll(hit.getFields().keySet());
+        }
+        final Map<String, ColumnarBatch.Column> fields = new HashMap<>();
+        for (String fieldName : fieldNames) {
+            fields.put(fieldName, batch.addColumn(fieldName, true));
+        }
+        for (SearchHit hit : hits) {
+            index.append(hit.getIndex());
+            id.append(hit.getId());
+            score.append(score(hit.getScore()));
+            for (Map.Entry<String, DocumentField> field : hit.getFields().entrySet()) {
+                fields.get(field.getKey()).appendList(field.getValue().getValues());
+            }
+            batch.endRow();
+        }
+        return batch;
+    }
+
+    private static void addAggregationBatches(Aggregations aggregations, List<ColumnarBatch> batches) {
+        final ColumnarBatch metrics = new ColumnarBatch("aggregations");
+        for (Aggregation aggregation : aggregations) {
+            if (aggregation instanceof NumericMetricsAggregation.SingleValue) {
+                metrics.addColumn(aggregation.getName(), false).append(value((NumericMetricsAggregation.SingleValue) aggregation));
+            } else if (aggregation instanceof MultiBucketsAggregation) {
+                batches.add(bucketsBatch((MultiBucketsAggregation) aggregation));
+            }
+        }
+        if (metrics.columns().isEmpty() == false) {
+            metrics.endRow();
+            batches.add(metrics);
+        }
+    }
+
+    private static ColumnarBatch bucketsBatch(MultiBucketsAggregation aggregation) {
+        final ColumnarBatch batch = new ColumnarBatch("aggregations." + aggregation.getName());
+        final ColumnarBatch.Column key = batch.addColumn("key", false);
+        final ColumnarBatch.Column docCount = batch.addColumn("doc_count", false);
+        final Map<String, ColumnarBatch.Column> subAggregations = new HashMap<>();
+        for (MultiBucketsAggregation.Bucket bucket : aggregation.getBuckets()) {
+            key.append(key(bucket));
+            docCount.append(bucket.getDocCount());
+            for (Aggregation subAggregation : bucket.getAggregations()) {
+                if (subAggregation instanceof NumericMetricsAggregation.SingleValue) {
+                    // columns of sub-aggregations that only show up in later buckets are null in the earlier ones
+                    subAggregations.computeIfAbsent(subAggregation.getName(), name -> batch.addColumn(name, false))
+                        .append(value((NumericMetricsAggregation.SingleValue) subAggregation));
+                }
+            }
+            batch.endRow();
+        }
+        return batch;
+    }
+
+    private static Object key(MultiBucketsAggregation.Bucket bucket) {
+        final Object key = bucket.getKey();
+        if (key instanceof Number || key instanceof Boolean || key instanceof String) {
+            return key;
+        } else if (key instanceof ZonedDateTime) {
+            // date histograms render their keys as epoch millis in xcontent too
+            return ((ZonedDateTime) key).toInstant().toEpochMilli();
+        }
+        return bucket.getKeyAsString();
+    }
+
+    private static Double value(NumericMetricsAggregation.SingleValue aggregation) {
+        // xcontent renders the values of empty metrics, like the NaN average or the infinite minimum of no documents, as null
+        final double value = aggregation.value();
+        return Double.isFinite(value) ? value : null;
+    }
+
+    private static Float score(float score) {
+        return Float.isNaN(score) ? null : score;
+    }
+}
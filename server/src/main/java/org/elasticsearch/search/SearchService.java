@@ -35,8 +35,10 @@ import org.elasticsearch.action.search.SearchShardTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
@@ -70,6 +72,7 @@ import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.index.shard.ShardFieldRangeSummary;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
@@ -164,6 +167,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     public static final Setting<Boolean> LOW_LEVEL_CANCELLATION_SETTING =
         Setting.boolSetting("search.low_level_cancellation", true, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Enables searching the segments of a shard in concurrent slices on the {@link Names#SEARCH_WORKER} thread pool
+     * during the query phase, for the requests that support it.
+     */
+    public static final Setting<Boolean> CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("search.concurrent_segment_search.enabled", false, Property.Dynamic, Property.NodeScope);
+
     public static final TimeValue NO_TIMEOUT = timeValueMillis(-1);
     public static final Setting<TimeValue> DEFAULT_SEARCH_TIMEOUT_SETTING =
         Setting.timeSetting("search.default_search_timeout", NO_TIMEOUT, Property.Dynamic, Property.NodeScope);
@@ -204,6 +214,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private volatile boolean lowLevelCancellation;
 
+    private volatile boolean concurrentSegmentSearch;
+
     private volatile int maxOpenScrollContext;
 
     private final Cancellable keepAliveReaper;
@@ -252,6 +264,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
         lowLevelCancellation = LOW_LEVEL_CANCELLATION_SETTING.get(settings);
         clusterService.getClusterSettings().addSettingsUpdateConsumer(LOW_LEVEL_CANCELLATION_SETTING, this::setLowLevelCancellation);
+
+        concurrentSegmentSearch = CONCURRENT_SEGMENT_SEARCH_SETTING.get(settings);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(CONCURRENT_SEGMENT_SEARCH_SETTING,
+            this::setConcurrentSegmentSearch);
     }
 
     private void validateKeepAlives(TimeValue defaultKeepAlive, TimeValue maxKeepAlive) {
@@ -288,6 +304,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.lowLevelCancellation = lowLevelCancellation;
     }
 
+    private void setConcurrentSegmentSearch(boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+    }
+
     @Override
     public void afterIndexRemoved(Index index, IndexSettings indexSettings, IndexRemovalReason reason) {
         // once an index is removed due to deletion or closing, we can just clean up all the pending search context information
@@ -773,6 +793,12 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 reader.indexShard().shardId(), request.getClusterAlias(), OriginalIndices.NONE);
             searchContext = new DefaultSearchContext(reader, request, shardTarget,
                 threadPool::relativeTimeInMillis, timeout, fetchPhase, lowLevelCancellation);
+            // system and throttled indices are searched on bounded thread pools that the slices would bypass
+            if (concurrentSegmentSearch && reader.indexShard().isSystem() == false
+                    && reader.indexShard().indexSettings().isSearchThrottled() == false) {
+                searchContext.searcher().setSliceExecutor(threadPool.executor(Names.SEARCH_WORKER),
+                    threadPool.info(Names.SEARCH_WORKER).getMax());
+            }
             // we clone the query shard context here just for rewriting otherwise we
             // might end up with incorrect state since we are using now() or script services
             // during rewrite and normalized / evaluate templates etc.
@@ -938,6 +964,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
         context.terminateAfter(source.terminateAfter());
         if (source.aggregations() != null && includeAggregations) {
+            /*
+             * Pre-aggregated rollups hold all the documents of a segment with the values of its mapped fields so
+             * they can't be used if runtime fields may shadow them or if not all matching documents are collected.
+             */
+            boolean canUsePreAggregations = source.runtimeMappings().isEmpty()
+                && source.minScore() == null
+                && source.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER;
             AggregationContext aggContext = new ProductionAggregationContext(
                 context.getQueryShardContext(),
                 context.query() == null ? new MatchAllDocsQuery() : context.query(),
@@ -946,6 +979,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 () -> new SubSearchContext(context).parsedQuery(context.parsedQuery()).fetchFieldsContext(context.fetchFieldsContext()),
                 context::addReleasable,
                 context.bitsetFilterCache(),
+                canUsePreAggregations ? context.preAggregationCache() : null,
                 context.indexShard().shardId().hashCode(),
                 context::getRelativeTimeInMillis,
                 context::isCancelled
@@ -1174,15 +1208,17 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         final Releasable markAsUsed = readerContext != null ? readerContext.markAsUsed(getKeepAlive(request)) : null;
         try (markAsUsed) {
             final IndexService indexService;
+            final IndexShard indexShard;
             final Engine.Searcher canMatchSearcher;
             final boolean hasRefreshPending;
             if (readerContext != null) {
                 indexService = readerContext.indexService();
+                indexShard = null;
                 canMatchSearcher = readerContext.acquireSearcher(Engine.CAN_MATCH_SEARCH_SOURCE);
                 hasRefreshPending = false;
             } else {
                 indexService = indicesService.indexServiceSafe(request.shardId().getIndex());
-                IndexShard indexShard = indexService.getShard(request.shardId().getId());
+                indexShard = indexService.getShard(request.shardId().getId());
                 hasRefreshPending = indexShard.hasRefreshPending() && checkRefreshPending;
                 canMatchSearcher = indexShard.acquireSearcher(Engine.CAN_MATCH_SEARCH_SOURCE);
             }
@@ -1198,7 +1234,17 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 } else {
                     minMax = null;
                 }
-                return new CanMatchResponse(canMatch || hasRefreshPending, minMax);
+                // searches that are pinned to a reader context are not representative of the current searcher of the shard
+                final ShardFieldRangeSummary fieldRangeSummary;
+                if (indexShard != null) {
+                    // must be read before the shard checks for in-flight writes, see IndexShard#getFieldRangeSummary
+                    final boolean writeBlockApplied =
+                        clusterService.state().blocks().indexBlocked(ClusterBlockLevel.WRITE, request.shardId().getIndexName());
+                    fieldRangeSummary = indexShard.getFieldRangeSummary(writeBlockApplied);
+                } else {
+                    fieldRangeSummary = null;
+                }
+                return new CanMatchResponse(canMatch || hasRefreshPending, minMax, fieldRangeSummary);
             }
         }
     }
@@ -1292,6 +1338,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     public static final class CanMatchResponse extends SearchPhaseResult {
         private final boolean canMatch;
         private final MinAndMax<?> estimatedMinAndMax;
+        private final ShardFieldRangeSummary fieldRangeSummary;
 
         public CanMatchResponse(StreamInput in) throws IOException {
             super(in);
@@ -1301,11 +1348,21 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             } else {
                 estimatedMinAndMax = null;
             }
+            if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+                fieldRangeSummary = in.readOptionalWriteable(ShardFieldRangeSummary::new);
+            } else {
+                fieldRangeSummary = null;
+            }
         }
 
         public CanMatchResponse(boolean canMatch, MinAndMax<?> estimatedMinAndMax) {
+            this(canMatch, estimatedMinAndMax, null);
+        }
+
+        public CanMatchResponse(boolean canMatch, MinAndMax<?> estimatedMinAndMax, @Nullable ShardFieldRangeSummary fieldRangeSummary) {
             this.canMatch = canMatch;
             this.estimatedMinAndMax = estimatedMinAndMax;
+            this.fieldRangeSummary = fieldRangeSummary;
         }
 
         @Override
@@ -1314,6 +1371,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             if (out.getVersion().onOrAfter(Version.V_7_6_0)) {
                 out.writeOptionalWriteable(estimatedMinAndMax);
             }
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                out.writeOptionalWriteable(fieldRangeSummary);
+            }
         }
 
         public boolean canMatch() {
@@ -1323,6 +1383,15 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         public MinAndMax<?> estimatedMinAndMax() {
             return estimatedMinAndMax;
         }
+
+        /**
+         * @return the summary of the field ranges of the shard for the coordinating node to cache, or {@code null} if the shard may
+         *         still change
+         */
+        @Nullable
+        public ShardFieldRangeSummary fieldRangeSummary() {
+            return fieldRangeSummary;
+        }
     }
 
     /**
@@ -1354,7 +1423,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
 
         long success() {
-            return afterQueryTime = System.nanoTime();
+            afterQueryTime = System.nanoTime();
+            if (fetch == false) {
+                // reported back to the coordinating node, which ranks the copies of this shard by it. This is set after the
+                // results may have been loaded from the request cache so that cached results are accounted for as cheap
+                context.queryResult().queryTookNanos(afterQueryTime - time);
+            }
+            return afterQueryTime;
         }
 
         @Override
@@ -22,7 +22,9 @@ import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.query.CollectorResult;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
@@ -61,6 +63,8 @@ public class AggregationPhase {
                         collector = new InternalProfileCollector(collector, CollectorResult.REASON_AGGREGATION,
                                 // TODO: report on child aggs as well
                                 Collections.emptyList());
+                    } else {
+                        collector = maybeBatch(context, (BucketCollector) collector);
                     }
                     context.queryCollectors().put(AggregationPhase.class, collector);
                 }
@@ -70,6 +74,38 @@ public class AggregationPhase {
         }
     }
 
+    /**
+     * Creates a new tree of the top level aggregators to collect one of the additional slices of a concurrent search.
+     * Global aggregators are not collected by the slices, they are executed once on the whole shard in {@link #execute}.
+     */
+    public static Collector createSliceCollector(SearchContext context) throws IOException {
+        Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
+        context.aggregations().addSliceAggregators(aggregators);
+        List<Aggregator> collectors = new ArrayList<>();
+        for (Aggregator aggregator : aggregators) {
+            if (aggregator instanceof GlobalAggregator == false) {
+                collectors.add(aggregator);
+            }
+        }
+        BucketCollector collector = MultiBucketCollector.wrap(collectors);
+        collector.preCollection();
+        return maybeBatch(context, collector);
+    }
+
+    /**
+     * Wraps the collector of the top level aggregators in a {@link BatchingBucketCollector} if
+     * they don't need scores, the buffered documents are flushed in {@link #execute}. Documents
+     * are only buffered on the segments where one of the aggregators collects blocks.
+     */
+    private static BucketCollector maybeBatch(SearchContext context, BucketCollector collector) {
+        if (collector.scoreMode().needsScores()) {
+            return collector;
+        }
+        BatchingBucketCollector batchingCollector = new BatchingBucketCollector(collector);
+        context.aggregations().addBatchingCollector(batchingCollector);
+        return batchingCollector;
+    }
+
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
             context.queryResult().aggregations(null);
@@ -81,6 +117,12 @@ public class AggregationPhase {
             return;
         }
 
+        try {
+            context.aggregations().flushBatchingCollectors();
+        } catch (IOException e) {
+            throw new AggregationExecutionException("Failed to collect the buffered documents", e);
+        }
+
         Aggregator[] aggregators = context.aggregations().aggregators();
         List<Aggregator> globals = new ArrayList<>();
         for (int i = 0; i < aggregators.length; i++) {
@@ -114,22 +156,42 @@ public class AggregationPhase {
             }
         }
 
+        InternalAggregations aggregations = buildTopLevel(context, context.aggregations().aggregators(), true);
+        List<Aggregator[]> sliceAggregators = context.aggregations().sliceAggregators();
+        if (sliceAggregators.isEmpty() == false) {
+            List<InternalAggregations> slices = new ArrayList<>(sliceAggregators.size() + 1);
+            slices.add(aggregations);
+            for (Aggregator[] slice : sliceAggregators) {
+                slices.add(buildTopLevel(context, slice, false));
+            }
+            // the slices are reduced like the results of different shards would be, pipelines only run on the final reduce
+            ReduceContext reduceContext = ReduceContext.forPartialReduction(
+                context.getQueryShardContext().bigArrays().withCircuitBreaking(), null, () -> PipelineTree.EMPTY);
+            aggregations = InternalAggregations.topLevelReduce(slices, reduceContext);
+        }
+        context.queryResult().aggregations(aggregations);
+
+        // disable aggregations so that they don't run on next pages in case of scrolling
+        context.aggregations(null);
+        context.queryCollectors().remove(AggregationPhase.class);
+    }
+
+    private static InternalAggregations buildTopLevel(SearchContext context, Aggregator[] aggregators, boolean includeGlobals) {
         List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
         if (context.aggregations().factories().context() != null) {
             // Rollup can end up here with a null context but not null factories.....
             context.aggregations().factories().context().multiBucketConsumer().reset();
         }
-        for (Aggregator aggregator : context.aggregations().aggregators()) {
+        for (Aggregator aggregator : aggregators) {
+            if (includeGlobals == false && aggregator instanceof GlobalAggregator) {
+                continue;
+            }
             try {
                 aggregations.add(aggregator.buildTopLevel());
             } catch (IOException e) {
                 throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
             }
         }
-        context.queryResult().aggregations(InternalAggregations.from(aggregations));
-
-        // disable aggregations so that they don't run on next pages in case of scrolling
-        context.aggregations(null);
-        context.queryCollectors().remove(AggregationPhase.class);
+        return InternalAggregations.from(aggregations);
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreMode;
+
+import java.io.IOException;
+
+/**
+ * A {@link BucketCollector} that buffers the documents collected by the top level
+ * aggregators and hands them over in blocks of {@link #BLOCK_SIZE} documents through
+ * {@link LeafBucketCollector#collect(int[], int, long)}. This amortizes the cost of
+ * the calls through the collector tree and lets metric aggregators load the values
+ * of a whole block at once. Documents are only buffered on the segments where
+ * the wrapped collector {@link LeafBucketCollector#collectsBlocks() collects blocks},
+ * on the others they are passed through.
+ * <p>
+ * Documents are buffered across calls so this collector must only be used when the
+ * wrapped collector doesn't need scores, and {@link #flush()} must be called once the
+ * collection is done to collect the documents of the last segment.
+ */
+public final class BatchingBucketCollector extends BucketCollector {
+
+    static final int BLOCK_SIZE = 128;
+
+    private final BucketCollector delegate;
+    private final int[] docs = new int[BLOCK_SIZE];
+    private int count;
+    private LeafBucketCollector current;
+
+    public BatchingBucketCollector(BucketCollector delegate) {
+        assert delegate.scoreMode().needsScores() == false : "documents can't be buffered if scores are needed";
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return delegate.scoreMode();
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        delegate.preCollection();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        flush();
+        final LeafBucketCollector leaf = delegate.getLeafCollector(ctx);
+        if (leaf.collectsBlocks() == false) {
+            // e.g. bucket aggregators, which collect a block one document at a time, so buffering would only add overhead
+            return leaf;
+        }
+        current = leaf;
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorable scorer) throws IOException {
+                leaf.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0 : "top level aggregators are collected in the bucket 0";
+                docs[count++] = doc;
+                if (count == BLOCK_SIZE) {
+                    count = 0;
+                    leaf.collect(docs, BLOCK_SIZE, 0);
+                }
+            }
+        };
+    }
+
+    /**
+     * Collects the documents that are still buffered for the current segment.
+     */
+    public void flush() throws IOException {
+        if (count > 0) {
+            final int n = count;
+            count = 0;
+            try {
+                current.collect(docs, n, 0);
+            } catch (CollectionTerminatedException e) {
+                // the segment is done
+            }
+        }
+        current = null;
+    }
+
+    @Override
+    public String toString() {
+        return "batching(" + delegate + ")";
+    }
+}
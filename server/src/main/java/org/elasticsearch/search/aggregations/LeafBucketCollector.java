@@ -69,6 +69,23 @@ public abstract class LeafBucketCollector implements LeafCollector {
                     }
                 }
 
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    for (LeafBucketCollector c : colls) {
+                        c.collect(docs, count, bucket);
+                    }
+                }
+
+                @Override
+                public boolean collectsBlocks() {
+                    for (LeafBucketCollector c : colls) {
+                        if (c.collectsBlocks()) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
             };
         }
     }
@@ -102,6 +119,31 @@ public abstract class LeafBucketCollector implements LeafCollector {
      */
     public abstract void collect(int doc, long owningBucketOrd) throws IOException;
 
+    /**
+     * Collect the first {@code count} documents of {@code docs}, sorted by
+     * increasing doc id, in the bucket owned by {@code owningBucketOrd}.
+     * <p>
+     * Blocks of documents are handed over by {@link BatchingBucketCollector}
+     * so that implementations can load the values of the whole block at once
+     * and update the state of the bucket once per block. The default
+     * implementation calls {@link #collect(int, long)} for each document.
+     */
+    public void collect(int[] docs, int count, long owningBucketOrd) throws IOException {
+        for (int i = 0; i < count; i++) {
+            collect(docs[i], owningBucketOrd);
+        }
+    }
+
+    /**
+     * Whether {@link #collect(int[], int, long)} is faster than calling
+     * {@link #collect(int, long)} for each document. {@link BatchingBucketCollector}
+     * only buffers documents for collectors that return {@code true}, since
+     * buffering is pure overhead for the ones that use the default implementation.
+     */
+    public boolean collectsBlocks() {
+        return false;
+    }
+
     @Override
     public final void collect(int doc) throws IOException {
         collect(doc, 0);
@@ -18,6 +18,10 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The aggregation context that is part of the search context.
  */
@@ -25,6 +29,8 @@ public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
     private Aggregator[] aggregators;
+    private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
+    private final List<BatchingBucketCollector> batchingCollectors = new ArrayList<>();
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -49,4 +55,37 @@ public class SearchContextAggregations {
     public void aggregators(Aggregator[] aggregators) {
         this.aggregators = aggregators;
     }
+
+    /**
+     * Returns the top level aggregators that were created for the additional slices of a concurrent search.
+     */
+    public List<Aggregator[]> sliceAggregators() {
+        return sliceAggregators;
+    }
+
+    /**
+     * Registers the top level aggregators created for an additional slice of a concurrent search, their results
+     * are reduced with the results of {@link #aggregators()}.
+     */
+    public void addSliceAggregators(Aggregator[] aggregators) {
+        this.sliceAggregators.add(aggregators);
+    }
+
+    /**
+     * Registers a collector that buffers the documents of the top level aggregators, it is flushed by
+     * {@link #flushBatchingCollectors()} before the aggregations are built.
+     */
+    public void addBatchingCollector(BatchingBucketCollector collector) {
+        this.batchingCollectors.add(collector);
+    }
+
+    /**
+     * Collects the documents that are still buffered by the registered {@link BatchingBucketCollector}s.
+     */
+    public void flushBatchingCollectors() throws IOException {
+        for (BatchingBucketCollector collector : batchingCollectors) {
+            collector.flush();
+        }
+        batchingCollectors.clear();
+    }
 }
@@ -22,8 +22,10 @@ package org.elasticsearch.search.aggregations.bucket.composite;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.queries.SearchAfterSortedDocQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
@@ -201,6 +203,32 @@ final class CompositeAggregator extends BucketsAggregator {
         }
     }
 
+    /**
+     * Return true if the documents without value for the provided index sort field are sorted where the composite
+     * aggregation expects the <code>null</code> bucket, that is before any other value in the natural order of the field.
+     */
+    private boolean isMissingBucketSorted(LeafReaderContext context, SortField sortField) throws IOException {
+        if (IndexSortConfig.getSortFieldType(sortField) == SortField.Type.STRING) {
+            // the missing ordinal of a string sort cannot be confused with a real value
+            return sortField.getMissingValue() != SortField.STRING_LAST;
+        }
+        // numeric index sorts replace missing values with a sentinel that can also be a real value,
+        // so we only accept segments where all documents have a value for the field.
+        return getDocCount(context, sortField.getField()) == context.reader().maxDoc();
+    }
+
+    /**
+     * Return the number of documents that have a value for the provided field in the leaf or -1 if unknown.
+     */
+    private static int getDocCount(LeafReaderContext context, String field) throws IOException {
+        PointValues points = context.reader().getPointValues(field);
+        if (points != null) {
+            return points.getDocCount();
+        }
+        Terms terms = context.reader().terms(field);
+        return terms != null ? terms.getDocCount() : -1;
+    }
+
     /**
      * Returns the {@link Sort} prefix that is eligible to index sort
      * optimization and null if index sort is not applicable.
@@ -217,9 +245,8 @@ final class CompositeAggregator extends BucketsAggregator {
             SingleDimensionValuesSource<?> source = sources[i];
             SortField indexSortField = indexSort.getSort()[i];
             if (source.fieldType == null
-                    // TODO: can we handle missing bucket when using index sort optimization ?
-                    || source.missingBucket
                     || indexSortField.getField().equals(source.fieldType.name()) == false
+                    || (source.missingBucket && isMissingBucketSorted(context, indexSortField) == false)
                     || isMaybeMultivalued(context, indexSortField)
                     || sourceConfig.hasScript()) {
                 break;
@@ -334,6 +361,9 @@ final class CompositeAggregator extends BucketsAggregator {
                         };
                     }
                 };
+                if (delegate.getMissingValue() != null) {
+                    sortFields[i].setMissingValue(delegate.getMissingValue());
+                }
             } else {
                 sortFields[i] = sort.getSort()[i];
             }
@@ -341,6 +371,21 @@ final class CompositeAggregator extends BucketsAggregator {
         return new Sort(sortFields);
     }
 
+    /**
+     * Return true if the after key can be used to skip the documents that sort before it in the index.
+     * Numeric comparators cannot be positioned on a missing value so a <code>null</code> after value
+     * on a numeric prefix source falls back to a regular collection that still terminates early.
+     */
+    private boolean canJumpToAfterKey(Sort indexSortPrefix) {
+        for (int i = 0; i < indexSortPrefix.getSort().length; i++) {
+            if (rawAfterKey.get(i) == null
+                    && IndexSortConfig.getSortFieldType(indexSortPrefix.getSort()[i]) != SortField.Type.STRING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void processLeafFromQuery(LeafReaderContext ctx, Sort indexSortPrefix) throws IOException {
         DocValueFormat[] formats = new DocValueFormat[indexSortPrefix.getSort().length];
         for (int i = 0; i < formats.length; i++) {
@@ -401,7 +446,7 @@ final class CompositeAggregator extends BucketsAggregator {
                 currentLeaf = ctx;
                 docIdSetBuilder = new RoaringDocIdSet.Builder(ctx.reader().maxDoc());
             }
-            if (rawAfterKey != null && sortPrefixLen > 0) {
+            if (rawAfterKey != null && sortPrefixLen > 0 && canJumpToAfterKey(indexSortPrefix)) {
                 // We have an after key and index sort is applicable so we jump directly to the doc
                 // that is after the index sort prefix using the rawAfterKey and we start collecting
                 // document from there.
@@ -24,6 +24,8 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PriorityQueue;
@@ -33,6 +35,9 @@ import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.LongArray;
 import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -46,6 +51,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.terms.SignificanceLookup.BackgroundFrequencyForBytes;
 import org.elasticsearch.search.aggregations.bucket.terms.heuristic.SignificanceHeuristic;
+import org.elasticsearch.search.aggregations.metrics.PreAggregatableMetric;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 
@@ -73,6 +79,9 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
     protected final CollectionStrategy collectionStrategy;
     protected int segmentsWithSingleValuedOrds = 0;
     protected int segmentsWithMultiValuedOrds = 0;
+    private final PreAggregationCache preAggregationCache;
+    private final PreAggregatableMetric[] preAggregatedMetrics;
+    private int segmentsPreAggregated = 0;
 
     public interface GlobalOrdLookupFunction {
         BytesRef apply(long ord) throws IOException;
@@ -114,6 +123,50 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                 return new DenseGlobalOrds();
             });
         }
+        this.preAggregationCache = context.preAggregationCache();
+        this.preAggregatedMetrics = preAggregatedMetrics();
+    }
+
+    /**
+     * The sub-aggregators to feed from the pre-aggregated rollups of the segments or {@code null}
+     * if this aggregation can't be answered from them. It can if it is a top level {@code terms}
+     * aggregation on a {@code match_all} query that groups by a configured dimension and all of
+     * its sub-aggregations are metrics on configured metric fields. The search request disables
+     * the rollups when it has {@code runtime_mappings}, {@code min_score} or {@code terminate_after}
+     * by not exposing the cache.
+     */
+    private PreAggregatableMetric[] preAggregatedMetrics() {
+        if (preAggregationCache == null || parent != null) {
+            return null;
+        }
+        if (topLevelQuery() == null || topLevelQuery().getClass() != MatchAllDocsQuery.class) {
+            return null;
+        }
+        if (false == resultStrategy instanceof StandardTermsResults
+            || false == valuesSource instanceof ValuesSource.Bytes.WithOrdinals.FieldData
+            || false == valuesSource.supportsGlobalOrdinalsMapping()) {
+            return null;
+        }
+        final IndexOrdinalsFieldData dimension = ((ValuesSource.Bytes.WithOrdinals.FieldData) valuesSource).getIndexFieldData();
+        if (false == preAggregationCache.isDimension(dimension)) {
+            return null;
+        }
+        if (subAggregators.length > 0 && collectMode == SubAggCollectionMode.BREADTH_FIRST) {
+            // deferred sub-aggregators only collect the documents of the best buckets
+            return null;
+        }
+        final PreAggregatableMetric[] metrics = new PreAggregatableMetric[subAggregators.length];
+        for (int i = 0; i < subAggregators.length; i++) {
+            if (false == subAggregators[i] instanceof PreAggregatableMetric) {
+                return null;
+            }
+            metrics[i] = (PreAggregatableMetric) subAggregators[i];
+            final IndexNumericFieldData fieldData = metrics[i].preAggregatableFieldData();
+            if (fieldData == null || false == preAggregationCache.isMetric(fieldData)) {
+                return null;
+            }
+        }
+        return metrics;
     }
 
     String descriptCollectionStrategy() {
@@ -124,6 +177,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
         SortedSetDocValues globalOrds = valuesSource.globalOrdinalsValues(ctx);
         collectionStrategy.globalOrdsReady(globalOrds);
+        if (preAggregatedMetrics != null && collectPreAggregated(ctx)) {
+            segmentsPreAggregated++;
+            // the buckets of the segment were filled from its rollup so we don't need to collect its documents.
+            throw new CollectionTerminatedException();
+        }
         SortedDocValues singleValues = DocValues.unwrapSingleton(globalOrds);
         if (singleValues != null) {
             segmentsWithSingleValuedOrds++;
@@ -191,6 +249,46 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         });
     }
 
+    /**
+     * Fill the buckets from the pre-aggregated rollups of the segment.
+     * @return false if the segment has no rollups for this aggregation
+     */
+    private boolean collectPreAggregated(LeafReaderContext ctx) throws IOException {
+        final IndexOrdinalsFieldData dimension = ((ValuesSource.Bytes.WithOrdinals.FieldData) valuesSource).getIndexFieldData();
+        final PreAggregationCache.Rollup docCounts = preAggregationCache.getRollup(ctx, dimension, null);
+        if (docCounts == null) {
+            return false;
+        }
+        final PreAggregationCache.Rollup[] metricRollups = new PreAggregationCache.Rollup[preAggregatedMetrics.length];
+        for (int i = 0; i < preAggregatedMetrics.length; i++) {
+            metricRollups[i] = preAggregationCache.getRollup(ctx, dimension, preAggregatedMetrics[i].preAggregatableFieldData());
+            if (metricRollups[i] == null) {
+                return false;
+            }
+        }
+        final LongUnaryOperator mapping = valuesSource.globalOrdinalsMapping(ctx);
+        for (long ord = 0; ord < docCounts.size(); ord++) {
+            final long docCount = docCounts.count(ord);
+            if (docCount == 0) {
+                continue;
+            }
+            final long globalOrd = mapping.applyAsLong(ord);
+            if (false == acceptedGlobalOrdinals.test(globalOrd)) {
+                continue;
+            }
+            final long bucketOrd = collectionStrategy.addGlobalOrd(0, globalOrd);
+            incrementBucketDocCount(bucketOrd, docCount);
+            for (int i = 0; i < preAggregatedMetrics.length; i++) {
+                final PreAggregationCache.Rollup metric = metricRollups[i];
+                if (metric.count(ord) > 0) {
+                    preAggregatedMetrics[i].collectPreAggregated(bucketOrd, metric.count(ord), metric.sum(ord),
+                        metric.min(ord), metric.max(ord));
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         return resultStrategy.buildAggregations(owningBucketOrds);
@@ -209,6 +307,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         add.accept("result_strategy", resultStrategy.describe());
         add.accept("segments_with_single_valued_ords", segmentsWithSingleValuedOrds);
         add.accept("segments_with_multi_valued_ords", segmentsWithMultiValuedOrds);
+        add.accept("segments_pre_aggregated", segmentsPreAggregated);
         add.accept("has_filter", acceptedGlobalOrdinals != ALWAYS_TRUE);
     }
 
@@ -403,6 +502,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
          * Convert a global ordinal into a bucket ordinal.
          */
         abstract long globalOrdToBucketOrd(long owningBucketOrd, long globalOrd);
+        /**
+         * Convert a global ordinal into a bucket ordinal, adding the bucket if
+         * it hasn't been collected yet.
+         */
+        abstract long addGlobalOrd(long owningBucketOrd, long globalOrd);
         /**
          * Iterate all of the buckets. Implementations take into account
          * the {@link BucketCountThresholds}. In particular,
@@ -448,6 +552,12 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             return globalOrd;
         }
 
+        @Override
+        long addGlobalOrd(long owningBucketOrd, long globalOrd) {
+            assert owningBucketOrd == 0;
+            return globalOrd;
+        }
+
         @Override
         void forEach(long owningBucketOrd, BucketInfoConsumer consumer) throws IOException {
             assert owningBucketOrd == 0;
@@ -508,6 +618,12 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             return bucketOrds.find(owningBucketOrd, globalOrd);
         }
 
+        @Override
+        long addGlobalOrd(long owningBucketOrd, long globalOrd) {
+            long bucketOrd = bucketOrds.add(owningBucketOrd, globalOrd);
+            return bucketOrd < 0 ? -1 - bucketOrd : bucketOrd;
+        }
+
         @Override
         void forEach(long owningBucketOrd, BucketInfoConsumer consumer) throws IOException {
             if (bucketCountThresholds.getMinDocCount() == 0) {
@@ -238,7 +238,7 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
         return thisReduceOrder != null ? thisReduceOrder : order;
     }
 
-    private long getDocCountError(InternalTerms<?, ?> terms) {
+    static long getDocCountError(InternalTerms<?, ?> terms) {
         int size = terms.getBuckets().size();
         if (size == 0 || size < terms.getShardSize() || isKeyOrder(terms.order)) {
             return 0;
@@ -0,0 +1,168 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalOrder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.elasticsearch.search.aggregations.InternalOrder.isKeyOrder;
+
+/**
+ * Merges {@link StringTerms} results into mutable per-term counters as they are consumed instead of
+ * rebuilding the buckets of every result on each partial reduce. The state that {@link #build()} returns
+ * is the same partial result that a single {@link InternalTerms#reduce} of all the consumed results would
+ * produce. Only terms aggregations without sub-aggregations that are not ordered by key can be accumulated,
+ * see {@link #canAccumulate(InternalAggregation)}.
+ */
+public final class StringTermsAccumulator implements Releasable {
+    private final BigArrays bigArrays;
+    private final BytesRefHash terms;
+    private LongArray docCounts;
+    private LongArray docCountErrors;
+
+    private StringTerms prototype;
+    private UnmappedTerms unmapped;
+    private int numAggregations;
+    private long sumDocCountError;
+    private long otherDocCount;
+
+    public StringTermsAccumulator(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+        boolean success = false;
+        try {
+            this.terms = new BytesRefHash(1, bigArrays);
+            this.docCounts = bigArrays.newLongArray(1, true);
+            this.docCountErrors = bigArrays.newLongArray(1, true);
+            success = true;
+        } finally {
+            if (success == false) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the provided aggregation can be merged into an accumulator.
+     */
+    public static boolean canAccumulate(InternalAggregation aggregation) {
+        if (aggregation instanceof UnmappedTerms) {
+            return true;
+        }
+        if (aggregation instanceof StringTerms == false) {
+            return false;
+        }
+        final StringTerms stringTerms = (StringTerms) aggregation;
+        if (isKeyOrder(stringTerms.order)) {
+            // partial reduces of terms ordered by key are pruned to the required size already
+            return false;
+        }
+        for (StringTerms.Bucket bucket : stringTerms.getBuckets()) {
+            if (bucket.aggregations.asList().isEmpty() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merges the buckets of the provided aggregation into this accumulator.
+     */
+    public void accept(InternalAggregation aggregation) {
+        assert canAccumulate(aggregation);
+        final InternalTerms<?, ?> internalTerms = (InternalTerms<?, ?>) aggregation;
+        numAggregations++;
+        otherDocCount += internalTerms.getSumOfOtherDocCounts();
+        final long aggDocCountError = InternalTerms.getDocCountError(internalTerms);
+        if (sumDocCountError != -1) {
+            sumDocCountError = aggDocCountError == -1 ? -1 : sumDocCountError + aggDocCountError;
+        }
+        if (aggregation instanceof UnmappedTerms) {
+            if (unmapped == null) {
+                unmapped = (UnmappedTerms) aggregation;
+            }
+            return;
+        }
+        final StringTerms stringTerms = (StringTerms) aggregation;
+        if (prototype == null) {
+            // keep the settings of the first result without holding on to its buckets
+            prototype = stringTerms.create(stringTerms.getName(), Collections.emptyList(), stringTerms.reduceOrder, 0, 0);
+        }
+        for (StringTerms.Bucket bucket : stringTerms.getBuckets()) {
+            long id = terms.add(bucket.termBytes);
+            if (id < 0) {
+                id = -1 - id;
+            } else {
+                docCounts = bigArrays.grow(docCounts, id + 1);
+                docCountErrors = bigArrays.grow(docCountErrors, id + 1);
+            }
+            docCounts.increment(id, bucket.docCount);
+            // same arithmetic as InternalTerms#reduce and InternalTerms#reduceBucket
+            final long bucketDocCountError = bucket.docCountError - aggDocCountError;
+            final long current = docCountErrors.get(id);
+            if (current != -1) {
+                docCountErrors.set(id, bucketDocCountError == -1 ? -1 : current + bucketDocCountError);
+            }
+        }
+    }
+
+    /**
+     * Builds the partially reduced aggregation of all the results that were accepted so far. The buckets are
+     * sorted by key so that the result can be merged with other shard results.
+     */
+    public InternalAggregation build() {
+        if (prototype == null) {
+            return unmapped;
+        }
+        final List<StringTerms.Bucket> buckets = new ArrayList<>(Math.toIntExact(terms.size()));
+        final BytesRef scratch = new BytesRef();
+        for (long id = 0; id < terms.size(); id++) {
+            final long docCountError = sumDocCountError == -1 ? -1 : docCountErrors.get(id) + sumDocCountError;
+            buckets.add(new StringTerms.Bucket(BytesRef.deepCopyOf(terms.get(id, scratch)), docCounts.get(id),
+                InternalAggregations.EMPTY, prototype.showTermDocCountError, docCountError, prototype.format));
+        }
+        buckets.sort(Comparator.comparing((StringTerms.Bucket bucket) -> bucket.termBytes));
+        final long docCountError = sumDocCountError == -1 ? -1 : (numAggregations == 1 ? 0 : sumDocCountError);
+        return prototype.create(prototype.getName(), buckets, InternalOrder.key(true), docCountError, otherDocCount);
+    }
+
+    /**
+     * The memory used by the accumulated terms and counters.
+     */
+    public long ramBytesUsed() {
+        return terms.ramBytesUsed() + docCounts.ramBytesUsed() + docCountErrors.ramBytesUsed();
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(terms, docCounts, docCountErrors);
+    }
+}
@@ -79,10 +79,16 @@ abstract class AbstractHDRPercentilesAggregator extends NumericMetricsAggregator
             public void collect(int doc, long bucket) throws IOException {
                 DoubleHistogram state = getExistingOrNewHistogram(bigArrays(), bucket);
                 if (values.advanceExact(doc)) {
+                    final int bytesBefore = state.getEstimatedFootprintInBytes();
                     final int valueCount = values.docValueCount();
                     for (int i = 0; i < valueCount; i++) {
                         state.recordValue(values.nextValue());
                     }
+                    final int bytesAfter = state.getEstimatedFootprintInBytes();
+                    if (bytesAfter != bytesBefore) {
+                        // the histogram resized itself to cover a wider range of values
+                        addRequestCircuitBreakerBytes(bytesAfter - bytesBefore);
+                    }
                 }
             }
         };
@@ -102,6 +108,7 @@ abstract class AbstractHDRPercentilesAggregator extends NumericMetricsAggregator
                initialisation and doesn't need resizing.
              */
             state.setAutoResize(true);
+            addRequestCircuitBreakerBytes(state.getEstimatedFootprintInBytes());
             states.set(bucket, state);
         }
         return state;
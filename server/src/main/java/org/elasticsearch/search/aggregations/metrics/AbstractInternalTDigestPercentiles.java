@@ -109,15 +109,14 @@ abstract class AbstractInternalTDigestPercentiles extends InternalNumericMetrics
 
     @Override
     public AbstractInternalTDigestPercentiles reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
-        TDigestState merged = null;
-        for (InternalAggregation aggregation : aggregations) {
-            final AbstractInternalTDigestPercentiles percentiles = (AbstractInternalTDigestPercentiles) aggregation;
-            if (merged == null) {
-                merged = new TDigestState(percentiles.state.compression());
+        // merge the digests in arrays that are accounted to the request circuit breaker
+        try (MergingTDigest merged = new MergingTDigest(state.compression(), reduceContext.bigArrays())) {
+            for (InternalAggregation aggregation : aggregations) {
+                final AbstractInternalTDigestPercentiles percentiles = (AbstractInternalTDigestPercentiles) aggregation;
+                merged.add(percentiles.state);
             }
-            merged.add(percentiles.state);
+            return createReduced(getName(), keys, merged.toTDigestState(), keyed, getMetadata());
         }
-        return createReduced(getName(), keys, merged, keyed, getMetadata());
     }
 
     protected abstract AbstractInternalTDigestPercentiles createReduced(String name, double[] keys, TDigestState merged, boolean keyed,
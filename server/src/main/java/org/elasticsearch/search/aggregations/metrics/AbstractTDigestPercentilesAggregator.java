@@ -45,7 +45,9 @@ abstract class AbstractTDigestPercentilesAggregator extends NumericMetricsAggreg
     protected final double[] keys;
     protected final ValuesSource valuesSource;
     protected final DocValueFormat formatter;
-    protected ObjectArray<TDigestState> states;
+    protected ObjectArray<MergingTDigest> states;
+    // the results of the states, built when they are first needed
+    private ObjectArray<TDigestState> results;
     protected final double compression;
     protected final boolean keyed;
 
@@ -57,6 +59,7 @@ abstract class AbstractTDigestPercentilesAggregator extends NumericMetricsAggreg
         this.keyed = keyed;
         this.formatter = formatter;
         this.states = context.bigArrays().newObjectArray(1);
+        this.results = context.bigArrays().newObjectArray(1);
         this.keys = keys;
         this.compression = compression;
     }
@@ -76,8 +79,8 @@ abstract class AbstractTDigestPercentilesAggregator extends NumericMetricsAggreg
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                TDigestState state = getExistingOrNewHistogram(bigArrays(), bucket);
                 if (values.advanceExact(doc)) {
+                    MergingTDigest state = getExistingOrNewHistogram(bigArrays(), bucket);
                     final int valueCount = values.docValueCount();
                     for (int i = 0; i < valueCount; i++) {
                         state.add(values.nextValue());
@@ -87,11 +90,11 @@ abstract class AbstractTDigestPercentilesAggregator extends NumericMetricsAggreg
         };
     }
 
-    private TDigestState getExistingOrNewHistogram(final BigArrays bigArrays, long bucket) {
+    private MergingTDigest getExistingOrNewHistogram(final BigArrays bigArrays, long bucket) {
         states = bigArrays.grow(states, bucket + 1);
-        TDigestState state = states.get(bucket);
+        MergingTDigest state = states.get(bucket);
         if (state == null) {
-            state = new TDigestState(compression);
+            state = new MergingTDigest(compression, bigArrays);
             states.set(bucket, state);
         }
         return state;
@@ -102,17 +105,32 @@ abstract class AbstractTDigestPercentilesAggregator extends NumericMetricsAggreg
         return indexOfKey(keys, Double.parseDouble(name)) >= 0;
     }
 
+    /**
+     * Returns the digest of the given bucket once the collection is done, or {@code null} if the bucket has no values.
+     */
     protected TDigestState getState(long bucketOrd) {
         if (bucketOrd >= states.size()) {
             return null;
         }
-        final TDigestState state = states.get(bucketOrd);
-        return state;
+        final MergingTDigest state = states.get(bucketOrd);
+        if (state == null) {
+            return null;
+        }
+        results = bigArrays().grow(results, bucketOrd + 1);
+        TDigestState result = results.get(bucketOrd);
+        if (result == null) {
+            result = state.toTDigestState();
+            results.set(bucketOrd, result);
+        }
+        return result;
     }
 
     @Override
     protected void doClose() {
-        Releasables.close(states);
+        for (long bucket = 0; bucket < states.size(); bucket++) {
+            Releasables.close(states.get(bucket));
+        }
+        Releasables.close(states, results);
     }
 
 }
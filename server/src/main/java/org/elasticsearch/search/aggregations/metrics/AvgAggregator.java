@@ -20,10 +20,14 @@ package org.elasticsearch.search.aggregations.metrics;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
 import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -37,7 +41,7 @@ import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import java.io.IOException;
 import java.util.Map;
 
-class AvgAggregator extends NumericMetricsAggregator.SingleValue {
+class AvgAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatableMetric {
 
     final ValuesSource.Numeric valuesSource;
 
@@ -72,9 +76,12 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final NumericDoubleValues singleton = FieldData.unwrapSingleton(values);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
 
         return new LeafBucketCollectorBase(sub, values) {
+            private double[] buffer = new double[0];
+
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 counts = bigArrays().grow(counts, bucket + 1);
@@ -100,9 +107,54 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                     compensations.set(bucket, kahanSummation.delta());
                 }
             }
+
+            @Override
+            public boolean collectsBlocks() {
+                return singleton != null;
+            }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (singleton == null) {
+                    super.collect(docs, count, bucket);
+                    return;
+                }
+                counts = bigArrays().grow(counts, bucket + 1);
+                sums = bigArrays().grow(sums, bucket + 1);
+                compensations = bigArrays().grow(compensations, bucket + 1);
+
+                buffer = ArrayUtil.grow(buffer, count);
+                final int numValues = FieldData.fillValues(singleton, docs, count, buffer);
+                if (numValues > 0) {
+                    counts.increment(bucket, numValues);
+                    kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+                    for (int i = 0; i < numValues; i++) {
+                        kahanSummation.add(buffer[i]);
+                    }
+                    sums.set(bucket, kahanSummation.value());
+                    compensations.set(bucket, kahanSummation.delta());
+                }
+            }
         };
     }
 
+    @Override
+    public IndexNumericFieldData preAggregatableFieldData() {
+        return PreAggregatableMetric.fieldDataOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        counts = bigArrays().grow(counts, bucket + 1);
+        sums = bigArrays().grow(sums, bucket + 1);
+        compensations = bigArrays().grow(compensations, bucket + 1);
+        counts.increment(bucket, valueCount);
+        CompensatedSum kahanSummation = new CompensatedSum(sums.get(bucket), compensations.get(bucket));
+        kahanSummation.add(sum);
+        sums.set(bucket, kahanSummation.value());
+        compensations.set(bucket, kahanSummation.delta());
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         if (valuesSource == null || owningBucketOrd >= sums.size()) {
@@ -21,6 +21,7 @@ package org.elasticsearch.search.aggregations.metrics;
 
 import com.carrotsearch.hppc.BitMixer;
 
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
@@ -38,6 +39,7 @@ import org.elasticsearch.common.util.LongArray;
 import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
@@ -56,6 +58,8 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
 
     private final int precision;
     private final ValuesSource valuesSource;
+    @Nullable
+    private final String precomputedHashField;
 
     // Expensive to initialize, so we only initialize it when we have an actual value source
     @Nullable
@@ -68,6 +72,7 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
     private int ordinalsCollectorsUsed;
     private int ordinalsCollectorsOverheadTooHigh;
     private int stringHashingCollectorsUsed;
+    private int precomputedHashCollectorsUsed;
 
     public CardinalityAggregator(
             String name,
@@ -79,6 +84,7 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
         super(name, context, parent, metadata);
         // TODO: Stop using nulls here
         this.valuesSource = valuesSourceConfig.hasValues() ? valuesSourceConfig.getValuesSource() : null;
+        this.precomputedHashField = precomputedHashField(valuesSourceConfig);
         this.precision = precision;
         this.counts = valuesSource == null ? null : new HyperLogLogPlusPlus(precision, context.bigArrays(), 1);
     }
@@ -94,6 +100,13 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
             return new EmptyCollector();
         }
 
+        if (precomputedHashField != null && ctx.reader().getFieldInfos().fieldInfo(precomputedHashField) != null) {
+            // the hashes were computed at index time so we can feed them to the counts directly
+            precomputedHashCollectorsUsed++;
+            return new DirectCollector(counts,
+                MurmurHash3Values.precomputed(DocValues.getSortedNumeric(ctx.reader(), precomputedHashField)));
+        }
+
         if (valuesSource instanceof ValuesSource.Numeric) {
             ValuesSource.Numeric source = (ValuesSource.Numeric) valuesSource;
             MurmurHash3Values hashValues = source.isFloatingPoint() ?
@@ -184,6 +197,22 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
         add.accept("ordinals_collectors_used", ordinalsCollectorsUsed);
         add.accept("ordinals_collectors_overhead_too_high", ordinalsCollectorsOverheadTooHigh);
         add.accept("string_hashing_collectors_used", stringHashingCollectorsUsed);
+        add.accept("precomputed_hash_collectors_used", precomputedHashCollectorsUsed);
+    }
+
+    /**
+     * Returns the name of the doc values field that holds the precomputed hashes of the values
+     * of the provided config or null if the values need to be hashed at collection time.
+     */
+    @Nullable
+    static String precomputedHashField(ValuesSourceConfig config) {
+        if (config.hasValues() == false
+                || config.script() != null
+                || config.missing() != null
+                || config.fieldType() instanceof KeywordFieldMapper.KeywordFieldType == false) {
+            return null;
+        }
+        return ((KeywordFieldMapper.KeywordFieldType) config.fieldType()).precomputedHashFieldName();
     }
 
     private abstract static class Collector extends LeafBucketCollector implements Releasable {
@@ -359,6 +388,13 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
             return new Bytes(values);
         }
 
+        /**
+         * Return a {@link MurmurHash3Values} instance that reads the hashes that were computed at index time.
+         */
+        public static MurmurHash3Values precomputed(SortedNumericDocValues values) {
+            return new Precomputed(values);
+        }
+
         private static class Long extends MurmurHash3Values {
 
             private final SortedNumericDocValues values;
@@ -383,6 +419,30 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
             }
         }
 
+        private static class Precomputed extends MurmurHash3Values {
+
+            private final SortedNumericDocValues values;
+
+            Precomputed(SortedNumericDocValues values) {
+                this.values = values;
+            }
+
+            @Override
+            public boolean advanceExact(int docId) throws IOException {
+                return values.advanceExact(docId);
+            }
+
+            @Override
+            public int count() {
+                return values.docValueCount();
+            }
+
+            @Override
+            public long nextValue() throws IOException {
+                return values.nextValue();
+            }
+        }
+
         private static class Double extends MurmurHash3Values {
 
             private final SortedNumericDoubleValues values;
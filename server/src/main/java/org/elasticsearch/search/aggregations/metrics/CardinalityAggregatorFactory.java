@@ -57,8 +57,8 @@ class CardinalityAggregatorFactory extends ValuesSourceAggregatorFactory {
         builder.register(CardinalityAggregationBuilder.REGISTRY_KEY,
             CoreValuesSourceType.ALL_CORE,
             (name, valuesSourceConfig, precision, context, parent, metadata) -> {
-                // check global ords
-                if (valuesSourceConfig.hasValues()) {
+                // check global ords, unless the hashes of the values were computed at index time
+                if (valuesSourceConfig.hasValues() && CardinalityAggregator.precomputedHashField(valuesSourceConfig) == null) {
                     final ValuesSource valuesSource = valuesSourceConfig.getValuesSource();
                     if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals) {
                         final ValuesSource.Bytes.WithOrdinals source = (ValuesSource.Bytes.WithOrdinals) valuesSource;
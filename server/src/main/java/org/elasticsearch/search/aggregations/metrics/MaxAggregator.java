@@ -27,6 +27,7 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FutureArrays;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
@@ -43,7 +44,7 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.function.Function;
 
-class MaxAggregator extends NumericMetricsAggregator.SingleValue {
+class MaxAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatableMetric {
 
     final ValuesSource.Numeric valuesSource;
     final DocValueFormat formatter;
@@ -126,6 +127,21 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
         };
     }
 
+    @Override
+    public IndexNumericFieldData preAggregatableFieldData() {
+        return PreAggregatableMetric.fieldDataOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        if (bucket >= maxes.size()) {
+            long from = maxes.size();
+            maxes = bigArrays().grow(maxes, bucket + 1);
+            maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
+        }
+        maxes.set(bucket, Math.max(maxes.get(bucket), max));
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         if (valuesSource == null || owningBucketOrd >= maxes.size()) {
@@ -0,0 +1,298 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import com.tdunning.math.stats.Centroid;
+import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.common.util.LongArray;
+
+/**
+ * A t-digest that buffers the values it is given and periodically merges them into a sorted list of centroids,
+ * like the merging digest of the t-digest library. Its arrays are allocated from {@link BigArrays} so that their
+ * memory is accounted to the request circuit breaker, and a digest only needs a few arrays instead of a tree of
+ * centroids. Results are exchanged as a {@link TDigestState}, see {@link #toTDigestState()}.
+ */
+final class MergingTDigest implements Releasable {
+
+    /**
+     * The number of values to buffer before merging them, as a multiple of the compression.
+     */
+    private static final int BUFFER_SIZE_FACTOR = 5;
+
+    private final BigArrays bigArrays;
+    private final double compression;
+    private final int bufferSize;
+
+    // the means and counts of the centroids, sorted by mean, allocated on the first merge
+    private DoubleArray means;
+    private LongArray counts;
+    private int centroidCount;
+
+    // the values that have not been merged yet, their counts are only tracked once a value has a count other than 1
+    private DoubleArray bufferedValues;
+    private LongArray bufferedCounts;
+    private int bufferedCount;
+
+    private long size;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    MergingTDigest(double compression, BigArrays bigArrays) {
+        this.compression = compression;
+        this.bigArrays = bigArrays;
+        this.bufferSize = Math.max(1, (int) Math.ceil(BUFFER_SIZE_FACTOR * compression));
+        this.bufferedValues = bigArrays.newDoubleArray(1, false);
+    }
+
+    double compression() {
+        return compression;
+    }
+
+    /**
+     * The number of values that were added to this digest.
+     */
+    long size() {
+        return size;
+    }
+
+    double getMin() {
+        return min;
+    }
+
+    double getMax() {
+        return max;
+    }
+
+    /**
+     * The number of centroids once the buffered values are merged.
+     */
+    int centroidCount() {
+        merge();
+        return centroidCount;
+    }
+
+    /**
+     * The heap used by the arrays of this digest, in bytes.
+     */
+    long ramBytesUsed() {
+        long bytes = bufferedValues.ramBytesUsed();
+        if (bufferedCounts != null) {
+            bytes += bufferedCounts.ramBytesUsed();
+        }
+        if (means != null) {
+            bytes += means.ramBytesUsed() + counts.ramBytesUsed();
+        }
+        return bytes;
+    }
+
+    void add(double value) {
+        add(value, 1);
+    }
+
+    void add(double value, long count) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive but was [" + count + "]");
+        }
+        if (count != 1 && bufferedCounts == null) {
+            bufferedCounts = bigArrays.newLongArray(bufferedValues.size(), false);
+            bufferedCounts.fill(0, bufferedCount, 1);
+        }
+        bufferedValues = bigArrays.grow(bufferedValues, bufferedCount + 1);
+        bufferedValues.set(bufferedCount, value);
+        if (bufferedCounts != null) {
+            bufferedCounts = bigArrays.grow(bufferedCounts, bufferedCount + 1);
+            bufferedCounts.set(bufferedCount, count);
+        }
+        bufferedCount++;
+        size += count;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (bufferedCount >= bufferSize) {
+            merge();
+        }
+    }
+
+    /**
+     * Adds the centroids of the given digest to this digest.
+     */
+    void add(TDigestState other) {
+        for (Centroid centroid : other.centroids()) {
+            add(centroid.mean(), centroid.count());
+        }
+    }
+
+    /**
+     * Merges the buffered values into the centroids. Both are walked from the largest to the smallest mean and the
+     * merged centroids are written from the end of the centroid arrays, which never overwrites a centroid that was not
+     * read yet since every merged centroid is made of at least one centroid or buffered value. Each merged centroid
+     * spans at most one unit of the k1 scale function of the t-digest paper, which keeps the centroids at both ends
+     * small and their number proportional to the compression.
+     */
+    private void merge() {
+        if (bufferedCount == 0) {
+            return;
+        }
+        sortBuffer();
+        final int total = centroidCount + bufferedCount;
+        if (means == null) {
+            means = bigArrays.newDoubleArray(total, false);
+            counts = bigArrays.newLongArray(total, false);
+        } else {
+            means = bigArrays.grow(means, total);
+            counts = bigArrays.grow(counts, total);
+        }
+
+        int centroid = centroidCount - 1;
+        int buffered = bufferedCount - 1;
+        int write = total;
+        double groupMean = 0;
+        long groupCount = 0;
+        // the count of the centroids that were already written and the count the current centroid may grow to
+        long countAbove = 0;
+        long countLimit = 0;
+        while (centroid >= 0 || buffered >= 0) {
+            final double mean;
+            final long count;
+            if (buffered < 0 || (centroid >= 0 && means.get(centroid) > bufferedValues.get(buffered))) {
+                mean = means.get(centroid);
+                count = counts.get(centroid);
+                centroid--;
+            } else {
+                mean = bufferedValues.get(buffered);
+                count = bufferedCounts == null ? 1 : bufferedCounts.get(buffered);
+                buffered--;
+            }
+            if (groupCount > 0 && countAbove + groupCount + count <= countLimit) {
+                groupCount += count;
+                groupMean += (mean - groupMean) * count / groupCount;
+            } else {
+                if (groupCount > 0) {
+                    write--;
+                    means.set(write, groupMean);
+                    counts.set(write, groupCount);
+                    countAbove += groupCount;
+                }
+                groupMean = mean;
+                groupCount = count;
+                countLimit = countLimit(countAbove, size);
+            }
+        }
+        write--;
+        means.set(write, groupMean);
+        counts.set(write, groupCount);
+
+        centroidCount = total - write;
+        if (write > 0) {
+            for (int i = 0; i < centroidCount; i++) {
+                means.set(i, means.get(write + i));
+                counts.set(i, counts.get(write + i));
+            }
+        }
+        bufferedCount = 0;
+    }
+
+    /**
+     * Returns the cumulative count up to which a centroid that starts after {@code countBefore} values may grow so
+     * that it covers at most one unit of the k1 scale function, {@code k(q) = compression / (2 * PI) * asin(2q - 1)}.
+     */
+    private long countLimit(long countBefore, long total) {
+        final double q = (double) countBefore / total;
+        final double z = Math.asin(2 * q - 1) + 2 * Math.PI / compression;
+        if (z >= Math.PI / 2) {
+            return total;
+        }
+        return (long) (total * (Math.sin(z) + 1) / 2);
+    }
+
+    private void sortBuffer() {
+        new IntroSorter() {
+            double pivot;
+
+            @Override
+            protected void setPivot(int i) {
+                pivot = bufferedValues.get(i);
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                return Double.compare(pivot, bufferedValues.get(j));
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return Double.compare(bufferedValues.get(i), bufferedValues.get(j));
+            }
+
+            @Override
+            protected void swap(int i, int j) {
+                bufferedValues.set(i, bufferedValues.set(j, bufferedValues.get(i)));
+                if (bufferedCounts != null) {
+                    bufferedCounts.set(i, bufferedCounts.set(j, bufferedCounts.get(i)));
+                }
+            }
+        }.sort(0, bufferedCount);
+    }
+
+    /**
+     * Builds a {@link TDigestState} with the centroids of this digest. The smallest and the largest value are split
+     * off from the first and the last centroid so that they are reported exactly, the remaining values of these
+     * centroids keep their mean.
+     */
+    TDigestState toTDigestState() {
+        merge();
+        final TDigestState state = new TDigestState(compression);
+        for (int i = 0; i < centroidCount; i++) {
+            double mean = means.get(i);
+            long count = counts.get(i);
+            if (i == 0 && count > 1 && mean > min) {
+                state.add(min, 1);
+                mean = (mean * count - min) / (count - 1);
+                count--;
+            }
+            final boolean splitMax = i == centroidCount - 1 && count > 1 && mean < max;
+            if (splitMax) {
+                mean = (mean * count - max) / (count - 1);
+                count--;
+            }
+            // centroids are added in increasing order of their means, so the AVL tree keeps every one of them
+            while (count > Integer.MAX_VALUE) {
+                state.add(mean, Integer.MAX_VALUE);
+                count -= Integer.MAX_VALUE;
+            }
+            state.add(mean, (int) count);
+            if (splitMax) {
+                state.add(max, 1);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(means, counts, bufferedValues, bufferedCounts);
+    }
+}
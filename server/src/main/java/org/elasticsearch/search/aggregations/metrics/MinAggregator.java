@@ -26,6 +26,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.Bits;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
@@ -42,7 +43,7 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.function.Function;
 
-public class MinAggregator extends NumericMetricsAggregator.SingleValue {
+public class MinAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatableMetric {
     private static final int MAX_BKD_LOOKUPS = 1024;
 
     final ValuesSource.Numeric valuesSource;
@@ -126,6 +127,21 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
         };
     }
 
+    @Override
+    public IndexNumericFieldData preAggregatableFieldData() {
+        return PreAggregatableMetric.fieldDataOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        if (bucket >= mins.size()) {
+            long from = mins.size();
+            mins = bigArrays().grow(mins, bucket + 1);
+            mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
+        }
+        mins.set(bucket, Math.min(mins.get(bucket), min));
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         if (valuesSource == null || owningBucketOrd >= mins.size()) {
@@ -0,0 +1,55 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+/**
+ * A metric aggregator that can be fed the statistics of a segment's {@link PreAggregationCache.Rollup}
+ * instead of collecting the documents that they summarize.
+ */
+public interface PreAggregatableMetric {
+
+    /**
+     * The field data that this aggregator reads or {@code null} if it reads anything
+     * but the plain values of a single numeric field.
+     */
+    @Nullable
+    IndexNumericFieldData preAggregatableFieldData();
+
+    /**
+     * Collect the statistics of {@code valueCount} values into the given bucket.
+     */
+    void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max);
+
+    /**
+     * Returns the field data of a {@link ValuesSource} that reads the plain values of a single numeric field or {@code null}.
+     */
+    @Nullable
+    static IndexNumericFieldData fieldDataOrNull(@Nullable ValuesSource valuesSource) {
+        if (valuesSource instanceof ValuesSource.Numeric.FieldData) {
+            return ((ValuesSource.Numeric.FieldData) valuesSource).getIndexFieldData();
+        }
+        return null;
+    }
+}
@@ -20,8 +20,12 @@ package org.elasticsearch.search.aggregations.metrics;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -35,7 +39,7 @@ import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import java.io.IOException;
 import java.util.Map;
 
-public class SumAggregator extends NumericMetricsAggregator.SingleValue {
+public class SumAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatableMetric {
 
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat format;
@@ -72,8 +76,11 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final NumericDoubleValues singleton = FieldData.unwrapSingleton(values);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
         return new LeafBucketCollectorBase(sub, values) {
+            private double[] buffer = new double[0];
+
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 sums = bigArrays().grow(sums, bucket + 1);
@@ -96,9 +103,50 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
                     sums.set(bucket, kahanSummation.value());
                 }
             }
+
+            @Override
+            public boolean collectsBlocks() {
+                return singleton != null;
+            }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (singleton == null) {
+                    super.collect(docs, count, bucket);
+                    return;
+                }
+                sums = bigArrays().grow(sums, bucket + 1);
+                compensations = bigArrays().grow(compensations, bucket + 1);
+
+                buffer = ArrayUtil.grow(buffer, count);
+                final int numValues = FieldData.fillValues(singleton, docs, count, buffer);
+                if (numValues > 0) {
+                    kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+                    for (int i = 0; i < numValues; i++) {
+                        kahanSummation.add(buffer[i]);
+                    }
+                    compensations.set(bucket, kahanSummation.delta());
+                    sums.set(bucket, kahanSummation.value());
+                }
+            }
         };
     }
 
+    @Override
+    public IndexNumericFieldData preAggregatableFieldData() {
+        return PreAggregatableMetric.fieldDataOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        sums = bigArrays().grow(sums, bucket + 1);
+        compensations = bigArrays().grow(compensations, bucket + 1);
+        CompensatedSum kahanSummation = new CompensatedSum(sums.get(bucket), compensations.get(bucket));
+        kahanSummation.add(sum);
+        compensations.set(bucket, kahanSummation.delta());
+        sums.set(bucket, kahanSummation.value());
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         if (valuesSource == null || owningBucketOrd >= sums.size()) {
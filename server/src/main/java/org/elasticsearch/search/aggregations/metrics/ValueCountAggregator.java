@@ -23,6 +23,7 @@ import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.MultiGeoPointValues;
 import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -42,7 +43,7 @@ import java.util.Map;
  * This aggregator works in a multi-bucket mode, that is, when serves as a sub-aggregator, a single aggregator instance aggregates the
  * counts for all buckets owned by the parent aggregator)
  */
-public class ValueCountAggregator extends NumericMetricsAggregator.SingleValue {
+public class ValueCountAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatableMetric {
 
     final ValuesSource valuesSource;
 
@@ -111,6 +112,17 @@ public class ValueCountAggregator extends NumericMetricsAggregator.SingleValue {
         };
     }
 
+    @Override
+    public IndexNumericFieldData preAggregatableFieldData() {
+        return PreAggregatableMetric.fieldDataOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        counts = bigArrays().grow(counts, bucket + 1);
+        counts.increment(bucket, valueCount);
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         return (valuesSource == null || owningBucketOrd >= counts.size()) ? 0 : counts.get(owningBucketOrd);
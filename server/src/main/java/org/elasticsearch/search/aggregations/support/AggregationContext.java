@@ -28,6 +28,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.ObjectMapper;
@@ -193,6 +194,13 @@ public abstract class AggregationContext {
      * Get the filter cache.
      */
     public abstract BitsetFilterCache bitsetFilterCache();
+
+    /**
+     * Cache of the per-segment rollups of the index that aggregations can read
+     * instead of collecting documents, or {@code null} if there is none.
+     */
+    @Nullable
+    public abstract PreAggregationCache preAggregationCache();
     // TODO it is unclear why we can't just use the IndexSearcher which already caches
 
     /**
@@ -250,6 +258,7 @@ public abstract class AggregationContext {
         private final Supplier<SubSearchContext> subSearchContextBuilder;
         private final Consumer<Aggregator> addReleasable;
         private final BitsetFilterCache bitsetFilterCache;
+        private final PreAggregationCache preAggregationCache;
         private final int randomSeed;
         private final LongSupplier relativeTimeInMillis;
         private final Supplier<Boolean> isCancelled;
@@ -262,6 +271,7 @@ public abstract class AggregationContext {
             Supplier<SubSearchContext> subSearchContextBuilder,
             Consumer<Aggregator> addReleasable,
             BitsetFilterCache bitsetFilterCache,
+            @Nullable PreAggregationCache preAggregationCache,
             int randomSeed,
             LongSupplier relativeTimeInMillis,
             Supplier<Boolean> isCancelled
@@ -274,6 +284,7 @@ public abstract class AggregationContext {
             this.subSearchContextBuilder = subSearchContextBuilder;
             this.addReleasable = addReleasable;
             this.bitsetFilterCache = bitsetFilterCache;
+            this.preAggregationCache = preAggregationCache;
             this.randomSeed = randomSeed;
             this.relativeTimeInMillis = relativeTimeInMillis;
             this.isCancelled = isCancelled;
@@ -387,6 +398,11 @@ public abstract class AggregationContext {
             return bitsetFilterCache;
         }
 
+        @Override
+        public PreAggregationCache preAggregationCache() {
+            return preAggregationCache;
+        }
+
         @Override
         public BucketedSort buildBucketedSort(SortBuilder<?> sort, int bucketSize, BucketedSort.ExtraData extra) throws IOException {
             return sort.buildBucketedSort(context, bucketSize, extra);
@@ -209,6 +209,10 @@ public abstract class ValuesSource {
                     this.indexFieldData = indexFieldData;
                 }
 
+                public IndexOrdinalsFieldData getIndexFieldData() {
+                    return indexFieldData;
+                }
+
                 @Override
                 public SortedBinaryDocValues bytesValues(LeafReaderContext context) {
                     final LeafOrdinalsFieldData atomicFieldData = indexFieldData.load(context);
@@ -508,6 +512,10 @@ public abstract class ValuesSource {
                 this.indexFieldData = indexFieldData;
             }
 
+            public IndexNumericFieldData getIndexFieldData() {
+                return indexFieldData;
+            }
+
             @Override
             public boolean isFloatingPoint() {
                 return indexFieldData.getNumericType().isFloatingPoint();
@@ -49,8 +49,10 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.CombinedBitSet;
 import org.apache.lucene.util.SparseFixedBitSet;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.Timer;
@@ -63,10 +65,13 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -81,6 +86,8 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     private AggregatedDfs aggregatedDfs;
     private QueryProfiler profiler;
     private MutableQueryTimeout cancellable;
+    private Executor sliceExecutor;
+    private int maxSlices = 1;
 
     public ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                 QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
@@ -103,6 +110,123 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.profiler = profiler;
     }
 
+    /**
+     * Sets the executor used to search the segments of this searcher concurrently, in at most <code>maxSlices</code>
+     * slices. See {@link #slices()} and {@link #search(Query, List, List)}.
+     */
+    public void setSliceExecutor(Executor sliceExecutor, int maxSlices) {
+        if (maxSlices < 1) {
+            throw new IllegalArgumentException("maxSlices must be >= 1 but was [" + maxSlices + "]");
+        }
+        this.sliceExecutor = Objects.requireNonNull(sliceExecutor);
+        this.maxSlices = maxSlices;
+    }
+
+    /**
+     * Returns the slices of segments that can be searched concurrently, a single slice with all the
+     * segments if no slice executor is set.
+     */
+    public List<List<LeafReaderContext>> slices() {
+        return computeSlices(getIndexReader().leaves(), sliceExecutor == null ? 1 : maxSlices);
+    }
+
+    /**
+     * Partitions the provided leaves into at most <code>maxSlices</code> slices of consecutive leaves with roughly
+     * the same number of documents. Keeping the leaves of a slice consecutive means that merging the hits of the
+     * slices in slice order breaks ties on the doc id, like a sequential search does.
+     */
+    static List<List<LeafReaderContext>> computeSlices(List<LeafReaderContext> leaves, int maxSlices) {
+        final int numSlices = Math.min(maxSlices, leaves.size());
+        if (numSlices <= 1) {
+            return Collections.singletonList(leaves);
+        }
+        long totalDocs = 0;
+        for (LeafReaderContext ctx : leaves) {
+            totalDocs += ctx.reader().maxDoc();
+        }
+        final long docsPerSlice = Math.max(1, (totalDocs + numSlices - 1) / numSlices);
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        List<LeafReaderContext> slice = new ArrayList<>();
+        long sliceDocs = 0;
+        for (int i = 0; i < leaves.size(); i++) {
+            final LeafReaderContext ctx = leaves.get(i);
+            slice.add(ctx);
+            sliceDocs += ctx.reader().maxDoc();
+            final int remainingLeaves = leaves.size() - i - 1;
+            final int remainingSlices = numSlices - slices.size() - 1;
+            // close the slice once it is full, or if the remaining leaves are needed to fill the remaining slices
+            if (remainingSlices > 0 && (sliceDocs >= docsPerSlice || remainingLeaves == remainingSlices)) {
+                slices.add(slice);
+                slice = new ArrayList<>();
+                sliceDocs = 0;
+            }
+        }
+        if (slice.isEmpty() == false) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
+    /**
+     * Searches each of the provided slices with the collector at the same position in <code>collectors</code>.
+     * All slices but the last one are submitted to the slice executor, the last one is searched by the calling
+     * thread, which then waits for the other slices to complete. The collectors must all be created alike
+     * since the weight is created once with the score mode of the first collector.
+     */
+    public void search(Query query, List<List<LeafReaderContext>> slices, List<? extends Collector> collectors) throws IOException {
+        if (slices.size() != collectors.size()) {
+            throw new IllegalArgumentException("expected one collector per slice but got [" + collectors.size()
+                + "] collectors for [" + slices.size() + "] slices");
+        }
+        final Weight weight = createWeight(rewrite(query), collectors.get(0).scoreMode(), 1f);
+        final SliceFailures failures = new SliceFailures();
+        final CountDownLatch latch = new CountDownLatch(slices.size() - 1);
+        for (int i = 0; i < slices.size() - 1; i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final Collector collector = collectors.get(i);
+            final Runnable task = () -> {
+                try {
+                    if (failures.hasFailure() == false) {
+                        search(leaves, weight, collector);
+                    }
+                } catch (Exception e) {
+                    failures.add(e);
+                } finally {
+                    latch.countDown();
+                }
+            };
+            if (sliceExecutor == null) {
+                task.run();
+            } else {
+                try {
+                    sliceExecutor.execute(task);
+                } catch (EsRejectedExecutionException e) {
+                    // the executor is shutting down, search the slice on the calling thread
+                    task.run();
+                }
+            }
+        }
+        try {
+            search(slices.get(slices.size() - 1), weight, collectors.get(collectors.size() - 1));
+        } catch (Exception e) {
+            failures.add(e);
+        }
+        // the collectors of the other slices must not be used before they are done so we wait uninterruptibly
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        failures.rethrow();
+    }
+
     /**
      * Add a {@link Runnable} that will be run on a regular basis while accessing documents in the
      * DirectoryReader but also while collecting them and check for query cancellation or timeout.
@@ -349,6 +473,30 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         return (DirectoryReader) reader;
     }
 
+    /**
+     * Collects the failures of the slices of a concurrent search, the first one is rethrown with the others suppressed.
+     */
+    private static class SliceFailures {
+
+        private Exception failure;
+
+        synchronized void add(Exception e) {
+            failure = ExceptionsHelper.useOrSuppress(failure, e);
+        }
+
+        synchronized boolean hasFailure() {
+            return failure != null;
+        }
+
+        synchronized void rethrow() throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure != null) {
+                throw ExceptionsHelper.convertToRuntime(failure);
+            }
+        }
+    }
+
     private static class MutableQueryTimeout implements ExitableDirectoryReader.QueryCancellation {
 
         private final Set<Runnable> runnables = new HashSet<>();
@@ -26,6 +26,7 @@ import org.elasticsearch.action.search.SearchShardTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
@@ -204,6 +205,11 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.bitsetFilterCache();
     }
 
+    @Override
+    public PreAggregationCache preAggregationCache() {
+        return in.preAggregationCache();
+    }
+
     @Override
     public TimeValue timeout() {
         return in.timeout();
@@ -29,6 +29,7 @@ import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
@@ -211,6 +212,9 @@ public abstract class SearchContext implements Releasable {
 
     public abstract BitsetFilterCache bitsetFilterCache();
 
+    @Nullable
+    public abstract PreAggregationCache preAggregationCache();
+
     public abstract TimeValue timeout();
 
     public abstract void timeout(TimeValue timeout);
@@ -238,12 +238,24 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
+        writeTo(out, true);
+    }
+
+    /**
+     * Writes this request like {@link #writeTo(StreamOutput)}, but writes no source if {@code includeSource} is false. This is
+     * used when the source is sent once for several shard requests and set on each of them after they were read.
+     */
+    public void writeTo(StreamOutput out, boolean includeSource) throws IOException {
         super.writeTo(out);
-        innerWriteTo(out, false);
+        innerWriteTo(out, false, includeSource);
         OriginalIndices.writeOriginalIndices(originalIndices, out);
     }
 
     protected final void innerWriteTo(StreamOutput out, boolean asKey) throws IOException {
+        innerWriteTo(out, asKey, true);
+    }
+
+    private void innerWriteTo(StreamOutput out, boolean asKey, boolean includeSource) throws IOException {
         shardId.writeTo(out);
         out.writeByte(searchType.id());
         if (asKey == false) {
@@ -253,7 +265,7 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
             out.writeVInt(numberOfShards);
         }
         out.writeOptionalWriteable(scroll);
-        out.writeOptionalWriteable(source);
+        out.writeOptionalWriteable(includeSource ? source : null);
         if (out.getVersion().before(Version.V_8_0_0)) {
             // types not supported so send an empty array to previous versions
             out.writeStringArray(Strings.EMPTY_ARRAY);
@@ -35,6 +35,7 @@ import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.ScoreMode;
@@ -43,8 +44,11 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
+import org.elasticsearch.action.search.MaxScoreCollector;
 import org.elasticsearch.action.search.SearchShardTask;
 import org.elasticsearch.common.Booleans;
 import org.elasticsearch.common.CheckedConsumer;
@@ -66,6 +70,7 @@ import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.profile.SearchProfileShardResults;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
+import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.rescore.RescorePhase;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestPhase;
@@ -291,8 +296,12 @@ public class QueryPhase {
             try {
                 boolean shouldRescore;
                 // if we are optimizing sort and there are no other collectors
+                final List<List<LeafReaderContext>> slices = sortAndFormatsForRewrittenNumericSort == null
+                    && canSearchConcurrently(searchContext) ? searcher.slices() : Collections.singletonList(reader.leaves());
                 if (sortAndFormatsForRewrittenNumericSort != null && collectors.size() == 0 && searchContext.getProfilers() == null) {
                     shouldRescore = searchWithCollectorManager(searchContext, searcher, query, leafSorter, timeoutSet);
+                } else if (slices.size() > 1) {
+                    shouldRescore = searchConcurrently(searchContext, searcher, query, slices, timeoutSet);
                 } else {
                     shouldRescore = searchWithCollector(searchContext, searcher, query, collectors, hasFilterCollector, timeoutSet);
                 }
@@ -364,6 +373,192 @@ public class QueryPhase {
     }
 
 
+    /**
+     * Returns whether the query phase of the provided context can be executed concurrently on slices of the
+     * segments, which requires that the collectors of the slices can be merged. This excludes scrolls, collapsing,
+     * profiling and the collectors that filter documents. Requests that use scripts or runtime fields are also
+     * excluded because all the leaves of a search share the same {@link org.elasticsearch.search.lookup.SourceLookup},
+     * which can't be positioned on the documents of several slices at once.
+     */
+    static boolean canSearchConcurrently(SearchContext searchContext) {
+        if (searchContext.scrollContext() != null || searchContext.collapse() != null || searchContext.getProfilers() != null) {
+            return false;
+        }
+        if (searchContext.getQueryShardContext() != null && searchContext.getQueryShardContext().hasLookup()) {
+            return false;
+        }
+        if (searchContext.request() != null && searchContext.request().getRuntimeMappings().isEmpty() == false) {
+            return false;
+        }
+        if (searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.parsedPostFilter() != null || searchContext.minimumScore() != null) {
+            return false;
+        }
+        // only the aggregations know how to create a collector per slice
+        for (Class<?> key : searchContext.queryCollectors().keySet()) {
+            if (key != AggregationPhase.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Searches the provided slices concurrently, each with its own top docs collector and aggregators. The top
+     * docs collectors are created by a shared collector manager so that the slices can skip non-competitive
+     * hits of each other, the aggregations of the slices are reduced in AggregationPhase#execute. The total hit
+     * count and the max score are computed the same way as in TopDocsCollectorContext.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean searchConcurrently(SearchContext searchContext, ContextIndexSearcher searcher, Query query,
+            List<List<LeafReaderContext>> slices, boolean timeoutSet) throws IOException {
+        final IndexReader reader = searcher.getIndexReader();
+        final SortAndFormats sortAndFormats = searchContext.sort();
+        final boolean rescore = searchContext.rescore().isEmpty() == false;
+        TotalHits totalHits = null; // null if the hits must be counted by the collectors
+        if (searchContext.trackTotalHitsUpTo() == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+            // for bwc hit count is set to 0, it will be converted to -1 by the coordinating node
+            totalHits = new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        } else {
+            int hitCount = shortcutTotalHitCount(reader, query);
+            if (hitCount != -1) {
+                totalHits = new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO);
+            }
+        }
+
+        final CollectorManager topDocsManager;
+        if (searchContext.size() == 0) {
+            topDocsManager = null;
+        } else {
+            int numHits = Math.min(searchContext.from() + searchContext.size(), Math.max(1, reader.numDocs()));
+            if (rescore) {
+                assert sortAndFormats == null;
+                for (RescoreContext rescoreContext : searchContext.rescore()) {
+                    numHits = Math.max(numHits, rescoreContext.getWindowSize());
+                }
+            }
+            final int totalHitsThreshold;
+            if ((sortAndFormats == null || SortField.FIELD_SCORE.equals(sortAndFormats.sort.getSort()[0]))
+                    && TopDocsCollectorContext.hasInfMaxScore(query)) {
+                // disable max score optimization since we have a mandatory clause
+                // that doesn't track the maximum score
+                totalHitsThreshold = Integer.MAX_VALUE;
+                totalHits = null;
+            } else {
+                totalHitsThreshold = totalHits == null ? searchContext.trackTotalHitsUpTo() : 1;
+            }
+            if (sortAndFormats == null) {
+                topDocsManager = TopScoreDocCollector.createSharedManager(numHits, searchContext.searchAfter(), totalHitsThreshold);
+            } else {
+                topDocsManager = TopFieldCollector.createSharedManager(sortAndFormats.sort, numHits,
+                    searchContext.searchAfter(), totalHitsThreshold);
+            }
+        }
+
+        final List<Collector> topDocsCollectors = new ArrayList<>(slices.size());
+        final List<TotalHitCountCollector> hitCountCollectors = new ArrayList<>(slices.size());
+        final List<EarlyTerminatingCollector> hitCountTerminators = new ArrayList<>(slices.size());
+        final List<MaxScoreCollector> maxScoreCollectors = new ArrayList<>(slices.size());
+        final List<Collector> sliceCollectors = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final List<Collector> collectors = new ArrayList<>();
+            if (topDocsManager != null) {
+                Collector topDocsCollector = topDocsManager.newCollector();
+                topDocsCollectors.add(topDocsCollector);
+                collectors.add(topDocsCollector);
+                if (sortAndFormats != null && searchContext.trackScores()) {
+                    MaxScoreCollector maxScoreCollector = new MaxScoreCollector();
+                    maxScoreCollectors.add(maxScoreCollector);
+                    collectors.add(maxScoreCollector);
+                }
+            } else if (totalHits == null) {
+                TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+                hitCountCollectors.add(hitCountCollector);
+                if (searchContext.trackTotalHitsUpTo() == SearchContext.TRACK_TOTAL_HITS_ACCURATE) {
+                    collectors.add(hitCountCollector);
+                } else {
+                    EarlyTerminatingCollector terminator =
+                        new EarlyTerminatingCollector(hitCountCollector, searchContext.trackTotalHitsUpTo(), false);
+                    hitCountTerminators.add(terminator);
+                    collectors.add(terminator);
+                }
+            }
+            Collector aggsCollector = searchContext.queryCollectors().get(AggregationPhase.class);
+            if (aggsCollector != null) {
+                // the collector that was created in AggregationPhase#preProcess collects the first slice
+                collectors.add(i == 0 ? aggsCollector : AggregationPhase.createSliceCollector(searchContext));
+            }
+            if (collectors.isEmpty()) {
+                // nothing to collect, the hit count is already known
+                break;
+            }
+            sliceCollectors.add(MultiCollector.wrap(collectors));
+        }
+
+        QuerySearchResult queryResult = searchContext.queryResult();
+        if (sliceCollectors.isEmpty() == false) {
+            try {
+                searcher.search(query, slices, sliceCollectors);
+            } catch (TimeExceededException e) {
+                assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+                if (searchContext.request().allowPartialSearchResults() == false) {
+                    // Can't rethrow TimeExceededException because not serializable
+                    throw new QueryPhaseExecutionException(searchContext.shardTarget(), "Time exceeded");
+                }
+                queryResult.searchTimedOut(true);
+            }
+        }
+
+        if (topDocsManager == null) {
+            if (totalHits == null) {
+                long hitCount = 0;
+                for (TotalHitCountCollector hitCountCollector : hitCountCollectors) {
+                    hitCount += hitCountCollector.getTotalHits();
+                }
+                boolean earlyTerminated = hitCountTerminators.stream().anyMatch(EarlyTerminatingCollector::hasEarlyTerminated);
+                totalHits = new TotalHits(hitCount,
+                    earlyTerminated ? TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO : TotalHits.Relation.EQUAL_TO);
+            }
+            final TopDocs topDocs;
+            if (sortAndFormats != null) {
+                topDocs = new TopFieldDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, sortAndFormats.sort.getSort());
+            } else {
+                topDocs = new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS);
+            }
+            queryResult.topDocs(new TopDocsAndMaxScore(topDocs, Float.NaN), null);
+            return false;
+        }
+
+        TopDocs topDocs = (TopDocs) topDocsManager.reduce(topDocsCollectors);
+        // Lucene sets shards indexes during merging of topDocs from different collectors
+        // We need to reset shard index; ES will set shard index later during reduce stage
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            scoreDoc.shardIndex = -1;
+        }
+        if (totalHits != null) {
+            if (topDocs instanceof TopFieldDocs) {
+                topDocs = new TopFieldDocs(totalHits, topDocs.scoreDocs, ((TopFieldDocs) topDocs).fields);
+            } else {
+                topDocs = new TopDocs(totalHits, topDocs.scoreDocs);
+            }
+        }
+        float maxScore = Float.NaN;
+        if (sortAndFormats == null) {
+            if (topDocs.scoreDocs.length > 0) {
+                maxScore = topDocs.scoreDocs[0].score;
+            }
+        } else {
+            for (MaxScoreCollector maxScoreCollector : maxScoreCollectors) {
+                float sliceMaxScore = maxScoreCollector.getMaxScore();
+                if (Float.isNaN(maxScore) || sliceMaxScore > maxScore) {
+                    maxScore = sliceMaxScore;
+                }
+            }
+        }
+        queryResult.topDocs(new TopDocsAndMaxScore(topDocs, maxScore), sortAndFormats == null ? null : sortAndFormats.formats);
+        return rescore;
+    }
+
     /*
      * We use collectorManager during sort optimization, where
      * we have already checked that there are no other collectors, no filters,
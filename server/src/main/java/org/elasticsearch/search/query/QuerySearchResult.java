@@ -67,6 +67,7 @@ public final class QuerySearchResult extends SearchPhaseResult {
     private boolean hasProfileResults;
     private long serviceTimeEWMA = -1;
     private int nodeQueueSize = -1;
+    private long queryTookNanos = -1;
 
     private final boolean isNull;
 
@@ -305,6 +306,18 @@ public final class QuerySearchResult extends SearchPhaseResult {
         return this;
     }
 
+    /**
+     * The time the query phase took on the shard, or -1 if unknown.
+     */
+    public long queryTookNanos() {
+        return this.queryTookNanos;
+    }
+
+    public QuerySearchResult queryTookNanos(long queryTookNanos) {
+        this.queryTookNanos = queryTookNanos;
+        return this;
+    }
+
     /**
      * Returns <code>true</code> if this result has any suggest score docs
      */
@@ -346,6 +359,9 @@ public final class QuerySearchResult extends SearchPhaseResult {
             setShardSearchRequest(in.readOptionalWriteable(ShardSearchRequest::new));
             setRescoreDocIds(new RescoreDocIds(in));
         }
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            queryTookNanos = in.readZLong();
+        }
     }
 
     @Override
@@ -387,6 +403,9 @@ public final class QuerySearchResult extends SearchPhaseResult {
             out.writeOptionalWriteable(getShardSearchRequest());
             getRescoreDocIds().writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeZLong(queryTookNanos);
+        }
     }
 
     public TotalHits getTotalHits() {
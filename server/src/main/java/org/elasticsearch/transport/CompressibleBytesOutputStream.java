@@ -21,18 +21,26 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.common.bytes.BytesReference;
-import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStream;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.lz4.LZ4BlockOutputStream;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.DeflaterOutputStream;
 
 /**
  * This class exists to provide a stream with optional compression. This is useful as using compression
- * requires that the underlying {@link DeflaterOutputStream} be closed to write EOS bytes. However, the
+ * requires that the underlying {@link DeflaterOutputStream} or {@link LZ4BlockOutputStream} be closed to write EOS bytes. However, the
  * {@link BytesStream} should not be closed yet, as we have not used the bytes. This class handles these
  * intricacies.
  *
@@ -42,18 +50,40 @@ import java.util.zip.DeflaterOutputStream;
  *
  * {@link CompressibleBytesOutputStream#close()} will NOT close the underlying stream. The byte stream passed
  * in the constructor must be closed individually.
+ *
+ * When compression is disabled, large {@link ReleasableBytesReference}s written with
+ * {@link StreamOutput#writeZeroCopyBytesReference(BytesReference)} are not copied into the underlying stream. They are
+ * retained and spliced into the {@link BytesReference} returned by {@link #materializeBytes()} instead so that the transport
+ * can send them with a gathering write. The retained references must be taken with {@link #takeZeroCopyReferences()} and
+ * released once the bytes were sent, otherwise they are released when this stream is closed. Any other bytes reference is
+ * copied since nothing guarantees that its bytes stay valid until the send completes. Recovery file chunks are currently
+ * the only messages that write releasable bytes, bulk shard and replica requests are copied.
  */
 final class CompressibleBytesOutputStream extends StreamOutput {
 
+    // smaller references are cheaper to copy than to send as their own buffer
+    static final int ZERO_COPY_THRESHOLD = PageCacheRecycler.BYTE_PAGE_SIZE / 4;
+
     private final OutputStream stream;
     private final BytesStream bytesStreamOutput;
     private final boolean shouldCompress;
+    // positions in the underlying stream at which the zero-copy references must be inserted
+    private List<Long> zeroCopyPositions;
+    private List<ReleasableBytesReference> zeroCopyReferences;
+    private boolean zeroCopyReferencesTaken;
 
     CompressibleBytesOutputStream(BytesStream bytesStreamOutput, boolean shouldCompress) throws IOException {
+        this(bytesStreamOutput, shouldCompress ? Compression.Scheme.DEFLATE : null);
+    }
+
+    /**
+     * @param compressionScheme the scheme to compress with or {@code null} if the bytes should not be compressed
+     */
+    CompressibleBytesOutputStream(BytesStream bytesStreamOutput, @Nullable Compression.Scheme compressionScheme) throws IOException {
         this.bytesStreamOutput = bytesStreamOutput;
-        this.shouldCompress = shouldCompress;
+        this.shouldCompress = compressionScheme != null;
         if (shouldCompress) {
-            this.stream = CompressorFactory.COMPRESSOR.threadLocalOutputStream(Streams.flushOnCloseStream(bytesStreamOutput));
+            this.stream = compressionScheme.threadLocalOutputStream(Streams.flushOnCloseStream(bytesStreamOutput));
         } else {
             this.stream = bytesStreamOutput;
         }
@@ -73,7 +103,64 @@ final class CompressibleBytesOutputStream extends StreamOutput {
             stream.close();
         }
 
-        return bytesStreamOutput.bytes();
+        final BytesReference bytes = bytesStreamOutput.bytes();
+        if (zeroCopyReferences == null) {
+            return bytes;
+        }
+        final BytesReference[] parts = new BytesReference[zeroCopyReferences.size() * 2 + 1];
+        int from = 0;
+        for (int i = 0; i < zeroCopyReferences.size(); i++) {
+            final int position = Math.toIntExact(zeroCopyPositions.get(i));
+            parts[i * 2] = bytes.slice(from, position - from);
+            parts[i * 2 + 1] = zeroCopyReferences.get(i);
+            from = position;
+        }
+        parts[parts.length - 1] = bytes.slice(from, bytes.length() - from);
+        return CompositeBytesReference.of(parts);
+    }
+
+    /**
+     * Hands the references that were retained by {@link #writeZeroCopyBytesReference(BytesReference)} over to the caller who must
+     * release them once the bytes returned by {@link #materializeBytes()} were sent.
+     *
+     * @return a releasable that releases the retained references or {@code null} if no reference was retained
+     */
+    @Nullable
+    Releasable takeZeroCopyReferences() {
+        if (zeroCopyReferences == null) {
+            return null;
+        }
+        assert zeroCopyReferencesTaken == false : "zero-copy references were already taken";
+        zeroCopyReferencesTaken = true;
+        final List<ReleasableBytesReference> references = zeroCopyReferences;
+        return Releasables.releaseOnce(() -> Releasables.close(references));
+    }
+
+    @Override
+    public void writeZeroCopyBytesReference(@Nullable BytesReference bytes) throws IOException {
+        if (shouldCompress || bytes instanceof ReleasableBytesReference == false || bytes.length() < ZERO_COPY_THRESHOLD) {
+            writeBytesReference(bytes);
+            return;
+        }
+        final ReleasableBytesReference releasable = (ReleasableBytesReference) bytes;
+        if (releasable.tryIncRef() == false) {
+            throw new IllegalStateException("cannot write already released bytes");
+        }
+        boolean success = false;
+        try {
+            writeVInt(bytes.length());
+            if (zeroCopyReferences == null) {
+                zeroCopyPositions = new ArrayList<>();
+                zeroCopyReferences = new ArrayList<>();
+            }
+            zeroCopyPositions.add(bytesStreamOutput.position());
+            zeroCopyReferences.add(releasable);
+            success = true;
+        } finally {
+            if (success == false) {
+                releasable.decRef();
+            }
+        }
     }
 
     @Override
@@ -93,6 +180,10 @@ final class CompressibleBytesOutputStream extends StreamOutput {
 
     @Override
     public void close() throws IOException {
+        if (zeroCopyReferences != null && zeroCopyReferencesTaken == false) {
+            zeroCopyReferencesTaken = true;
+            Releasables.close(zeroCopyReferences);
+        }
         if (stream != bytesStreamOutput) {
             assert shouldCompress : "If the streams are different we should be compressing";
             IOUtils.close(stream);
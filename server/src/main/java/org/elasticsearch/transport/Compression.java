@@ -0,0 +1,175 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.lz4.LZ4;
+import org.elasticsearch.lz4.LZ4BlockOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+public class Compression {
+
+    public enum Scheme {
+        LZ4,
+        DEFLATE;
+
+        // versions before 8.0 can only read DEFLATE compressed messages
+        static final Version LZ4_VERSION = Version.V_8_0_0;
+        static final int HEADER_LENGTH = 4;
+
+        private static final byte[] LZ4_HEADER = LZ4BlockOutputStream.HEADER;
+        // blocks are decompressed into recycled pages so they must not be bigger than a page
+        static final int LZ4_BLOCK_SIZE = PageCacheRecycler.BYTE_PAGE_SIZE;
+
+        private static final ThreadLocal<LZ4Buffers> LZ4_BUFFERS = ThreadLocal.withInitial(LZ4Buffers::new);
+
+        /**
+         * Returns the scheme to use to send a compressed message to a node with the given version.
+         */
+        Scheme forVersion(Version version) {
+            if (this == LZ4 && version.before(LZ4_VERSION)) {
+                return DEFLATE;
+            }
+            return this;
+        }
+
+        /**
+         * Returns a stream that compresses into the given stream with this scheme. The stream reuses buffers of the current thread,
+         * so it must be used and closed by this thread.
+         */
+        OutputStream threadLocalOutputStream(OutputStream out) throws IOException {
+            if (this == LZ4) {
+                final LZ4Buffers buffers = LZ4_BUFFERS.get();
+                if (buffers.inUse) {
+                    // Nested compression streams should not happen but we still handle them safely by using fresh block buffers
+                    return new LZ4BlockOutputStream(out, LZ4_BLOCK_SIZE, buffers.compressor);
+                }
+                buffers.inUse = true;
+                boolean success = false;
+                try {
+                    final OutputStream stream = new ThreadLocalLZ4OutputStream(
+                        new LZ4BlockOutputStream(out, buffers.block, buffers.compressed, buffers.compressor), buffers);
+                    success = true;
+                    return stream;
+                } finally {
+                    if (success == false) {
+                        buffers.inUse = false;
+                    }
+                }
+            } else {
+                return CompressorFactory.COMPRESSOR.threadLocalOutputStream(out);
+            }
+        }
+
+        static Scheme fromString(String value) {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        }
+
+        /**
+         * Returns the scheme that was used to compress the given bytes or {@code null} if the bytes do not start with the header of
+         * a known scheme.
+         */
+        static Scheme fromHeader(BytesReference bytes) {
+            if (bytes.length() < HEADER_LENGTH) {
+                return null;
+            } else if (hasHeader(bytes, LZ4_HEADER)) {
+                return LZ4;
+            } else if (CompressorFactory.COMPRESSOR.isCompressed(bytes)) {
+                return DEFLATE;
+            } else {
+                return null;
+            }
+        }
+
+        private static boolean hasHeader(BytesReference bytes, byte[] header) {
+            for (int i = 0; i < header.length; ++i) {
+                if (bytes.get(i) != header[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The compressor and the block buffers that a thread reuses for the LZ4 streams it opens one after the other.
+     */
+    private static final class LZ4Buffers {
+        final LZ4.Compressor compressor = new LZ4.Compressor();
+        final byte[] block = new byte[Scheme.LZ4_BLOCK_SIZE];
+        final byte[] compressed = new byte[LZ4.maxCompressedLength(Scheme.LZ4_BLOCK_SIZE)];
+        // true while a stream of this thread uses the buffers
+        boolean inUse;
+    }
+
+    /**
+     * An LZ4 stream that hands the buffers of its thread back once it is closed.
+     */
+    private static final class ThreadLocalLZ4OutputStream extends OutputStream {
+
+        private final LZ4BlockOutputStream delegate;
+        private final LZ4Buffers buffers;
+        private boolean released;
+
+        ThreadLocalLZ4OutputStream(LZ4BlockOutputStream delegate, LZ4Buffers buffers) {
+            this.delegate = delegate;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } finally {
+                if (released == false) {
+                    released = true;
+                    assert buffers == Scheme.LZ4_BUFFERS.get() : "stream must be closed by the thread that opened it";
+                    buffers.inUse = false;
+                }
+            }
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 
 /**
  * A connection profile describes how many connection are established to specific node for each of the available request types.
@@ -316,11 +317,34 @@ public final class ConnectionProfile {
          * fashion.
          */
         <T> T getChannel(List<T> channels) {
+            return getChannel(channels, channel -> 0L);
+        }
+
+        /**
+         * Returns the channel configured for this handle that has the least bytes pending to be written to the network, such
+         * that a single large message does not hold up all subsequent messages of the same type. Ties are broken in a
+         * round-robin fashion.
+         */
+        <T> T getChannel(List<T> channels, ToLongFunction<T> pendingBytes) {
             if (length == 0) {
                 throw new IllegalStateException("can't select channel size is 0 for types: " + types);
             }
             assert channels.size() >= offset + length : "illegal size: " + channels.size() + " expected >= " + (offset + length);
-            return channels.get(offset + Math.floorMod(counter.incrementAndGet(), length));
+            final int start = counter.incrementAndGet();
+            T selected = null;
+            long minPendingBytes = Long.MAX_VALUE;
+            for (int i = 0; i < length; i++) {
+                final T channel = channels.get(offset + Math.floorMod(start + i, length));
+                final long channelPendingBytes = pendingBytes.applyAsLong(channel);
+                if (channelPendingBytes < minPendingBytes) {
+                    selected = channel;
+                    minPendingBytes = channelPendingBytes;
+                    if (channelPendingBytes == 0) {
+                        break;
+                    }
+                }
+            }
+            return selected;
         }
 
         /**
@@ -0,0 +1,187 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.lz4.LZ4;
+import org.elasticsearch.lz4.LZ4BlockOutputStream;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Decompresses a stream written by {@link LZ4BlockOutputStream}. Each block is decompressed straight into its own recycled page.
+ * Blocks that are split across network reads are buffered until they are complete, blocks that are fully contained in a single
+ * network buffer are decompressed from it without copying.
+ */
+public class Lz4TransportDecompressor implements TransportDecompressor {
+
+    private static final int MAX_BLOCK_SIZE = PageCacheRecycler.BYTE_PAGE_SIZE;
+    private static final int MAX_COMPRESSED_BLOCK_SIZE = LZ4.maxCompressedLength(MAX_BLOCK_SIZE);
+
+    private final PageCacheRecycler recycler;
+    private final ArrayDeque<ReleasableBytesReference> pages;
+    private final byte[] blockHeader = new byte[LZ4BlockOutputStream.BLOCK_HEADER_LENGTH];
+    private int blockHeaderOffset;
+    private byte[] blockBuffer;
+    private int blockBufferOffset;
+    private byte blockToken;
+    private int blockLength = -1;
+    private int blockDecompressedLength;
+    private boolean hasReadHeader = false;
+    private boolean isEOS = false;
+
+    public Lz4TransportDecompressor(PageCacheRecycler recycler) {
+        this.recycler = recycler;
+        this.pages = new ArrayDeque<>(4);
+    }
+
+    @Override
+    public int decompress(BytesReference bytesReference) throws IOException {
+        int bytesConsumed = 0;
+        if (hasReadHeader == false) {
+            if (Compression.Scheme.fromHeader(bytesReference) != Compression.Scheme.LZ4) {
+                throw new IllegalStateException("stream marked as compressed, but does not start with the LZ4 header");
+            }
+            hasReadHeader = true;
+            int headerLength = Compression.Scheme.HEADER_LENGTH;
+            bytesReference = bytesReference.slice(headerLength, bytesReference.length() - headerLength);
+            bytesConsumed += headerLength;
+        }
+
+        BytesRefIterator refIterator = bytesReference.iterator();
+        BytesRef ref;
+        while (isEOS == false && (ref = refIterator.next()) != null) {
+            bytesConsumed += decompress(ref.bytes, ref.offset, ref.length);
+        }
+        return bytesConsumed;
+    }
+
+    private int decompress(byte[] bytes, int offset, int length) throws IOException {
+        int position = offset;
+        final int end = offset + length;
+        while (isEOS == false && position < end) {
+            if (blockLength == -1) {
+                if (blockHeaderOffset == 0 && bytes[position] == LZ4BlockOutputStream.END_OF_STREAM) {
+                    ++position;
+                    isEOS = true;
+                    break;
+                }
+                final int toCopy = Math.min(end - position, blockHeader.length - blockHeaderOffset);
+                System.arraycopy(bytes, position, blockHeader, blockHeaderOffset, toCopy);
+                blockHeaderOffset += toCopy;
+                position += toCopy;
+                if (blockHeaderOffset == blockHeader.length) {
+                    readBlockHeader();
+                }
+            } else if (blockBufferOffset == 0 && end - position >= blockLength) {
+                // the whole block is available, no need to buffer it
+                decompressBlock(bytes, position);
+                position += blockLength;
+            } else {
+                if (blockBuffer == null) {
+                    blockBuffer = new byte[MAX_COMPRESSED_BLOCK_SIZE];
+                }
+                final int toCopy = Math.min(end - position, blockLength - blockBufferOffset);
+                System.arraycopy(bytes, position, blockBuffer, blockBufferOffset, toCopy);
+                blockBufferOffset += toCopy;
+                position += toCopy;
+                if (blockBufferOffset == blockLength) {
+                    decompressBlock(blockBuffer, 0);
+                }
+            }
+        }
+        return position - offset;
+    }
+
+    private void readBlockHeader() throws IOException {
+        blockToken = blockHeader[0];
+        blockLength = readInt(blockHeader, 1);
+        blockDecompressedLength = readInt(blockHeader, 1 + Integer.BYTES);
+        blockHeaderOffset = 0;
+        if (blockToken != LZ4BlockOutputStream.COMPRESSED_BLOCK && blockToken != LZ4BlockOutputStream.RAW_BLOCK) {
+            throw new IOException("unknown LZ4 block token [" + blockToken + "]");
+        }
+        if (blockDecompressedLength <= 0 || blockDecompressedLength > MAX_BLOCK_SIZE || blockLength <= 0
+            || blockLength > MAX_COMPRESSED_BLOCK_SIZE
+            || (blockToken == LZ4BlockOutputStream.RAW_BLOCK && blockLength != blockDecompressedLength)) {
+            throw new IOException("invalid LZ4 block of length [" + blockLength + "] and decompressed length ["
+                + blockDecompressedLength + "]");
+        }
+    }
+
+    private void decompressBlock(byte[] bytes, int offset) throws IOException {
+        final Recycler.V<byte[]> page = recycler.bytePage(false);
+        boolean success = false;
+        try {
+            if (blockToken == LZ4BlockOutputStream.RAW_BLOCK) {
+                System.arraycopy(bytes, offset, page.v(), 0, blockLength);
+            } else {
+                final int decompressed;
+                try {
+                    decompressed = LZ4.decompress(bytes, offset, blockLength, page.v(), 0, blockDecompressedLength);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Exception while decompressing LZ4 block", e);
+                }
+                if (decompressed != blockDecompressedLength) {
+                    throw new IOException("LZ4 block decompressed to [" + decompressed + "] bytes but expected ["
+                        + blockDecompressedLength + "]");
+                }
+            }
+            pages.add(new ReleasableBytesReference(new BytesArray(page.v(), 0, blockDecompressedLength), page));
+            success = true;
+        } finally {
+            if (success == false) {
+                page.close();
+            }
+        }
+        blockLength = -1;
+        blockBufferOffset = 0;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8)
+            | (bytes[offset + 3] & 0xFF);
+    }
+
+    @Override
+    public boolean isEOS() {
+        return isEOS;
+    }
+
+    @Override
+    public ReleasableBytesReference pollDecompressedPage() {
+        return pages.pollFirst();
+    }
+
+    @Override
+    public void close() {
+        for (ReleasableBytesReference page : pages) {
+            page.close();
+        }
+        pages.clear();
+    }
+}
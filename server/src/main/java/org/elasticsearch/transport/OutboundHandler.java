@@ -28,6 +28,7 @@ import org.elasticsearch.action.NotifyOnceListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
@@ -50,14 +51,17 @@ final class OutboundHandler {
     private final StatsTracker statsTracker;
     private final ThreadPool threadPool;
     private final BigArrays bigArrays;
+    private final Compression.Scheme compressionScheme;
     private volatile TransportMessageListener messageListener = TransportMessageListener.NOOP_LISTENER;
 
-    OutboundHandler(String nodeName, Version version, StatsTracker statsTracker, ThreadPool threadPool, BigArrays bigArrays) {
+    OutboundHandler(String nodeName, Version version, StatsTracker statsTracker, ThreadPool threadPool, BigArrays bigArrays,
+                    Compression.Scheme compressionScheme) {
         this.nodeName = nodeName;
         this.version = version;
         this.statsTracker = statsTracker;
         this.threadPool = threadPool;
         this.bigArrays = bigArrays;
+        this.compressionScheme = compressionScheme;
     }
 
     void sendBytes(TcpChannel channel, BytesReference bytes, ActionListener<Void> listener) {
@@ -78,8 +82,8 @@ final class OutboundHandler {
                      final TransportRequest request, final TransportRequestOptions options, final Version channelVersion,
                      final boolean compressRequest, final boolean isHandshake) throws IOException, TransportException {
         Version version = Version.min(this.version, channelVersion);
-        OutboundMessage.Request message =
-            new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action, requestId, isHandshake, compressRequest);
+        OutboundMessage.Request message = new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action, requestId,
+            isHandshake, compressionScheme(compressRequest, version));
         ActionListener<Void> listener = ActionListener.wrap(() ->
             messageListener.onRequestSent(node, requestId, action, request, options));
         sendMessage(channel, message, listener);
@@ -95,11 +99,19 @@ final class OutboundHandler {
                       final TransportResponse response, final boolean compress, final boolean isHandshake) throws IOException {
         Version version = Version.min(this.version, nodeVersion);
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), response, version,
-            requestId, isHandshake, compress);
+            requestId, isHandshake, compressionScheme(compress, version));
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, response));
         sendMessage(channel, message, listener);
     }
 
+    /**
+     * Returns the scheme to compress a message sent with the given version with, or {@code null} if it should not be compressed.
+     * The version is the one that was negotiated during the handshake, so nodes that cannot read LZ4 are sent DEFLATE instead.
+     */
+    private Compression.Scheme compressionScheme(boolean compress, Version version) {
+        return compress ? compressionScheme.forVersion(version) : null;
+    }
+
     /**
      * Sends back an error response to the caller via the given channel
      */
@@ -146,6 +158,8 @@ final class OutboundHandler {
         private final OutboundMessage message;
         private final BigArrays bigArrays;
         private volatile ReleasableBytesStreamOutput bytesStreamOutput;
+        // retains the bytes that were spliced into the serialized message without copying them until the message was sent
+        private volatile ReleasableBytesReference serializedMessage;
 
         private MessageSerializer(OutboundMessage message, BigArrays bigArrays) {
             this.message = message;
@@ -155,12 +169,16 @@ final class OutboundHandler {
         @Override
         public BytesReference get() throws IOException {
             bytesStreamOutput = new ReleasableBytesStreamOutput(bigArrays);
-            return message.serialize(bytesStreamOutput);
+            final BytesReference serialized = message.serialize(bytesStreamOutput);
+            if (serialized instanceof ReleasableBytesReference) {
+                serializedMessage = (ReleasableBytesReference) serialized;
+            }
+            return serialized;
         }
 
         @Override
         public void close() {
-            IOUtils.closeWhileHandlingException(bytesStreamOutput);
+            IOUtils.closeWhileHandlingException(bytesStreamOutput, serializedMessage);
         }
     }
 
@@ -190,6 +208,7 @@ final class OutboundHandler {
             try {
                 message = messageSupplier.get();
                 messageSize = message.length();
+                markPendingBytes(messageSize);
                 TransportLogger.logOutboundMessage(channel, message);
                 return message;
             } catch (Exception e) {
@@ -201,6 +220,7 @@ final class OutboundHandler {
         @Override
         protected void innerOnResponse(Void v) {
             assert messageSize != -1 : "If onResponse is being called, the message should have been serialized";
+            markPendingBytes(-messageSize);
             statsTracker.markBytesWritten(messageSize);
             closeAndCallback(() -> listener.onResponse(v));
         }
@@ -212,9 +232,17 @@ final class OutboundHandler {
             } else {
                 logger.warn(() -> new ParameterizedMessage("send message failed [channel: {}]", channel), e);
             }
+            if (messageSize != -1) {
+                markPendingBytes(-messageSize);
+            }
             closeAndCallback(() -> listener.onFailure(e));
         }
 
+        private void markPendingBytes(long bytes) {
+            channel.getChannelStats().markPendingBytes(bytes);
+            statsTracker.markPendingBytes(bytes);
+        }
+
         private void closeAndCallback(Runnable runnable) {
             Releasables.close(optionalReleasable, runnable::run);
         }
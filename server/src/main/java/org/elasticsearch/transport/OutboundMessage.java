@@ -19,13 +19,16 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 
 import java.io.IOException;
@@ -33,18 +36,26 @@ import java.io.IOException;
 abstract class OutboundMessage extends NetworkMessage {
 
     private final Writeable message;
+    private final Compression.Scheme compressionScheme;
 
-    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message) {
+    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId,
+                    @Nullable Compression.Scheme compressionScheme, Writeable message) {
         super(threadContext, version, status, requestId);
+        this.compressionScheme = TransportStatus.isCompress(status) ? compressionScheme : null;
         this.message = message;
     }
 
+    /**
+     * Serializes the message into the given stream. If the serialized message references bytes that were written without
+     * copying them, a {@link ReleasableBytesReference} is returned that must be released once the message was sent.
+     */
     BytesReference serialize(BytesStreamOutput bytesStream) throws IOException {
         bytesStream.setVersion(version);
         bytesStream.skip(TcpHeader.headerSize(version));
 
         // The compressible bytes stream will not close the underlying bytes stream
         BytesReference reference;
+        Releasable zeroCopyReferences;
         int variableHeaderLength = -1;
         final long preHeaderPosition = bytesStream.position();
 
@@ -54,18 +65,22 @@ abstract class OutboundMessage extends NetworkMessage {
         }
 
         try (CompressibleBytesOutputStream stream =
-                 new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status))) {
+                 new CompressibleBytesOutputStream(bytesStream, compressionScheme)) {
             stream.setVersion(version);
             if (variableHeaderLength == -1) {
                 writeVariableHeader(stream);
             }
             reference = writeMessage(stream);
+            zeroCopyReferences = stream.takeZeroCopyReferences();
         }
 
         bytesStream.seek(0);
         final int contentSize = reference.length() - TcpHeader.headerSize(version);
         TcpHeader.writeHeader(bytesStream, requestId, status, version, contentSize, variableHeaderLength);
-        return reference;
+        if (zeroCopyReferences == null) {
+            return reference;
+        }
+        return new ReleasableBytesReference(reference, zeroCopyReferences);
     }
 
     protected void writeVariableHeader(StreamOutput stream) throws IOException {
@@ -104,7 +119,13 @@ abstract class OutboundMessage extends NetworkMessage {
 
         Request(ThreadContext threadContext, Writeable message, Version version, String action, long requestId,
                 boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, message, version, action, requestId, isHandshake, compress ? Compression.Scheme.DEFLATE : null);
+        }
+
+        Request(ThreadContext threadContext, Writeable message, Version version, String action, long requestId,
+                boolean isHandshake, @Nullable Compression.Scheme compressionScheme) {
+            super(threadContext, version, setStatus(compressionScheme != null, isHandshake, message), requestId,
+                compressionScheme, message);
             this.action = action;
         }
 
@@ -135,7 +156,13 @@ abstract class OutboundMessage extends NetworkMessage {
     static class Response extends OutboundMessage {
 
         Response(ThreadContext threadContext, Writeable message, Version version, long requestId, boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, message, version, requestId, isHandshake, compress ? Compression.Scheme.DEFLATE : null);
+        }
+
+        Response(ThreadContext threadContext, Writeable message, Version version, long requestId, boolean isHandshake,
+                 @Nullable Compression.Scheme compressionScheme) {
+            super(threadContext, version, setStatus(compressionScheme != null, isHandshake, message), requestId,
+                compressionScheme, message);
         }
 
         private static byte setStatus(boolean compress, boolean isHandshake, Writeable message) {
@@ -28,6 +28,7 @@ public class StatsTracker {
     private final LongAdder bytesRead = new LongAdder();
     private final LongAdder messagesReceived = new LongAdder();
     private final MeanMetric writeBytesMetric = new MeanMetric();
+    private final LongAdder pendingBytes = new LongAdder();
 
     public void markBytesRead(long bytesReceived) {
         bytesRead.add(bytesReceived);
@@ -41,6 +42,10 @@ public class StatsTracker {
         writeBytesMetric.inc(bytesWritten);
     }
 
+    public void markPendingBytes(long bytes) {
+        pendingBytes.add(bytes);
+    }
+
     public long getBytesRead() {
         return bytesRead.sum();
     }
@@ -61,4 +66,8 @@ public class StatsTracker {
     public long getMessagesSent() {
         return writeBytesMetric.count();
     }
+
+    public long getPendingBytes() {
+        return pendingBytes.sum();
+    }
 }
@@ -119,6 +119,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
     private final ConcurrentMap<String, BoundTransportAddress> profileBoundAddresses = newConcurrentMap();
     private final Map<String, List<TcpServerChannel>> serverChannels = newConcurrentMap();
     private final Set<TcpChannel> acceptedChannels = ConcurrentCollections.newConcurrentSet();
+    private final Set<NodeChannels> outboundConnections = ConcurrentCollections.newConcurrentSet();
 
     // this lock is here to make sure we close this transport and disconnect all the client nodes
     // connections while no connect operations is going on
@@ -133,6 +134,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
     private final RequestHandlers requestHandlers = new RequestHandlers();
 
     private final AtomicLong outboundConnectionCount = new AtomicLong(); // also used as a correlation ID for open/close logs
+    private final boolean compressIndexingData;
 
     public TcpTransport(Settings settings, Version version, ThreadPool threadPool, PageCacheRecycler pageCacheRecycler,
                         CircuitBreakerService circuitBreakerService, NamedWriteableRegistry namedWriteableRegistry,
@@ -147,7 +149,9 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
         String nodeName = Node.NODE_NAME_SETTING.get(settings);
         BigArrays bigArrays = new BigArrays(pageCacheRecycler, circuitBreakerService, CircuitBreaker.IN_FLIGHT_REQUESTS);
 
-        this.outboundHandler = new OutboundHandler(nodeName, version, statsTracker, threadPool, bigArrays);
+        this.compressIndexingData = TransportSettings.TRANSPORT_COMPRESS_INDEXING_DATA.get(settings);
+        this.outboundHandler = new OutboundHandler(nodeName, version, statsTracker, threadPool, bigArrays,
+            TransportSettings.TRANSPORT_COMPRESSION_SCHEME.get(settings));
         this.handshaker = new TransportHandshaker(version, threadPool,
             (node, channel, requestId, v) -> outboundHandler.sendRequest(node, channel, requestId,
                 TransportHandshaker.HANDSHAKE_ACTION_NAME, new TransportHandshaker.HandshakeRequest(version),
@@ -219,12 +223,27 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
             return channels;
         }
 
+        /**
+         * Adds the pending bytes of the channels of this connection to the given stats, per type of request that the channels carry.
+         * Channels that are shared by several types count towards each of them.
+         */
+        void collectPendingBytes(Map<TransportRequestOptions.Type, TransportStats.ConnectionTypeStats> stats) {
+            for (Map.Entry<TransportRequestOptions.Type, ConnectionProfile.ConnectionTypeHandle> entry : typeMapping.entrySet()) {
+                final ConnectionProfile.ConnectionTypeHandle handle = entry.getValue();
+                for (int i = handle.offset; i < handle.offset + handle.length; i++) {
+                    final long pendingBytes = channels.get(i).getChannelStats().pendingBytes();
+                    stats.merge(entry.getKey(), new TransportStats.ConnectionTypeStats(1, pendingBytes, pendingBytes),
+                        TransportStats.ConnectionTypeStats::merge);
+                }
+            }
+        }
+
         public TcpChannel channel(TransportRequestOptions.Type type) {
             ConnectionProfile.ConnectionTypeHandle connectionTypeHandle = typeMapping.get(type);
             if (connectionTypeHandle == null) {
                 throw new IllegalArgumentException("no type channel for [" + type + "]");
             }
-            return connectionTypeHandle.getChannel(channels);
+            return connectionTypeHandle.getChannel(channels, channel -> channel.getChannelStats().pendingBytes());
         }
 
         @Override
@@ -252,10 +271,15 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
                 throw new NodeNotConnectedException(node, "connection already closed");
             }
             TcpChannel channel = channel(options.type());
-            outboundHandler.sendRequest(node, channel, requestId, action, request, options, getVersion(), compress, false);
+            final boolean compressRequest = compress || (compressIndexingData && isRawIndexingData(request));
+            outboundHandler.sendRequest(node, channel, requestId, action, request, options, getVersion(), compressRequest, false);
         }
     }
 
+    private static boolean isRawIndexingData(TransportRequest request) {
+        return request instanceof RawIndexingDataTransportRequest && ((RawIndexingDataTransportRequest) request).isRawIndexingData();
+    }
+
     // This allows transport implementations to potentially override specific connection profiles. This
     // primarily exists for the test implementations.
     protected ConnectionProfile maybeOverrideConnectionProfile(ConnectionProfile connectionProfile) {
@@ -838,8 +862,13 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
         final long messagesSent = statsTracker.getMessagesSent();
         final long messagesReceived = statsTracker.getMessagesReceived();
         final long bytesRead = statsTracker.getBytesRead();
+        final Map<TransportRequestOptions.Type, TransportStats.ConnectionTypeStats> pendingByType =
+            new EnumMap<>(TransportRequestOptions.Type.class);
+        for (NodeChannels connection : outboundConnections) {
+            connection.collectPendingBytes(pendingByType);
+        }
         return new TransportStats(acceptedChannels.size(), outboundConnectionCount.get(),
-                messagesReceived, bytesRead, messagesSent, bytesWritten);
+                messagesReceived, bytesRead, messagesSent, bytesWritten, statsTracker.getPendingBytes(), pendingByType);
     }
 
     /**
@@ -947,6 +976,8 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
                             ch.addCloseListener(ActionListener.wrap(nodeChannels::close));
                         });
                         keepAlive.registerNodeConnection(nodeChannels.channels, connectionProfile);
+                        outboundConnections.add(nodeChannels);
+                        nodeChannels.addCloseListener(ActionListener.wrap(() -> outboundConnections.remove(nodeChannels)));
                         nodeChannels.addCloseListener(new ChannelCloseLogger(node, connectionId, relativeMillisTime));
                         listener.onResponse(nodeChannels);
                     }, e -> closeAndFail(e instanceof ConnectTransportException ?
@@ -22,8 +22,9 @@ package org.elasticsearch.transport;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.util.concurrent.RefCounted;
 
-public abstract class TransportMessage implements Writeable {
+public abstract class TransportMessage implements Writeable, RefCounted {
 
     private TransportAddress remoteAddress;
 
@@ -45,4 +46,25 @@ public abstract class TransportMessage implements Writeable {
      * currently a no-op
      */
     public TransportMessage(StreamInput in) {}
+
+    /**
+     * Messages that hold on to network buffers, for instance through {@link StreamInput#readReleasableBytesReference()}, override
+     * the ref-counting methods to release them. The transport layer releases the reference it holds on a received request once the
+     * request handler returns, handlers that use the buffers asynchronously must acquire their own reference.
+     */
+    @Override
+    public void incRef() {
+        // noop
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return true;
+    }
+
+    @Override
+    public boolean decRef() {
+        // noop
+        return false;
+    }
 }
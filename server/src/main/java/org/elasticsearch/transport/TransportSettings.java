@@ -62,6 +62,12 @@ public final class TransportSettings {
         key -> intSetting(key, -1, -1, Setting.Property.NodeScope));
     public static final Setting<Boolean> TRANSPORT_COMPRESS =
         boolSetting("transport.compress", false, Setting.Property.NodeScope);
+    public static final Setting<Compression.Scheme> TRANSPORT_COMPRESSION_SCHEME =
+        new Setting<>("transport.compression_scheme", Compression.Scheme.DEFLATE.toString(), Compression.Scheme::fromString,
+            Setting.Property.NodeScope);
+    // compress requests carrying documents or segment files even if transport.compress is disabled
+    public static final Setting<Boolean> TRANSPORT_COMPRESS_INDEXING_DATA =
+        boolSetting("transport.compress_indexing_data", false, Setting.Property.NodeScope);
     // the scheduled internal ping interval setting, defaults to disabled (-1)
     public static final Setting<TimeValue> PING_SCHEDULE =
         timeSetting("transport.ping_schedule", TimeValue.timeValueSeconds(-1), Setting.Property.NodeScope);
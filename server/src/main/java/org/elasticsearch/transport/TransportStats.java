@@ -19,6 +19,7 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -27,6 +28,10 @@ import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class TransportStats implements Writeable, ToXContentFragment {
 
@@ -36,14 +41,28 @@ public class TransportStats implements Writeable, ToXContentFragment {
     private final long rxSize;
     private final long txCount;
     private final long txSize;
+    private final long txPendingSize;
+    private final Map<TransportRequestOptions.Type, ConnectionTypeStats> txPendingByType;
 
     public TransportStats(long serverOpen, long totalOutboundConnections, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, totalOutboundConnections, rxCount, rxSize, txCount, txSize, 0L);
+    }
+
+    public TransportStats(long serverOpen, long totalOutboundConnections, long rxCount, long rxSize, long txCount, long txSize,
+                          long txPendingSize) {
+        this(serverOpen, totalOutboundConnections, rxCount, rxSize, txCount, txSize, txPendingSize, Collections.emptyMap());
+    }
+
+    public TransportStats(long serverOpen, long totalOutboundConnections, long rxCount, long rxSize, long txCount, long txSize,
+                          long txPendingSize, Map<TransportRequestOptions.Type, ConnectionTypeStats> txPendingByType) {
         this.serverOpen = serverOpen;
         this.totalOutboundConnections = totalOutboundConnections;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.txPendingSize = txPendingSize;
+        this.txPendingByType = sortedByType(txPendingByType);
     }
 
     public TransportStats(StreamInput in) throws IOException {
@@ -53,6 +72,21 @@ public class TransportStats implements Writeable, ToXContentFragment {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            txPendingSize = in.readVLong();
+            txPendingByType = sortedByType(in.readMap(i -> i.readEnum(TransportRequestOptions.Type.class), ConnectionTypeStats::new));
+        } else {
+            txPendingSize = 0L;
+            txPendingByType = Collections.emptyMap();
+        }
+    }
+
+    private static Map<TransportRequestOptions.Type, ConnectionTypeStats> sortedByType(
+        Map<TransportRequestOptions.Type, ConnectionTypeStats> stats) {
+        if (stats.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new EnumMap<>(stats));
     }
 
     @Override
@@ -63,6 +97,10 @@ public class TransportStats implements Writeable, ToXContentFragment {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(txPendingSize);
+            out.writeMap(txPendingByType, StreamOutput::writeEnum, (o, stats) -> stats.writeTo(o));
+        }
     }
 
     public long serverOpen() {
@@ -105,6 +143,24 @@ public class TransportStats implements Writeable, ToXContentFragment {
         return txSize();
     }
 
+    /**
+     * Returns the number of bytes that were serialized for sending but not yet written to the network
+     */
+    public ByteSizeValue txPendingSize() {
+        return new ByteSizeValue(txPendingSize);
+    }
+
+    public ByteSizeValue getTxPendingSize() {
+        return txPendingSize();
+    }
+
+    /**
+     * Returns the pending bytes of the outbound connections of this node, broken down by the type of request their channels carry
+     */
+    public Map<TransportRequestOptions.Type, ConnectionTypeStats> getTxPendingByType() {
+        return txPendingByType;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSPORT);
@@ -114,10 +170,83 @@ public class TransportStats implements Writeable, ToXContentFragment {
         builder.humanReadableField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, new ByteSizeValue(rxSize));
         builder.field(Fields.TX_COUNT, txCount);
         builder.humanReadableField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, new ByteSizeValue(txSize));
+        builder.humanReadableField(Fields.TX_PENDING_SIZE_IN_BYTES, Fields.TX_PENDING_SIZE, new ByteSizeValue(txPendingSize));
+        if (txPendingByType.isEmpty() == false) {
+            builder.startObject(Fields.TX_PENDING_BY_TYPE);
+            for (Map.Entry<TransportRequestOptions.Type, ConnectionTypeStats> entry : txPendingByType.entrySet()) {
+                builder.startObject(entry.getKey().name().toLowerCase(Locale.ROOT));
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
 
+    /**
+     * The bytes that were handed to the channels that carry one type of request but that were not yet written to the network.
+     * Both the total over all channels and the largest backlog of a single channel are tracked, the latter shows whether
+     * messages of this type are held up behind a large message on the same channel.
+     */
+    public static class ConnectionTypeStats implements Writeable, ToXContentFragment {
+
+        private final long channels;
+        private final long pendingSize;
+        private final long maxChannelPendingSize;
+
+        public ConnectionTypeStats(long channels, long pendingSize, long maxChannelPendingSize) {
+            this.channels = channels;
+            this.pendingSize = pendingSize;
+            this.maxChannelPendingSize = maxChannelPendingSize;
+        }
+
+        public ConnectionTypeStats(StreamInput in) throws IOException {
+            channels = in.readVLong();
+            pendingSize = in.readVLong();
+            maxChannelPendingSize = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(channels);
+            out.writeVLong(pendingSize);
+            out.writeVLong(maxChannelPendingSize);
+        }
+
+        /**
+         * Returns the stats of the channels of both the given stats
+         */
+        static ConnectionTypeStats merge(ConnectionTypeStats first, ConnectionTypeStats second) {
+            return new ConnectionTypeStats(first.channels + second.channels, first.pendingSize + second.pendingSize,
+                Math.max(first.maxChannelPendingSize, second.maxChannelPendingSize));
+        }
+
+        /**
+         * Returns the number of open outbound channels that carry this type of request
+         */
+        public long getChannels() {
+            return channels;
+        }
+
+        public ByteSizeValue getPendingSize() {
+            return new ByteSizeValue(pendingSize);
+        }
+
+        public ByteSizeValue getMaxChannelPendingSize() {
+            return new ByteSizeValue(maxChannelPendingSize);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.CHANNELS, channels);
+            builder.humanReadableField(Fields.PENDING_SIZE_IN_BYTES, Fields.PENDING_SIZE, new ByteSizeValue(pendingSize));
+            builder.humanReadableField(Fields.MAX_CHANNEL_PENDING_SIZE_IN_BYTES, Fields.MAX_CHANNEL_PENDING_SIZE,
+                new ByteSizeValue(maxChannelPendingSize));
+            return builder;
+        }
+    }
+
     static final class Fields {
         static final String TRANSPORT = "transport";
         static final String SERVER_OPEN = "server_open";
@@ -128,5 +257,13 @@ public class TransportStats implements Writeable, ToXContentFragment {
         static final String TX_COUNT = "tx_count";
         static final String TX_SIZE = "tx_size";
         static final String TX_SIZE_IN_BYTES = "tx_size_in_bytes";
+        static final String TX_PENDING_SIZE = "tx_pending_size";
+        static final String TX_PENDING_SIZE_IN_BYTES = "tx_pending_size_in_bytes";
+        static final String TX_PENDING_BY_TYPE = "tx_pending_by_type";
+        static final String CHANNELS = "channels";
+        static final String PENDING_SIZE = "pending_size";
+        static final String PENDING_SIZE_IN_BYTES = "pending_size_in_bytes";
+        static final String MAX_CHANNEL_PENDING_SIZE = "max_channel_pending_size";
+        static final String MAX_CHANNEL_PENDING_SIZE_IN_BYTES = "max_channel_pending_size_in_bytes";
     }
 }
@@ -28,6 +28,7 @@ import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
 import org.elasticsearch.indices.breaker.CircuitBreakerStats;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.ingest.IngestStats;
 import org.elasticsearch.monitor.fs.FsInfo;
 import org.elasticsearch.monitor.jvm.JvmStats;
@@ -40,10 +41,12 @@ import org.elasticsearch.script.ScriptStats;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.VersionUtils;
 import org.elasticsearch.threadpool.ThreadPoolStats;
+import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportStats;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -221,6 +224,17 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(nodeStats.getTransport().getServerOpen(), deserializedNodeStats.getTransport().getServerOpen());
                     assertEquals(nodeStats.getTransport().getTxCount(), deserializedNodeStats.getTransport().getTxCount());
                     assertEquals(nodeStats.getTransport().getTxSize(), deserializedNodeStats.getTransport().getTxSize());
+                    assertEquals(nodeStats.getTransport().getTxPendingSize(), deserializedNodeStats.getTransport().getTxPendingSize());
+                    assertEquals(nodeStats.getTransport().getTxPendingByType().keySet(),
+                        deserializedNodeStats.getTransport().getTxPendingByType().keySet());
+                    for (Map.Entry<TransportRequestOptions.Type, TransportStats.ConnectionTypeStats> entry
+                        : nodeStats.getTransport().getTxPendingByType().entrySet()) {
+                        TransportStats.ConnectionTypeStats deserialized =
+                            deserializedNodeStats.getTransport().getTxPendingByType().get(entry.getKey());
+                        assertEquals(entry.getValue().getChannels(), deserialized.getChannels());
+                        assertEquals(entry.getValue().getPendingSize(), deserialized.getPendingSize());
+                        assertEquals(entry.getValue().getMaxChannelPendingSize(), deserialized.getMaxChannelPendingSize());
+                    }
                 }
                 if (nodeStats.getHttp() == null) {
                     assertNull(deserializedNodeStats.getHttp());
@@ -329,6 +343,13 @@ public class NodeStatsTests extends ESTestCase {
                 } else {
                     assertEquals(adaptiveStats.getOutgoingConnections(), deserializedAdaptiveStats.getOutgoingConnections());
                     assertEquals(adaptiveStats.getRanks(), deserializedAdaptiveStats.getRanks());
+                    assertEquals(adaptiveStats.getShardCopyRanks(), deserializedAdaptiveStats.getShardCopyRanks());
+                    adaptiveStats.getShardCopyComputedStats().forEach((shardId, copies) -> copies.forEach((nodeId, aStats) -> {
+                        ResponseCollectorService.ComputedShardCopyStats bStats =
+                            deserializedAdaptiveStats.getShardCopyComputedStats().get(shardId).get(nodeId);
+                        assertEquals(aStats.queryTook, bStats.queryTook, 0.01);
+                        assertEquals(aStats.inFlightRequests, bStats.inFlightRequests);
+                    }));
                     adaptiveStats.getComputedStats().forEach((k, v) -> {
                         ResponseCollectorService.ComputedNodeStats aStats = adaptiveStats.getComputedStats().get(k);
                         ResponseCollectorService.ComputedNodeStats bStats = deserializedAdaptiveStats.getComputedStats().get(k);
@@ -439,8 +460,14 @@ public class NodeStatsTests extends ESTestCase {
             }
             fsInfo = new FsInfo(randomNonNegativeLong(), ioStats, paths);
         }
+        Map<TransportRequestOptions.Type, TransportStats.ConnectionTypeStats> txPendingByType = new HashMap<>();
+        for (TransportRequestOptions.Type type : randomSubsetOf(Arrays.asList(TransportRequestOptions.Type.values()))) {
+            txPendingByType.put(type, new TransportStats.ConnectionTypeStats(randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong()));
+        }
         TransportStats transportStats = frequently() ? new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
-                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), txPendingByType) : null;
         HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
         AllCircuitBreakerStats allCircuitBreakerStats = null;
         if (frequently()) {
@@ -508,6 +535,7 @@ public class NodeStatsTests extends ESTestCase {
             int numNodes = randomIntBetween(0,10);
             Map<String, Long> nodeConnections = new HashMap<>();
             Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = new HashMap<>();
+            Map<ShardId, Map<String, ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats = new HashMap<>();
             for (int i = 0; i < numNodes; i++) {
                 String nodeId = randomAlphaOfLengthBetween(3, 10);
                 // add outgoing connection info
@@ -522,8 +550,16 @@ public class NodeStatsTests extends ESTestCase {
                             randomDoubleBetween(1.0, 10000000.0, true));
                     nodeStats.put(nodeId, stats);
                 }
+                // add shard copy calculations
+                int numShards = randomIntBetween(0, 3);
+                for (int shard = 0; shard < numShards; shard++) {
+                    ShardId shardId = new ShardId("index", "_na_", shard);
+                    shardCopyStats.computeIfAbsent(shardId, k -> new HashMap<>()).put(nodeId,
+                        new ResponseCollectorService.ComputedShardCopyStats(
+                            randomBoolean() ? -1 : randomDoubleBetween(1.0, 10000000.0, true), randomLongBetween(0, 100)));
+                }
             }
-            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats);
+            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats, shardCopyStats);
         }
         //TODO NodeIndicesStats are not tested here, way too complicated to create, also they need to be migrated to Writeable yet
         return new NodeStats(node, randomNonNegativeLong(), null, osStats, processStats, jvmStats, threadPoolStats,
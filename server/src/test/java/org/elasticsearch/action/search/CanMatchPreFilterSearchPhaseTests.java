@@ -43,6 +43,7 @@ import org.elasticsearch.index.query.CoordinatorRewriteContextProvider;
 import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.index.query.TermQueryBuilder;
 import org.elasticsearch.index.shard.IndexLongFieldRange;
+import org.elasticsearch.index.shard.ShardFieldRangeSummary;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardLongFieldRange;
 import org.elasticsearch.search.SearchPhaseResult;
@@ -64,6 +65,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -631,6 +633,119 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
         assertThat(requests.size(), equalTo(shardsWithPrimariesAssigned));
     }
 
+    public void testCanMatchFilteringOnCoordinatorWithCachedFieldRanges() throws Exception {
+        Index index = new Index(randomAlphaOfLength(10).toLowerCase(Locale.ROOT), UUIDs.base64UUID());
+        StaticCoordinatorRewriteContextProviderBuilder contextProviderBuilder = new StaticCoordinatorRewriteContextProviderBuilder();
+        IndexMetadata indexMetadata = contextProviderBuilder.addWriteBlockedIndex(index);
+        CoordinatorRewriteContextProvider contextProvider = contextProviderBuilder.build();
+
+        long minTimestamp = randomLongBetween(0, 5000);
+        long maxTimestamp = randomLongBetween(minTimestamp, 5000 * 2);
+        ShardFieldRangeSummary summary = new ShardFieldRangeSummary(indexMetadata.getSettingsVersion(), indexMetadata.getMappingVersion(),
+            Map.of("event_time", new ShardFieldRangeSummary.FieldRange(new DateFieldMapper.DateFieldType("event_time"),
+                ShardLongFieldRange.of(minTimestamp, maxTimestamp))));
+
+        final List<ShardSearchRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+            @Override
+            public void sendCanMatch(Transport.Connection connection, ShardSearchRequest request, SearchTask task,
+                                     ActionListener<SearchService.CanMatchResponse> listener) {
+                requests.add(request);
+                listener.onResponse(new SearchService.CanMatchResponse(true, null, summary));
+            }
+        };
+
+        int numShards = randomIntBetween(2, 6);
+        RangeQueryBuilder outOfRangeQuery = new RangeQueryBuilder("event_time").from(maxTimestamp + 1).to(maxTimestamp + 2);
+
+        // nothing is cached yet so all shards are asked
+        GroupShardsIterator<SearchShardIterator> result =
+            executeCanMatchPhase(searchTransportService, contextProvider, index, numShards, outOfRangeQuery);
+        assertThat(requests.size(), equalTo(numShards));
+        for (SearchShardIterator shardIterator : result) {
+            assertFalse(shardIterator.skip());
+        }
+        assertThat(searchTransportService.getFieldRangeSummaryCache().count(), equalTo(numShards));
+
+        // the cached summaries allow skipping all shards without a round-trip, except for the one that is always queried
+        requests.clear();
+        result = executeCanMatchPhase(searchTransportService, contextProvider, index, numShards, outOfRangeQuery);
+        assertThat(requests.size(), equalTo(0));
+        int skipped = 0;
+        for (SearchShardIterator shardIterator : result) {
+            if (shardIterator.skip()) {
+                skipped++;
+            }
+        }
+        assertThat(skipped, equalTo(numShards - 1));
+
+        // queries that may match still go to the shards
+        requests.clear();
+        RangeQueryBuilder inRangeQuery = new RangeQueryBuilder("event_time").from(minTimestamp).to(maxTimestamp);
+        executeCanMatchPhase(searchTransportService, contextProvider, index, numShards, inRangeQuery);
+        assertThat(requests.size(), equalTo(numShards));
+
+        // summaries are ignored once the mapping changes, for instance when a runtime field shadows the summarized field
+        requests.clear();
+        contextProviderBuilder.putMapping(index, "{\"runtime\":{\"event_time\":{\"type\":\"date\"}}}");
+        executeCanMatchPhase(searchTransportService, contextProviderBuilder.build(), index, numShards, outOfRangeQuery);
+        assertThat(requests.size(), equalTo(numShards));
+
+        // summaries are ignored once the index is writable again
+        requests.clear();
+        contextProviderBuilder.removeWriteBlock(index);
+        executeCanMatchPhase(searchTransportService, contextProviderBuilder.build(), index, numShards, outOfRangeQuery);
+        assertThat(requests.size(), equalTo(numShards));
+    }
+
+    private GroupShardsIterator<SearchShardIterator> executeCanMatchPhase(SearchTransportService searchTransportService,
+                                                                          CoordinatorRewriteContextProvider contextProvider,
+                                                                          Index index, int numShards,
+                                                                          RangeQueryBuilder query) throws Exception {
+        Map<String, Transport.Connection> lookup = new ConcurrentHashMap<>();
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        lookup.put("node1", new SearchAsyncActionTests.MockConnection(primaryNode));
+
+        OriginalIndices originalIndices = new OriginalIndices(new String[]{index.getName()}, SearchRequest.DEFAULT_INDICES_OPTIONS);
+        GroupShardsIterator<SearchShardIterator> shardsIter = GroupShardsIterator.sortAndCreate(
+            getShardsIter(index, originalIndices, numShards, false, primaryNode, null));
+
+        final SearchRequest searchRequest = new SearchRequest(index.getName());
+        searchRequest.allowPartialSearchResults(true);
+        searchRequest.source(SearchSourceBuilder.searchSource().query(query));
+
+        final TransportSearchAction.SearchTimeProvider timeProvider =
+            new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(), System::nanoTime);
+
+        AtomicReference<GroupShardsIterator<SearchShardIterator>> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        CanMatchPreFilterSearchPhase canMatchPhase = new CanMatchPreFilterSearchPhase(logger,
+            searchTransportService,
+            (clusterAlias, node) -> lookup.get(node),
+            Collections.singletonMap(index.getUUID(), new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(),
+            EsExecutors.newDirectExecutorService(),
+            searchRequest,
+            null,
+            shardsIter,
+            timeProvider,
+            ClusterState.EMPTY_STATE,
+            null,
+            (iter) -> new SearchPhase("test") {
+                @Override
+                public void run() {
+                    result.set(iter);
+                    latch.countDown();
+                }
+            },
+            SearchResponse.Clusters.EMPTY,
+            contextProvider);
+
+        canMatchPhase.start();
+        latch.await();
+        return result.get();
+    }
+
     private <QB extends AbstractQueryBuilder<QB>>
     void assignShardsAndExecuteCanMatchPhase(DataStream dataStream,
                                              List<Index> regularIndices,
@@ -791,6 +906,47 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
             fields.put(index, new DateFieldMapper.DateFieldType(fieldName));
         }
 
+        private IndexMetadata addWriteBlockedIndex(Index index) {
+            Settings.Builder indexSettings = settings(Version.CURRENT)
+                .put(IndexMetadata.SETTING_INDEX_UUID, index.getUUID())
+                .put(IndexMetadata.INDEX_BLOCKS_WRITE_SETTING.getKey(), true);
+
+            IndexMetadata indexMetadata = IndexMetadata.builder(index.getName())
+                .settings(indexSettings)
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .build();
+
+            clusterState = ClusterState.builder(clusterState)
+                .metadata(Metadata.builder(clusterState.metadata()).put(indexMetadata, false))
+                .build();
+            return indexMetadata;
+        }
+
+        private void removeWriteBlock(Index index) {
+            IndexMetadata indexMetadata = clusterState.metadata().index(index);
+            IndexMetadata.Builder indexMetadataBuilder = IndexMetadata.builder(indexMetadata)
+                .settings(Settings.builder()
+                    .put(indexMetadata.getSettings())
+                    .put(IndexMetadata.INDEX_BLOCKS_WRITE_SETTING.getKey(), false))
+                .settingsVersion(indexMetadata.getSettingsVersion() + 1);
+
+            clusterState = ClusterState.builder(clusterState)
+                .metadata(Metadata.builder(clusterState.metadata()).put(indexMetadataBuilder))
+                .build();
+        }
+
+        private void putMapping(Index index, String mapping) {
+            IndexMetadata indexMetadata = clusterState.metadata().index(index);
+            IndexMetadata.Builder indexMetadataBuilder = IndexMetadata.builder(indexMetadata)
+                .putMapping(mapping)
+                .mappingVersion(indexMetadata.getMappingVersion() + 1);
+
+            clusterState = ClusterState.builder(clusterState)
+                .metadata(Metadata.builder(clusterState.metadata()).put(indexMetadataBuilder))
+                .build();
+        }
+
         public CoordinatorRewriteContextProvider build() {
             return new CoordinatorRewriteContextProvider(NamedXContentRegistry.EMPTY,
                 mock(NamedWriteableRegistry.class),
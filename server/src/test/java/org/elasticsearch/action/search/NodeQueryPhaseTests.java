@@ -0,0 +1,223 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchContextId;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class NodeQueryPhaseTests extends ESTestCase {
+
+    public void testMaxConcurrentShardRequests() {
+        final int numShards = randomIntBetween(1, 50);
+        final int maxConcurrentShardRequests = randomIntBetween(1, 10);
+        final List<ShardSearchRequest> shardRequests = shardRequests(numShards);
+        final Deque<Tuple<ShardSearchRequest, ActionListener<SearchPhaseResult>>> running = new ArrayDeque<>();
+        final PlainActionFuture<SearchTransportService.NodeQueryResponse> future = PlainActionFuture.newFuture();
+        new NodeQueryPhase(shardRequests, maxConcurrentShardRequests, task(new AtomicBoolean()),
+            (shardRequest, listener) -> running.add(Tuple.tuple(shardRequest, listener)), future).start();
+
+        int completed = 0;
+        while (running.isEmpty() == false) {
+            assertThat(running.size(), equalTo(Math.min(maxConcurrentShardRequests, numShards - completed)));
+            assertFalse(future.isDone());
+            final Tuple<ShardSearchRequest, ActionListener<SearchPhaseResult>> shard = randomBoolean()
+                ? running.pollFirst()
+                : running.pollLast();
+            completed++;
+            shard.v2().onResponse(result(shard.v1()));
+        }
+        assertThat(completed, equalTo(numShards));
+
+        final SearchTransportService.NodeQueryResponse response = future.actionGet();
+        for (int i = 0; i < numShards; i++) {
+            assertThat(response.getFailure(i), nullValue());
+            final QuerySearchResult result = response.getResult(i).queryResult();
+            assertThat(result.getShardSearchRequest(), sameInstance(shardRequests.get(i)));
+            // the node statistics only describe the round trip of the whole node request on the coordinating node
+            assertThat(result.nodeQueueSize(), equalTo(-1));
+            assertThat(result.serviceTimeEWMA(), equalTo(-1L));
+            assertThat(result.queryTookNanos(), equalTo((long) i));
+        }
+    }
+
+    public void testMixedResultsAndFailures() throws Exception {
+        final int numShards = randomIntBetween(1, 100);
+        final List<ShardSearchRequest> shardRequests = shardRequests(numShards);
+        // shards may be executed on the threads that complete other shards, so all randomization happens up-front
+        final QuerySearchResult[] expectedResults = new QuerySearchResult[numShards];
+        final Exception[] expectedFailures = new Exception[numShards];
+        final int[] completions = new int[numShards];
+        for (int i = 0; i < numShards; i++) {
+            if (randomBoolean()) {
+                expectedResults[i] = result(shardRequests.get(i));
+            } else {
+                expectedFailures[i] = new IllegalStateException("shard [" + i + "] failed");
+            }
+            completions[i] = randomIntBetween(0, 2);
+        }
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        final PlainActionFuture<SearchTransportService.NodeQueryResponse> future = PlainActionFuture.newFuture();
+        new NodeQueryPhase(shardRequests, randomIntBetween(1, numShards + 1), task(new AtomicBoolean()), (shardRequest, listener) -> {
+            final int shard = shardRequest.shardId().id();
+            final Runnable complete = () -> {
+                if (expectedResults[shard] != null) {
+                    listener.onResponse(expectedResults[shard]);
+                } else {
+                    listener.onFailure(expectedFailures[shard]);
+                }
+            };
+            switch (completions[shard]) {
+                case 0:
+                    complete.run();
+                    break;
+                case 1:
+                    final Thread thread = new Thread(complete);
+                    threads.add(thread);
+                    thread.start();
+                    break;
+                default:
+                    if (expectedFailures[shard] != null) {
+                        throw (IllegalStateException) expectedFailures[shard];
+                    }
+                    complete.run();
+            }
+        }, future).start();
+
+        final SearchTransportService.NodeQueryResponse response = future.get(10, TimeUnit.SECONDS);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < numShards; i++) {
+            if (expectedFailures[i] == null) {
+                assertThat(response.getFailure(i), nullValue());
+                assertThat(response.getResult(i), sameInstance(expectedResults[i]));
+            } else {
+                assertThat(response.getFailure(i), sameInstance(expectedFailures[i]));
+                assertThat(response.getResult(i), nullValue());
+            }
+        }
+    }
+
+    public void testShardsCompletingSynchronouslyDoNotRecurse() {
+        final int numShards = 20_000;
+        final List<ShardSearchRequest> shardRequests = shardRequests(numShards);
+        final PlainActionFuture<SearchTransportService.NodeQueryResponse> future = PlainActionFuture.newFuture();
+        new NodeQueryPhase(shardRequests, 1, task(new AtomicBoolean()), (shardRequest, listener) -> {
+            if (randomBoolean()) {
+                listener.onResponse(result(shardRequest));
+            } else {
+                listener.onFailure(new IllegalStateException("boom"));
+            }
+        }, future).start();
+        final SearchTransportService.NodeQueryResponse response = future.actionGet();
+        for (int i = 0; i < numShards; i++) {
+            assertTrue(response.getResult(i) != null || response.getFailure(i) != null);
+        }
+    }
+
+    public void testCancellation() {
+        final int numShards = randomIntBetween(2, 20);
+        final int maxConcurrentShardRequests = randomIntBetween(1, numShards - 1);
+        final List<ShardSearchRequest> shardRequests = shardRequests(numShards);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicInteger executed = new AtomicInteger();
+        final Deque<Tuple<ShardSearchRequest, ActionListener<SearchPhaseResult>>> running = new ArrayDeque<>();
+        final PlainActionFuture<SearchTransportService.NodeQueryResponse> future = PlainActionFuture.newFuture();
+        new NodeQueryPhase(shardRequests, maxConcurrentShardRequests, task(cancelled), (shardRequest, listener) -> {
+            executed.incrementAndGet();
+            running.add(Tuple.tuple(shardRequest, listener));
+        }, future).start();
+        assertThat(executed.get(), equalTo(maxConcurrentShardRequests));
+
+        cancelled.set(true);
+        while (running.isEmpty() == false) {
+            final Tuple<ShardSearchRequest, ActionListener<SearchPhaseResult>> shard = running.poll();
+            shard.v2().onResponse(result(shard.v1()));
+        }
+        assertThat(executed.get(), equalTo(maxConcurrentShardRequests));
+
+        final SearchTransportService.NodeQueryResponse response = future.actionGet();
+        for (int i = 0; i < numShards; i++) {
+            if (i < maxConcurrentShardRequests) {
+                assertThat(response.getFailure(i), nullValue());
+                assertThat(response.getResult(i).getShardSearchRequest(), sameInstance(shardRequests.get(i)));
+            } else {
+                assertThat(response.getFailure(i), instanceOf(TaskCancelledException.class));
+                assertThat(response.getResult(i), nullValue());
+            }
+        }
+    }
+
+    public void testNoShards() {
+        final PlainActionFuture<SearchTransportService.NodeQueryResponse> future = PlainActionFuture.newFuture();
+        new NodeQueryPhase(Collections.emptyList(), randomIntBetween(1, 10), task(new AtomicBoolean()),
+            (shardRequest, listener) -> fail("no shard to execute"), future).start();
+        assertTrue(future.isDone());
+    }
+
+    private static List<ShardSearchRequest> shardRequests(int numShards) {
+        final List<ShardSearchRequest> shardRequests = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            shardRequests.add(new ShardSearchRequest(new ShardId("index", "_na_", i), 0L, AliasFilter.EMPTY));
+        }
+        return shardRequests;
+    }
+
+    private static QuerySearchResult result(ShardSearchRequest shardRequest) {
+        final int shard = shardRequest.shardId().id();
+        final QuerySearchResult result = new QuerySearchResult(new ShardSearchContextId("", shard), null, shardRequest);
+        result.nodeQueueSize(randomIntBetween(0, 100));
+        result.serviceTimeEWMA(randomLongBetween(1, 1000));
+        result.queryTookNanos(shard);
+        return result;
+    }
+
+    private static SearchShardTask task(AtomicBoolean cancelled) {
+        return new SearchShardTask(randomNonNegativeLong(), "transport", SearchTransportService.NODE_QUERY_ACTION_NAME, "", null,
+            Collections.emptyMap()) {
+            @Override
+            public boolean isCancelled() {
+                return cancelled.get();
+            }
+        };
+    }
+}
@@ -53,9 +53,11 @@ import org.elasticsearch.search.SearchModule;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
 import org.elasticsearch.search.aggregations.metrics.InternalMax;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
@@ -83,6 +85,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -587,6 +590,68 @@ public class SearchPhaseControllerTests extends ESTestCase {
         assertNull(reduce.sortedTopDocs.collapseValues);
     }
 
+    public void testConsumerIncrementalTermsAggs() throws Exception {
+        int expectedNumResults = randomIntBetween(1, 100);
+        int bufferSize = randomIntBetween(2, 200);
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.terms("terms"))
+            .aggregation(AggregationBuilders.max("max")).size(0));
+        request.setBatchedReduceSize(bufferSize);
+        QueryPhaseResultConsumer consumer = searchPhaseController.newSearchPhaseResults(fixedExecutor,
+            new NoopCircuitBreaker(CircuitBreaker.REQUEST), SearchProgressListener.NOOP,
+            request, expectedNumResults, true, exc  -> {});
+        Map<String, Long> expectedCounts = new HashMap<>();
+        long expectedOtherDocCount = 0;
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch latch =  new CountDownLatch(expectedNumResults);
+        for (int i = 0; i < expectedNumResults; i++) {
+            int number = randomIntBetween(1, 1000);
+            max.updateAndGet(prev -> Math.max(prev, number));
+            // shards return their buckets sorted by key
+            TreeMap<BytesRef, Long> shardCounts = new TreeMap<>();
+            int numBuckets = randomIntBetween(0, 20);
+            for (int j = 0; j < numBuckets; j++) {
+                shardCounts.put(new BytesRef("term" + randomIntBetween(0, 49)), randomLongBetween(1, 100));
+            }
+            List<StringTerms.Bucket> buckets = new ArrayList<>();
+            for (Map.Entry<BytesRef, Long> entry : shardCounts.entrySet()) {
+                buckets.add(new StringTerms.Bucket(entry.getKey(), entry.getValue(), InternalAggregations.EMPTY, false, 0,
+                    DocValueFormat.RAW));
+                expectedCounts.merge(entry.getKey().utf8ToString(), entry.getValue(), Long::sum);
+            }
+            long otherDocCount = randomLongBetween(0, 10);
+            expectedOtherDocCount += otherDocCount;
+            StringTerms terms = new StringTerms("terms", BucketOrder.key(true), BucketOrder.count(false), 100, 1, emptyMap(),
+                DocValueFormat.RAW, 100, false, otherDocCount, buckets, 0);
+            QuerySearchResult result = new QuerySearchResult(new ShardSearchContextId("", i),
+                new SearchShardTarget("node", new ShardId("a", "b", i), null, OriginalIndices.NONE), null);
+            result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]), number),
+                    new DocValueFormat[0]);
+            result.aggregations(InternalAggregations.from(List.of(terms,
+                new InternalMax("max", (double) number, DocValueFormat.RAW, Collections.emptyMap()))));
+            result.setShardIndex(i);
+            result.size(1);
+            consumer.consumeResult(result, latch::countDown);
+        }
+        latch.await();
+
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        consumer.close();
+        assertAggReduction(request);
+        InternalMax internalMax = reduce.aggregations.get("max");
+        assertEquals(max.get(), internalMax.getValue(), 0.0D);
+        StringTerms terms = reduce.aggregations.get("terms");
+        assertThat(terms.getSumOfOtherDocCounts(), equalTo(expectedOtherDocCount));
+        assertThat(terms.getBuckets().size(), equalTo(expectedCounts.size()));
+        long lastDocCount = Long.MAX_VALUE;
+        for (StringTerms.Bucket bucket : terms.getBuckets()) {
+            assertThat(bucket.getDocCount(), equalTo(expectedCounts.get(bucket.getKeyAsString())));
+            assertThat(bucket.getDocCount(), lessThanOrEqualTo(lastDocCount));
+            lastDocCount = bucket.getDocCount();
+        }
+        assertEquals(expectedNumResults, reduce.totalHits.value);
+    }
+
     public void testConsumerOnlyHits() throws Exception {
         int expectedNumResults = randomIntBetween(1, 100);
         int bufferSize = randomIntBetween(2, 200);
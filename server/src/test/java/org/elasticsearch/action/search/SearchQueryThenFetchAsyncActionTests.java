@@ -20,7 +20,9 @@
 package org.elasticsearch.action.search;
 
 import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
@@ -49,7 +51,9 @@ import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.InternalAggregationTestCase;
 import org.elasticsearch.transport.Transport;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -153,7 +157,7 @@ public class SearchQueryThenFetchAsyncActionTests extends ESTestCase {
         SearchTask task = new SearchTask(0, "n/a", "n/a", () -> "test", null, Collections.emptyMap());
         QueryPhaseResultConsumer resultConsumer = new QueryPhaseResultConsumer(searchRequest, executor,
             new NoopCircuitBreaker(CircuitBreaker.REQUEST), controller, task.getProgressListener(), writableRegistry(),
-            shardsIter.size(), exc -> {});
+            shardsIter.size(), false, exc -> {});
         SearchQueryThenFetchAsyncAction action = new SearchQueryThenFetchAsyncAction(logger,
             searchTransportService, (clusterAlias, node) -> lookup.get(node),
             Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
@@ -198,4 +202,97 @@ public class SearchQueryThenFetchAsyncActionTests extends ESTestCase {
         assertThat(((FieldDoc) phase.sortedTopDocs.scoreDocs[0]).fields.length, equalTo(1));
         assertThat(((FieldDoc) phase.sortedTopDocs.scoreDocs[0]).fields[0], equalTo(0));
     }
+
+    public void testBatchedShardRequestsPerNode() throws Exception {
+        final TransportSearchAction.SearchTimeProvider timeProvider =
+            new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(), System::nanoTime);
+
+        Map<String, Transport.Connection> lookup = new ConcurrentHashMap<>();
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        lookup.put("node1", new SearchAsyncActionTests.MockConnection(primaryNode));
+
+        int numShards = randomIntBetween(2, 20);
+        int failedShard = randomBoolean() ? randomIntBetween(0, numShards - 1) : -1;
+        final SearchRequest searchRequest = new SearchRequest();
+        searchRequest.setMaxConcurrentShardRequests(randomIntBetween(1, 4));
+        searchRequest.source(new SearchSourceBuilder().size(0));
+        searchRequest.allowPartialSearchResults(true);
+
+        AtomicInteger numNodeRequests = new AtomicInteger();
+        SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+            @Override
+            public void sendExecuteQuery(Transport.Connection connection, ShardSearchRequest request,
+                                         SearchTask task, SearchActionListener<SearchPhaseResult> listener) {
+                throw new AssertionError("shard requests should be batched per node");
+            }
+
+            @Override
+            public void sendExecuteQuery(Transport.Connection connection, NodeQueryRequest request,
+                                         SearchTask task, List<SearchActionListener<SearchPhaseResult>> listeners) {
+                numNodeRequests.incrementAndGet();
+                NodeQueryRequest copy;
+                try {
+                    copy = copyWriteable(request, writableRegistry(), NodeQueryRequest::new);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+                assertThat(copy.getShardRequests().size(), equalTo(listeners.size()));
+                assertThat(copy.getMaxConcurrentShardRequests(), equalTo(searchRequest.getMaxConcurrentShardRequests()));
+                for (int i = 0; i < listeners.size(); i++) {
+                    ShardSearchRequest shardRequest = copy.getShardRequests().get(i);
+                    assertThat(shardRequest.shardId(), equalTo(request.getShardRequests().get(i).shardId()));
+                    assertThat(shardRequest.source(), equalTo(searchRequest.source()));
+                    // the shared source must not be lost by serializing the request
+                    assertSame(searchRequest.source(), request.getShardRequests().get(i).source());
+                }
+                new Thread(() -> {
+                    for (int i = 0; i < listeners.size(); i++) {
+                        int shardId = copy.getShardRequests().get(i).shardId().id();
+                        if (shardId == failedShard) {
+                            listeners.get(i).onFailure(new IllegalStateException("boom"));
+                        } else {
+                            QuerySearchResult queryResult = new QuerySearchResult(new ShardSearchContextId("N/A", 123),
+                                new SearchShardTarget("node1", new ShardId("idx", "na", shardId), null, OriginalIndices.NONE), null);
+                            queryResult.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO),
+                                new ScoreDoc[0]), Float.NaN), new DocValueFormat[0]);
+                            queryResult.from(0);
+                            queryResult.size(0);
+                            listeners.get(i).onResponse(queryResult);
+                        }
+                    }
+                }).start();
+            }
+        };
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator<SearchShardIterator> shardsIter = SearchAsyncActionTests.getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, false, primaryNode, null);
+        Executor executor = EsExecutors.newDirectExecutorService();
+        SearchPhaseController controller = new SearchPhaseController(
+            writableRegistry(), r -> InternalAggregationTestCase.emptyReduceContextBuilder());
+        SearchTask task = new SearchTask(0, "n/a", "n/a", () -> "test", null, Collections.emptyMap());
+        QueryPhaseResultConsumer resultConsumer = new QueryPhaseResultConsumer(searchRequest, executor,
+            new NoopCircuitBreaker(CircuitBreaker.REQUEST), controller, task.getProgressListener(), writableRegistry(),
+            shardsIter.size(), false, exc -> {});
+        SearchQueryThenFetchAsyncAction action = new SearchQueryThenFetchAsyncAction(logger,
+            searchTransportService, (clusterAlias, node) -> lookup.get(node),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(), controller, executor,
+            resultConsumer, searchRequest, null, shardsIter, timeProvider, null,
+            task, SearchResponse.Clusters.EMPTY, true) {
+            @Override
+            protected SearchPhase getNextPhase(SearchPhaseResults<SearchPhaseResult> results, SearchPhaseContext context) {
+                return new SearchPhase("test") {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                };
+            }
+        };
+        action.start();
+        latch.await();
+        assertThat(numNodeRequests.get(), equalTo(1));
+        assertThat(action.buildShardFailures().length, equalTo(failedShard >= 0 ? 1 : 0));
+    }
 }
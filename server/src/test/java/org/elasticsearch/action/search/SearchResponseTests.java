@@ -24,14 +24,18 @@ import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -46,6 +50,8 @@ import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.SuggestTests;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.InternalAggregationTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
 import org.junit.After;
 import org.junit.Before;
 
@@ -276,6 +282,25 @@ public class SearchResponseTests extends ESTestCase {
         }
     }
 
+    public void testToXContentChunked() throws IOException {
+        SearchResponse response = createTestItem();
+        FakeRestRequest request = new FakeRestRequest();
+        FakeRestChannel channel = new FakeRestChannel(request, randomBoolean(), 1);
+        XContentBuilder builder = channel.newBuilder();
+        response.toXContent(builder, request);
+        BytesReference expected = BytesReference.bytes(builder);
+
+        ChunkedRestResponseBody body = ChunkedRestResponseBody.fromXContent(response, request, channel);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            while (body.isDone() == false) {
+                try (ReleasableBytesReference chunk = body.encodeChunk(randomIntBetween(1, 1024), BigArrays.NON_RECYCLING_INSTANCE)) {
+                    chunk.writeTo(out);
+                }
+            }
+            assertEquals(expected, out.bytes());
+        }
+    }
+
     public void testSerialization() throws IOException {
         SearchResponse searchResponse = createTestItem(false);
         SearchResponse deserialized = copyWriteable(searchResponse, namedWriteableRegistry, SearchResponse::new, Version.CURRENT);
@@ -21,12 +21,14 @@ package org.elasticsearch.common.bytes;
 
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.util.ByteArray;
 import org.hamcrest.Matchers;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 
@@ -84,6 +86,41 @@ public class ReleasableBytesReferenceTests extends AbstractBytesReferenceTestCas
         return ReleasableBytesReference.wrap(delegate);
     }
 
+    public void testReadReleasableBytesReferenceRetainsSlice() throws IOException {
+        final BytesReference payload = new BytesArray(randomByteArrayOfLength(randomIntBetween(1, 1024)));
+        final BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString("header");
+        out.writeBytesReference(payload);
+        out.writeVInt(42);
+
+        final AtomicBoolean released = new AtomicBoolean();
+        final ReleasableBytesReference reference = new ReleasableBytesReference(out.bytes(), () -> released.set(true));
+        final ReleasableBytesReference slice;
+        try (StreamInput in = reference.streamInput()) {
+            assertEquals("header", in.readString());
+            slice = in.readReleasableBytesReference();
+            assertEquals(42, in.readVInt());
+        }
+        assertEquals(payload, slice);
+        assertEquals(2, reference.refCount());
+
+        reference.close();
+        assertFalse(released.get());
+        slice.close();
+        assertTrue(released.get());
+    }
+
+    public void testReadReleasableBytesReferenceCopiesByDefault() throws IOException {
+        final BytesReference payload = new BytesArray(randomByteArrayOfLength(randomIntBetween(0, 1024)));
+        final BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytesReference(payload);
+        try (StreamInput in = StreamInput.wrap(BytesReference.toBytes(out.bytes()))) {
+            try (ReleasableBytesReference read = in.readReleasableBytesReference()) {
+                assertEquals(payload, read);
+            }
+        }
+    }
+
     @Override
     public void testToBytesRefSharedPage() throws IOException {
         // CompositeBytesReference doesn't share pages
@@ -31,10 +31,14 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -50,13 +54,16 @@ import org.mockito.ArgumentCaptor;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
@@ -172,6 +179,81 @@ public class DefaultRestChannelTests extends ESTestCase {
         assertEquals(resp.contentType(), headers.get(DefaultRestChannel.CONTENT_TYPE).get(0));
     }
 
+    public void testChunkedResponse() throws IOException {
+        final Settings settings = Settings.builder().build();
+        final AtomicReference<ChunkedRestResponseBody> chunkedBody = new AtomicReference<>();
+        final TestHttpRequest httpRequest = new TestHttpRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/") {
+            @Override
+            public boolean supportsChunkedResponses() {
+                return true;
+            }
+
+            @Override
+            public HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content, BigArrays bigArrays) {
+                assertSame(DefaultRestChannelTests.this.bigArrays, bigArrays);
+                assertTrue(chunkedBody.compareAndSet(null, content));
+                return new TestHttpResponse(status, null);
+            }
+        };
+        final RestRequest request = RestRequest.request(xContentRegistry(), httpRequest, httpChannel);
+        DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays,
+            HttpHandlingSettings.fromSettings(settings), threadPool.getThreadContext(), CorsHandler.fromSettings(settings), null);
+        final ChunkedRestResponse response = new ChunkedRestResponse(RestStatus.OK, chunkedBody(channel));
+        channel.sendResponse(response);
+
+        ArgumentCaptor<TestHttpResponse> responseCaptor = ArgumentCaptor.forClass(TestHttpResponse.class);
+        verify(httpChannel).sendResponse(responseCaptor.capture(), any());
+        TestHttpResponse httpResponse = responseCaptor.getValue();
+        assertNotNull(chunkedBody.get());
+        assertFalse(chunkedBody.get().isDone());
+        // the length of the body is not known until it has been sent
+        assertNull(httpResponse.headers().get(DefaultRestChannel.CONTENT_LENGTH));
+        assertEquals(response.contentType(), httpResponse.headers().get(DefaultRestChannel.CONTENT_TYPE).get(0));
+    }
+
+    public void testChunkedResponseFallsBackToContent() throws IOException {
+        final Settings settings = Settings.builder().build();
+        final boolean head = randomBoolean();
+        final boolean supportsChunkedResponses = randomBoolean();
+        final HttpRequest.HttpVersion version = head || supportsChunkedResponses == false
+            ? randomFrom(HttpRequest.HttpVersion.values())
+            : HttpRequest.HttpVersion.HTTP_1_0;
+        final TestHttpRequest httpRequest =
+            new TestHttpRequest(version, head ? RestRequest.Method.HEAD : RestRequest.Method.GET, "/") {
+                @Override
+                public boolean supportsChunkedResponses() {
+                    return supportsChunkedResponses;
+                }
+
+                @Override
+                public HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content, BigArrays bigArrays) {
+                    throw new AssertionError("a chunked response must not be used for [" + version + "][" + method() + "]");
+                }
+            };
+        final RestRequest request = RestRequest.request(xContentRegistry(), httpRequest, httpChannel);
+        DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays,
+            HttpHandlingSettings.fromSettings(settings), threadPool.getThreadContext(), CorsHandler.fromSettings(settings), null);
+        final ChunkedRestResponse response = new ChunkedRestResponse(RestStatus.OK, chunkedBody(channel));
+        channel.sendResponse(response);
+
+        ArgumentCaptor<TestHttpResponse> responseCaptor = ArgumentCaptor.forClass(TestHttpResponse.class);
+        verify(httpChannel).sendResponse(responseCaptor.capture(), any());
+        TestHttpResponse httpResponse = responseCaptor.getValue();
+        final BytesReference expected = response.content();
+        assertThat(expected.length(), greaterThan(0));
+        assertEquals(head ? BytesArray.EMPTY : expected, httpResponse.content());
+        assertEquals(Integer.toString(expected.length()), httpResponse.headers().get(DefaultRestChannel.CONTENT_LENGTH).get(0));
+    }
+
+    private static ChunkedRestResponseBody chunkedBody(RestChannel channel) throws IOException {
+        final ChunkedToXContent chunkedToXContent = params -> Arrays.<ToXContent>asList(
+            (builder, p) -> builder.startObject(),
+            (builder, p) -> builder.field("field", "value"),
+            (builder, p) -> builder.endObject()
+        ).iterator();
+        return ChunkedRestResponseBody.fromXContent(chunkedToXContent, channel.request(), channel);
+    }
+
     public void testCookiesSet() {
         Settings settings = Settings.builder().put(HttpTransportSettings.SETTING_HTTP_RESET_COOKIES.getKey(), true).build();
         final TestHttpRequest httpRequest = new TestHttpRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/");
@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.preaggregation;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.plain.SortedNumericIndexFieldData;
+import org.elasticsearch.index.fielddata.plain.SortedSetOrdinalsIndexFieldData;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PreAggregationCacheTests extends ESTestCase {
+
+    private static final IndexSettings INDEX_SETTINGS = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+        .putList(PreAggregationCache.INDEX_PRE_AGGREGATION_DIMENSIONS_SETTING.getKey(), "dimension")
+        .putList(PreAggregationCache.INDEX_PRE_AGGREGATION_METRICS_SETTING.getKey(), "metric")
+        .build());
+
+    private static CircuitBreakerService breakerService(String fielddataLimit) {
+        return new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), fielddataLimit)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)
+        );
+    }
+
+    private static DirectoryReader openReader(IndexWriter writer) throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Document document = new Document();
+            document.add(new SortedSetDocValuesField("dimension", new BytesRef("v" + (i % 3))));
+            document.add(new SortedNumericDocValuesField("metric", i));
+            writer.addDocument(document);
+        }
+        writer.commit();
+        return ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+    }
+
+    public void testRollupsAreAccountedOnTheFielddataBreaker() throws Exception {
+        CircuitBreakerService breakerService = breakerService("100mb");
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        PreAggregationCache cache = new PreAggregationCache(INDEX_SETTINGS, breakerService);
+        IndexOrdinalsFieldData dimension = new SortedSetOrdinalsIndexFieldData.Builder("dimension", CoreValuesSourceType.BYTES)
+            .build(new IndexFieldDataCache.None(), breakerService);
+        IndexNumericFieldData metric = new SortedNumericIndexFieldData.Builder("metric", IndexNumericFieldData.NumericType.LONG)
+            .build(new IndexFieldDataCache.None(), breakerService);
+        try (IndexWriter writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()))) {
+            DirectoryReader reader = openReader(writer);
+            LeafReaderContext context = reader.leaves().get(0);
+            PreAggregationCache.Rollup rollup = cache.getRollup(context, dimension, metric);
+            assertThat(rollup, notNullValue());
+            assertThat(rollup.count(0), equalTo(4L));
+            assertThat(rollup.sum(0), equalTo(18d));
+            assertThat(breaker.getUsed(), greaterThan(0L));
+            assertThat(breaker.getUsed(), equalTo(cache.ramBytesUsed()));
+
+            // cached
+            assertSame(rollup, cache.getRollup(context, dimension, metric));
+            assertThat(breaker.getUsed(), equalTo(cache.ramBytesUsed()));
+
+            reader.close();
+            assertThat(cache.ramBytesUsed(), equalTo(0L));
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+    }
+
+    public void testRollupIsSkippedWhenTheBreakerTrips() throws Exception {
+        CircuitBreakerService breakerService = breakerService("1b");
+        PreAggregationCache cache = new PreAggregationCache(INDEX_SETTINGS, breakerService);
+        IndexOrdinalsFieldData dimension = new SortedSetOrdinalsIndexFieldData.Builder("dimension", CoreValuesSourceType.BYTES)
+            .build(new IndexFieldDataCache.None(), breakerService);
+        try (IndexWriter writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+             DirectoryReader reader = openReader(writer)) {
+            assertThat(cache.getRollup(reader.leaves().get(0), dimension, null), nullValue());
+            assertThat(cache.ramBytesUsed(), equalTo(0L));
+            assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(0L));
+        }
+    }
+
+    public void testOnlyDocValuesAreRolledUp() throws Exception {
+        CircuitBreakerService breakerService = breakerService("100mb");
+        PreAggregationCache cache = new PreAggregationCache(INDEX_SETTINGS, breakerService);
+        IndexOrdinalsFieldData dimension = new SortedSetOrdinalsIndexFieldData.Builder("dimension", CoreValuesSourceType.BYTES)
+            .build(new IndexFieldDataCache.None(), breakerService);
+        // e.g. a runtime field that shadows the mapped fields
+        IndexOrdinalsFieldData scriptDimension = mock(IndexOrdinalsFieldData.class);
+        when(scriptDimension.getFieldName()).thenReturn("dimension");
+        IndexNumericFieldData scriptMetric = mock(IndexNumericFieldData.class);
+        when(scriptMetric.getFieldName()).thenReturn("metric");
+        assertTrue(cache.isDimension(dimension));
+        assertFalse(cache.isDimension(scriptDimension));
+        assertFalse(cache.isMetric(scriptMetric));
+        try (IndexWriter writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+             DirectoryReader reader = openReader(writer)) {
+            LeafReaderContext context = reader.leaves().get(0);
+            assertThat(cache.getRollup(context, scriptDimension, null), nullValue());
+            assertThat(cache.getRollup(context, dimension, scriptMetric), nullValue());
+            assertThat(cache.ramBytesUsed(), equalTo(0L));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene87.Lucene87Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.elasticsearch.index.codec.BloomFilterPostingsFormat.BloomFilteredTerms;
+import org.elasticsearch.index.mapper.IdFieldMapper;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+
+@SuppressCodecs("*") // we test against our own codec so never get a random one here!
+public class BloomFilterPostingsFormatTests extends ESTestCase {
+
+    public void testLookups() throws IOException {
+        try (Directory dir = newDirectory()) {
+            final Set<String> ids = new HashSet<>();
+            final int numDocs = randomIntBetween(100, 2000);
+            try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setCodec(bloomFilterCodec()))) {
+                for (int i = 0; i < numDocs; i++) {
+                    final String id = randomAlphaOfLength(16);
+                    ids.add(id);
+                    writer.addDocument(idDocument(id));
+                    if (rarely()) {
+                        writer.commit();
+                    }
+                }
+                if (randomBoolean()) {
+                    writer.forceMerge(1);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                for (String id : ids) {
+                    int found = 0;
+                    for (LeafReaderContext context : reader.leaves()) {
+                        if (context.reader().terms(IdFieldMapper.NAME).iterator().seekExact(new BytesRef(id))) {
+                            found++;
+                        }
+                    }
+                    assertThat(found, equalTo(1));
+                }
+                final int numMissing = randomIntBetween(1000, 2000);
+                for (int i = 0; i < numMissing; i++) {
+                    final BytesRef missing = new BytesRef(randomAlphaOfLength(17));
+                    for (LeafReaderContext context : reader.leaves()) {
+                        assertFalse(context.reader().terms(IdFieldMapper.NAME).iterator().seekExact(missing));
+                    }
+                }
+                long lookups = 0;
+                long skipped = 0;
+                long falsePositives = 0;
+                for (LeafReaderContext context : reader.leaves()) {
+                    final Terms terms = context.reader().terms(IdFieldMapper.NAME);
+                    assertThat(terms, instanceOf(BloomFilteredTerms.class));
+                    final BloomFilteredTerms bloomFilteredTerms = (BloomFilteredTerms) terms;
+                    assertThat(bloomFilteredTerms.size(), equalTo((long) context.reader().maxDoc()));
+                    lookups += bloomFilteredTerms.getLookupCount();
+                    skipped += bloomFilteredTerms.getSkippedCount();
+                    falsePositives += bloomFilteredTerms.getFalsePositiveCount();
+                }
+                final long expectedLookups = (long) (ids.size() + numMissing) * reader.leaves().size();
+                assertThat(lookups, equalTo(expectedLookups));
+                // every id is found in exactly one segment, all other lookups are either skipped or false positives
+                assertThat(skipped + falsePositives, equalTo(expectedLookups - ids.size()));
+                assertThat(falsePositives, lessThan(Math.max(10, (skipped + falsePositives) / 20)));
+            }
+        }
+    }
+
+    public void testTermsIteration() throws IOException {
+        try (Directory dir = newDirectory()) {
+            final Set<String> ids = new HashSet<>();
+            try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setCodec(bloomFilterCodec()))) {
+                final int numDocs = randomIntBetween(1, 100);
+                for (int i = 0; i < numDocs; i++) {
+                    final String id = randomAlphaOfLength(8);
+                    ids.add(id);
+                    writer.addDocument(idDocument(id));
+                }
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                final Set<String> terms = new HashSet<>();
+                final TermsEnum termsEnum = reader.leaves().get(0).reader().terms(IdFieldMapper.NAME).iterator();
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    terms.add(term.utf8ToString());
+                }
+                assertThat(terms, equalTo(ids));
+            }
+        }
+    }
+
+    private static Document idDocument(String id) {
+        final Document document = new Document();
+        document.add(new StringField(IdFieldMapper.NAME, id, Field.Store.NO));
+        return document;
+    }
+
+    private static Codec bloomFilterCodec() {
+        return new Lucene87Codec() {
+            final PostingsFormat idPostingsFormat = new BloomFilterPostingsFormat(super.getPostingsFormatForField(IdFieldMapper.NAME));
+
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                if (IdFieldMapper.NAME.equals(field)) {
+                    return idPostingsFormat;
+                }
+                return super.getPostingsFormatForField(field);
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class PagedVersionMapTests extends ESTestCase {
+
+    public void testBasics() {
+        PagedVersionMap map = new PagedVersionMap(randomIntBetween(0, 100));
+        assertTrue(map.isEmpty());
+        assertNull(map.get(new BytesRef("foo")));
+
+        IndexVersionValue first = new IndexVersionValue(new Translog.Location(1, 2, 3), 1, 2, 3);
+        assertNull(map.put(new BytesRef("foo"), first));
+        assertThat(map.get(new BytesRef("foo")), equalTo(first));
+        assertThat(map.size(), equalTo(1));
+
+        IndexVersionValue second = new IndexVersionValue(null, 2, 3, 3);
+        assertThat(map.put(new BytesRef("foo"), second), equalTo(first));
+        assertThat(map.get(new BytesRef("foo")), equalTo(second));
+        assertNull(map.get(new BytesRef("foo")).getLocation());
+        assertThat(map.size(), equalTo(1));
+
+        assertThat(map.remove(new BytesRef("foo")), equalTo(second));
+        assertNull(map.get(new BytesRef("foo")));
+        assertNull(map.remove(new BytesRef("foo")));
+        assertTrue(map.isEmpty());
+
+        // a removed key can come back
+        assertNull(map.put(new BytesRef("foo"), first));
+        assertThat(map.get(new BytesRef("foo")), equalTo(first));
+        assertThat(map.size(), equalTo(1));
+    }
+
+    public void testRandomOperations() {
+        PagedVersionMap map = new PagedVersionMap(randomIntBetween(0, 100));
+        Map<BytesRef, VersionValue> expected = new HashMap<>();
+        List<BytesRef> keys = new ArrayList<>();
+        int numKeys = randomIntBetween(1, 5000);
+        for (int i = 0; i < numKeys; i++) {
+            keys.add(new BytesRef(randomAlphaOfLengthBetween(1, 20) + i));
+        }
+        long ramBytesUsed = map.ramBytesUsed();
+        int numOps = scaledRandomIntBetween(100, 20000);
+        for (int i = 0; i < numOps; i++) {
+            BytesRef key = randomFrom(keys);
+            if (rarely()) {
+                assertThat(map.remove(key), equalTo(expected.remove(key)));
+            } else {
+                IndexVersionValue value = new IndexVersionValue(randomBoolean() ? null
+                    : new Translog.Location(randomNonNegativeLong(), randomNonNegativeLong(), randomInt()),
+                    randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+                assertThat(map.put(key, value), equalTo(expected.put(key, value)));
+            }
+            BytesRef lookup = randomFrom(keys);
+            assertThat(map.get(lookup), equalTo(expected.get(lookup)));
+        }
+        assertThat(map.size(), equalTo(expected.size()));
+        for (BytesRef key : keys) {
+            assertThat(map.get(key), equalTo(expected.get(key)));
+        }
+        assertThat(new HashMap<>(map), equalTo(expected));
+        if (expected.size() > 1000) {
+            assertThat(map.ramBytesUsed(), greaterThan(ramBytesUsed));
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.IndexableFieldType;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.AnalyzerScope;
@@ -165,6 +166,7 @@ public class KeywordFieldMapperTests extends MapperTestCase {
         checker.registerConflictCheck("null_value", b -> b.field("null_value", "foo"));
         checker.registerConflictCheck("similarity", b -> b.field("similarity", "boolean"));
         checker.registerConflictCheck("normalizer", b -> b.field("normalizer", "lowercase"));
+        checker.registerConflictCheck("precompute_hash", b -> b.field("precompute_hash", true));
 
         checker.registerUpdateCheck(b -> b.field("eager_global_ordinals", true),
             m -> assertTrue(m.fieldType().eagerGlobalOrdinals()));
@@ -270,6 +272,41 @@ public class KeywordFieldMapperTests extends MapperTestCase {
         assertEquals(DocValuesType.NONE, fields[0].fieldType().docValuesType());
     }
 
+    public void testPrecomputeHash() throws IOException {
+        DocumentMapper mapper = createDocumentMapper(fieldMapping(b -> b.field("type", "keyword").field("precompute_hash", true)));
+        ParsedDocument doc = mapper.parse(source(b -> b.field("field", "1234")));
+        IndexableField[] fields = doc.rootDoc().getFields("field");
+        assertEquals(2, fields.length);
+
+        fields = doc.rootDoc().getFields("field" + KeywordFieldMapper.PRECOMPUTED_HASH_SUFFIX);
+        assertEquals(1, fields.length);
+        assertEquals(DocValuesType.SORTED_NUMERIC, fields[0].fieldType().docValuesType());
+        BytesRef value = new BytesRef("1234");
+        MurmurHash3.Hash128 hash = MurmurHash3.hash128(value.bytes, value.offset, value.length, 0, new MurmurHash3.Hash128());
+        assertEquals(hash.h1, fields[0].numericValue().longValue());
+        KeywordFieldMapper fieldMapper = (KeywordFieldMapper) mapper.mappers().getMapper("field");
+        assertEquals("field#hash", fieldMapper.fieldType().precomputedHashFieldName());
+    }
+
+    public void testPrecomputedHashFieldNameIsReserved() throws IOException {
+        MapperParsingException e = expectThrows(MapperParsingException.class, () -> createMapperService(mapping(b -> {
+            b.startObject("field").field("type", "keyword").field("precompute_hash", true).endObject();
+            b.startObject("field#hash").field("type", "long").endObject();
+        })));
+        assertThat(e.getMessage(), containsString("Field [field#hash] is reserved for the precomputed hashes of field [field]"));
+
+        MapperService mapperService = createMapperService(fieldMapping(b -> b.field("type", "keyword").field("precompute_hash", true)));
+        e = expectThrows(MapperParsingException.class,
+            () -> merge(mapperService, mapping(b -> b.startObject("field#hash").field("type", "keyword").endObject())));
+        assertThat(e.getMessage(), containsString("Field [field#hash] is reserved for the precomputed hashes of field [field]"));
+
+        // the name is only reserved if hashes are precomputed
+        createMapperService(mapping(b -> {
+            b.startObject("field").field("type", "keyword").endObject();
+            b.startObject("field#hash").field("type", "long").endObject();
+        }));
+    }
+
     public void testIndexOptions() throws IOException {
         DocumentMapper mapper = createDocumentMapper(fieldMapping(b -> b.field("type", "keyword").field("index_options", "freqs")));
         ParsedDocument doc = mapper.parse(source(b -> b.field("field", "1234")));
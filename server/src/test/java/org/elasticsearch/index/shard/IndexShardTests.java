@@ -2575,6 +2575,74 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(primary, replica);
     }
 
+    public void testGetFieldRangeSummary() throws Exception {
+        Settings settings = Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
+            .build();
+        IndexMetadata metadata = IndexMetadata.builder("test")
+            .putMapping("{ \"properties\": { \"event_time\":  { \"type\": \"date\"}}}")
+            .settings(settings)
+            .primaryTerm(0, 1).build();
+        IndexShard primary = newShard(new ShardId(metadata.getIndex(), 0), true, "n1", metadata, null);
+        recoverShardFromStore(primary);
+        indexDoc(primary, "_doc", "0", "{\"event_time\" : 10}");
+        indexDoc(primary, "_doc", "1", "{\"event_time\" : 20}");
+        primary.refresh("test");
+
+        // the index is writable
+        assertThat(primary.getFieldRangeSummary(true), nullValue());
+
+        IndexMetadata blockedMetadata = IndexMetadata.builder(metadata)
+            .settings(Settings.builder().put(settings).put(IndexMetadata.INDEX_BLOCKS_WRITE_SETTING.getKey(), true))
+            .settingsVersion(metadata.getSettingsVersion() + 1)
+            .build();
+        primary.indexSettings().updateIndexMetadata(blockedMetadata);
+        // the block is not part of the cluster state that writes check yet
+        assertThat(primary.getFieldRangeSummary(false), nullValue());
+
+        ShardFieldRangeSummary summary = primary.getFieldRangeSummary(true);
+        assertThat(summary, notNullValue());
+        assertThat(summary.getFieldRange("event_time"), equalTo(ShardLongFieldRange.of(10, 20)));
+        assertTrue(summary.isValidFor(blockedMetadata));
+        // the summary is only taken once per reader
+        assertThat(primary.getFieldRangeSummary(true), sameInstance(summary));
+
+        // a write that acquired its permit before the block was applied may still be in flight
+        PlainActionFuture<Releasable> onPermitAcquired = new PlainActionFuture<>();
+        primary.acquirePrimaryOperationPermit(onPermitAcquired, ThreadPool.Names.SAME, "test");
+        try (Releasable ignored = onPermitAcquired.actionGet()) {
+            assertThat(primary.getFieldRangeSummary(true), nullValue());
+        }
+
+        // and its changes may not be visible yet
+        indexDoc(primary, "_doc", "2", "{\"event_time\" : 30}");
+        assertThat(primary.getFieldRangeSummary(true), nullValue());
+        primary.refresh("test");
+        ShardFieldRangeSummary refreshedSummary = primary.getFieldRangeSummary(true);
+        assertThat(refreshedSummary, not(sameInstance(summary)));
+        assertThat(refreshedSummary.getFieldRange("event_time"), equalTo(ShardLongFieldRange.of(10, 30)));
+
+        // replicas may not have received all writes
+        IndexShard replica = newShard(primary.shardId(), false, "n2", blockedMetadata, null);
+        recoverReplica(replica, primary, true);
+        replica.refresh("test");
+        assertThat(replica.getFieldRangeSummary(true), nullValue());
+
+        // the write block does not prevent adding a runtime field that shadows the date field, and the mapping of the index
+        // metadata is applied to the mapper service after the rest of the metadata
+        IndexMetadata shadowedMetadata = IndexMetadata.builder(blockedMetadata)
+            .putMapping("{ \"runtime\": { \"event_time\": { \"type\": \"date\"}}, " +
+                "\"properties\": { \"event_time\":  { \"type\": \"date\"}}}")
+            .mappingVersion(blockedMetadata.getMappingVersion() + 1)
+            .build();
+        assertFalse(refreshedSummary.isValidFor(shadowedMetadata));
+        primary.indexSettings().updateIndexMetadata(shadowedMetadata);
+        assertThat(primary.getFieldRangeSummary(true), nullValue());
+
+        closeShards(primary, replica);
+    }
+
     public void testRecoverFromTranslog() throws IOException {
         Settings settings = Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
             .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 1)
@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.shard;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.time.DateFormatter;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ShardFieldRangeSummaryTests extends ESTestCase {
+
+    private static IndexMetadata indexMetadata(boolean writeBlocked, long settingsVersion, long mappingVersion) {
+        return IndexMetadata.builder("test")
+            .settings(settings(Version.CURRENT).put(IndexMetadata.INDEX_BLOCKS_WRITE_SETTING.getKey(), writeBlocked))
+            .putMapping("{\"properties\":{\"date\":{\"type\":\"date\"}}}")
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .settingsVersion(settingsVersion)
+            .mappingVersion(mappingVersion)
+            .build();
+    }
+
+    public void testSummarize() throws IOException {
+        final Map<String, MappedFieldType> fieldTypes = new HashMap<>();
+        fieldTypes.put("date", new DateFieldMapper.DateFieldType("date"));
+        fieldTypes.put("date_without_points", new DateFieldMapper.DateFieldType("date_without_points"));
+        fieldTypes.put("date_without_docs", new DateFieldMapper.DateFieldType("date_without_docs"));
+        fieldTypes.put("unsearchable_date", new DateFieldMapper.DateFieldType("unsearchable_date", false, false, true,
+            DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER, DateFieldMapper.Resolution.MILLISECONDS, null, Collections.emptyMap()));
+        fieldTypes.put("long", new NumberFieldMapper.NumberFieldType("long", NumberFieldMapper.NumberType.LONG));
+
+        final long min = randomLongBetween(0, 1_000_000);
+        final long max = randomLongBetween(min, 2_000_000);
+        final IndexMetadata indexMetadata = indexMetadata(true, randomNonNegativeLong(), randomNonNegativeLong());
+        try (Directory directory = newDirectory(); RandomIndexWriter writer = new RandomIndexWriter(random(), directory)) {
+            for (long value : new long[] { min, max, randomLongBetween(min, max) }) {
+                Document document = new Document();
+                document.add(new LongPoint("date", value));
+                document.add(new SortedNumericDocValuesField("date_without_points", value));
+                document.add(new LongPoint("unsearchable_date", value));
+                document.add(new LongPoint("long", value));
+                document.add(new LongPoint("unmapped", value));
+                writer.addDocument(document);
+            }
+            try (DirectoryReader reader = writer.getReader()) {
+                ShardFieldRangeSummary summary = ShardFieldRangeSummary.summarize(indexMetadata, fieldTypes::get, reader);
+                assertThat(summary.getFieldRange("date"), equalTo(ShardLongFieldRange.of(min, max)));
+                assertThat(summary.getFieldType("date"), sameInstance(fieldTypes.get("date")));
+                assertThat(summary.getFieldRange("date_without_points"), sameInstance(ShardLongFieldRange.EMPTY));
+                for (String notSummarized : new String[] { "date_without_docs", "unsearchable_date", "long", "unmapped" }) {
+                    assertThat(summary.getFieldRange(notSummarized), sameInstance(ShardLongFieldRange.UNKNOWN));
+                    assertThat(summary.getFieldType(notSummarized), nullValue());
+                }
+                assertTrue(summary.isValidFor(indexMetadata));
+            }
+        }
+    }
+
+    public void testIsValidFor() {
+        final long settingsVersion = randomNonNegativeLong();
+        final long mappingVersion = randomNonNegativeLong();
+        final ShardFieldRangeSummary summary = new ShardFieldRangeSummary(settingsVersion, mappingVersion, Collections.emptyMap());
+        assertTrue(summary.isValidFor(indexMetadata(true, settingsVersion, mappingVersion)));
+        assertFalse(summary.isValidFor(indexMetadata(false, settingsVersion, mappingVersion)));
+        assertFalse(summary.isValidFor(
+            indexMetadata(true, randomValueOtherThan(settingsVersion, ESTestCase::randomNonNegativeLong), mappingVersion)));
+        assertFalse(summary.isValidFor(
+            indexMetadata(true, settingsVersion, randomValueOtherThan(mappingVersion, ESTestCase::randomNonNegativeLong))));
+    }
+
+    public void testShadowingRuntimeFieldInvalidatesSummary() throws IOException {
+        final IndexMetadata indexMetadata = indexMetadata(true, randomNonNegativeLong(), randomLongBetween(1, Long.MAX_VALUE - 1));
+        final Map<String, MappedFieldType> fieldTypes = Map.of("date", new DateFieldMapper.DateFieldType("date"));
+        try (Directory directory = newDirectory(); RandomIndexWriter writer = new RandomIndexWriter(random(), directory)) {
+            final Document document = new Document();
+            document.add(new LongPoint("date", randomNonNegativeLong()));
+            writer.addDocument(document);
+            try (DirectoryReader reader = writer.getReader()) {
+                final ShardFieldRangeSummary summary = ShardFieldRangeSummary.summarize(indexMetadata, fieldTypes::get, reader);
+                assertThat(summary.getFieldType("date"), sameInstance(fieldTypes.get("date")));
+                assertTrue(summary.isValidFor(indexMetadata));
+
+                // the write block does not prevent mapping updates, and queries on the date field now go to the runtime field
+                final IndexMetadata shadowedMetadata = IndexMetadata.builder(indexMetadata)
+                    .putMapping("{\"runtime\":{\"date\":{\"type\":\"date\"}},\"properties\":{\"date\":{\"type\":\"date\"}}}")
+                    .mappingVersion(indexMetadata.getMappingVersion() + 1)
+                    .build();
+                assertTrue(ShardFieldRangeSummary.isWriteBlocked(shadowedMetadata));
+                assertThat(shadowedMetadata.getSettingsVersion(), equalTo(indexMetadata.getSettingsVersion()));
+                assertFalse(summary.isValidFor(shadowedMetadata));
+            }
+        }
+    }
+
+    public void testSerialization() throws IOException {
+        final Map<String, ShardFieldRangeSummary.FieldRange> fieldRanges = new HashMap<>();
+        final int numFields = randomIntBetween(0, 5);
+        for (int i = 0; i < numFields; i++) {
+            final String name = "field_" + i;
+            final DateFormatter formatter = randomBoolean()
+                ? DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER
+                : DateFormatter.forPattern(randomFrom("yyyy-MM-dd", "epoch_millis", "dd/MMM/yyyy"))
+                    .withLocale(randomFrom(Locale.ROOT, Locale.GERMANY, Locale.JAPAN));
+            final DateFieldMapper.DateFieldType fieldType =
+                new DateFieldMapper.DateFieldType(name, randomFrom(DateFieldMapper.Resolution.values()), formatter);
+            fieldRanges.put(name, new ShardFieldRangeSummary.FieldRange(fieldType, ShardLongFieldRangeWireTests.randomRange()));
+        }
+        final ShardFieldRangeSummary summary = new ShardFieldRangeSummary(randomNonNegativeLong(), randomNonNegativeLong(), fieldRanges);
+
+        final ShardFieldRangeSummary copy =
+            copyWriteable(summary, new NamedWriteableRegistry(Collections.emptyList()), ShardFieldRangeSummary::new);
+        for (Map.Entry<String, ShardFieldRangeSummary.FieldRange> entry : fieldRanges.entrySet()) {
+            final DateFieldMapper.DateFieldType expected = summary.getFieldType(entry.getKey());
+            final DateFieldMapper.DateFieldType actual = copy.getFieldType(entry.getKey());
+            assertThat(actual.name(), equalTo(expected.name()));
+            assertThat(actual.resolution(), equalTo(expected.resolution()));
+            assertThat(actual.dateTimeFormatter().pattern(), equalTo(expected.dateTimeFormatter().pattern()));
+            assertThat(actual.dateTimeFormatter().locale(), equalTo(expected.dateTimeFormatter().locale()));
+            assertThat(copy.getFieldRange(entry.getKey()), equalTo(summary.getFieldRange(entry.getKey())));
+        }
+    }
+}
@@ -50,6 +50,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
@@ -136,6 +137,7 @@ import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.hasToString;
 import static org.hamcrest.Matchers.in;
 import static org.hamcrest.Matchers.instanceOf;
@@ -1406,6 +1408,53 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testTranslogWriterConcurrentAdds() throws Exception {
+        final TranslogWriter writer = translog.createWriter(translog.currentFileGeneration() + 1);
+        final Set<Long> persistedSeqNos = ConcurrentCollections.newConcurrentSet();
+        persistedSeqNoConsumer.set(persistedSeqNos::add);
+        final Thread[] threads = new Thread[between(2, 8)];
+        final Phaser phaser = new Phaser(threads.length);
+        final AtomicLong nextSeqNo = new AtomicLong();
+        final Map<Translog.Location, BytesArray> written = ConcurrentCollections.newConcurrentMap();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                phaser.arriveAndAwaitAdvance();
+                final int iterations = scaledRandomIntBetween(10, 500);
+                for (int i = 0; i < iterations; i++) {
+                    // sizes up to a few pages so that reservations regularly span page boundaries
+                    final BytesArray bytes = new BytesArray(randomByteArrayOfLength(
+                        rarely() ? between(1, PageCacheRecycler.BYTE_PAGE_SIZE * 3) : between(1, 512)));
+                    try {
+                        written.put(writer.add(ReleasableBytesReference.wrap(bytes), nextSeqNo.getAndIncrement()), bytes);
+                        if (rarely()) {
+                            writer.sync();
+                        }
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.sync();
+        assertThat(persistedSeqNos, hasSize(written.size()));
+        assertThat(writer.totalOperations(), equalTo(written.size()));
+        assertThat(writer.getLastSyncedCheckpoint().maxSeqNo, equalTo(nextSeqNo.get() - 1));
+
+        long expectedSize = writer.getFirstOperationOffset();
+        for (Map.Entry<Translog.Location, BytesArray> entry : written.entrySet()) {
+            final ByteBuffer buffer = ByteBuffer.allocate(entry.getKey().size);
+            writer.readBytes(buffer, entry.getKey().translogLocation);
+            assertThat(new BytesArray(buffer.array()), equalTo(entry.getValue()));
+            expectedSize += entry.getKey().size;
+        }
+        assertThat(writer.sizeInBytes(), equalTo(expectedSize));
+        IOUtils.close(writer);
+    }
+
     public void testTranslogWriterDoesNotBlockAddsOnWrite() throws IOException, InterruptedException {
         Path tempDir = createTempDir();
         final TranslogConfig config = getTranslogConfig(tempDir);
@@ -0,0 +1,211 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.elasticsearch.cluster.coordination.DeterministicTaskQueue;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardTestCase;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardPath;
+import org.elasticsearch.index.translog.Translog;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.node.Node.NODE_NAME_SETTING;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TranslogGroupCommitServiceTests extends IndexShardTestCase {
+
+    public void testDisabledByDefault() {
+        assertFalse(new TranslogGroupCommitService(Settings.EMPTY, threadPool).isEnabled());
+        assertTrue(new TranslogGroupCommitService(Settings.builder()
+            .put(TranslogGroupCommitService.GROUP_COMMIT_WINDOW_SETTING.getKey(), "2ms").build(), threadPool).isEnabled());
+    }
+
+    public void testWindowIsBounded() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> TranslogGroupCommitService.GROUP_COMMIT_WINDOW_SETTING.get(Settings.builder()
+                .put(TranslogGroupCommitService.GROUP_COMMIT_WINDOW_SETTING.getKey(), "1s").build()));
+        assertThat(e.getMessage(), containsString("indices.translog.group_commit.window"));
+    }
+
+    public void testSyncsPendingLocations() throws Exception {
+        final TranslogGroupCommitService service = new TranslogGroupCommitService(Settings.builder()
+            .put(TranslogGroupCommitService.GROUP_COMMIT_WINDOW_SETTING.getKey(), randomIntBetween(1, 5) + "ms").build(), threadPool);
+        final List<IndexShard> shards = new ArrayList<>();
+        final int numShards = randomIntBetween(1, 4);
+        for (int i = 0; i < numShards; i++) {
+            final IndexShard shard = newStartedShard(true);
+            shard.setTranslogGroupCommitService(service);
+            shards.add(shard);
+        }
+        try {
+            final List<Translog.Location> locations = new ArrayList<>();
+            final List<IndexShard> locationShards = new ArrayList<>();
+            for (IndexShard shard : shards) {
+                final int numDocs = randomIntBetween(1, 10);
+                for (int i = 0; i < numDocs; i++) {
+                    final Engine.IndexResult result = indexDoc(shard, "_doc", Integer.toString(i));
+                    locations.add(result.getTranslogLocation());
+                    locationShards.add(shard);
+                }
+                assertTrue(shard.isSyncNeeded());
+            }
+
+            final CountDownLatch latch = new CountDownLatch(locations.size());
+            final List<Exception> failures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < locations.size(); i++) {
+                locationShards.get(i).sync(locations.get(i), e -> {
+                    if (e != null) {
+                        failures.add(e);
+                    }
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertThat(failures, empty());
+            for (IndexShard shard : shards) {
+                assertFalse(shard.isSyncNeeded());
+            }
+        } finally {
+            closeShards(shards);
+            service.close();
+        }
+    }
+
+    public void testFewerFsyncsThanSyncs() throws Exception {
+        // a window that is much longer than it takes to request all syncs, so that each shard needs at most two batches
+        final TranslogGroupCommitService service = new TranslogGroupCommitService(Settings.builder()
+            .put(TranslogGroupCommitService.GROUP_COMMIT_WINDOW_SETTING.getKey(), "100ms").build(), threadPool);
+        final List<IndexShard> shards = new ArrayList<>();
+        final int numShards = randomIntBetween(1, 4);
+        for (int i = 0; i < numShards; i++) {
+            final IndexShard shard = newStartedShard(true);
+            shard.setTranslogGroupCommitService(service);
+            shards.add(shard);
+        }
+        try {
+            final List<Translog.Location> locations = new ArrayList<>();
+            final List<IndexShard> locationShards = new ArrayList<>();
+            for (IndexShard shard : shards) {
+                final int numDocs = randomIntBetween(5, 20);
+                for (int i = 0; i < numDocs; i++) {
+                    locations.add(indexDoc(shard, "_doc", Integer.toString(i)).getTranslogLocation());
+                    locationShards.add(shard);
+                }
+            }
+
+            final CountDownLatch latch = new CountDownLatch(locations.size());
+            final List<Exception> failures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < locations.size(); i++) {
+                locationShards.get(i).sync(locations.get(i), e -> {
+                    if (e != null) {
+                        failures.add(e);
+                    }
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertThat(failures, empty());
+            assertThat(service.syncCount(), equalTo((long) locations.size()));
+            assertThat(service.fsyncCount(), lessThanOrEqualTo(2L * numShards));
+            assertThat(service.fsyncCount(), lessThan(service.syncCount()));
+        } finally {
+            closeShards(shards);
+            service.close();
+        }
+    }
+
+    public void testBatchesOnADataPath() {
+        final DeterministicTaskQueue taskQueue =
+            new DeterministicTaskQueue(Settings.builder().put(NODE_NAME_SETTING.getKey(), "node").build(), random());
+        final long windowMillis = randomLongBetween(1, 100);
+        final List<IndexShard> synced = new CopyOnWriteArrayList<>();
+        final TranslogGroupCommitService service = new TranslogGroupCommitService(Settings.builder()
+            .put(TranslogGroupCommitService.GROUP_COMMIT_WINDOW_SETTING.getKey(), windowMillis + "ms").build(), taskQueue.getThreadPool(),
+            () -> TimeUnit.MILLISECONDS.toNanos(taskQueue.getCurrentTimeMillis()),
+            (shard, locations) -> {
+                synced.add(shard);
+                return true;
+            });
+
+        final Path dataPath = createTempDir();
+        final List<IndexShard> shards = new ArrayList<>();
+        final int numShards = randomIntBetween(2, 5);
+        for (int i = 0; i < numShards; i++) {
+            final ShardId shardId = new ShardId("index", "_na_", i);
+            final Path shardPath = dataPath.resolve("indices").resolve("_na_").resolve(Integer.toString(i));
+            final IndexShard shard = mock(IndexShard.class);
+            when(shard.shardId()).thenReturn(shardId);
+            when(shard.shardPath()).thenReturn(new ShardPath(false, shardPath, shardPath, shardId));
+            shards.add(shard);
+        }
+
+        // an idle data path syncs right away
+        final AtomicInteger acknowledged = new AtomicInteger();
+        for (IndexShard shard : shards) {
+            for (int i = randomIntBetween(1, 3); i > 0; i--) {
+                service.sync(shard, new Translog.Location(0, i, 1), e -> {
+                    assertNull(e);
+                    acknowledged.incrementAndGet();
+                });
+            }
+        }
+        assertTrue(taskQueue.hasRunnableTasks());
+        assertFalse(taskQueue.hasDeferredTasks());
+
+        // the batch syncs one shard itself and forks the others, so that their fsyncs run concurrently
+        taskQueue.runRandomTask();
+        assertThat(synced.size(), equalTo(1));
+        assertTrue(taskQueue.hasRunnableTasks());
+        taskQueue.runAllRunnableTasks();
+        assertThat(synced.size(), equalTo(numShards));
+        assertThat(acknowledged.get(), equalTo((int) service.syncCount()));
+        assertThat(service.fsyncCount(), equalTo((long) numShards));
+
+        // syncs that arrive within the window of the last batch wait for the window to end
+        final IndexShard shard = randomFrom(shards);
+        service.sync(shard, new Translog.Location(0, 10, 1), e -> acknowledged.incrementAndGet());
+        service.sync(shard, new Translog.Location(0, 11, 1), e -> acknowledged.incrementAndGet());
+        assertFalse(taskQueue.hasRunnableTasks());
+        assertTrue(taskQueue.hasDeferredTasks());
+        taskQueue.advanceTime();
+        assertThat(taskQueue.getCurrentTimeMillis(), equalTo(windowMillis));
+        taskQueue.runAllRunnableTasks();
+        assertThat(acknowledged.get(), equalTo((int) service.syncCount()));
+        // both syncs of the shard were covered by a single fsync
+        assertThat(service.fsyncCount(), equalTo((long) numShards + 1));
+        assertFalse(taskQueue.hasDeferredTasks());
+    }
+}
@@ -28,6 +28,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -137,4 +138,44 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertTrue(nodeStats.containsKey("node1"));
         assertFalse(nodeStats.containsKey("node2"));
     }
+
+    public void testShardCopyStats() {
+        ShardId shardId = new ShardId("index", "_na_", 0);
+        assertFalse(collector.getShardCopyStatistics(shardId, "node1").isPresent());
+
+        collector.onShardCopyRequestStart(shardId, "node1");
+        collector.onShardCopyRequestStart(shardId, "node1");
+        ResponseCollectorService.ComputedShardCopyStats stats = collector.getShardCopyStatistics(shardId, "node1").get();
+        assertThat(stats.inFlightRequests, equalTo(2L));
+        assertThat(stats.queryTook, equalTo(-1.0));
+
+        collector.onShardCopyRequestEnd(shardId, "node1");
+        collector.addShardCopyStatistics(shardId, "node1", 100);
+        stats = collector.getShardCopyStatistics(shardId, "node1").get();
+        assertThat(stats.inFlightRequests, equalTo(1L));
+        assertThat(stats.queryTook, equalTo(100.0));
+        assertFalse(collector.getShardCopyStatistics(shardId, "node2").isPresent());
+        assertFalse(collector.getShardCopyStatistics(new ShardId("index", "_na_", 1), "node1").isPresent());
+
+        collector.onShardCopyRequestEnd(shardId, "node1");
+        collector.onShardCopyRequestEnd(shardId, "node1");
+        assertThat(collector.getShardCopyStatistics(shardId, "node1").get().inFlightRequests, equalTo(0L));
+
+        collector.removeNode("node1");
+        assertFalse(collector.getShardCopyStatistics(shardId, "node1").isPresent());
+    }
+
+    public void testShardCopyRank() {
+        ResponseCollectorService.ComputedNodeStats nodeStats =
+            new ResponseCollectorService.ComputedNodeStats("node1", 2, 1, 1_000_000, 1_000_000);
+        double nodeRank = nodeStats.rank(1);
+        assertThat(nodeStats.rank(1, null), equalTo(nodeRank));
+        // without a query time and requests in flight the copy ranks like its node
+        assertThat(nodeStats.rank(1, new ResponseCollectorService.ComputedShardCopyStats(-1, 0)), equalTo(nodeRank));
+        double fastCopyRank = nodeStats.rank(1, new ResponseCollectorService.ComputedShardCopyStats(500_000, 0));
+        double slowCopyRank = nodeStats.rank(1, new ResponseCollectorService.ComputedShardCopyStats(5_000_000, 0));
+        double busyCopyRank = nodeStats.rank(1, new ResponseCollectorService.ComputedShardCopyStats(500_000, 5));
+        assertThat(slowCopyRank, greaterThan(fastCopyRank));
+        assertThat(busyCopyRank, greaterThan(fastCopyRank));
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ChunkedRestResponseBodyTests extends ESTestCase {
+
+    private static ChunkedToXContent randomChunkedToXContent(int numParts) {
+        final List<ToXContent> parts = new ArrayList<>();
+        parts.add((builder, params) -> builder.startObject().startArray("parts"));
+        for (int i = 0; i < numParts; i++) {
+            final int part = i;
+            final String value = randomAlphaOfLengthBetween(0, 100);
+            parts.add((builder, params) -> builder.startObject().field("part", part).field("value", value).endObject());
+        }
+        parts.add((builder, params) -> builder.endArray().endObject());
+        return params -> parts.iterator();
+    }
+
+    private static BytesReference toXContent(ChunkedToXContent chunkedToXContent, RestChannel channel) throws IOException {
+        final XContentBuilder builder = channel.newBuilder();
+        final ToXContent.Params params = channel.request();
+        chunkedToXContent.toXContentChunked(params).forEachRemaining(part -> {
+            try {
+                part.toXContent(builder, params);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        return BytesReference.bytes(builder);
+    }
+
+    public void testChunksReassembleToFullResponse() throws IOException {
+        final ChunkedToXContent chunkedToXContent = randomChunkedToXContent(randomIntBetween(0, 1000));
+        final FakeRestRequest request = new FakeRestRequest();
+        final FakeRestChannel channel = new FakeRestChannel(request, randomBoolean(), 1);
+        final BytesReference expected = toXContent(chunkedToXContent, channel);
+
+        final ChunkedRestResponseBody body = ChunkedRestResponseBody.fromXContent(chunkedToXContent, request, channel);
+        assertThat(body.getResponseContentTypeString(), equalTo(channel.newBuilder().contentType().mediaType()));
+        int numChunks = 0;
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            while (body.isDone() == false) {
+                final int sizeHint = randomIntBetween(1, 1024);
+                try (ReleasableBytesReference chunk = body.encodeChunk(sizeHint, BigArrays.NON_RECYCLING_INSTANCE)) {
+                    chunk.writeTo(out);
+                }
+                numChunks++;
+            }
+            assertEquals(expected, out.bytes());
+        }
+        assertThat(numChunks, greaterThan(0));
+
+        // a response that is serialized up front renders the same bytes
+        final ChunkedRestResponse response =
+            new ChunkedRestResponse(RestStatus.OK, ChunkedRestResponseBody.fromXContent(chunkedToXContent, request, channel));
+        assertNotNull(response.chunkedContent());
+        assertEquals(expected, response.content());
+        assertNull(response.chunkedContent());
+    }
+
+    public void testChunkPagesAreReleased() throws IOException {
+        final MockBigArrays bigArrays =
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new ByteSizeValue(100, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final FakeRestRequest request = new FakeRestRequest();
+        final FakeRestChannel channel = new FakeRestChannel(request, randomBoolean(), 1);
+        final ChunkedRestResponseBody body =
+            ChunkedRestResponseBody.fromXContent(randomChunkedToXContent(randomIntBetween(100, 1000)), request, channel);
+
+        while (body.isDone() == false) {
+            final ReleasableBytesReference chunk = body.encodeChunk(randomIntBetween(1, 16 * 1024), bigArrays);
+            assertThat(breaker.getUsed(), greaterThan(0L));
+            chunk.close();
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+        // ESTestCase#after will invoke ensureAllArraysAreReleased which will fail if a chunk was not released
+    }
+
+    public void testChunkPagesAreReleasedOnFailure() throws IOException {
+        final MockBigArrays bigArrays =
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new ByteSizeValue(100, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final FakeRestRequest request = new FakeRestRequest();
+        final FakeRestChannel channel = new FakeRestChannel(request, randomBoolean(), 1);
+        final ChunkedToXContent failing = params -> List.<ToXContent>of(
+            (builder, p) -> builder.startObject().field("field", randomAlphaOfLength(10)),
+            (builder, p) -> {
+                throw new IOException("simulated");
+            },
+            (builder, p) -> builder.endObject()
+        ).iterator();
+        final ChunkedRestResponseBody body = ChunkedRestResponseBody.fromXContent(failing, request, channel);
+
+        final IOException e = expectThrows(IOException.class, () -> body.encodeChunk(randomIntBetween(1024, 16 * 1024), bigArrays));
+        assertThat(e.getMessage(), equalTo("simulated"));
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ColumnarResponseWriterTests extends ESTestCase {
+
+    public void testElementTypes() {
+        ColumnarBatch batch = new ColumnarBatch("test");
+        ColumnarBatch.Column integral = batch.addColumn("integral", false);
+        ColumnarBatch.Column floating = batch.addColumn("floating", false);
+        ColumnarBatch.Column bool = batch.addColumn("bool", false);
+        ColumnarBatch.Column mixed = batch.addColumn("mixed", false);
+        ColumnarBatch.Column empty = batch.addColumn("empty", false);
+        integral.append(1);
+        floating.append(1L);
+        bool.append(true);
+        mixed.append(1L);
+        batch.endRow();
+        integral.append(2L);
+        floating.append(1.5f);
+        bool.append(false);
+        mixed.append("foo");
+        batch.endRow();
+        assertEquals(2, batch.rowCount());
+        assertEquals(ColumnarBatch.ElementType.INT64, integral.elementType());
+        assertEquals(ColumnarBatch.ElementType.FLOAT64, floating.elementType());
+        assertEquals(ColumnarBatch.ElementType.BOOLEAN, bool.elementType());
+        assertEquals(ColumnarBatch.ElementType.UTF8, mixed.elementType());
+        assertEquals(ColumnarBatch.ElementType.UTF8, empty.elementType());
+    }
+
+    public void testRoundTrip() throws IOException {
+        int rows = randomIntBetween(0, 100);
+        List<Long> longs = new ArrayList<>();
+        List<Double> doubles = new ArrayList<>();
+        List<Boolean> booleans = new ArrayList<>();
+        List<String> strings = new ArrayList<>();
+        List<List<Long>> lists = new ArrayList<>();
+        ColumnarBatch batch = new ColumnarBatch(randomAlphaOfLength(5));
+        ColumnarBatch.Column longColumn = batch.addColumn("long", false);
+        ColumnarBatch.Column doubleColumn = batch.addColumn("double", false);
+        ColumnarBatch.Column booleanColumn = batch.addColumn("boolean", false);
+        ColumnarBatch.Column stringColumn = batch.addColumn("string", false);
+        ColumnarBatch.Column listColumn = batch.addColumn("list", true);
+        for (int i = 0; i < rows; i++) {
+            longs.add(randomBoolean() ? null : randomLong());
+            doubles.add(randomBoolean() ? null : randomDouble());
+            booleans.add(randomBoolean() ? null : randomBoolean());
+            strings.add(randomBoolean() ? null : randomUnicodeOfLengthBetween(0, 10));
+            lists.add(randomBoolean() ? null : randomList(0, 5, ESTestCase::randomLong));
+            longColumn.append(longs.get(i));
+            doubleColumn.append(doubles.get(i));
+            booleanColumn.append(booleans.get(i));
+            stringColumn.append(strings.get(i));
+            listColumn.appendList(lists.get(i));
+            batch.endRow();
+        }
+
+        BytesReference bytes = ColumnarResponseWriter.write(Collections.singletonList(batch));
+        ByteBuffer buffer = ByteBuffer.wrap(BytesReference.toBytes(bytes)).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[4];
+        buffer.get(magic);
+        assertArrayEquals(ColumnarResponseWriter.MAGIC, magic);
+        assertEquals(ColumnarResponseWriter.VERSION, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+
+        align(buffer);
+        assertEquals(batch.name(), readString(buffer));
+        assertEquals(rows, buffer.getInt());
+        assertEquals(5, buffer.getInt());
+        List<String> names = new ArrayList<>();
+        List<Byte> types = new ArrayList<>();
+        List<Boolean> isList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            names.add(readString(buffer));
+            types.add(buffer.get());
+            isList.add(buffer.get() == 1);
+        }
+        assertEquals(Arrays.asList("long", "double", "boolean", "string", "list"), names);
+        assertEquals(Arrays.asList(false, false, false, false, true), isList);
+
+        List<List<?>> expectedColumns = Arrays.asList(longs, doubles, booleans, strings);
+        for (int c = 0; c < expectedColumns.size(); c++) {
+            int count = readValidity(buffer, rows, expectedColumns.get(c));
+            assertEquals(nonNull(expectedColumns.get(c)), readValues(buffer, types.get(c), count));
+        }
+
+        readValidity(buffer, rows, lists);
+        align(buffer);
+        int[] offsets = new int[rows + 1];
+        for (int i = 0; i <= rows; i++) {
+            offsets[i] = buffer.getInt();
+        }
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            int length = lists.get(i) == null ? 0 : lists.get(i).size();
+            assertEquals(length, offsets[i + 1] - offsets[i]);
+            if (lists.get(i) != null) {
+                values.addAll(lists.get(i));
+            }
+        }
+        assertEquals(values, readValues(buffer, types.get(4), offsets[rows]));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private static <T> List<T> nonNull(List<T> values) {
+        List<T> nonNull = new ArrayList<>();
+        for (T value : values) {
+            if (value != null) {
+                nonNull.add(value);
+            }
+        }
+        return nonNull;
+    }
+
+    /**
+     * Checks the validity bitmap against the given values and returns the number of values that are not null.
+     */
+    private static int readValidity(ByteBuffer buffer, int rows, List<?> expected) {
+        boolean[] validity = readBitmap(buffer, rows);
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            assertEquals(expected.get(i) != null, validity[i]);
+            if (validity[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean[] readBitmap(ByteBuffer buffer, int length) {
+        align(buffer);
+        byte[] bytes = new byte[(length + 7) / 8];
+        buffer.get(bytes);
+        boolean[] bits = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            bits[i] = (bytes[i / 8] & (1 << (i % 8))) != 0;
+        }
+        return bits;
+    }
+
+    private static List<?> readValues(ByteBuffer buffer, byte type, int count) {
+        if (count == 0) {
+            // columns without values are written as empty string columns
+            assertEquals(ColumnarBatch.ElementType.UTF8.id(), type);
+        }
+        if (type == ColumnarBatch.ElementType.INT64.id()) {
+            return readLongs(buffer, count);
+        } else if (type == ColumnarBatch.ElementType.FLOAT64.id()) {
+            return readDoubles(buffer, count);
+        } else if (type == ColumnarBatch.ElementType.BOOLEAN.id()) {
+            List<Boolean> values = new ArrayList<>();
+            for (boolean value : readBitmap(buffer, count)) {
+                values.add(value);
+            }
+            return values;
+        } else {
+            assertEquals(ColumnarBatch.ElementType.UTF8.id(), type);
+            return readStrings(buffer, count);
+        }
+    }
+
+    private static List<Long> readLongs(ByteBuffer buffer, int count) {
+        align(buffer);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(buffer.getLong());
+        }
+        return values;
+    }
+
+    private static List<Double> readDoubles(ByteBuffer buffer, int count) {
+        align(buffer);
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(buffer.getDouble());
+        }
+        return values;
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer, int count) {
+        align(buffer);
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            offsets[i] = buffer.getInt();
+        }
+        align(buffer);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[offsets[i + 1] - offsets[i]];
+            buffer.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void align(ByteBuffer buffer) {
+        while (buffer.position() % 8 != 0) {
+            buffer.get();
+        }
+    }
+}
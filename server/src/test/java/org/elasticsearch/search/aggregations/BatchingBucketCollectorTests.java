@@ -0,0 +1,168 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class BatchingBucketCollectorTests extends ESTestCase {
+
+    private static class RecordingBucketCollector extends BucketCollector {
+        private final List<Integer> docs = new ArrayList<>();
+        private final List<Integer> blockSizes = new ArrayList<>();
+        private final int terminateAfterBlocks;
+        private final boolean collectsBlocks;
+
+        RecordingBucketCollector(int terminateAfterBlocks, boolean collectsBlocks) {
+            this.terminateAfterBlocks = terminateAfterBlocks;
+            this.collectsBlocks = collectsBlocks;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext context) {
+            return new LeafBucketCollector() {
+                private int blocks;
+
+                @Override
+                public void collect(int doc, long bucket) {
+                    docs.add(context.docBase + doc);
+                }
+
+                @Override
+                public void collect(int[] blockDocs, int count, long bucket) throws IOException {
+                    if (blocks++ >= terminateAfterBlocks) {
+                        throw new CollectionTerminatedException();
+                    }
+                    assertThat(bucket, equalTo(0L));
+                    blockSizes.add(count);
+                    super.collect(blockDocs, count, bucket);
+                }
+
+                @Override
+                public boolean collectsBlocks() {
+                    return collectsBlocks;
+                }
+            };
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+
+        @Override
+        public void preCollection() {}
+    }
+
+    public void testCollectInBlocks() throws IOException {
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                w.addDocument(new Document());
+                if (rarely()) {
+                    w.commit();
+                }
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                RecordingBucketCollector recording = new RecordingBucketCollector(Integer.MAX_VALUE, true);
+                BatchingBucketCollector collector = new BatchingBucketCollector(recording);
+                collector.preCollection();
+                searcher.search(new MatchAllDocsQuery(), collector);
+                collector.flush();
+
+                assertThat(recording.docs.size(), equalTo(numDocs));
+                for (int i = 1; i < recording.docs.size(); i++) {
+                    assertTrue(recording.docs.get(i - 1) < recording.docs.get(i));
+                }
+                for (int blockSize : recording.blockSizes) {
+                    assertThat(blockSize, lessThanOrEqualTo(BatchingBucketCollector.BLOCK_SIZE));
+                }
+                // all blocks but the last of each segment are full
+                assertThat(recording.blockSizes.size(),
+                    lessThanOrEqualTo(numDocs / BatchingBucketCollector.BLOCK_SIZE + reader.leaves().size()));
+            }
+        }
+    }
+
+    public void testTerminateInBlock() throws IOException {
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            int numDocs = randomIntBetween(BatchingBucketCollector.BLOCK_SIZE + 1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                w.addDocument(new Document());
+            }
+            w.forceMerge(1);
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                RecordingBucketCollector recording = new RecordingBucketCollector(1, true);
+                BatchingBucketCollector collector = new BatchingBucketCollector(recording);
+                collector.preCollection();
+                searcher.search(new MatchAllDocsQuery(), collector);
+                collector.flush();
+
+                assertThat(recording.blockSizes.size(), equalTo(1));
+                assertThat(recording.docs.size(), equalTo(BatchingBucketCollector.BLOCK_SIZE));
+            }
+        }
+    }
+
+    public void testPassThroughIfBlocksAreNotCollected() throws IOException {
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                w.addDocument(new Document());
+                if (rarely()) {
+                    w.commit();
+                }
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                RecordingBucketCollector recording = new RecordingBucketCollector(Integer.MAX_VALUE, false);
+                BatchingBucketCollector collector = new BatchingBucketCollector(recording);
+                collector.preCollection();
+                searcher.search(new MatchAllDocsQuery(), collector);
+                // the documents were collected one at a time, there is nothing left to flush
+                assertThat(recording.docs.size(), equalTo(numDocs));
+                collector.flush();
+
+                assertThat(recording.docs.size(), equalTo(numDocs));
+                assertThat(recording.blockSizes.size(), equalTo(0));
+            }
+        }
+    }
+}
@@ -39,6 +39,8 @@ import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.network.InetAddresses;
@@ -46,6 +48,8 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.mapper.GeoPointFieldMapper;
 import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.IpFieldMapper;
@@ -84,8 +88,13 @@ import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuil
 import org.elasticsearch.search.aggregations.bucket.global.InternalGlobal;
 import org.elasticsearch.search.aggregations.bucket.nested.InternalNested;
 import org.elasticsearch.search.aggregations.bucket.nested.NestedAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.Avg;
 import org.elasticsearch.search.aggregations.metrics.InternalTopHits;
+import org.elasticsearch.search.aggregations.metrics.Max;
+import org.elasticsearch.search.aggregations.metrics.Min;
+import org.elasticsearch.search.aggregations.metrics.Sum;
 import org.elasticsearch.search.aggregations.metrics.TopHitsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ValueCount;
 import org.elasticsearch.search.aggregations.pipeline.BucketScriptPipelineAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
@@ -100,6 +109,7 @@ import org.elasticsearch.test.geo.RandomGeoGenerator;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -1391,6 +1401,79 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    public void testPreAggregatedSegments() throws IOException {
+        IndexSettings indexSettings = new IndexSettings(
+            IndexMetadata.builder("_index").settings(Settings.builder()
+                    .put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+                    .putList(PreAggregationCache.INDEX_PRE_AGGREGATION_DIMENSIONS_SETTING.getKey(), "dimension")
+                    .putList(PreAggregationCache.INDEX_PRE_AGGREGATION_METRICS_SETTING.getKey(), "metric"))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .build(),
+            Settings.EMPTY
+        );
+        MappedFieldType dimensionType = new KeywordFieldMapper.KeywordFieldType("dimension");
+        MappedFieldType metricType = new NumberFieldMapper.NumberFieldType("metric", NumberFieldMapper.NumberType.LONG);
+        long[] docCounts = new long[3];
+        long[] sums = new long[3];
+        long[] mins = new long[] {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] maxes = new long[] {Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(10, 200);
+                for (int i = 0; i < numDocs; i++) {
+                    int bucket = randomIntBetween(0, 2);
+                    long value = randomLongBetween(-1000, 1000);
+                    Document document = new Document();
+                    document.add(new SortedSetDocValuesField("dimension", new BytesRef("v" + bucket)));
+                    document.add(new SortedNumericDocValuesField("metric", value));
+                    indexWriter.addDocument(document);
+                    docCounts[bucket]++;
+                    sums[bucket] += value;
+                    mins[bucket] = Math.min(mins[bucket], value);
+                    maxes[bucket] = Math.max(maxes[bucket], value);
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                }
+                try (IndexReader indexReader = maybeWrapReaderEs(indexWriter.getReader())) {
+                    IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name")
+                        .field("dimension")
+                        .order(BucketOrder.key(true))
+                        .collectMode(Aggregator.SubAggCollectionMode.DEPTH_FIRST)
+                        .subAggregation(AggregationBuilders.sum("sum").field("metric"))
+                        .subAggregation(AggregationBuilders.min("min").field("metric"))
+                        .subAggregation(AggregationBuilders.max("max").field("metric"))
+                        .subAggregation(AggregationBuilders.avg("avg").field("metric"))
+                        .subAggregation(AggregationBuilders.count("count").field("metric"));
+                    AggregationContext context = createAggregationContext(indexSearcher, indexSettings, new MatchAllDocsQuery(),
+                        new NoneCircuitBreakerService(), DEFAULT_MAX_BUCKETS, dimensionType, metricType);
+                    TermsAggregator aggregator = createAggregator(aggregationBuilder, context);
+                    aggregator.preCollection();
+                    indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                    aggregator.postCollection();
+                    Map<String, Object> debug = new HashMap<>();
+                    aggregator.collectDebugInfo(debug::put);
+                    assertThat(debug.get("segments_pre_aggregated"), equalTo(indexReader.leaves().size()));
+
+                    Terms result = reduce(aggregator, context.bigArrays());
+                    for (Terms.Bucket bucket : result.getBuckets()) {
+                        int ord = Integer.parseInt(bucket.getKeyAsString().substring(1));
+                        assertEquals(docCounts[ord], bucket.getDocCount());
+                        assertEquals(sums[ord], ((Sum) bucket.getAggregations().get("sum")).getValue(), 0d);
+                        assertEquals(mins[ord], ((Min) bucket.getAggregations().get("min")).getValue(), 0d);
+                        assertEquals(maxes[ord], ((Max) bucket.getAggregations().get("max")).getValue(), 0d);
+                        assertEquals((double) sums[ord] / docCounts[ord], ((Avg) bucket.getAggregations().get("avg")).getValue(), 0.0001);
+                        assertEquals(docCounts[ord], ((ValueCount) bucket.getAggregations().get("count")).getValue());
+                    }
+                    long nonEmptyBuckets = Arrays.stream(docCounts).filter(c -> c > 0).count();
+                    assertEquals(nonEmptyBuckets, result.getBuckets().size());
+                }
+            }
+        }
+    }
+
     public void testOrderByPipelineAggregation() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
@@ -23,12 +23,18 @@ import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.index.mapper.ContentPath;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.index.mapper.RangeFieldMapper;
@@ -39,6 +45,7 @@ import org.elasticsearch.search.aggregations.support.AggregationInspectionHelper
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -169,6 +176,30 @@ public class CardinalityAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testPrecomputedHashes() throws IOException {
+        MappedFieldType fieldType = new KeywordFieldMapper.Builder("str").precomputeHash(true).build(new ContentPath()).fieldType();
+        final CardinalityAggregationBuilder aggregationBuilder = new CardinalityAggregationBuilder("_name").field("str");
+        testAggregation(aggregationBuilder, new MatchAllDocsQuery(), iw -> {
+            iw.addDocument(keywordWithHash("str", "a"));
+            iw.addDocument(keywordWithHash("str", "b"));
+            iw.addDocument(keywordWithHash("str", "a"));
+            iw.addDocument(keywordWithHash("str", "c"));
+            iw.addDocument(singleton(new SortedNumericDocValuesField("number", 1)));
+        }, card -> {
+            assertEquals(3.0, card.getValue(), 0);
+            assertTrue(AggregationInspectionHelper.hasValue(card));
+        }, fieldType);
+    }
+
+    private static List<IndexableField> keywordWithHash(String field, String value) {
+        BytesRef bytes = new BytesRef(value);
+        MurmurHash3.Hash128 hash = MurmurHash3.hash128(bytes.bytes, bytes.offset, bytes.length, 0, new MurmurHash3.Hash128());
+        return List.of(
+            new SortedSetDocValuesField(field, bytes),
+            new SortedNumericDocValuesField(field + KeywordFieldMapper.PRECOMPUTED_HASH_SUFFIX, hash.h1)
+        );
+    }
+
     private void testAggregation(Query query, CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
                           Consumer<InternalCardinality> verify) throws IOException {
         MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.LONG);
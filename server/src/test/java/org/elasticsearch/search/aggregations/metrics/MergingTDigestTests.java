@@ -0,0 +1,168 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import com.tdunning.math.stats.Centroid;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class MergingTDigestTests extends ESTestCase {
+
+    public void testFewValuesAreKeptExactly() {
+        final TDigestState expected = new TDigestState(100);
+        try (MergingTDigest digest = new MergingTDigest(100, BigArrays.NON_RECYCLING_INSTANCE)) {
+            final int numValues = randomIntBetween(1, 10);
+            for (int i = 0; i < numValues; i++) {
+                final double value = randomDoubleBetween(-100, 100, true);
+                expected.add(value);
+                digest.add(value);
+            }
+            final TDigestState state = digest.toTDigestState();
+            assertThat(state.size(), equalTo(expected.size()));
+            assertThat(state.centroidCount(), equalTo(numValues));
+            final Iterator<? extends Centroid> expectedCentroids = expected.centroids().iterator();
+            for (Centroid centroid : state.centroids()) {
+                final Centroid expectedCentroid = expectedCentroids.next();
+                assertThat(centroid.mean(), equalTo(expectedCentroid.mean()));
+                assertThat(centroid.count(), equalTo(expectedCentroid.count()));
+            }
+            for (double q : new double[] { 0, 0.01, 0.25, 0.5, 0.75, 0.99, 1, randomDouble() }) {
+                assertThat(state.quantile(q), equalTo(expected.quantile(q)));
+            }
+        }
+    }
+
+    public void testQuantiles() {
+        final double compression = randomFrom(50, 100, 200);
+        final double[] values = new double[randomIntBetween(10_000, 100_000)];
+        try (MergingTDigest digest = new MergingTDigest(compression, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = randomBoolean() ? randomDouble() : randomGaussian();
+                digest.add(values[i]);
+            }
+            Arrays.sort(values);
+            assertThat(digest.size(), equalTo((long) values.length));
+            assertThat(digest.getMin(), equalTo(values[0]));
+            assertThat(digest.getMax(), equalTo(values[values.length - 1]));
+            // two neighbouring centroids span more than one unit of the k1 scale function, which spans compression / 2 units
+            assertThat(digest.centroidCount(), lessThanOrEqualTo((int) (2 * compression)));
+
+            final TDigestState state = digest.toTDigestState();
+            assertThat(state.size(), equalTo((long) values.length));
+            assertThat(state.quantile(0), equalTo(values[0]));
+            assertThat(state.quantile(1), equalTo(values[values.length - 1]));
+            for (double q : new double[] { 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99 }) {
+                final double expected = values[(int) (q * (values.length - 1))];
+                // the error is measured on the rank of the returned value, it is at most the share of the values in the
+                // largest centroid, which holds about PI / compression of them
+                final int rank = Math.abs(Arrays.binarySearch(values, state.quantile(q)));
+                assertEquals("quantile " + q + " returned " + state.quantile(q) + " instead of " + expected,
+                    q, (double) rank / values.length, Math.PI / compression);
+            }
+        }
+    }
+
+    public void testMergeDigests() {
+        final List<TDigestState> states = new ArrayList<>();
+        final TDigestState expected = new TDigestState(100);
+        long size = 0;
+        final int numStates = randomIntBetween(1, 10);
+        for (int i = 0; i < numStates; i++) {
+            final TDigestState state = new TDigestState(100);
+            final int numValues = randomIntBetween(0, 1000);
+            for (int j = 0; j < numValues; j++) {
+                final double value = randomDouble();
+                state.add(value);
+                expected.add(value);
+                size++;
+            }
+            states.add(state);
+        }
+        try (MergingTDigest digest = new MergingTDigest(100, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (TDigestState state : states) {
+                digest.add(state);
+            }
+            final TDigestState merged = digest.toTDigestState();
+            assertThat(merged.size(), equalTo(size));
+            if (size > 0) {
+                assertThat(merged.quantile(0), equalTo(expected.quantile(0)));
+                assertThat(merged.quantile(1), equalTo(expected.quantile(1)));
+                assertEquals(expected.quantile(0.5), merged.quantile(0.5), 0.05);
+            }
+        }
+    }
+
+    public void testMemoryIsAccountedToTheBreaker() {
+        final MockBigArrays bigArrays =
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new ByteSizeValue(1, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        try (MergingTDigest digest = new MergingTDigest(100, bigArrays)) {
+            final int numValues = randomIntBetween(1, 10_000);
+            for (int i = 0; i < numValues; i++) {
+                digest.add(randomDouble());
+                assertThat(breaker.getUsed(), equalTo(digest.ramBytesUsed()));
+            }
+            digest.add(randomDouble(), randomLongBetween(2, Long.MAX_VALUE / 2));
+            assertThat(breaker.getUsed(), equalTo(digest.ramBytesUsed()));
+            assertThat(digest.centroidCount(), greaterThan(0));
+            assertThat(breaker.getUsed(), equalTo(digest.ramBytesUsed()));
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testBreakerTrips() {
+        final MockBigArrays bigArrays =
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new ByteSizeValue(64, ByteSizeUnit.KB));
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final List<MergingTDigest> digests = new ArrayList<>();
+        try {
+            expectThrows(CircuitBreakingException.class, () -> {
+                while (true) {
+                    final MergingTDigest digest = new MergingTDigest(100, bigArrays);
+                    digests.add(digest);
+                    for (int i = 0; i < 100; i++) {
+                        digest.add(randomDouble());
+                    }
+                }
+            });
+        } finally {
+            for (MergingTDigest digest : digests) {
+                digest.close();
+            }
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+}
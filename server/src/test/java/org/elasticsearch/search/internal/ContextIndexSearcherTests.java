@@ -50,6 +50,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Accountable;
@@ -63,6 +64,8 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.lucene.index.SequentialStoredFieldsLeafReader;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
@@ -73,9 +76,12 @@ import org.elasticsearch.test.IndexSettingsModule;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import static org.elasticsearch.search.internal.ContextIndexSearcher.intersectScorerAndBitSet;
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitableLeafReader;
@@ -277,6 +283,80 @@ public class ContextIndexSearcherTests extends ESTestCase {
         IOUtils.close(reader, w, dir);
     }
 
+    public void testComputeSlices() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            int numSegments = randomIntBetween(1, 10);
+            for (int i = 0; i < numSegments; i++) {
+                int numDocs = randomIntBetween(1, 20);
+                for (int j = 0; j < numDocs; j++) {
+                    w.addDocument(new Document());
+                }
+                w.flush();
+            }
+            try (DirectoryReader reader = DirectoryReader.open(w)) {
+                int maxSlices = randomIntBetween(1, 12);
+                List<List<LeafReaderContext>> slices = ContextIndexSearcher.computeSlices(reader.leaves(), maxSlices);
+                assertThat(slices.size(), equalTo(Math.min(maxSlices, reader.leaves().size())));
+                // the slices must cover all leaves, in order
+                List<LeafReaderContext> leaves = new ArrayList<>();
+                for (List<LeafReaderContext> slice : slices) {
+                    assertFalse(slice.isEmpty());
+                    leaves.addAll(slice);
+                }
+                assertEquals(reader.leaves(), leaves);
+            }
+        }
+    }
+
+    public void testSearchSlices() throws Exception {
+        ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        ExecutorService executor = EsExecutors.newFixed(getTestName(), randomIntBetween(1, 4), -1,
+            EsExecutors.daemonThreadFactory("test"), threadContext, false);
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            int numSegments = randomIntBetween(2, 10);
+            int numMatches = 0;
+            for (int i = 0; i < numSegments; i++) {
+                int numDocs = randomIntBetween(1, 50);
+                for (int j = 0; j < numDocs; j++) {
+                    Document doc = new Document();
+                    boolean matches = randomBoolean();
+                    doc.add(new StringField("foo", matches ? "bar" : "baz", Field.Store.NO));
+                    w.addDocument(doc);
+                    numMatches += matches ? 1 : 0;
+                }
+                w.flush();
+            }
+            try (DirectoryReader reader = DirectoryReader.open(w)) {
+                ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                    IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true);
+                searcher.setSliceExecutor(executor, randomIntBetween(1, 4));
+                List<List<LeafReaderContext>> slices = searcher.slices();
+                List<TotalHitCountCollector> collectors = new ArrayList<>();
+                for (int i = 0; i < slices.size(); i++) {
+                    collectors.add(new TotalHitCountCollector());
+                }
+                Query query = new TermQuery(new Term("foo", "bar"));
+                searcher.search(query, slices, collectors);
+                int totalHits = 0;
+                for (TotalHitCountCollector collector : collectors) {
+                    totalHits += collector.getTotalHits();
+                }
+                assertEquals(numMatches, totalHits);
+
+                // the failure of a slice is rethrown by the calling thread
+                searcher.addQueryCancellation(() -> {
+                    throw new IllegalStateException("cancelled");
+                });
+                IllegalStateException e = expectThrows(IllegalStateException.class, () -> searcher.search(query, slices, collectors));
+                assertEquals("cancelled", e.getMessage());
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
     private SparseFixedBitSet query(LeafReaderContext leaf, String field, String value) throws IOException {
         SparseFixedBitSet sparseFixedBitSet = new SparseFixedBitSet(leaf.reader().maxDoc());
         TermsEnum tenum = leaf.reader().terms(field).iterator();
@@ -28,6 +28,9 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.DeprecationHandler;
@@ -42,6 +45,7 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.InvalidAliasNameException;
 import org.elasticsearch.search.AbstractSearchTestCase;
 import org.elasticsearch.search.SearchSortValuesAndFormatsTests;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -64,6 +68,24 @@ public class ShardSearchRequestTests extends AbstractSearchTestCase {
         assertEquals(shardSearchTransportRequest, deserializedRequest);
     }
 
+    public void testSerializationWithoutSource() throws Exception {
+        ShardSearchRequest request = createShardSearchRequest();
+        SearchSourceBuilder source = request.source();
+        ShardSearchRequest deserializedRequest;
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            request.writeTo(out, false);
+            try (StreamInput in = new NamedWriteableAwareStreamInput(out.bytes().streamInput(), namedWriteableRegistry)) {
+                deserializedRequest = new ShardSearchRequest(in);
+            }
+        }
+        // the written request keeps its source
+        assertSame(source, request.source());
+        assertNull(deserializedRequest.source());
+        deserializedRequest.source(source);
+        assertEquals(request.cacheKey(), deserializedRequest.cacheKey());
+        assertArrayEquals(request.indices(), deserializedRequest.indices());
+    }
+
     public void testClone() throws Exception {
         for (int i = 0; i < 10; i++) {
             ShardSearchRequest shardSearchTransportRequest = createShardSearchRequest();
@@ -30,11 +30,13 @@ import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.MinDocQuery;
@@ -78,6 +80,13 @@ import org.apache.lucene.util.bkd.BKDConfig;
 import org.apache.lucene.util.bkd.BKDReader;
 import org.apache.lucene.util.bkd.BKDWriter;
 import org.elasticsearch.action.search.SearchShardTask;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
@@ -87,17 +96,30 @@ import org.elasticsearch.index.search.ESToParentBlockJoinQuery;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.metrics.InternalSum;
+import org.elasticsearch.search.aggregations.metrics.MetricsAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.test.TestSearchContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.search.query.QueryPhase.pointsHaveDuplicateData;
 import static org.elasticsearch.search.query.TopDocsCollectorContext.hasInfMaxScore;
@@ -952,6 +974,225 @@ public class QueryPhaseTests extends IndexShardTestCase {
         }
     }
 
+    public void testConcurrentSearchTopDocs() throws Exception {
+        ExecutorService executor = newSliceExecutor();
+        try (Directory dir = newDirectory()) {
+            indexSegments(dir);
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                assertThat(reader.leaves().size(), greaterThanOrEqualTo(2));
+                Query[] queries = new Query[] { new MatchAllDocsQuery(), new TermQuery(new Term("foo", "bar")) };
+                SortAndFormats[] sorts = new SortAndFormats[] {
+                    null,
+                    new SortAndFormats(new Sort(new SortField("value", SortField.Type.INT)), new DocValueFormat[] { DocValueFormat.RAW })
+                };
+                for (Query query : queries) {
+                    for (SortAndFormats sort : sorts) {
+                        int size = randomIntBetween(1, 20);
+                        TestSearchContext sequential = new TestSearchContext(null, indexShard, newContextSearcher(reader));
+                        TestSearchContext concurrent = new TestSearchContext(null, indexShard, newSlicedContextSearcher(reader, executor));
+                        for (TestSearchContext context : Arrays.asList(sequential, concurrent)) {
+                            context.parsedQuery(new ParsedQuery(query));
+                            context.sort(sort);
+                            context.setSize(size);
+                            context.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_ACCURATE);
+                            context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+                            QueryPhase.executeInternal(context);
+                        }
+                        TopDocs expected = sequential.queryResult().topDocs().topDocs;
+                        TopDocs actual = concurrent.queryResult().topDocs().topDocs;
+                        assertEquals(expected.totalHits, actual.totalHits);
+                        assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+                        for (int i = 0; i < expected.scoreDocs.length; i++) {
+                            assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                            assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+                        }
+                    }
+                }
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testConcurrentSearchAggregations() throws Exception {
+        ExecutorService executor = newSliceExecutor();
+        try (Directory dir = newDirectory()) {
+            indexSegments(dir);
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                QueryShardContext queryShardContext = mock(QueryShardContext.class);
+                when(queryShardContext.bigArrays()).thenReturn(BigArrays.NON_RECYCLING_INSTANCE);
+                AggregationContext aggregationContext = mock(AggregationContext.class);
+                when(aggregationContext.breaker()).thenReturn(new NoopCircuitBreaker(CircuitBreaker.REQUEST));
+                AggregatorFactories factories = mock(AggregatorFactories.class);
+                when(factories.createTopLevelAggregators()).thenAnswer(
+                    invocation -> new Aggregator[] { new LongSumAggregator(aggregationContext) });
+                Query query = new TermQuery(new Term("foo", "bar"));
+
+                TestSearchContext sequential = new TestSearchContext(queryShardContext, indexShard, newContextSearcher(reader));
+                TestSearchContext concurrent = new TestSearchContext(queryShardContext, indexShard,
+                    newSlicedContextSearcher(reader, executor));
+                for (TestSearchContext context : Arrays.asList(sequential, concurrent)) {
+                    context.parsedQuery(new ParsedQuery(query));
+                    context.setSize(randomIntBetween(0, 10));
+                    context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+                    context.aggregations(new SearchContextAggregations(factories));
+                    AggregationPhase aggregationPhase = new AggregationPhase();
+                    aggregationPhase.preProcess(context);
+                    QueryPhase.executeInternal(context);
+                    aggregationPhase.execute(context);
+                }
+                assertTrue(concurrent.queryResult().hasAggs());
+                InternalSum expected = sequential.queryResult().consumeAggs().expand().get("sum");
+                InternalSum actual = concurrent.queryResult().consumeAggs().expand().get("sum");
+                assertEquals(expected.getValue(), actual.getValue(), 0d);
+                assertEquals(sequential.queryResult().topDocs().topDocs.totalHits, concurrent.queryResult().topDocs().topDocs.totalHits);
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testConcurrentSearchTimeout() throws Exception {
+        ExecutorService executor = newSliceExecutor();
+        try (Directory dir = newDirectory()) {
+            indexSegments(dir);
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                ShardSearchRequest request = mock(ShardSearchRequest.class);
+                when(request.allowPartialSearchResults()).thenReturn(true);
+                List<ContextIndexSearcher> searchers =
+                    Arrays.asList(newContextSearcher(reader), newSlicedContextSearcher(reader, executor));
+                for (ContextIndexSearcher searcher : searchers) {
+                    AtomicLong relativeTime = new AtomicLong();
+                    TestSearchContext context = new TestSearchContext(null, indexShard, searcher) {
+                        @Override
+                        public TimeValue timeout() {
+                            return TimeValue.timeValueMillis(1);
+                        }
+
+                        @Override
+                        public long getRelativeTimeInMillis() {
+                            // every check is one second later than the previous one
+                            return relativeTime.getAndAdd(1000);
+                        }
+
+                        @Override
+                        public ShardSearchRequest request() {
+                            return request;
+                        }
+                    };
+                    context.parsedQuery(new ParsedQuery(new TermQuery(new Term("foo", "bar"))));
+                    context.setSize(10);
+                    context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+                    QueryPhase.executeInternal(context);
+                    assertTrue(context.queryResult().searchTimedOut());
+                }
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testConcurrentSearchCancellation() throws Exception {
+        ExecutorService executor = newSliceExecutor();
+        try (Directory dir = newDirectory()) {
+            indexSegments(dir);
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                List<ContextIndexSearcher> searchers =
+                    Arrays.asList(newContextSearcher(reader), newSlicedContextSearcher(reader, executor));
+                for (ContextIndexSearcher searcher : searchers) {
+                    TestSearchContext context = new TestSearchContextWithRewriteAndCancellation(null, indexShard, searcher);
+                    context.parsedQuery(new ParsedQuery(new TermQuery(new Term("foo", "bar"))));
+                    context.setSize(10);
+                    SearchShardTask task = mock(SearchShardTask.class);
+                    when(task.isCancelled()).thenReturn(true);
+                    context.setTask(task);
+                    QueryPhaseExecutionException e = expectThrows(QueryPhaseExecutionException.class,
+                        () -> QueryPhase.executeInternal(context));
+                    assertThat(e.getCause(), instanceOf(TaskCancelledException.class));
+                }
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testScriptsDisableConcurrentSearch() throws Exception {
+        QueryShardContext queryShardContext = mock(QueryShardContext.class);
+        TestSearchContext context = new TestSearchContext(queryShardContext, indexShard, null);
+        assertTrue(QueryPhase.canSearchConcurrently(context));
+        // the search lookup, and so its source lookup, is shared by all the leaves
+        when(queryShardContext.hasLookup()).thenReturn(true);
+        assertFalse(QueryPhase.canSearchConcurrently(context));
+    }
+
+    /**
+     * Indexes several segments with a term, a numeric doc value and a few deleted documents.
+     */
+    private static void indexSegments(Directory dir) throws IOException {
+        try (IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            int numSegments = randomIntBetween(2, 8);
+            for (int i = 0; i < numSegments; i++) {
+                int numDocs = randomIntBetween(1, 50);
+                for (int j = 0; j < numDocs; j++) {
+                    Document doc = new Document();
+                    doc.add(new StringField("foo", randomBoolean() ? "bar" : "baz", Store.NO));
+                    doc.add(new NumericDocValuesField("value", randomIntBetween(0, 100)));
+                    if (rarely()) {
+                        doc.add(new StringField("delete", "yes", Store.NO));
+                    }
+                    w.addDocument(doc);
+                }
+                w.flush();
+            }
+            w.deleteDocuments(new Term("delete", "yes"));
+        }
+    }
+
+    private static ExecutorService newSliceExecutor() {
+        return EsExecutors.newFixed("slices", randomIntBetween(1, 4), -1,
+            EsExecutors.daemonThreadFactory("slices"), new ThreadContext(Settings.EMPTY), false);
+    }
+
+    private static ContextIndexSearcher newSlicedContextSearcher(IndexReader reader, ExecutorService executor) throws IOException {
+        ContextIndexSearcher searcher = newContextSearcher(reader);
+        searcher.setSliceExecutor(executor, randomIntBetween(2, 4));
+        return searcher;
+    }
+
+    /**
+     * Sums the values of the {@code value} field of the top level bucket.
+     */
+    private static class LongSumAggregator extends MetricsAggregator {
+        private long sum;
+
+        LongSumAggregator(AggregationContext context) throws IOException {
+            super("sum", context, null, Collections.emptyMap());
+        }
+
+        @Override
+        protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+            NumericDocValues values = DocValues.getNumeric(ctx.reader(), "value");
+            return new LeafBucketCollector() {
+                @Override
+                public void collect(int doc, long owningBucketOrd) throws IOException {
+                    if (values.advanceExact(doc)) {
+                        sum += values.longValue();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InternalAggregation buildAggregation(long owningBucketOrd) {
+            return new InternalSum(name(), sum, DocValueFormat.RAW, metadata());
+        }
+
+        @Override
+        public InternalAggregation buildEmptyAggregation() {
+            return new InternalSum(name(), 0, DocValueFormat.RAW, metadata());
+        }
+    }
+
     private static class TestSearchContextWithRewriteAndCancellation extends TestSearchContext {
 
         private TestSearchContextWithRewriteAndCancellation(QueryShardContext queryShardContext,
@@ -19,19 +19,121 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStream;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.InputStreamStreamInput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CompressibleBytesOutputStreamTests extends ESTestCase {
 
+    public void testZeroCopyBytesReferences() throws IOException {
+        final boolean compress = randomBoolean();
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, compress);
+
+        final int numReferences = randomIntBetween(1, 5);
+        final BytesReference[] references = new BytesReference[numReferences];
+        final String[] strings = new String[numReferences];
+        final AtomicInteger released = new AtomicInteger();
+        final int threshold = CompressibleBytesOutputStream.ZERO_COPY_THRESHOLD;
+        long zeroCopyBytes = 0;
+        int numReleasable = 0;
+        int numRetained = 0;
+        for (int i = 0; i < numReferences; i++) {
+            strings[i] = randomAlphaOfLength(randomIntBetween(0, 20));
+            stream.writeString(strings[i]);
+            final int length = randomBoolean() ? randomIntBetween(0, threshold - 1) : randomIntBetween(threshold, threshold * 4);
+            final BytesArray bytes = new BytesArray(randomByteArrayOfLength(length));
+            final boolean releasable = randomBoolean();
+            if (releasable) {
+                references[i] = new ReleasableBytesReference(bytes, released::incrementAndGet);
+                numReleasable++;
+            } else {
+                references[i] = bytes;
+            }
+            stream.writeZeroCopyBytesReference(references[i]);
+            // only releasable references can be retained until the bytes were sent, anything else is copied
+            if (compress == false && releasable && length >= threshold) {
+                zeroCopyBytes += length;
+                numRetained++;
+            }
+        }
+        stream.writeVInt(numReferences);
+
+        BytesReference bytesRef = stream.materializeBytes();
+        Releasable zeroCopyReferences = stream.takeZeroCopyReferences();
+        stream.close();
+        assertEquals(zeroCopyBytes == 0, zeroCopyReferences == null);
+
+        // the owners release the references before the bytes were read
+        for (BytesReference reference : references) {
+            if (reference instanceof ReleasableBytesReference) {
+                ((ReleasableBytesReference) reference).decRef();
+            }
+        }
+        assertEquals(numReleasable - numRetained, released.get());
+
+        if (compress) {
+            assertTrue(CompressorFactory.COMPRESSOR.isCompressed(bytesRef));
+            assertEquals(bStream.size(), bytesRef.length());
+        } else {
+            // large releasable references are not copied into the underlying stream
+            assertEquals(bStream.size() + zeroCopyBytes, bytesRef.length());
+        }
+
+        StreamInput streamInput = compress
+            ? new InputStreamStreamInput(CompressorFactory.COMPRESSOR.threadLocalInputStream(bytesRef.streamInput()))
+            : bytesRef.streamInput();
+        for (int i = 0; i < numReferences; i++) {
+            assertEquals(strings[i], streamInput.readString());
+            assertEquals(references[i], streamInput.readBytesReference());
+        }
+        assertEquals(numReferences, streamInput.readVInt());
+        assertEquals(-1, streamInput.read());
+
+        Releasables.close(zeroCopyReferences);
+        assertEquals(numReleasable, released.get());
+        bStream.close();
+    }
+
+    public void testZeroCopyReferencesAreReleasedOnClose() throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, false);
+        final AtomicInteger released = new AtomicInteger();
+        final ReleasableBytesReference reference = new ReleasableBytesReference(
+            new BytesArray(randomByteArrayOfLength(CompressibleBytesOutputStream.ZERO_COPY_THRESHOLD)), released::incrementAndGet);
+        stream.writeZeroCopyBytesReference(reference);
+        reference.decRef();
+        assertEquals(0, released.get());
+
+        // the references were never handed over, e.g. because serializing the rest of the message failed
+        stream.close();
+        assertEquals(1, released.get());
+        bStream.close();
+    }
+
+    public void testCannotWriteReleasedZeroCopyReference() throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, false);
+        final ReleasableBytesReference reference = ReleasableBytesReference.wrap(
+            new BytesArray(randomByteArrayOfLength(CompressibleBytesOutputStream.ZERO_COPY_THRESHOLD)));
+        reference.decRef();
+        expectThrows(IllegalStateException.class, () -> stream.writeZeroCopyBytesReference(reference));
+        stream.close();
+        bStream.close();
+    }
+
     public void testStreamWithoutCompression() throws IOException {
         BytesStream bStream = new ZeroOutOnCloseStream();
         CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, false);
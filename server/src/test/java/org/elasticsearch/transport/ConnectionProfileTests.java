@@ -25,8 +25,10 @@ import org.elasticsearch.test.ESTestCase;
 import org.hamcrest.Matchers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -157,6 +159,40 @@ public class ConnectionProfileTests extends ESTestCase {
         expectThrows(IllegalStateException.class, () -> build.getHandles().get(1).getChannel(array));
     }
 
+    public void testSelectChannelWithLeastPendingBytes() {
+        ConnectionProfile.Builder builder = new ConnectionProfile.Builder();
+        builder.addConnections(1, TransportRequestOptions.Type.BULK);
+        builder.addConnections(3, TransportRequestOptions.Type.RECOVERY);
+        builder.addConnections(1, TransportRequestOptions.Type.REG, TransportRequestOptions.Type.STATE, TransportRequestOptions.Type.PING);
+        ConnectionProfile build = builder.build();
+        ConnectionProfile.ConnectionTypeHandle handle = build.getHandles().get(1);
+        List<Integer> channels = Arrays.asList(0, 1, 2, 3, 4);
+        long[] pendingBytes = new long[channels.size()];
+
+        // idle channels are selected round-robin
+        Set<Integer> selected = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            selected.add(handle.getChannel(channels, channel -> pendingBytes[channel]));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), selected);
+
+        // busy channels are avoided
+        pendingBytes[1] = randomLongBetween(1, Long.MAX_VALUE);
+        pendingBytes[3] = randomLongBetween(1, Long.MAX_VALUE);
+        final int numIters = randomIntBetween(5, 10);
+        for (int i = 0; i < numIters; i++) {
+            assertEquals(Integer.valueOf(2), handle.getChannel(channels, channel -> pendingBytes[channel]));
+        }
+
+        // the channel with the fewest pending bytes wins if all channels are busy
+        pendingBytes[1] = 100;
+        pendingBytes[2] = 10;
+        pendingBytes[3] = 1000;
+        for (int i = 0; i < numIters; i++) {
+            assertEquals(Integer.valueOf(2), handle.getChannel(channels, channel -> pendingBytes[channel]));
+        }
+    }
+
     public void testConnectionProfileResolve() {
         final ConnectionProfile defaultProfile = ConnectionProfile.buildDefaultConnectionProfile(Settings.EMPTY);
         assertEquals(defaultProfile, ConnectionProfile.resolveConnectionProfile(null, defaultProfile));
@@ -0,0 +1,184 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class Lz4TransportDecompressorTests extends ESTestCase {
+
+    public void testSimpleCompression() throws IOException {
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            byte randomByte = randomByte();
+            try (OutputStream lz4Stream = Compression.Scheme.LZ4.threadLocalOutputStream(Streams.flushOnCloseStream(output))) {
+                lz4Stream.write(randomByte);
+            }
+
+            BytesReference bytes = output.bytes();
+
+            Lz4TransportDecompressor decompressor = new Lz4TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            int bytesConsumed = decompressor.decompress(bytes);
+            assertEquals(bytes.length(), bytesConsumed);
+            assertTrue(decompressor.isEOS());
+            ReleasableBytesReference releasableBytesReference = decompressor.pollDecompressedPage();
+            assertEquals(1, releasableBytesReference.length());
+            assertEquals(randomByte, releasableBytesReference.get(0));
+            releasableBytesReference.close();
+        }
+    }
+
+    public void testMultiPageCompression() throws IOException {
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            writeInts(output, 10000);
+
+            BytesReference bytes = output.bytes();
+
+            Lz4TransportDecompressor decompressor = new Lz4TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            int bytesConsumed = decompressor.decompress(bytes);
+            assertEquals(bytes.length(), bytesConsumed);
+            assertTrue(decompressor.isEOS());
+            assertDecompressedInts(decompressor, 10000);
+        }
+    }
+
+    public void testIncrementalMultiPageCompression() throws IOException {
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            final int numInts = randomIntBetween(1, 20000);
+            writeInts(output, numInts);
+
+            BytesReference bytes = output.bytes();
+
+            Lz4TransportDecompressor decompressor = new Lz4TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            // the first slice must contain the header of the stream
+            int offset = 0;
+            while (offset < bytes.length()) {
+                int length = offset == 0
+                    ? randomIntBetween(Compression.Scheme.HEADER_LENGTH, bytes.length())
+                    : randomIntBetween(1, Math.min(bytes.length() - offset, randomFrom(8, 1024, 64 * 1024)));
+                assertFalse(decompressor.isEOS());
+                BytesReference inbound = bytes.slice(offset, length);
+                assertEquals(inbound.length(), decompressor.decompress(inbound));
+                offset += length;
+            }
+            assertTrue(decompressor.isEOS());
+            assertDecompressedInts(decompressor, numInts);
+        }
+    }
+
+    public void testGetDecompressor() throws IOException {
+        BytesReference tooShort = new BytesArray(new byte[] { 'L', 'Z', '4' });
+        assertNull(TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, tooShort));
+        for (Compression.Scheme scheme : Compression.Scheme.values()) {
+            try (BytesStreamOutput output = new BytesStreamOutput()) {
+                try (OutputStream stream = scheme.threadLocalOutputStream(Streams.flushOnCloseStream(output))) {
+                    stream.write(randomByte());
+                }
+                try (TransportDecompressor decompressor =
+                         TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, output.bytes())) {
+                    if (scheme == Compression.Scheme.LZ4) {
+                        assertThat(decompressor, instanceOf(Lz4TransportDecompressor.class));
+                    } else {
+                        assertThat(decompressor, instanceOf(DeflateTransportDecompressor.class));
+                    }
+                }
+            }
+        }
+        BytesReference notCompressed = new BytesArray(new byte[] { 1, 2, 3, 4, 5 });
+        expectThrows(IllegalStateException.class,
+            () -> TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, notCompressed));
+    }
+
+    public void testForVersion() {
+        assertEquals(Compression.Scheme.LZ4, Compression.Scheme.LZ4.forVersion(Compression.Scheme.LZ4_VERSION));
+        assertEquals(Compression.Scheme.DEFLATE, Compression.Scheme.LZ4.forVersion(
+            VersionUtils.getPreviousVersion(Compression.Scheme.LZ4_VERSION)));
+        assertEquals(Compression.Scheme.DEFLATE, Compression.Scheme.DEFLATE.forVersion(Compression.Scheme.LZ4_VERSION));
+    }
+
+    public void testStreamsOfTheSameThread() throws IOException {
+        // consecutive streams reuse the block buffers of the thread, nested ones must not share them
+        try (BytesStreamOutput first = new BytesStreamOutput(); BytesStreamOutput nested = new BytesStreamOutput();
+             BytesStreamOutput second = new BytesStreamOutput()) {
+            try (StreamOutput firstStream = new OutputStreamStreamOutput(
+                    Compression.Scheme.LZ4.threadLocalOutputStream(Streams.flushOnCloseStream(first)))) {
+                for (int i = 0; i < 5000; ++i) {
+                    firstStream.writeInt(i);
+                }
+                writeInts(nested, 20000);
+                for (int i = 5000; i < 10000; ++i) {
+                    firstStream.writeInt(i);
+                }
+            }
+            writeInts(second, 10000);
+
+            for (BytesStreamOutput output : List.of(first, nested, second)) {
+                BytesReference bytes = output.bytes();
+                Lz4TransportDecompressor decompressor = new Lz4TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+                assertEquals(bytes.length(), decompressor.decompress(bytes));
+                assertTrue(decompressor.isEOS());
+                assertDecompressedInts(decompressor, output == nested ? 20000 : 10000);
+            }
+        }
+    }
+
+    private static void writeInts(BytesStreamOutput output, int numInts) throws IOException {
+        try (StreamOutput lz4Stream = new OutputStreamStreamOutput(
+                Compression.Scheme.LZ4.threadLocalOutputStream(Streams.flushOnCloseStream(output)))) {
+            for (int i = 0; i < numInts; ++i) {
+                lz4Stream.writeInt(i);
+            }
+        }
+    }
+
+    private static void assertDecompressedInts(TransportDecompressor decompressor, int numInts) throws IOException {
+        List<ReleasableBytesReference> references = new ArrayList<>();
+        ReleasableBytesReference reference;
+        while ((reference = decompressor.pollDecompressedPage()) != null) {
+            assertThat(reference.length(), lessThanOrEqualTo(PageCacheRecycler.BYTE_PAGE_SIZE));
+            references.add(reference);
+        }
+        BytesReference composite = CompositeBytesReference.of(references.toArray(new BytesReference[0]));
+        assertEquals(4 * numInts, composite.length());
+        StreamInput streamInput = composite.streamInput();
+        for (int i = 0; i < numInts; ++i) {
+            assertEquals(i, streamInput.readInt());
+        }
+        Releasables.close(references);
+    }
+}
@@ -30,12 +30,15 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.core.internal.io.Streams;
+import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -71,7 +74,8 @@ public class OutboundHandlerTests extends ESTestCase {
         TransportAddress transportAddress = buildNewFakeTransportAddress();
         node = new DiscoveryNode("", transportAddress, Version.CURRENT);
         StatsTracker statsTracker = new StatsTracker();
-        handler = new OutboundHandler("node", Version.CURRENT, statsTracker, threadPool, BigArrays.NON_RECYCLING_INSTANCE);
+        handler = new OutboundHandler("node", Version.CURRENT, statsTracker, threadPool, BigArrays.NON_RECYCLING_INSTANCE,
+            randomFrom(Compression.Scheme.values()));
 
         final LongSupplier millisSupplier = () -> TimeValue.nsecToMSec(System.nanoTime());
         final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
@@ -295,4 +299,49 @@ public class OutboundHandlerTests extends ESTestCase {
 
         assertEquals("header_value", header.getHeaders().v1().get("header"));
     }
+
+    public void testZeroCopyBytesAreRetainedUntilSent() throws IOException {
+        final AtomicBoolean released = new AtomicBoolean();
+        final BytesArray bytes = new BytesArray(randomByteArrayOfLength(
+            randomIntBetween(CompressibleBytesOutputStream.ZERO_COPY_THRESHOLD, CompressibleBytesOutputStream.ZERO_COPY_THRESHOLD * 4)));
+        final ReleasableBytesReference source = new ReleasableBytesReference(bytes, () -> assertTrue(released.compareAndSet(false, true)));
+        final long requestId = randomLongBetween(0, 300);
+        handler.sendRequest(node, channel, requestId, "action", new ZeroCopyRequest(source), options, Version.CURRENT, false, false);
+
+        BytesReference reference = channel.getMessageCaptor().get();
+        ActionListener<Void> sendListener = channel.getListenerCaptor().get();
+        // the owner releases the source before the message was written, the transport must keep it alive until then
+        source.close();
+        assertFalse(released.get());
+
+        pipeline.handleBytes(channel, new ReleasableBytesReference(reference, () -> {
+        }));
+        final Tuple<Header, BytesReference> tuple = message.get();
+        assertEquals(requestId, tuple.v1().getRequestId());
+        final StreamInput in = tuple.v2().streamInput();
+        TaskId.readFromStream(in);
+        assertEquals(bytes, in.readBytesReference());
+
+        if (randomBoolean()) {
+            sendListener.onResponse(null);
+        } else {
+            sendListener.onFailure(new IOException("failed"));
+        }
+        assertTrue(released.get());
+    }
+
+    private static class ZeroCopyRequest extends TransportRequest {
+
+        private final BytesReference bytes;
+
+        private ZeroCopyRequest(BytesReference bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeZeroCopyBytesReference(bytes);
+        }
+    }
 }
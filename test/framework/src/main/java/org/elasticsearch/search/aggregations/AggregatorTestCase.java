@@ -72,6 +72,7 @@ import org.elasticsearch.index.analysis.IndexAnalyzers;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache.Listener;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.cache.query.DisabledQueryCache;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
@@ -282,6 +283,7 @@ public abstract class AggregatorTestCase extends ESTestCase {
             () -> buildSubSearchContext(mapperService, queryShardContext, bitsetFilterCache),
             releasables::add,
             bitsetFilterCache,
+            new PreAggregationCache(indexSettings, breakerService),
             randomInt(),
             () -> 0L,
             () -> false
@@ -27,6 +27,7 @@ import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.preaggregation.PreAggregationCache;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
@@ -274,6 +275,11 @@ public class TestSearchContext extends SearchContext {
         return fixedBitSetFilterCache;
     }
 
+    @Override
+    public PreAggregationCache preAggregationCache() {
+        return null;
+    }
+
     @Override
     public TimeValue timeout() {
         return TimeValue.ZERO;
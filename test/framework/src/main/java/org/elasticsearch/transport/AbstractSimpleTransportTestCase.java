@@ -77,6 +77,7 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -2214,6 +2215,7 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
         assertEquals(0, stats.getTxCount());
         assertEquals(0, stats.getRxSize().getBytes());
         assertEquals(0, stats.getTxSize().getBytes());
+        assertTrue(stats.getTxPendingByType().isEmpty());
 
         ConnectionProfile.Builder builder = new ConnectionProfile.Builder();
         builder.addConnections(1,
@@ -2247,6 +2249,16 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
             assertEquals(2, stats.getTxCount());
             assertEquals(50, stats.getRxSize().getBytes());
             assertEquals(111, stats.getTxSize().getBytes());
+            assertBusy(() -> { // the write listener may complete after the response was received
+                final Map<TransportRequestOptions.Type, TransportStats.ConnectionTypeStats> pendingByType =
+                    serviceC.transport.getStats().getTxPendingByType();
+                assertEquals(EnumSet.allOf(TransportRequestOptions.Type.class), pendingByType.keySet());
+                for (TransportStats.ConnectionTypeStats typeStats : pendingByType.values()) {
+                    assertEquals(1, typeStats.getChannels());
+                    assertEquals(0, typeStats.getPendingSize().getBytes());
+                    assertEquals(0, typeStats.getMaxChannelPendingSize().getBytes());
+                }
+            });
         } finally {
             serviceC.close();
         }
@@ -12,6 +12,8 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.support.DestructiveOperations;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
@@ -44,6 +46,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import static org.elasticsearch.xpack.core.security.SecurityField.setting;
 
@@ -206,7 +209,7 @@ public class SecurityServerTransportInterceptor implements TransportInterceptor
             this.forceExecution = forceExecution;
         }
 
-        AbstractRunnable getReceiveRunnable(T request, TransportChannel channel, Task task) {
+        AbstractRunnable getReceiveRunnable(T request, TransportChannel channel, Task task, Releasable releaseRequest) {
             return new AbstractRunnable() {
                 @Override
                 public boolean isForceExecution() {
@@ -227,6 +230,11 @@ public class SecurityServerTransportInterceptor implements TransportInterceptor
                 protected void doRun() throws Exception {
                     handler.messageReceived(request, channel, task);
                 }
+
+                @Override
+                public void onAfter() {
+                    releaseRequest.close();
+                }
             };
         }
 
@@ -241,7 +249,19 @@ public class SecurityServerTransportInterceptor implements TransportInterceptor
 
         @Override
         public void messageReceived(T request, TransportChannel channel, Task task) throws Exception {
-            final AbstractRunnable receiveMessage = getReceiveRunnable(request, channel, task);
+            // the request may hold on to network buffers that the transport releases once this method returns, but authentication
+            // may complete asynchronously so the request is retained until the handler ran or the request was rejected
+            request.incRef();
+            final Releasable releaseRequest = Releasables.releaseOnce(request::decRef);
+            final AbstractRunnable receiveMessage = getReceiveRunnable(request, channel, task, releaseRequest);
+            final Consumer<Exception> onFailure = e -> {
+                try {
+                    receiveMessage.onFailure(e);
+                } finally {
+                    releaseRequest.close();
+                }
+            };
+            boolean success = false;
             try (ThreadContext.StoredContext ctx = threadContext.newStoredContext(true)) {
                 if (licenseState.isSecurityEnabled()) {
                     String profile = channel.getProfileName();
@@ -276,15 +296,20 @@ public class SecurityServerTransportInterceptor implements TransportInterceptor
                         try {
                             executor.execute(receiveMessage);
                         } catch (Exception e) {
-                            receiveMessage.onFailure(e);
+                            onFailure.accept(e);
                         }
 
                     };
-                    ActionListener<Void> filterListener = ActionListener.wrap(consumer, receiveMessage::onFailure);
+                    ActionListener<Void> filterListener = ActionListener.wrap(consumer, onFailure::accept);
                     filter.inbound(action, request, channel, filterListener);
                 } else {
                     receiveMessage.run();
                 }
+                success = true;
+            } finally {
+                if (success == false) {
+                    releaseRequest.close();
+                }
             }
         }
     }
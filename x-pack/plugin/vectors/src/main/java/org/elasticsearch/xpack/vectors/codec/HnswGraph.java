@@ -0,0 +1,99 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.SparseFixedBitSet;
+
+import java.io.IOException;
+
+/**
+ * A navigable small world graph over the vectors of a single field of a segment. Every node is a document
+ * that has a vector and is linked to at most {@link #maxConnections()} of its nearest neighbours. Nodes are
+ * numbered in increasing doc id order. This is the single layer variant of HNSW: early nodes naturally act
+ * as long-range links, so a greedy beam search from a fixed entry node reaches the neighbourhood of the query
+ * in a small number of hops.
+ */
+public abstract class HnswGraph {
+
+    /**
+     * The number of nodes in the graph.
+     */
+    public abstract int size();
+
+    /**
+     * The maximum number of neighbours of a node.
+     */
+    public abstract int maxConnections();
+
+    /**
+     * The doc id of the given node.
+     */
+    public abstract int docId(int node) throws IOException;
+
+    /**
+     * Copies the neighbours of {@code node} into {@code neighbors} and returns how many there are.
+     */
+    abstract int neighbors(int node, int[] neighbors) throws IOException;
+
+    /**
+     * Computes the similarity score between the query and the vector of {@code node}.
+     */
+    abstract float score(float[] query, int node) throws IOException;
+
+    /**
+     * Walks the graph with a beam of {@code numCandidates} nodes and returns the best scoring nodes found.
+     *
+     * @param query         the query vector
+     * @param numCandidates the size of the beam; larger values increase recall and latency
+     * @param acceptNodes   nodes that may be returned, or {@code null} if all nodes are accepted. Nodes
+     *                      that are not accepted are still traversed.
+     * @return a min-heap of at most {@code numCandidates} nodes, so that the worst result is on top
+     */
+    public final NeighborQueue search(float[] query, int numCandidates, Bits acceptNodes) throws IOException {
+        final NeighborQueue results = new NeighborQueue(numCandidates, false);
+        final int size = size();
+        if (size == 0) {
+            return results;
+        }
+        final NeighborQueue candidates = new NeighborQueue(numCandidates, true);
+        final SparseFixedBitSet visited = new SparseFixedBitSet(size);
+        final int[] neighbors = new int[maxConnections()];
+
+        final int entryNode = 0;
+        final float entryScore = score(query, entryNode);
+        visited.set(entryNode);
+        candidates.add(entryNode, entryScore);
+        if (acceptNodes == null || acceptNodes.get(entryNode)) {
+            results.add(entryNode, entryScore);
+        }
+
+        while (candidates.size() > 0) {
+            if (results.size() >= numCandidates && candidates.topScore() < results.topScore()) {
+                // the best remaining candidate can't improve the results anymore
+                break;
+            }
+            final int candidate = candidates.pop();
+            final int count = neighbors(candidate, neighbors);
+            for (int i = 0; i < count; i++) {
+                final int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                final float score = score(query, neighbor);
+                if (results.size() < numCandidates || score > results.topScore()) {
+                    candidates.add(neighbor, score);
+                    if (acceptNodes == null || acceptNodes.get(neighbor)) {
+                        results.insertWithOverflow(neighbor, score, numCandidates);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+import org.elasticsearch.xpack.vectors.query.VectorKernels;
+
+import java.io.IOException;
+
+/**
+ * Random access to the vectors of the nodes of an {@link HnswGraph}. Vectors are stored in node order with a fixed
+ * number of bytes per vector, both in the graph files and in the temporary file that they are spilled to while the
+ * graph is built. Float vectors are stored as floats, already normalized if required by the similarity. Quantized
+ * vectors are stored in their doc value encoding, one byte per dimension followed by the min, the scale and the
+ * magnitude of the original vector, and are scored without being decoded. Instances must not be shared across threads.
+ */
+final class HnswGraphVectors {
+
+    private final VectorSimilarity similarity;
+    private final int dims;
+    private final boolean quantized;
+    private final IndexInput in;
+    private final float[] scratch;
+    private final BytesRef scratchBytes;
+    // the sum of the dimensions of the last query, needed to compute dot products against quantized vectors
+    private float[] lastQuery;
+    private double lastQuerySum;
+
+    /**
+     * @param in the vectors, starting with the vector of the first node
+     */
+    HnswGraphVectors(VectorSimilarity similarity, int dims, boolean quantized, IndexInput in) {
+        this.similarity = similarity;
+        this.dims = dims;
+        this.quantized = quantized;
+        this.in = in;
+        this.scratch = new float[dims];
+        this.scratchBytes = quantized ? new BytesRef(new byte[dims + VectorEncoderDecoder.QUANTIZED_TRAILER_BYTES]) : null;
+    }
+
+    /**
+     * The number of bytes that a vector with the given number of dimensions takes.
+     */
+    static long bytesPerVector(int dims, boolean quantized) {
+        return quantized ? dims + VectorEncoderDecoder.QUANTIZED_TRAILER_BYTES : (long) dims * Float.BYTES;
+    }
+
+    /**
+     * Writes a float vector, already normalized if required by the similarity, in the format that this class reads.
+     */
+    static void write(DataOutput out, float[] vector) throws IOException {
+        for (float value : vector) {
+            out.writeInt(Float.floatToIntBits(value));
+        }
+    }
+
+    /**
+     * Writes a quantized vector, as encoded by {@link VectorEncoderDecoder#encodeQuantized}, in the format that this class reads.
+     */
+    static void writeQuantized(DataOutput out, BytesRef encoded) throws IOException {
+        out.writeBytes(encoded.bytes, encoded.offset, encoded.length);
+    }
+
+    int dims() {
+        return dims;
+    }
+
+    /**
+     * Reads the vector of {@code node}, normalized if required by the similarity. The returned array is reused by the next
+     * call to this class.
+     */
+    float[] vector(int node) throws IOException {
+        if (quantized) {
+            VectorEncoderDecoder.decodeQuantized(readQuantized(node), scratch);
+            if (similarity.normalize()) {
+                VectorSimilarity.normalize(scratch);
+            }
+            return scratch;
+        }
+        in.seek(node * bytesPerVector(dims, false));
+        for (int i = 0; i < dims; i++) {
+            scratch[i] = Float.intBitsToFloat(in.readInt());
+        }
+        return scratch;
+    }
+
+    /**
+     * Computes the similarity score between the query and the vector of {@code node}.
+     */
+    float score(float[] query, int node) throws IOException {
+        if (quantized == false) {
+            return similarity.score(query, vector(node));
+        }
+        final BytesRef vector = readQuantized(node);
+        switch (similarity) {
+            case L2_NORM:
+                return 1f / (1f + (float) VectorKernels.quantizedL2NormSquared(query, vector));
+            case DOT_PRODUCT:
+                return (1f + (float) VectorKernels.quantizedDotProduct(query, querySum(query), vector)) / 2f;
+            case COSINE:
+                // the query is normalized, the stored vector is divided by the magnitude of the original vector
+                final float magnitude = VectorEncoderDecoder.decodeQuantizedMagnitude(vector);
+                final double dotProduct = VectorKernels.quantizedDotProduct(query, querySum(query), vector);
+                return (1f + (magnitude == 0 ? 0f : (float) (dotProduct / magnitude))) / 2f;
+            default:
+                throw new IllegalStateException("unknown similarity [" + similarity + "]");
+        }
+    }
+
+    private BytesRef readQuantized(int node) throws IOException {
+        in.seek(node * bytesPerVector(dims, true));
+        in.readBytes(scratchBytes.bytes, 0, scratchBytes.length);
+        return scratchBytes;
+    }
+
+    private double querySum(float[] query) {
+        if (query != lastQuery) {
+            double sum = 0;
+            for (float value : query) {
+                sum += value;
+            }
+            lastQuery = query;
+            lastQuerySum = sum;
+        }
+        return lastQuerySum;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * {@link BinaryDocValues} of an indexed {@code dense_vector} field that also give access to the
+ * {@link HnswGraph} of the segment.
+ */
+public final class HnswVectorBinaryDocValues extends BinaryDocValues {
+
+    private final BinaryDocValues in;
+    private final HnswGraph graph;
+
+    HnswVectorBinaryDocValues(BinaryDocValues in, HnswGraph graph) {
+        this.in = in;
+        this.graph = graph;
+    }
+
+    /**
+     * The graph of the vectors of this field in the current segment.
+     */
+    public HnswGraph graph() {
+        return graph;
+    }
+
+    @Override
+    public BytesRef binaryValue() throws IOException {
+        return in.binaryValue();
+    }
+
+    @Override
+    public boolean advanceExact(int target) throws IOException {
+        return in.advanceExact(target);
+    }
+
+    @Override
+    public int docID() {
+        return in.docID();
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+        return in.nextDoc();
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+        return in.advance(target);
+    }
+
+    @Override
+    public long cost() {
+        return in.cost();
+    }
+}
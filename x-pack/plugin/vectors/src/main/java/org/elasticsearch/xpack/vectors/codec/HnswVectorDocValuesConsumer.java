@@ -0,0 +1,206 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes binary doc values through a delegate consumer and builds an {@link HnswGraph} for every binary
+ * field. Since {@link DocValuesConsumer#merge} funnels merged values through
+ * {@link #addBinaryField(FieldInfo, DocValuesProducer)}, graphs are rebuilt from scratch on merge.
+ */
+final class HnswVectorDocValuesConsumer extends DocValuesConsumer {
+
+    private final SegmentWriteState state;
+    private final DocValuesConsumer delegate;
+    private final VectorSimilarity similarity;
+    private final int maxConnections;
+    private final int beamWidth;
+    private final boolean quantized;
+    private IndexOutput meta;
+    private IndexOutput data;
+
+    HnswVectorDocValuesConsumer(SegmentWriteState state, DocValuesConsumer delegate, VectorSimilarity similarity,
+                                int maxConnections, int beamWidth, boolean quantized) throws IOException {
+        this.state = state;
+        this.delegate = delegate;
+        this.similarity = similarity;
+        this.maxConnections = maxConnections;
+        this.beamWidth = beamWidth;
+        this.quantized = quantized;
+        boolean success = false;
+        try {
+            String metaName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+                HnswVectorDocValuesFormat.META_EXTENSION);
+            meta = state.directory.createOutput(metaName, state.context);
+            CodecUtil.writeIndexHeader(meta, HnswVectorDocValuesFormat.META_CODEC_NAME, HnswVectorDocValuesFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(), state.segmentSuffix);
+            String dataName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+                HnswVectorDocValuesFormat.DATA_EXTENSION);
+            data = state.directory.createOutput(dataName, state.context);
+            CodecUtil.writeIndexHeader(data, HnswVectorDocValuesFormat.DATA_CODEC_NAME, HnswVectorDocValuesFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(), state.segmentSuffix);
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    @Override
+    public void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addBinaryField(field, valuesProducer);
+
+        // vectors are spilled to a temporary file instead of being kept on heap, so that flushing or merging a large segment
+        // only needs memory for the doc ids and the links of the graph
+        int[] docs = new int[0];
+        int size = 0;
+        int dims = -1;
+        float[] vector = null;
+        String tempFileName = null;
+        try {
+            try (IndexOutput temp = state.directory.createTempOutput(state.segmentInfo.name, "vectors", state.context)) {
+                tempFileName = temp.getName();
+                BinaryDocValues values = valuesProducer.getBinary(field);
+                for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                    BytesRef encoded = values.binaryValue();
+                    if (quantized) {
+                        // quantized vectors are copied as they are and scored without being decoded
+                        dims = VectorEncoderDecoder.quantizedDenseVectorLength(encoded);
+                        HnswGraphVectors.writeQuantized(temp, encoded);
+                    } else {
+                        if (vector == null) {
+                            // indexed vectors are always encoded with their magnitude
+                            dims = (encoded.length - VectorEncoderDecoder.INT_BYTES) / VectorEncoderDecoder.INT_BYTES;
+                            vector = new float[dims];
+                        }
+                        ByteBuffer byteBuffer = ByteBuffer.wrap(encoded.bytes, encoded.offset, encoded.length);
+                        for (int dim = 0; dim < vector.length; dim++) {
+                            vector[dim] = byteBuffer.getFloat();
+                        }
+                        if (similarity.normalize()) {
+                            VectorSimilarity.normalize(vector);
+                        }
+                        HnswGraphVectors.write(temp, vector);
+                    }
+                    docs = ArrayUtil.grow(docs, size + 1);
+                    docs[size++] = doc;
+                }
+            }
+            if (size == 0) {
+                return;
+            }
+            docs = ArrayUtil.copyOfSubArray(docs, 0, size);
+            try (IndexInput temp = state.directory.openInput(tempFileName, state.context)) {
+                HnswGraphVectors vectors = new HnswGraphVectors(similarity, dims, quantized, temp);
+                OnHeapHnswGraph graph = OnHeapHnswGraph.build(maxConnections, beamWidth, docs, vectors);
+                temp.seek(0);
+                writeGraph(field, graph, dims, temp);
+            }
+        } finally {
+            if (tempFileName != null) {
+                IOUtils.deleteFilesIgnoringExceptions(state.directory, tempFileName);
+            }
+        }
+    }
+
+    /**
+     * Writes the graph of a field to the data file. The vectors are copied from the temporary file that they were spilled
+     * to: searching the graph needs random access to them, which the doc values don't offer.
+     */
+    private void writeGraph(FieldInfo field, OnHeapHnswGraph graph, int dims, IndexInput vectors) throws IOException {
+        final int size = graph.size();
+
+        final long vectorsOffset = data.getFilePointer();
+        data.copyBytes(vectors, size * HnswGraphVectors.bytesPerVector(dims, quantized));
+        final long docsOffset = data.getFilePointer();
+        for (int node = 0; node < size; node++) {
+            data.writeInt(graph.docId(node));
+        }
+        // neighbours are written in fixed size slots, so that the slot of a node can be computed from its ordinal
+        final long graphOffset = data.getFilePointer();
+        final int[] neighbors = new int[maxConnections];
+        for (int node = 0; node < size; node++) {
+            int count = graph.neighbors(node, neighbors);
+            data.writeInt(count);
+            for (int i = 0; i < maxConnections; i++) {
+                data.writeInt(i < count ? neighbors[i] : -1);
+            }
+        }
+
+        meta.writeInt(field.number);
+        meta.writeVInt(similarity.ordinal());
+        meta.writeVInt(dims);
+        meta.writeByte((byte) (quantized ? 1 : 0));
+        meta.writeVInt(size);
+        meta.writeVInt(maxConnections);
+        meta.writeLong(vectorsOffset);
+        meta.writeLong(docsOffset);
+        meta.writeLong(graphOffset);
+    }
+
+    @Override
+    public void addNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addNumericField(field, valuesProducer);
+    }
+
+    @Override
+    public void addSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addSortedField(field, valuesProducer);
+    }
+
+    @Override
+    public void addSortedNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addSortedNumericField(field, valuesProducer);
+    }
+
+    @Override
+    public void addSortedSetField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addSortedSetField(field, valuesProducer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean success = false;
+        try {
+            if (meta != null) {
+                meta.writeInt(-1); // write EOF marker
+                CodecUtil.writeFooter(meta);
+            }
+            if (data != null) {
+                CodecUtil.writeFooter(data);
+            }
+            success = true;
+        } finally {
+            if (success) {
+                IOUtils.close(delegate, meta, data);
+            } else {
+                IOUtils.closeWhileHandlingException(delegate, meta, data);
+            }
+            meta = null;
+            data = null;
+        }
+    }
+}
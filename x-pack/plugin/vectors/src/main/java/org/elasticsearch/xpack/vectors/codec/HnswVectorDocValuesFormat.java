@@ -0,0 +1,81 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+
+/**
+ * A {@link DocValuesFormat} for indexed {@code dense_vector} fields. Binary doc values are written with the
+ * default Lucene format, and an {@link HnswGraph} over the vectors of every binary field is built and written
+ * next to them on flush and merge. Graph parameters are recorded in the index files so that the format can be
+ * read back by the parameterless instance that is loaded through SPI.
+ */
+public final class HnswVectorDocValuesFormat extends DocValuesFormat {
+
+    public static final String NAME = "ESHnswVector";
+
+    static final String META_CODEC_NAME = "ESHnswVectorMeta";
+    static final String DATA_CODEC_NAME = "ESHnswVectorData";
+    static final String META_EXTENSION = "vgm";
+    static final String DATA_EXTENSION = "vgd";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 16;
+    public static final int DEFAULT_BEAM_WIDTH = 100;
+
+    private final DocValuesFormat delegate = DocValuesFormat.forName("Lucene80");
+    private final VectorSimilarity similarity;
+    private final int maxConnections;
+    private final int beamWidth;
+    private final boolean quantized;
+
+    /**
+     * Used by SPI to read segments. The graph parameters are read from the index files.
+     */
+    public HnswVectorDocValuesFormat() {
+        this(VectorSimilarity.L2_NORM, DEFAULT_MAX_CONNECTIONS, DEFAULT_BEAM_WIDTH, false);
+    }
+
+    /**
+     * @param similarity     the similarity used to compare vectors
+     * @param maxConnections the maximum number of neighbours per node
+     * @param beamWidth      the number of candidates tracked while looking for the neighbours of a new node
+     * @param quantized      whether binary doc values hold quantized vectors, which are decoded before being added to the graph
+     */
+    public HnswVectorDocValuesFormat(VectorSimilarity similarity, int maxConnections, int beamWidth, boolean quantized) {
+        super(NAME);
+        this.similarity = similarity;
+        this.maxConnections = maxConnections;
+        this.beamWidth = beamWidth;
+        this.quantized = quantized;
+    }
+
+    @Override
+    public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new HnswVectorDocValuesConsumer(state, delegate.fieldsConsumer(state), similarity, maxConnections, beamWidth,
+            quantized);
+    }
+
+    @Override
+    public DocValuesProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return new HnswVectorDocValuesProducer(state, delegate.fieldsProducer(state));
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(similarity=" + similarity + ",maxConnections=" + maxConnections + ",beamWidth=" + beamWidth
+            + ",quantized=" + quantized + ")";
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads doc values written by {@link HnswVectorDocValuesConsumer}. Binary doc values of fields that have a graph
+ * are returned as {@link HnswVectorBinaryDocValues}. Graphs are not loaded in memory but read from the data file.
+ */
+final class HnswVectorDocValuesProducer extends DocValuesProducer {
+
+    private final DocValuesProducer delegate;
+    private final Map<Integer, FieldEntry> fields = new HashMap<>();
+    private final IndexInput data;
+
+    HnswVectorDocValuesProducer(SegmentReadState state, DocValuesProducer delegate) throws IOException {
+        this.delegate = delegate;
+        String metaName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+            HnswVectorDocValuesFormat.META_EXTENSION);
+        int version = -1;
+        try (ChecksumIndexInput in = state.directory.openChecksumInput(metaName, state.context)) {
+            Throwable priorE = null;
+            try {
+                version = CodecUtil.checkIndexHeader(in, HnswVectorDocValuesFormat.META_CODEC_NAME,
+                    HnswVectorDocValuesFormat.VERSION_START, HnswVectorDocValuesFormat.VERSION_CURRENT,
+                    state.segmentInfo.getId(), state.segmentSuffix);
+                readFields(in, state.fieldInfos);
+            } catch (Throwable exception) {
+                priorE = exception;
+            } finally {
+                CodecUtil.checkFooter(in, priorE);
+            }
+        }
+
+        String dataName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+            HnswVectorDocValuesFormat.DATA_EXTENSION);
+        this.data = state.directory.openInput(dataName, state.context);
+        boolean success = false;
+        try {
+            final int dataVersion = CodecUtil.checkIndexHeader(data, HnswVectorDocValuesFormat.DATA_CODEC_NAME,
+                HnswVectorDocValuesFormat.VERSION_START, HnswVectorDocValuesFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(), state.segmentSuffix);
+            if (version != dataVersion) {
+                throw new CorruptIndexException("Format versions mismatch: meta=" + version + ", data=" + dataVersion, data);
+            }
+            // NOTE: data file is too costly to verify checksum against all the bytes on open,
+            // but for now we at least verify proper structure of the checksum footer
+            CodecUtil.retrieveChecksum(data);
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(this.data);
+            }
+        }
+    }
+
+    private void readFields(ChecksumIndexInput in, FieldInfos infos) throws IOException {
+        for (int fieldNumber = in.readInt(); fieldNumber != -1; fieldNumber = in.readInt()) {
+            FieldInfo info = infos.fieldInfo(fieldNumber);
+            if (info == null) {
+                throw new CorruptIndexException("Invalid field number: " + fieldNumber, in);
+            }
+            fields.put(fieldNumber, new FieldEntry(in));
+        }
+    }
+
+    @Override
+    public BinaryDocValues getBinary(FieldInfo field) throws IOException {
+        BinaryDocValues values = delegate.getBinary(field);
+        FieldEntry entry = fields.get(field.number);
+        if (entry == null) {
+            return values;
+        }
+        return new HnswVectorBinaryDocValues(values, new OffHeapHnswGraph(entry, data));
+    }
+
+    @Override
+    public NumericDocValues getNumeric(FieldInfo field) throws IOException {
+        return delegate.getNumeric(field);
+    }
+
+    @Override
+    public SortedDocValues getSorted(FieldInfo field) throws IOException {
+        return delegate.getSorted(field);
+    }
+
+    @Override
+    public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
+        return delegate.getSortedNumeric(field);
+    }
+
+    @Override
+    public SortedSetDocValues getSortedSet(FieldInfo field) throws IOException {
+        return delegate.getSortedSet(field);
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+        delegate.checkIntegrity();
+        CodecUtil.checksumEntireFile(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(delegate, data);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return delegate.ramBytesUsed() + RamUsageEstimator.shallowSizeOfInstance(FieldEntry.class) * fields.size();
+    }
+
+    static final class FieldEntry {
+        final VectorSimilarity similarity;
+        final int dims;
+        final boolean quantized;
+        final int size;
+        final int maxConnections;
+        final long vectorsOffset;
+        final long docsOffset;
+        final long graphOffset;
+
+        FieldEntry(IndexInput in) throws IOException {
+            int similarityOrdinal = in.readVInt();
+            if (similarityOrdinal < 0 || similarityOrdinal >= VectorSimilarity.values().length) {
+                throw new CorruptIndexException("Invalid similarity ordinal: " + similarityOrdinal, in);
+            }
+            similarity = VectorSimilarity.values()[similarityOrdinal];
+            dims = in.readVInt();
+            quantized = in.readByte() == 1;
+            size = in.readVInt();
+            maxConnections = in.readVInt();
+            vectorsOffset = in.readLong();
+            docsOffset = in.readLong();
+            graphOffset = in.readLong();
+        }
+    }
+}
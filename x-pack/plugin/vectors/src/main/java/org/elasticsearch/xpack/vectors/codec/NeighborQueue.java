@@ -0,0 +1,131 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * A binary heap of graph nodes ordered by their score. Depending on {@code maxHeap} the top of the heap is
+ * either the best or the worst scoring node. Nodes and scores are kept in parallel primitive arrays to avoid
+ * allocating an object per visited node.
+ */
+public final class NeighborQueue {
+
+    private final boolean maxHeap;
+    private int[] nodes;
+    private float[] scores;
+    private int size;
+
+    public NeighborQueue(int initialSize, boolean maxHeap) {
+        this.maxHeap = maxHeap;
+        this.nodes = new int[Math.max(1, initialSize)];
+        this.scores = new float[Math.max(1, initialSize)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int topNode() {
+        assert size > 0;
+        return nodes[0];
+    }
+
+    public float topScore() {
+        assert size > 0;
+        return scores[0];
+    }
+
+    public void add(int node, float score) {
+        if (size == nodes.length) {
+            nodes = ArrayUtil.grow(nodes, size + 1);
+            scores = ArrayUtil.growExact(scores, nodes.length);
+        }
+        nodes[size] = node;
+        scores[size] = score;
+        upHeap(size);
+        size++;
+    }
+
+    /**
+     * Adds the node if the heap holds less than {@code maxSize} nodes, or replaces the top of the heap
+     * if the node is more competitive. Only meaningful for min-heaps.
+     *
+     * @return whether the node was added
+     */
+    public boolean insertWithOverflow(int node, float score, int maxSize) {
+        assert maxHeap == false;
+        if (size < maxSize) {
+            add(node, score);
+            return true;
+        }
+        if (score > scores[0]) {
+            nodes[0] = node;
+            scores[0] = score;
+            downHeap(0);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the top of the heap and returns its node.
+     */
+    public int pop() {
+        assert size > 0;
+        int top = nodes[0];
+        size--;
+        nodes[0] = nodes[size];
+        scores[0] = scores[size];
+        if (size > 0) {
+            downHeap(0);
+        }
+        return top;
+    }
+
+    private boolean above(float a, float b) {
+        return maxHeap ? a > b : a < b;
+    }
+
+    private void upHeap(int i) {
+        int node = nodes[i];
+        float score = scores[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (above(score, scores[parent]) == false) {
+                break;
+            }
+            nodes[i] = nodes[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        nodes[i] = node;
+        scores[i] = score;
+    }
+
+    private void downHeap(int i) {
+        int node = nodes[i];
+        float score = scores[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && above(scores[child + 1], scores[child])) {
+                child++;
+            }
+            if (above(scores[child], score) == false) {
+                break;
+            }
+            nodes[i] = nodes[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        nodes[i] = node;
+        scores[i] = score;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RandomAccessInput;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+
+/**
+ * An {@link HnswGraph} that reads vectors, doc ids and neighbours straight from the index files written by
+ * {@link HnswVectorDocValuesConsumer}. Instances are cheap to create and must not be shared across threads.
+ */
+final class OffHeapHnswGraph extends HnswGraph {
+
+    private final HnswVectorDocValuesProducer.FieldEntry entry;
+    private final HnswGraphVectors vectors;
+    private final RandomAccessInput docs;
+    private final RandomAccessInput graph;
+
+    OffHeapHnswGraph(HnswVectorDocValuesProducer.FieldEntry entry, IndexInput data) throws IOException {
+        this.entry = entry;
+        this.vectors = new HnswGraphVectors(entry.similarity, entry.dims, entry.quantized,
+            data.slice("vectors", entry.vectorsOffset, entry.size * HnswGraphVectors.bytesPerVector(entry.dims, entry.quantized)));
+        this.docs = data.randomAccessSlice(entry.docsOffset, (long) entry.size * Integer.BYTES);
+        this.graph = data.randomAccessSlice(entry.graphOffset, (long) entry.size * (entry.maxConnections + 1) * Integer.BYTES);
+    }
+
+    VectorSimilarity similarity() {
+        return entry.similarity;
+    }
+
+    @Override
+    public int size() {
+        return entry.size;
+    }
+
+    @Override
+    public int maxConnections() {
+        return entry.maxConnections;
+    }
+
+    @Override
+    public int docId(int node) throws IOException {
+        return docs.readInt((long) node * Integer.BYTES);
+    }
+
+    @Override
+    int neighbors(int node, int[] buffer) throws IOException {
+        final long offset = (long) node * (entry.maxConnections + 1) * Integer.BYTES;
+        final int count = graph.readInt(offset);
+        for (int i = 0; i < count; i++) {
+            buffer[i] = graph.readInt(offset + (long) (i + 1) * Integer.BYTES);
+        }
+        return count;
+    }
+
+    @Override
+    float score(float[] query, int node) throws IOException {
+        return vectors.score(query, node);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import java.io.IOException;
+
+/**
+ * An {@link HnswGraph} whose links are built in memory, one node at a time, when doc values are flushed or merged.
+ * Vectors are read from disk so that the heap only holds the doc ids and the links of the nodes.
+ */
+public final class OnHeapHnswGraph extends HnswGraph {
+
+    private final int maxConnections;
+    private final int beamWidth;
+    private final int[] docs;
+    private final HnswGraphVectors vectors;
+    private final int[][] neighbors;
+    private final float[][] neighborScores;
+    private final int[] neighborCounts;
+    private int size;
+
+    /**
+     * Builds the graph over the given vectors.
+     *
+     * @param maxConnections the maximum number of neighbours per node
+     * @param beamWidth      the number of candidates tracked while looking for the neighbours of a new node
+     * @param docs           the doc ids of the vectors, in increasing order
+     * @param vectors        the vectors of the docs, in the same order
+     */
+    static OnHeapHnswGraph build(int maxConnections, int beamWidth, int[] docs, HnswGraphVectors vectors) throws IOException {
+        OnHeapHnswGraph graph = new OnHeapHnswGraph(maxConnections, beamWidth, docs, vectors);
+        for (int node = 0; node < docs.length; node++) {
+            graph.addNode();
+        }
+        return graph;
+    }
+
+    private OnHeapHnswGraph(int maxConnections, int beamWidth, int[] docs, HnswGraphVectors vectors) {
+        this.maxConnections = maxConnections;
+        this.beamWidth = beamWidth;
+        this.docs = docs;
+        this.vectors = vectors;
+        this.neighbors = new int[docs.length][];
+        this.neighborScores = new float[docs.length][];
+        this.neighborCounts = new int[docs.length];
+    }
+
+    private void addNode() throws IOException {
+        final int node = size;
+        neighbors[node] = new int[maxConnections];
+        neighborScores[node] = new float[maxConnections];
+        if (node > 0) {
+            // only the nodes that have already been added are visible to the search since size == node
+            NeighborQueue candidates = search(vectors.vector(node).clone(), beamWidth, null);
+            while (candidates.size() > maxConnections) {
+                candidates.pop();
+            }
+            while (candidates.size() > 0) {
+                float score = candidates.topScore();
+                int neighbor = candidates.pop();
+                addEdge(node, neighbor, score);
+                addEdge(neighbor, node, score);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Links {@code from} to {@code to}, evicting the least similar neighbour of {@code from} if it is already full.
+     */
+    private void addEdge(int from, int to, float score) {
+        final int count = neighborCounts[from];
+        if (count < maxConnections) {
+            neighbors[from][count] = to;
+            neighborScores[from][count] = score;
+            neighborCounts[from] = count + 1;
+            return;
+        }
+        int worst = 0;
+        for (int i = 1; i < count; i++) {
+            if (neighborScores[from][i] < neighborScores[from][worst]) {
+                worst = i;
+            }
+        }
+        if (score > neighborScores[from][worst]) {
+            neighbors[from][worst] = to;
+            neighborScores[from][worst] = score;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    @Override
+    public int docId(int node) {
+        return docs[node];
+    }
+
+    @Override
+    int neighbors(int node, int[] buffer) {
+        final int count = neighborCounts[node];
+        System.arraycopy(neighbors[node], 0, buffer, 0, count);
+        return count;
+    }
+
+    @Override
+    float score(float[] query, int node) throws IOException {
+        return vectors.score(query, node);
+    }
+}
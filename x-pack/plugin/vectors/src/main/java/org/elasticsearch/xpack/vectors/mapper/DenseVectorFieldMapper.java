@@ -7,12 +7,17 @@
 
 package org.elasticsearch.xpack.vectors.mapper;
 
+import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser.Token;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.codec.DocValuesFormatProvider;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.mapper.ArraySourceValueFetcher;
 import org.elasticsearch.index.mapper.ContentPath;
@@ -26,13 +31,16 @@ import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
 import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.xpack.vectors.codec.HnswVectorDocValuesFormat;
 import org.elasticsearch.xpack.vectors.query.VectorIndexFieldData;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Supplier;
 
 import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
@@ -44,6 +52,8 @@ public class DenseVectorFieldMapper extends FieldMapper {
 
     public static final String CONTENT_TYPE = "dense_vector";
     public static short MAX_DIMS_COUNT = 2048; //maximum allowed number of dimensions
+    public static final String QUANTIZATION_NONE = "none";
+    public static final String QUANTIZATION_INT8 = "int8";
     private static final byte INT_BYTES = 4;
 
     private static DenseVectorFieldMapper toType(FieldMapper in) {
@@ -63,6 +73,16 @@ public class DenseVectorFieldMapper extends FieldMapper {
                         "] should be in the range [1, " + MAX_DIMS_COUNT + "] but was [" + dims + "]");
                 }
             });
+        Parameter<Boolean> indexed = Parameter.indexParam(m -> toType(m).indexed, false);
+        Parameter<VectorSimilarity> similarity = new Parameter<>("similarity", false, () -> null,
+            (n, c, o) -> o == null ? null : VectorSimilarity.fromString(o.toString()), m -> toType(m).similarity)
+            .acceptsNull()
+            .setSerializer((b, n, v) -> b.field(n, Objects.toString(v, null)), v -> Objects.toString(v, null));
+        Parameter<IndexOptions> indexOptions = new Parameter<>("index_options", false, () -> IndexOptions.DEFAULT,
+            (n, c, o) -> IndexOptions.parse(n, o), m -> toType(m).indexOptions)
+            .setSerializer((b, n, v) -> b.field(n, v), Objects::toString);
+        Parameter<String> quantization
+            = Parameter.restrictedStringParam("quantization", false, m -> toType(m).quantization, QUANTIZATION_NONE, QUANTIZATION_INT8);
         Parameter<Map<String, String>> meta = Parameter.metaParam();
 
         final Version indexVersionCreated;
@@ -74,15 +94,32 @@ public class DenseVectorFieldMapper extends FieldMapper {
 
         @Override
         protected List<Parameter<?>> getParameters() {
-            return List.of(dims, meta);
+            return List.of(dims, indexed, similarity, indexOptions, quantization, meta);
         }
 
         @Override
         public DenseVectorFieldMapper build(ContentPath contentPath) {
+            if (indexed.getValue() && similarity.getValue() == null) {
+                throw new MapperParsingException("Field [" + name + "] of type [" + CONTENT_TYPE + "] requires [similarity] to be set "
+                    + "when [index] is true");
+            }
+            if (indexed.getValue() && indexVersionCreated.before(Version.V_7_5_0)) {
+                throw new MapperParsingException("Field [" + name + "] of type [" + CONTENT_TYPE + "] can only be indexed on indices "
+                    + "created on or after version [" + Version.V_7_5_0 + "]");
+            }
+            if (indexed.getValue() == false && similarity.getValue() != null) {
+                throw new MapperParsingException("Field [" + name + "] of type [" + CONTENT_TYPE + "] only supports [similarity] "
+                    + "when [index] is true");
+            }
             return new DenseVectorFieldMapper(
                 name,
-                new DenseVectorFieldType(buildFullName(contentPath), dims.getValue(), meta.getValue()),
+                new DenseVectorFieldType(buildFullName(contentPath), dims.getValue(), indexed.getValue(), similarity.getValue(),
+                    indexOptions.getValue(), QUANTIZATION_INT8.equals(quantization.getValue()), meta.getValue()),
                 dims.getValue(),
+                indexed.getValue(),
+                similarity.getValue(),
+                indexOptions.getValue(),
+                quantization.getValue(),
                 indexVersionCreated,
                 multiFieldsBuilder.build(this, contentPath),
                 copyTo.build());
@@ -91,18 +128,133 @@ public class DenseVectorFieldMapper extends FieldMapper {
 
     public static final TypeParser PARSER = new TypeParser((n, c) -> new Builder(n, c.indexVersionCreated()));
 
-    public static final class DenseVectorFieldType extends MappedFieldType {
+    /**
+     * The options of the graph that is built for indexed vectors.
+     */
+    public static final class IndexOptions implements ToXContentObject {
+        public static final String TYPE = "hnsw";
+        public static final IndexOptions DEFAULT =
+            new IndexOptions(HnswVectorDocValuesFormat.DEFAULT_MAX_CONNECTIONS, HnswVectorDocValuesFormat.DEFAULT_BEAM_WIDTH);
+
+        /**
+         * The maximum number of neighbours of each node in the graph.
+         */
+        public final int m;
+        /**
+         * The number of candidates tracked when looking for the neighbours of a new node.
+         */
+        public final int efConstruction;
+
+        public IndexOptions(int m, int efConstruction) {
+            this.m = m;
+            this.efConstruction = efConstruction;
+        }
+
+        static IndexOptions parse(String fieldName, Object propNode) {
+            if (propNode instanceof Map == false) {
+                throw new MapperParsingException("[index_options] of field [" + fieldName + "] must be an object");
+            }
+            Map<String, Object> options = new HashMap<>();
+            ((Map<?, ?>) propNode).forEach((key, value) -> options.put(key.toString(), value));
+            Object type = options.remove("type");
+            if (type != null && TYPE.equals(type.toString()) == false) {
+                throw new MapperParsingException("[index_options] of field [" + fieldName + "] has unknown type [" + type + "]");
+            }
+            Object m = options.remove("m");
+            Object efConstruction = options.remove("ef_construction");
+            if (options.isEmpty() == false) {
+                throw new MapperParsingException("[index_options] of field [" + fieldName + "] has unknown parameters " + options.keySet());
+            }
+            IndexOptions indexOptions = new IndexOptions(
+                m == null ? DEFAULT.m : XContentMapValues.nodeIntegerValue(m),
+                efConstruction == null ? DEFAULT.efConstruction : XContentMapValues.nodeIntegerValue(efConstruction));
+            if (indexOptions.m < 2 || indexOptions.m > 512) {
+                throw new MapperParsingException("[index_options.m] of field [" + fieldName + "] should be in the range [2, 512] but was ["
+                    + indexOptions.m + "]");
+            }
+            if (indexOptions.efConstruction < 1 || indexOptions.efConstruction > 4096) {
+                throw new MapperParsingException("[index_options.ef_construction] of field [" + fieldName
+                    + "] should be in the range [1, 4096] but was [" + indexOptions.efConstruction + "]");
+            }
+            return indexOptions;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
+            builder.startObject();
+            builder.field("type", TYPE);
+            builder.field("m", m);
+            builder.field("ef_construction", efConstruction);
+            return builder.endObject();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            IndexOptions that = (IndexOptions) o;
+            return m == that.m && efConstruction == that.efConstruction;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(m, efConstruction);
+        }
+
+        @Override
+        public String toString() {
+            return "{type=" + TYPE + ", m=" + m + ", ef_construction=" + efConstruction + "}";
+        }
+    }
+
+    public static final class DenseVectorFieldType extends MappedFieldType implements DocValuesFormatProvider {
         private final int dims;
+        private final VectorSimilarity similarity;
+        private final boolean quantized;
+        private final DocValuesFormat docValuesFormat;
 
         public DenseVectorFieldType(String name, int dims, Map<String, String> meta) {
-            super(name, false, false, true, TextSearchInfo.NONE, meta);
+            this(name, dims, false, null, IndexOptions.DEFAULT, false, meta);
+        }
+
+        public DenseVectorFieldType(String name, int dims, boolean indexed, VectorSimilarity similarity, IndexOptions indexOptions,
+                                    boolean quantized, Map<String, String> meta) {
+            super(name, indexed, false, true, TextSearchInfo.NONE, meta);
             this.dims = dims;
+            this.similarity = similarity;
+            this.quantized = quantized;
+            this.docValuesFormat = indexed
+                ? new HnswVectorDocValuesFormat(similarity, indexOptions.m, indexOptions.efConstruction, quantized)
+                : null;
         }
 
-        int dims() {
+        public int dims() {
             return dims;
         }
 
+        /**
+         * The similarity used to compare indexed vectors, or {@code null} if the field isn't indexed.
+         */
+        public VectorSimilarity similarity() {
+            return similarity;
+        }
+
+        /**
+         * Whether vectors are stored with one byte per dimension rather than as floats.
+         */
+        public boolean isQuantized() {
+            return quantized;
+        }
+
+        @Override
+        public DocValuesFormat docValuesFormat() {
+            return docValuesFormat;
+        }
+
         @Override
         public String typeName() {
             return CONTENT_TYPE;
@@ -134,7 +286,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
 
         @Override
         public IndexFieldData.Builder fielddataBuilder(String fullyQualifiedIndexName, Supplier<SearchLookup> searchLookup) {
-            return new VectorIndexFieldData.Builder(name(), CoreValuesSourceType.BYTES);
+            return new VectorIndexFieldData.Builder(name(), CoreValuesSourceType.BYTES, quantized);
         }
 
         @Override
@@ -146,12 +298,21 @@ public class DenseVectorFieldMapper extends FieldMapper {
 
     private final Version indexCreatedVersion;
     private final int dims;
+    private final boolean indexed;
+    private final VectorSimilarity similarity;
+    private final IndexOptions indexOptions;
+    private final String quantization;
 
-    private DenseVectorFieldMapper(String simpleName, MappedFieldType mappedFieldType, int dims,
+    private DenseVectorFieldMapper(String simpleName, MappedFieldType mappedFieldType, int dims, boolean indexed,
+                                   VectorSimilarity similarity, IndexOptions indexOptions, String quantization,
                                    Version indexCreatedVersion, MultiFields multiFields, CopyTo copyTo) {
         super(simpleName, mappedFieldType, multiFields, copyTo);
         this.indexCreatedVersion = indexCreatedVersion;
         this.dims = dims;
+        this.indexed = indexed;
+        this.similarity = similarity;
+        this.indexOptions = indexOptions;
+        this.quantization = quantization;
     }
 
     @Override
@@ -170,12 +331,20 @@ public class DenseVectorFieldMapper extends FieldMapper {
             throw new IllegalArgumentException("Field [" + name() + "] of type [" + typeName() + "] can't be used in multi-fields");
         }
         int dims = fieldType().dims(); //number of vector dimensions
+        boolean quantized = fieldType().isQuantized();
 
         // encode array of floats as array of integers and store into buf
         // this code is here and not int the VectorEncoderDecoder so not to create extra arrays
-        byte[] bytes = indexCreatedVersion.onOrAfter(Version.V_7_5_0) ? new byte[dims * INT_BYTES + INT_BYTES] : new byte[dims * INT_BYTES];
-
-        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+        // quantized vectors need all values to compute their range, so they are collected first
+        byte[] bytes = null;
+        ByteBuffer byteBuffer = null;
+        float[] values = null;
+        if (quantized) {
+            values = new float[dims];
+        } else {
+            bytes = indexCreatedVersion.onOrAfter(Version.V_7_5_0) ? new byte[dims * INT_BYTES + INT_BYTES] : new byte[dims * INT_BYTES];
+            byteBuffer = ByteBuffer.wrap(bytes);
+        }
         double dotProduct = 0f;
 
         int dim = 0;
@@ -187,7 +356,11 @@ public class DenseVectorFieldMapper extends FieldMapper {
             ensureExpectedToken(Token.VALUE_NUMBER, token, context.parser());
             float value = context.parser().floatValue(true);
 
-            byteBuffer.putFloat(value);
+            if (quantized) {
+                values[dim - 1] = value;
+            } else {
+                byteBuffer.putFloat(value);
+            }
             dotProduct += value * value;
         }
         if (dim != dims) {
@@ -196,7 +369,14 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 "] less than defined in the mapping [" +  dims +"]");
         }
 
-        if (indexCreatedVersion.onOrAfter(Version.V_7_5_0)) {
+        if (similarity == VectorSimilarity.DOT_PRODUCT && Math.abs(dotProduct - 1.0) > 1e-4) {
+            throw new IllegalArgumentException("Field [" + name() + "] of type [" + typeName() + "] of doc [" +
+                context.sourceToParse().id() + "] must have a unit length vector to be compared with [" + similarity + "] similarity");
+        }
+
+        if (quantized) {
+            bytes = VectorEncoderDecoder.encodeQuantized(values, (float) Math.sqrt(dotProduct));
+        } else if (indexCreatedVersion.onOrAfter(Version.V_7_5_0)) {
             // encode vector magnitude at the end
             float vectorMagnitude = (float) Math.sqrt(dotProduct);
             byteBuffer.putFloat(vectorMagnitude);
@@ -10,10 +10,19 @@ package org.elasticsearch.xpack.vectors.mapper;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 
-import java.nio.ByteBuffer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 
 public final class VectorEncoderDecoder {
     public static final byte INT_BYTES = 4;
+    /**
+     * Quantized vectors are followed by the minimum value, the scale and the magnitude of the original vector.
+     */
+    public static final int QUANTIZED_TRAILER_BYTES = 3 * INT_BYTES;
+    private static final int QUANTIZED_MAX_CODE = 255;
+
+    private static final VarHandle FLOAT_BE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
 
     private VectorEncoderDecoder() { }
 
@@ -30,7 +39,66 @@ public final class VectorEncoderDecoder {
      */
     public static float decodeVectorMagnitude(Version indexVersion, BytesRef vectorBR) {
         assert indexVersion.onOrAfter(Version.V_7_5_0);
-        ByteBuffer byteBuffer = ByteBuffer.wrap(vectorBR.bytes, vectorBR.offset, vectorBR.length);
-        return byteBuffer.getFloat(vectorBR.offset + vectorBR.length - 4);
+        return (float) FLOAT_BE.get(vectorBR.bytes, vectorBR.offset + vectorBR.length - INT_BYTES);
+    }
+
+    /**
+     * Encodes a vector as one unsigned byte per dimension. A dimension is decoded as {@code min + scale * code},
+     * where {@code min} and {@code scale} are computed per vector so that codes span the whole byte range.
+     * The magnitude of the original vector is kept for cosine similarity.
+     */
+    public static byte[] encodeQuantized(float[] vector, float magnitude) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : vector) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final float scale = (max - min) / QUANTIZED_MAX_CODE;
+        final byte[] bytes = new byte[vector.length + QUANTIZED_TRAILER_BYTES];
+        for (int dim = 0; dim < vector.length; dim++) {
+            int code = scale == 0 ? 0 : Math.round((vector[dim] - min) / scale);
+            bytes[dim] = (byte) Math.max(0, Math.min(QUANTIZED_MAX_CODE, code));
+        }
+        FLOAT_BE.set(bytes, vector.length, min);
+        FLOAT_BE.set(bytes, vector.length + INT_BYTES, scale);
+        FLOAT_BE.set(bytes, vector.length + 2 * INT_BYTES, magnitude);
+        return bytes;
+    }
+
+    public static int quantizedDenseVectorLength(BytesRef vectorBR) {
+        return vectorBR.length - QUANTIZED_TRAILER_BYTES;
+    }
+
+    /**
+     * Decodes the value that a quantized code of zero maps to.
+     */
+    public static float decodeQuantizedMin(BytesRef vectorBR) {
+        return (float) FLOAT_BE.get(vectorBR.bytes, vectorBR.offset + vectorBR.length - QUANTIZED_TRAILER_BYTES);
+    }
+
+    /**
+     * Decodes the difference between the values of two consecutive quantized codes.
+     */
+    public static float decodeQuantizedScale(BytesRef vectorBR) {
+        return (float) FLOAT_BE.get(vectorBR.bytes, vectorBR.offset + vectorBR.length - 2 * INT_BYTES);
+    }
+
+    /**
+     * Decodes the magnitude of the original, unquantized, vector.
+     */
+    public static float decodeQuantizedMagnitude(BytesRef vectorBR) {
+        return (float) FLOAT_BE.get(vectorBR.bytes, vectorBR.offset + vectorBR.length - INT_BYTES);
+    }
+
+    /**
+     * Decodes a quantized vector into {@code vector}, whose length must be the number of dimensions.
+     */
+    public static void decodeQuantized(BytesRef vectorBR, float[] vector) {
+        final float min = decodeQuantizedMin(vectorBR);
+        final float scale = decodeQuantizedScale(vectorBR);
+        for (int dim = 0; dim < vector.length; dim++) {
+            vector[dim] = min + scale * (vectorBR.bytes[vectorBR.offset + dim] & 0xFF);
+        }
     }
 }
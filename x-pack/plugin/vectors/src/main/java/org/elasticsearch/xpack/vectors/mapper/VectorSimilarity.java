@@ -0,0 +1,101 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.mapper;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The similarity used to compare vectors of an indexed {@code dense_vector} field. Scores are always
+ * positive and higher scores mean more similar vectors so that they can be used directly as query scores.
+ */
+public enum VectorSimilarity {
+    L2_NORM {
+        @Override
+        public float score(float[] a, float[] b) {
+            float squareDistance = 0;
+            for (int i = 0; i < a.length; i++) {
+                float diff = a[i] - b[i];
+                squareDistance += diff * diff;
+            }
+            return 1f / (1f + squareDistance);
+        }
+    },
+    DOT_PRODUCT {
+        @Override
+        public float score(float[] a, float[] b) {
+            return (1f + dotProduct(a, b)) / 2f;
+        }
+    },
+    /**
+     * Cosine similarity. Vectors are normalized to unit length before they are added to the graph, so
+     * this is computed as a dot product.
+     */
+    COSINE {
+        @Override
+        public float score(float[] a, float[] b) {
+            return (1f + dotProduct(a, b)) / 2f;
+        }
+
+        @Override
+        public boolean normalize() {
+            return true;
+        }
+    };
+
+    /**
+     * Computes the similarity score between two vectors of the same length.
+     */
+    public abstract float score(float[] a, float[] b);
+
+    /**
+     * Whether vectors need to be normalized to unit length before being compared with this similarity.
+     */
+    public boolean normalize() {
+        return false;
+    }
+
+    public static VectorSimilarity fromString(String value) {
+        final String name = value.toUpperCase(Locale.ROOT);
+        for (VectorSimilarity similarity : values()) {
+            if (similarity.name().equals(name)) {
+                return similarity;
+            }
+        }
+        throw new IllegalArgumentException("Unknown vector similarity [" + value + "], must be one of " + Arrays.toString(values()));
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes the given vector to unit length in place.
+     */
+    public static void normalize(float[] vector) {
+        double magnitude = 0;
+        for (float value : vector) {
+            magnitude += value * value;
+        }
+        if (magnitude == 0) {
+            return;
+        }
+        magnitude = Math.sqrt(magnitude);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (vector[i] / magnitude);
+        }
+    }
+
+    private static float dotProduct(float[] a, float[] b) {
+        float result = 0;
+        for (int i = 0; i < a.length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+}
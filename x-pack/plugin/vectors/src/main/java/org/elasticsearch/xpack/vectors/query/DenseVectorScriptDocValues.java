@@ -16,10 +16,16 @@ import java.io.IOException;
 public class DenseVectorScriptDocValues extends ScriptDocValues<BytesRef> {
 
     private final BinaryDocValues in;
+    private final boolean quantized;
     private BytesRef value;
 
     DenseVectorScriptDocValues(BinaryDocValues in) {
+        this(in, false);
+    }
+
+    DenseVectorScriptDocValues(BinaryDocValues in, boolean quantized) {
         this.in = in;
+        this.quantized = quantized;
     }
 
     @Override
@@ -36,6 +42,13 @@ public class DenseVectorScriptDocValues extends ScriptDocValues<BytesRef> {
         return value;
     }
 
+    /**
+     * Whether vectors are encoded with one byte per dimension rather than as floats.
+     */
+    boolean isQuantized() {
+        return quantized;
+    }
+
     @Override
     public BytesRef get(int index) {
         throw new UnsupportedOperationException("accessing a vector field's value through 'get' or 'value' is not supported");
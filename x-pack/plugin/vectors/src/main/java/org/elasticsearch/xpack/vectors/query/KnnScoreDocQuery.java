@@ -0,0 +1,187 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ArrayUtil;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A query that matches a fixed set of top-level doc ids, each with a precomputed score. This is what
+ * {@link KnnVectorQuery} rewrites to once the nearest neighbours have been found. Doc ids are only meaningful
+ * for the reader the query was rewritten against, so the query can only be used with that reader and is never cached.
+ */
+final class KnnScoreDocQuery extends Query {
+
+    private final int[] docs;
+    private final float[] scores;
+    // the top-level reader context the doc ids belong to, compared by identity
+    private final IndexReaderContext readerContext;
+
+    /**
+     * @param docs   top-level doc ids, in any order
+     * @param scores the scores of the documents
+     * @param reader the reader the doc ids belong to
+     */
+    KnnScoreDocQuery(int[] docs, float[] scores, IndexReader reader) {
+        assert docs.length == scores.length;
+        this.readerContext = reader.getContext();
+        // sort by doc id so that segments can binary search their range of matches
+        Integer[] order = new Integer[docs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        ArrayUtil.timSort(order, (a, b) -> Integer.compare(docs[a], docs[b]));
+        this.docs = new int[docs.length];
+        this.scores = new float[docs.length];
+        for (int i = 0; i < order.length; i++) {
+            this.docs[i] = docs[order[i]];
+            this.scores[i] = scores[order[i]];
+        }
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+        if (searcher.getTopReaderContext() != readerContext) {
+            throw new IllegalStateException("This query was rewritten against a different reader than the one it is executed with");
+        }
+        return new Weight(this) {
+            @Override
+            public void extractTerms(Set<Term> terms) {
+            }
+
+            @Override
+            public Explanation explain(LeafReaderContext context, int doc) {
+                int index = Arrays.binarySearch(docs, context.docBase + doc);
+                if (index < 0) {
+                    return Explanation.noMatch("not a nearest neighbour of the query vector");
+                }
+                return Explanation.match(scores[index] * boost, "similarity to the query vector, computed as boost * score of:",
+                    Explanation.match(boost, "boost"), Explanation.match(scores[index], "score"));
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) {
+                final int lower = lowerBound(context.docBase);
+                final int upper = lowerBound(context.docBase + context.reader().maxDoc());
+                if (lower == upper) {
+                    return null;
+                }
+                return new Scorer(this) {
+                    int index = lower - 1;
+
+                    @Override
+                    public DocIdSetIterator iterator() {
+                        return new DocIdSetIterator() {
+                            @Override
+                            public int docID() {
+                                return KnnScoreDocQuery.this.docID(context, index, lower, upper);
+                            }
+
+                            @Override
+                            public int nextDoc() {
+                                index++;
+                                return docID();
+                            }
+
+                            @Override
+                            public int advance(int target) {
+                                index = Math.max(index + 1, lowerBound(context.docBase + target));
+                                return docID();
+                            }
+
+                            @Override
+                            public long cost() {
+                                return upper - lower;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public float getMaxScore(int upTo) {
+                        float maxScore = 0;
+                        for (int i = Math.max(index, lower); i < upper && docs[i] - context.docBase <= upTo; i++) {
+                            maxScore = Math.max(maxScore, scores[i]);
+                        }
+                        return maxScore * boost;
+                    }
+
+                    @Override
+                    public float score() {
+                        return scores[index] * boost;
+                    }
+
+                    @Override
+                    public int docID() {
+                        return KnnScoreDocQuery.this.docID(context, index, lower, upper);
+                    }
+                };
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                // the matches depend on the other segments of the top-level reader, not just on this one
+                return false;
+            }
+        };
+    }
+
+    private int docID(LeafReaderContext context, int index, int lower, int upper) {
+        if (index < lower) {
+            return -1;
+        }
+        if (index >= upper) {
+            return DocIdSetIterator.NO_MORE_DOCS;
+        }
+        return docs[index] - context.docBase;
+    }
+
+    /**
+     * Returns the index of the first doc that is greater than or equal to {@code doc}.
+     */
+    private int lowerBound(int doc) {
+        int index = Arrays.binarySearch(docs, doc);
+        return index < 0 ? -1 - index : index;
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+        return "KnnScoreDocQuery{docs=" + Arrays.toString(docs) + "}";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        KnnScoreDocQuery other = (KnnScoreDocQuery) obj;
+        return readerContext == other.readerContext && Arrays.equals(docs, other.docs) && Arrays.equals(scores, other.scores);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * classHash() + System.identityHashCode(readerContext)) + Arrays.hashCode(docs)) + Arrays.hashCode(scores);
+    }
+}
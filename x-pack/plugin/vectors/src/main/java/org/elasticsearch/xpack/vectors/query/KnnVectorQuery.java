@@ -0,0 +1,179 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.xpack.vectors.codec.HnswGraph;
+import org.elasticsearch.xpack.vectors.codec.HnswVectorBinaryDocValues;
+import org.elasticsearch.xpack.vectors.codec.NeighborQueue;
+import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Finds the {@code k} nearest neighbours of a query vector. On rewrite every segment is searched, through its
+ * {@link HnswGraph} when it has one or with an exact scan of the doc values otherwise, and the query is replaced
+ * with a {@link KnnScoreDocQuery} that matches the global top {@code k} documents with their similarity as score.
+ */
+public class KnnVectorQuery extends Query {
+
+    private final String field;
+    private final float[] queryVector;
+    private final int k;
+    private final int numCandidates;
+    private final VectorSimilarity similarity;
+    private final boolean quantized;
+
+    public KnnVectorQuery(String field, float[] queryVector, int k, int numCandidates, VectorSimilarity similarity) {
+        this(field, queryVector, k, numCandidates, similarity, false);
+    }
+
+    /**
+     * @param quantized whether the doc values of the field hold quantized vectors, only used by segments without a graph
+     */
+    public KnnVectorQuery(String field, float[] queryVector, int k, int numCandidates, VectorSimilarity similarity, boolean quantized) {
+        this.field = field;
+        this.queryVector = queryVector.clone();
+        if (similarity.normalize()) {
+            VectorSimilarity.normalize(this.queryVector);
+        }
+        this.k = k;
+        this.numCandidates = Math.max(k, numCandidates);
+        this.similarity = similarity;
+        this.quantized = quantized;
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        final NeighborQueue topDocs = new NeighborQueue(k, false);
+        for (LeafReaderContext context : reader.leaves()) {
+            final NeighborQueue leafTopDocs = searchLeaf(context);
+            while (leafTopDocs.size() > 0) {
+                final float score = leafTopDocs.topScore();
+                final int doc = context.docBase + leafTopDocs.pop();
+                topDocs.insertWithOverflow(doc, score, k);
+            }
+        }
+        final int[] docs = new int[topDocs.size()];
+        final float[] scores = new float[topDocs.size()];
+        for (int i = 0; topDocs.size() > 0; i++) {
+            scores[i] = topDocs.topScore();
+            docs[i] = topDocs.pop();
+        }
+        return new KnnScoreDocQuery(docs, scores, reader);
+    }
+
+    /**
+     * Returns the best {@code k} documents of the segment as a min-heap of leaf doc ids.
+     */
+    private NeighborQueue searchLeaf(LeafReaderContext context) throws IOException {
+        final BinaryDocValues values = context.reader().getBinaryDocValues(field);
+        if (values == null) {
+            return new NeighborQueue(1, false);
+        }
+        final Bits liveDocs = context.reader().getLiveDocs();
+        if (values instanceof HnswVectorBinaryDocValues) {
+            final HnswGraph graph = ((HnswVectorBinaryDocValues) values).graph();
+            final Bits acceptNodes = liveDocs == null ? null : new Bits() {
+                @Override
+                public boolean get(int node) {
+                    try {
+                        return liveDocs.get(graph.docId(node));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public int length() {
+                    return graph.size();
+                }
+            };
+            final NeighborQueue nodes = graph.search(queryVector, numCandidates, acceptNodes);
+            while (nodes.size() > k) {
+                nodes.pop();
+            }
+            final NeighborQueue docs = new NeighborQueue(nodes.size(), false);
+            while (nodes.size() > 0) {
+                final float score = nodes.topScore();
+                docs.add(graph.docId(nodes.pop()), score);
+            }
+            return docs;
+        }
+        return exactSearch(values, liveDocs);
+    }
+
+    /**
+     * Scores every vector of the segment, used for segments that were written without a graph.
+     */
+    private NeighborQueue exactSearch(BinaryDocValues values, Bits liveDocs) throws IOException {
+        final NeighborQueue docs = new NeighborQueue(k, false);
+        final float[] vector = new float[queryVector.length];
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            if (liveDocs != null && liveDocs.get(doc) == false) {
+                continue;
+            }
+            BytesRef encoded = values.binaryValue();
+            if (quantized) {
+                VectorEncoderDecoder.decodeQuantized(encoded, vector);
+            } else {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(encoded.bytes, encoded.offset, encoded.length);
+                for (int dim = 0; dim < vector.length; dim++) {
+                    vector[dim] = byteBuffer.getFloat();
+                }
+            }
+            if (similarity.normalize()) {
+                VectorSimilarity.normalize(vector);
+            }
+            docs.insertWithOverflow(doc, similarity.score(queryVector, vector), k);
+        }
+        return docs;
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    @Override
+    public String toString(String field) {
+        return "KnnVectorQuery{field=" + this.field + ", k=" + k + ", num_candidates=" + numCandidates + "}";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        KnnVectorQuery other = (KnnVectorQuery) obj;
+        return field.equals(other.field)
+            && Arrays.equals(queryVector, other.queryVector)
+            && k == other.k
+            && numCandidates == other.numCandidates
+            && similarity == other.similarity
+            && quantized == other.quantized;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), field, Arrays.hashCode(queryVector), k, numCandidates, similarity, quantized);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ConstructingObjectParser;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.xpack.vectors.mapper.DenseVectorFieldMapper.DenseVectorFieldType;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.elasticsearch.common.xcontent.ConstructingObjectParser.constructorArg;
+import static org.elasticsearch.common.xcontent.ConstructingObjectParser.optionalConstructorArg;
+
+/**
+ * A query that returns the {@code k} documents whose vectors are the most similar to a query vector, using the
+ * graphs of an indexed {@code dense_vector} field. Each shard returns its own top {@code k} hits, which are then
+ * merged by score on the coordinating node like the hits of any other query.
+ */
+public class KnnVectorQueryBuilder extends AbstractQueryBuilder<KnnVectorQueryBuilder> {
+    public static final String NAME = "knn";
+    public static final int MAX_K = 10_000;
+    public static final int DEFAULT_NUM_CANDIDATES = 100;
+
+    private static final ParseField FIELD_FIELD = new ParseField("field");
+    private static final ParseField QUERY_VECTOR_FIELD = new ParseField("query_vector");
+    private static final ParseField K_FIELD = new ParseField("k");
+    private static final ParseField NUM_CANDIDATES_FIELD = new ParseField("num_candidates");
+
+    @SuppressWarnings("unchecked")
+    private static final ConstructingObjectParser<KnnVectorQueryBuilder, Void> PARSER = new ConstructingObjectParser<>(NAME, false,
+        args -> {
+            List<Float> vector = (List<Float>) args[1];
+            float[] queryVector = new float[vector.size()];
+            for (int i = 0; i < queryVector.length; i++) {
+                queryVector[i] = vector.get(i);
+            }
+            return new KnnVectorQueryBuilder((String) args[0], queryVector, (Integer) args[2], (Integer) args[3]);
+        });
+
+    static {
+        PARSER.declareString(constructorArg(), FIELD_FIELD);
+        PARSER.declareFloatArray(constructorArg(), QUERY_VECTOR_FIELD);
+        PARSER.declareInt(constructorArg(), K_FIELD);
+        PARSER.declareInt(optionalConstructorArg(), NUM_CANDIDATES_FIELD);
+        declareStandardFields(PARSER);
+    }
+
+    private final String fieldName;
+    private final float[] queryVector;
+    private final int k;
+    private final int numCandidates;
+
+    /**
+     * @param fieldName     the indexed {@code dense_vector} field to search
+     * @param queryVector   the query vector
+     * @param k             the number of nearest neighbours to return per shard
+     * @param numCandidates the number of candidates to track per segment, defaults to
+     *                      {@link #DEFAULT_NUM_CANDIDATES} or {@code k} if larger. Larger values increase recall
+     *                      at the expense of latency.
+     */
+    public KnnVectorQueryBuilder(String fieldName, float[] queryVector, int k, Integer numCandidates) {
+        if (fieldName == null) {
+            throw new IllegalArgumentException("[" + NAME + "] requires a [" + FIELD_FIELD.getPreferredName() + "]");
+        }
+        if (queryVector == null || queryVector.length == 0) {
+            throw new IllegalArgumentException("[" + NAME + "] requires a non empty [" + QUERY_VECTOR_FIELD.getPreferredName() + "]");
+        }
+        if (k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException("[" + NAME + "] requires [" + K_FIELD.getPreferredName() + "] to be in the range [1, "
+                + MAX_K + "] but was [" + k + "]");
+        }
+        int candidates = numCandidates == null ? Math.max(k, DEFAULT_NUM_CANDIDATES) : numCandidates;
+        if (candidates < k || candidates > MAX_K) {
+            throw new IllegalArgumentException("[" + NAME + "] requires [" + NUM_CANDIDATES_FIELD.getPreferredName()
+                + "] to be in the range [" + k + ", " + MAX_K + "] but was [" + candidates + "]");
+        }
+        this.fieldName = fieldName;
+        this.queryVector = queryVector;
+        this.k = k;
+        this.numCandidates = candidates;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public KnnVectorQueryBuilder(StreamInput in) throws IOException {
+        super(in);
+        fieldName = in.readString();
+        queryVector = in.readFloatArray();
+        k = in.readVInt();
+        numCandidates = in.readVInt();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeString(fieldName);
+        out.writeFloatArray(queryVector);
+        out.writeVInt(k);
+        out.writeVInt(numCandidates);
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    public float[] queryVector() {
+        return queryVector;
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public int numCandidates() {
+        return numCandidates;
+    }
+
+    @Override
+    protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(NAME);
+        builder.field(FIELD_FIELD.getPreferredName(), fieldName);
+        builder.array(QUERY_VECTOR_FIELD.getPreferredName(), queryVector);
+        builder.field(K_FIELD.getPreferredName(), k);
+        builder.field(NUM_CANDIDATES_FIELD.getPreferredName(), numCandidates);
+        printBoostAndQueryName(builder);
+        builder.endObject();
+    }
+
+    public static KnnVectorQueryBuilder fromXContent(XContentParser parser) {
+        try {
+            return PARSER.apply(parser, null);
+        } catch (IllegalArgumentException e) {
+            throw new ParsingException(parser.getTokenLocation(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+
+    @Override
+    protected Query doToQuery(QueryShardContext context) throws IOException {
+        MappedFieldType fieldType = context.getFieldType(fieldName);
+        if (fieldType == null) {
+            return new MatchNoDocsQuery("unmapped field [" + fieldName + "]");
+        }
+        if (fieldType instanceof DenseVectorFieldType == false) {
+            throw new IllegalArgumentException("[" + NAME + "] queries are only supported on [dense_vector] fields, but [" + fieldName
+                + "] is of type [" + fieldType.typeName() + "]");
+        }
+        DenseVectorFieldType vectorFieldType = (DenseVectorFieldType) fieldType;
+        if (vectorFieldType.isSearchable() == false) {
+            throw new IllegalArgumentException("[" + NAME + "] queries are only supported on [dense_vector] fields that are indexed, "
+                + "but [" + fieldName + "] is not");
+        }
+        if (vectorFieldType.dims() != queryVector.length) {
+            throw new IllegalArgumentException("The query vector has a different number of dimensions [" + queryVector.length
+                + "] than the document vectors [" + vectorFieldType.dims() + "].");
+        }
+        return new KnnVectorQuery(vectorFieldType.name(), queryVector, k, numCandidates, vectorFieldType.similarity(),
+            vectorFieldType.isQuantized());
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(fieldName, Arrays.hashCode(queryVector), k, numCandidates);
+    }
+
+    @Override
+    protected boolean doEquals(KnnVectorQueryBuilder other) {
+        return fieldName.equals(other.fieldName)
+            && Arrays.equals(queryVector, other.queryVector)
+            && k == other.k
+            && numCandidates == other.numCandidates;
+    }
+}
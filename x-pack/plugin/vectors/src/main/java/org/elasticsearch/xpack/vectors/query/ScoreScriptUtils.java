@@ -14,7 +14,6 @@ import org.elasticsearch.script.ScoreScript;
 import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.List;
 
 public class ScoreScriptUtils {
@@ -23,6 +22,11 @@ public class ScoreScriptUtils {
         final ScoreScript scoreScript;
         final float[] queryVector;
         final DenseVectorScriptDocValues docValues;
+        final boolean quantized;
+        /**
+         * The sum of the dimensions of the query vector, used to compute dot products against quantized vectors.
+         */
+        final double querySum;
 
         public DenseVectorFunction(ScoreScript scoreScript,
                                    List<Number> queryVector,
@@ -58,6 +62,13 @@ public class ScoreScriptUtils {
                     this.queryVector[dim] /= queryMagnitude;
                 }
             }
+
+            this.quantized = docValues.isQuantized();
+            double querySum = 0.0;
+            for (float value : this.queryVector) {
+                querySum += value;
+            }
+            this.querySum = querySum;
         }
 
         BytesRef getEncodedVector() {
@@ -73,7 +84,9 @@ public class ScoreScriptUtils {
                 throw new IllegalArgumentException("A document doesn't have a value for a vector field!");
             }
 
-            int vectorLength = VectorEncoderDecoder.denseVectorLength(scoreScript._getIndexVersion(), vector);
+            int vectorLength = quantized
+                ? VectorEncoderDecoder.quantizedDenseVectorLength(vector)
+                : VectorEncoderDecoder.denseVectorLength(scoreScript._getIndexVersion(), vector);
             if (queryVector.length != vectorLength) {
                 throw new IllegalArgumentException("The query vector has a different number of dimensions [" +
                     queryVector.length + "] than the document vectors [" + vectorLength + "].");
@@ -91,14 +104,7 @@ public class ScoreScriptUtils {
 
         public double l1norm() {
             BytesRef vector = getEncodedVector();
-            ByteBuffer byteBuffer = ByteBuffer.wrap(vector.bytes, vector.offset, vector.length);
-
-            double l1norm = 0;
-
-            for (float queryValue : queryVector) {
-                l1norm += Math.abs(queryValue - byteBuffer.getFloat());
-            }
-            return l1norm;
+            return quantized ? VectorKernels.quantizedL1Norm(queryVector, vector) : VectorKernels.l1Norm(queryVector, vector);
         }
     }
 
@@ -111,14 +117,9 @@ public class ScoreScriptUtils {
 
         public double l2norm() {
             BytesRef vector = getEncodedVector();
-            ByteBuffer byteBuffer = ByteBuffer.wrap(vector.bytes, vector.offset, vector.length);
-
-            double l2norm = 0;
-            for (float queryValue : queryVector) {
-                double diff = queryValue - byteBuffer.getFloat();
-                l2norm += diff * diff;
-            }
-            return Math.sqrt(l2norm);
+            return Math.sqrt(quantized
+                ? VectorKernels.quantizedL2NormSquared(queryVector, vector)
+                : VectorKernels.l2NormSquared(queryVector, vector));
         }
     }
 
@@ -131,13 +132,9 @@ public class ScoreScriptUtils {
 
         public double dotProduct() {
             BytesRef vector = getEncodedVector();
-            ByteBuffer byteBuffer = ByteBuffer.wrap(vector.bytes, vector.offset, vector.length);
-
-            double dotProduct = 0;
-            for (float queryValue : queryVector) {
-                dotProduct += queryValue * byteBuffer.getFloat();
-            }
-            return dotProduct;
+            return quantized
+                ? VectorKernels.quantizedDotProduct(queryVector, querySum, vector)
+                : VectorKernels.dotProduct(queryVector, vector);
         }
     }
 
@@ -150,22 +147,17 @@ public class ScoreScriptUtils {
 
         public double cosineSimilarity() {
             BytesRef vector = getEncodedVector();
-            ByteBuffer byteBuffer = ByteBuffer.wrap(vector.bytes, vector.offset, vector.length);
-
-            double dotProduct = 0.0;
-            double vectorMagnitude = 0.0f;
+            if (quantized) {
+                return VectorKernels.quantizedDotProduct(queryVector, querySum, vector) /
+                    VectorEncoderDecoder.decodeQuantizedMagnitude(vector);
+            }
+            // the query vector was normalized once on construction, so only the magnitude of the document vector is needed
+            double dotProduct = VectorKernels.dotProduct(queryVector, vector);
+            double vectorMagnitude;
             if (scoreScript._getIndexVersion().onOrAfter(Version.V_7_5_0)) {
-                for (float queryValue : queryVector) {
-                    dotProduct += queryValue * byteBuffer.getFloat();
-                }
                 vectorMagnitude = VectorEncoderDecoder.decodeVectorMagnitude(scoreScript._getIndexVersion(), vector);
             } else {
-                for (float queryValue : queryVector) {
-                    float docValue = byteBuffer.getFloat();
-                    dotProduct += queryValue * docValue;
-                    vectorMagnitude += docValue * docValue;
-                }
-                vectorMagnitude = (float) Math.sqrt(vectorMagnitude);
+                vectorMagnitude = (float) Math.sqrt(VectorKernels.squaredMagnitude(queryVector.length, vector));
             }
             return dotProduct / vectorMagnitude;
         }
@@ -24,10 +24,12 @@ final class VectorDVLeafFieldData implements LeafFieldData {
 
     private final LeafReader reader;
     private final String field;
+    private final boolean quantized;
 
-    VectorDVLeafFieldData(LeafReader reader, String field) {
+    VectorDVLeafFieldData(LeafReader reader, String field, boolean quantized) {
         this.reader = reader;
         this.field = field;
+        this.quantized = quantized;
     }
 
     @Override
@@ -49,7 +51,7 @@ final class VectorDVLeafFieldData implements LeafFieldData {
     public ScriptDocValues<BytesRef> getScriptValues() {
         try {
             final BinaryDocValues values = DocValues.getBinary(reader, field);
-            return new DenseVectorScriptDocValues(values);
+            return new DenseVectorScriptDocValues(values, quantized);
         } catch (IOException e) {
             throw new IllegalStateException("Cannot load doc values for vector field!", e);
         }
@@ -26,10 +26,16 @@ public class VectorIndexFieldData implements IndexFieldData<VectorDVLeafFieldDat
 
     protected final String fieldName;
     protected final ValuesSourceType valuesSourceType;
+    private final boolean quantized;
 
     public VectorIndexFieldData(String fieldName, ValuesSourceType valuesSourceType) {
+        this(fieldName, valuesSourceType, false);
+    }
+
+    public VectorIndexFieldData(String fieldName, ValuesSourceType valuesSourceType, boolean quantized) {
         this.fieldName = fieldName;
         this.valuesSourceType = valuesSourceType;
+        this.quantized = quantized;
     }
 
     @Override
@@ -55,7 +61,7 @@ public class VectorIndexFieldData implements IndexFieldData<VectorDVLeafFieldDat
 
     @Override
     public VectorDVLeafFieldData load(LeafReaderContext context) {
-        return new VectorDVLeafFieldData(context.reader(), fieldName);
+        return new VectorDVLeafFieldData(context.reader(), fieldName, quantized);
     }
 
     @Override
@@ -66,15 +72,21 @@ public class VectorIndexFieldData implements IndexFieldData<VectorDVLeafFieldDat
     public static class Builder implements IndexFieldData.Builder {
         private final String name;
         private final ValuesSourceType valuesSourceType;
+        private final boolean quantized;
 
         public Builder(String name, ValuesSourceType valuesSourceType) {
+            this(name, valuesSourceType, false);
+        }
+
+        public Builder(String name, ValuesSourceType valuesSourceType, boolean quantized) {
             this.name = name;
             this.valuesSourceType = valuesSourceType;
+            this.quantized = quantized;
         }
 
         @Override
         public IndexFieldData<?> build(IndexFieldDataCache cache, CircuitBreakerService breakerService) {
-            return new VectorIndexFieldData(name, valuesSourceType);
+            return new VectorIndexFieldData(name, valuesSourceType, quantized);
         }
 
     }
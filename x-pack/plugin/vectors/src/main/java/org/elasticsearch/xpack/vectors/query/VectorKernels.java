@@ -0,0 +1,196 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Similarity kernels that work directly on the encoded form of a dense vector, as produced by the
+ * {@code dense_vector} field mapper, so that scoring a document neither decodes the vector into a
+ * {@code float[]} nor allocates a {@link java.nio.ByteBuffer}. Loops are unrolled over four independent
+ * accumulators, which breaks the dependency chain between iterations and lets the JIT keep several
+ * multiply-adds in flight.
+ */
+public final class VectorKernels {
+
+    private static final VarHandle FLOAT_BE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+
+    private VectorKernels() {}
+
+    private static float floatAt(byte[] bytes, int offset, int dim) {
+        return (float) FLOAT_BE.get(bytes, offset + (dim << 2));
+    }
+
+    /**
+     * The dot product of the query vector and the first {@code query.length} dimensions of the encoded vector.
+     */
+    public static double dotProduct(float[] query, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        double acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+        int dim = 0;
+        for (final int bound = query.length & ~3; dim < bound; dim += 4) {
+            acc0 += query[dim] * floatAt(bytes, offset, dim);
+            acc1 += query[dim + 1] * floatAt(bytes, offset, dim + 1);
+            acc2 += query[dim + 2] * floatAt(bytes, offset, dim + 2);
+            acc3 += query[dim + 3] * floatAt(bytes, offset, dim + 3);
+        }
+        for (; dim < query.length; dim++) {
+            acc0 += query[dim] * floatAt(bytes, offset, dim);
+        }
+        return (acc0 + acc1) + (acc2 + acc3);
+    }
+
+    /**
+     * The l1 distance between the query vector and the first {@code query.length} dimensions of the encoded vector.
+     */
+    public static double l1Norm(float[] query, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        double acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+        int dim = 0;
+        for (final int bound = query.length & ~3; dim < bound; dim += 4) {
+            acc0 += Math.abs(query[dim] - floatAt(bytes, offset, dim));
+            acc1 += Math.abs(query[dim + 1] - floatAt(bytes, offset, dim + 1));
+            acc2 += Math.abs(query[dim + 2] - floatAt(bytes, offset, dim + 2));
+            acc3 += Math.abs(query[dim + 3] - floatAt(bytes, offset, dim + 3));
+        }
+        for (; dim < query.length; dim++) {
+            acc0 += Math.abs(query[dim] - floatAt(bytes, offset, dim));
+        }
+        return (acc0 + acc1) + (acc2 + acc3);
+    }
+
+    /**
+     * The squared l2 distance between the query vector and the first {@code query.length} dimensions of the
+     * encoded vector.
+     */
+    public static double l2NormSquared(float[] query, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        double acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+        int dim = 0;
+        for (final int bound = query.length & ~3; dim < bound; dim += 4) {
+            double diff0 = query[dim] - floatAt(bytes, offset, dim);
+            double diff1 = query[dim + 1] - floatAt(bytes, offset, dim + 1);
+            double diff2 = query[dim + 2] - floatAt(bytes, offset, dim + 2);
+            double diff3 = query[dim + 3] - floatAt(bytes, offset, dim + 3);
+            acc0 += diff0 * diff0;
+            acc1 += diff1 * diff1;
+            acc2 += diff2 * diff2;
+            acc3 += diff3 * diff3;
+        }
+        for (; dim < query.length; dim++) {
+            double diff = query[dim] - floatAt(bytes, offset, dim);
+            acc0 += diff * diff;
+        }
+        return (acc0 + acc1) + (acc2 + acc3);
+    }
+
+    /**
+     * The squared magnitude of the first {@code dims} dimensions of the encoded vector. Only needed for vectors
+     * of indices created before 7.5.0, which don't store their magnitude.
+     */
+    public static double squaredMagnitude(int dims, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        double acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+        int dim = 0;
+        for (final int bound = dims & ~3; dim < bound; dim += 4) {
+            float value0 = floatAt(bytes, offset, dim);
+            float value1 = floatAt(bytes, offset, dim + 1);
+            float value2 = floatAt(bytes, offset, dim + 2);
+            float value3 = floatAt(bytes, offset, dim + 3);
+            acc0 += value0 * value0;
+            acc1 += value1 * value1;
+            acc2 += value2 * value2;
+            acc3 += value3 * value3;
+        }
+        for (; dim < dims; dim++) {
+            float value = floatAt(bytes, offset, dim);
+            acc0 += value * value;
+        }
+        return (acc0 + acc1) + (acc2 + acc3);
+    }
+
+    /**
+     * The dot product of the query vector and a quantized vector. The sum of the query's dimensions is passed in
+     * so that it can be computed once per query: {@code q . v = min * sum(q) + scale * (q . codes)}.
+     */
+    public static double quantizedDotProduct(float[] query, double querySum, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        double acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+        int dim = 0;
+        for (final int bound = query.length & ~3; dim < bound; dim += 4) {
+            acc0 += query[dim] * (bytes[offset + dim] & 0xFF);
+            acc1 += query[dim + 1] * (bytes[offset + dim + 1] & 0xFF);
+            acc2 += query[dim + 2] * (bytes[offset + dim + 2] & 0xFF);
+            acc3 += query[dim + 3] * (bytes[offset + dim + 3] & 0xFF);
+        }
+        for (; dim < query.length; dim++) {
+            acc0 += query[dim] * (bytes[offset + dim] & 0xFF);
+        }
+        final double codesDotProduct = (acc0 + acc1) + (acc2 + acc3);
+        return VectorEncoderDecoder.decodeQuantizedMin(vector) * querySum
+            + VectorEncoderDecoder.decodeQuantizedScale(vector) * codesDotProduct;
+    }
+
+    /**
+     * The l1 distance between the query vector and a quantized vector.
+     */
+    public static double quantizedL1Norm(float[] query, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        final float min = VectorEncoderDecoder.decodeQuantizedMin(vector);
+        final float scale = VectorEncoderDecoder.decodeQuantizedScale(vector);
+        double acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+        int dim = 0;
+        for (final int bound = query.length & ~3; dim < bound; dim += 4) {
+            acc0 += Math.abs(query[dim] - (min + scale * (bytes[offset + dim] & 0xFF)));
+            acc1 += Math.abs(query[dim + 1] - (min + scale * (bytes[offset + dim + 1] & 0xFF)));
+            acc2 += Math.abs(query[dim + 2] - (min + scale * (bytes[offset + dim + 2] & 0xFF)));
+            acc3 += Math.abs(query[dim + 3] - (min + scale * (bytes[offset + dim + 3] & 0xFF)));
+        }
+        for (; dim < query.length; dim++) {
+            acc0 += Math.abs(query[dim] - (min + scale * (bytes[offset + dim] & 0xFF)));
+        }
+        return (acc0 + acc1) + (acc2 + acc3);
+    }
+
+    /**
+     * The squared l2 distance between the query vector and a quantized vector.
+     */
+    public static double quantizedL2NormSquared(float[] query, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        final float min = VectorEncoderDecoder.decodeQuantizedMin(vector);
+        final float scale = VectorEncoderDecoder.decodeQuantizedScale(vector);
+        double acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+        int dim = 0;
+        for (final int bound = query.length & ~3; dim < bound; dim += 4) {
+            double diff0 = query[dim] - (min + scale * (bytes[offset + dim] & 0xFF));
+            double diff1 = query[dim + 1] - (min + scale * (bytes[offset + dim + 1] & 0xFF));
+            double diff2 = query[dim + 2] - (min + scale * (bytes[offset + dim + 2] & 0xFF));
+            double diff3 = query[dim + 3] - (min + scale * (bytes[offset + dim + 3] & 0xFF));
+            acc0 += diff0 * diff0;
+            acc1 += diff1 * diff1;
+            acc2 += diff2 * diff2;
+            acc3 += diff3 * diff3;
+        }
+        for (; dim < query.length; dim++) {
+            double diff = query[dim] - (min + scale * (bytes[offset + dim] & 0xFF));
+            acc0 += diff * diff;
+        }
+        return (acc0 + acc1) + (acc2 + acc3);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.lucene87.Lucene87Codec;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+import org.elasticsearch.xpack.vectors.query.KnnVectorQuery;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+
+public class HnswVectorDocValuesFormatTests extends ESTestCase {
+
+    private static final String FIELD = "vector";
+
+    public void testSearchMatchesExactNeighbours() throws IOException {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.L2_NORM, VectorSimilarity.COSINE);
+        int dims = randomIntBetween(2, 16);
+        int numDocs = randomIntBetween(200, 1000);
+        float[][] vectors = new float[numDocs][];
+        for (int i = 0; i < numDocs; i++) {
+            vectors[i] = randomVector(dims);
+        }
+
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, indexWriterConfig(similarity))) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new BinaryDocValuesField(FIELD, encode(vectors[i])));
+                writer.addDocument(doc);
+                if (rarely()) {
+                    writer.flush();
+                }
+            }
+            if (randomBoolean()) {
+                writer.forceMerge(1);
+            }
+            try (IndexReader reader = DirectoryReader.open(writer)) {
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(context.reader().getBinaryDocValues(FIELD), instanceOf(HnswVectorBinaryDocValues.class));
+                }
+                IndexSearcher searcher = new IndexSearcher(reader);
+                float[] query = randomVector(dims);
+                int k = 10;
+                TopDocs topDocs = searcher.search(new KnnVectorQuery(FIELD, query, k, numDocs, similarity), k);
+                assertEquals(k, topDocs.scoreDocs.length);
+
+                int[] expected = exactTopK(similarity, query, vectors, k);
+                Set<Integer> expectedDocs = new HashSet<>();
+                Arrays.stream(expected).forEach(expectedDocs::add);
+                int matches = 0;
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    assertEquals(score(similarity, query, vectors[scoreDoc.doc]), scoreDoc.score, 1e-4f);
+                    if (expectedDocs.contains(scoreDoc.doc)) {
+                        matches++;
+                    }
+                }
+                assertThat(matches, greaterThanOrEqualTo(k * 8 / 10));
+            }
+        }
+    }
+
+    public void testDeletedDocsAreSkipped() throws IOException {
+        int dims = randomIntBetween(2, 8);
+        int numDocs = randomIntBetween(50, 200);
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, indexWriterConfig(VectorSimilarity.L2_NORM))) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                doc.add(new BinaryDocValuesField(FIELD, encode(randomVector(dims))));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+            Set<Integer> deleted = new HashSet<>();
+            for (int i = 0; i < numDocs; i += 2) {
+                writer.deleteDocuments(new Term("id", Integer.toString(i)));
+                deleted.add(i);
+            }
+            try (IndexReader reader = DirectoryReader.open(writer)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                int k = randomIntBetween(1, 10);
+                TopDocs topDocs = searcher.search(new KnnVectorQuery(FIELD, randomVector(dims), k, numDocs, VectorSimilarity.L2_NORM), k);
+                assertEquals(k, topDocs.scoreDocs.length);
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    assertFalse(deleted.contains(scoreDoc.doc));
+                }
+            }
+        }
+    }
+
+    public void testVectorsAreSpilledToTemporaryFiles() throws IOException {
+        int dims = randomIntBetween(2, 8);
+        int numDocs = randomIntBetween(50, 200);
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, indexWriterConfig(VectorSimilarity.L2_NORM))) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new BinaryDocValuesField(FIELD, encode(randomVector(dims))));
+                writer.addDocument(doc);
+                if (rarely()) {
+                    writer.flush();
+                }
+            }
+            writer.forceMerge(1);
+            writer.commit();
+            for (String file : dir.listAll()) {
+                assertFalse("temporary file [" + file + "] was not deleted", file.endsWith(".tmp"));
+            }
+            try (IndexReader reader = DirectoryReader.open(writer)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                TopDocs topDocs = searcher.search(new KnnVectorQuery(FIELD, randomVector(dims), 1, numDocs, VectorSimilarity.L2_NORM), 1);
+                assertEquals(1, topDocs.scoreDocs.length);
+            }
+        }
+    }
+
+    public void testQuantizedVectorsAreStoredAndScoredQuantized() throws IOException {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(64, 128);
+        int numDocs = randomIntBetween(200, 500);
+        float[][] vectors = new float[numDocs][];
+        for (int i = 0; i < numDocs; i++) {
+            float[] vector = randomVector(dims);
+            if (similarity == VectorSimilarity.DOT_PRODUCT) {
+                VectorSimilarity.normalize(vector);
+            }
+            BytesRef encoded = new BytesRef(VectorEncoderDecoder.encodeQuantized(vector, magnitude(vector)));
+            vectors[i] = new float[dims];
+            VectorEncoderDecoder.decodeQuantized(encoded, vectors[i]);
+        }
+
+        IndexWriterConfig config = indexWriterConfig(similarity, true).setUseCompoundFile(false);
+        ((LogDocMergePolicy) config.getMergePolicy()).setNoCFSRatio(0);
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, config)) {
+            for (int i = 0; i < numDocs; i++) {
+                // the decoded vector encodes to the same codes, with the magnitude that the expected scores are computed with
+                byte[] encoded = VectorEncoderDecoder.encodeQuantized(vectors[i], magnitude(vectors[i]));
+                Document doc = new Document();
+                doc.add(new BinaryDocValuesField(FIELD, new BytesRef(encoded)));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+            writer.commit();
+            // one byte per dimension instead of four
+            long graphBytes = 0;
+            for (String file : dir.listAll()) {
+                if (file.endsWith("." + HnswVectorDocValuesFormat.DATA_EXTENSION)) {
+                    graphBytes += dir.fileLength(file);
+                }
+            }
+            assertThat(graphBytes, greaterThan(0L));
+            assertThat(graphBytes, lessThan((long) numDocs * dims * Float.BYTES));
+
+            try (IndexReader reader = DirectoryReader.open(writer)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                float[] query = randomVector(dims);
+                if (similarity == VectorSimilarity.DOT_PRODUCT) {
+                    VectorSimilarity.normalize(query);
+                }
+                int k = 10;
+                TopDocs topDocs = searcher.search(new KnnVectorQuery(FIELD, query, k, numDocs, similarity), k);
+                assertEquals(k, topDocs.scoreDocs.length);
+
+                Set<Integer> expectedDocs = new HashSet<>();
+                Arrays.stream(exactTopK(similarity, query, vectors, k)).forEach(expectedDocs::add);
+                int matches = 0;
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    assertEquals(score(similarity, query, vectors[scoreDoc.doc]), scoreDoc.score, 1e-3f);
+                    if (expectedDocs.contains(scoreDoc.doc)) {
+                        matches++;
+                    }
+                }
+                assertThat(matches, greaterThanOrEqualTo(k * 8 / 10));
+            }
+        }
+    }
+
+    private static IndexWriterConfig indexWriterConfig(VectorSimilarity similarity) {
+        return indexWriterConfig(similarity, false);
+    }
+
+    private static IndexWriterConfig indexWriterConfig(VectorSimilarity similarity, boolean quantized) {
+        DocValuesFormat format = new HnswVectorDocValuesFormat(similarity, randomIntBetween(4, 16), randomIntBetween(10, 100), quantized);
+        // keep doc ids in insertion order across merges
+        return new IndexWriterConfig().setMergePolicy(new LogDocMergePolicy()).setCodec(new Lucene87Codec() {
+            @Override
+            public DocValuesFormat getDocValuesFormatForField(String field) {
+                return FIELD.equals(field) ? format : super.getDocValuesFormatForField(field);
+            }
+        });
+    }
+
+    private static float[] randomVector(int dims) {
+        float[] vector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = randomFloat() * 2 - 1;
+        }
+        return vector;
+    }
+
+    private static float magnitude(float[] vector) {
+        double magnitude = 0;
+        for (float value : vector) {
+            magnitude += value * value;
+        }
+        return (float) Math.sqrt(magnitude);
+    }
+
+    private static BytesRef encode(float[] vector) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate((vector.length + 1) * Float.BYTES);
+        double magnitude = 0;
+        for (float value : vector) {
+            byteBuffer.putFloat(value);
+            magnitude += value * value;
+        }
+        byteBuffer.putFloat((float) Math.sqrt(magnitude));
+        return new BytesRef(byteBuffer.array());
+    }
+
+    private static float score(VectorSimilarity similarity, float[] query, float[] vector) {
+        float[] q = query.clone();
+        float[] v = vector.clone();
+        if (similarity.normalize()) {
+            VectorSimilarity.normalize(q);
+            VectorSimilarity.normalize(v);
+        }
+        return similarity.score(q, v);
+    }
+
+    private static int[] exactTopK(VectorSimilarity similarity, float[] query, float[][] vectors, int k) {
+        return IntStream.range(0, vectors.length)
+            .boxed()
+            .sorted(Comparator.comparingDouble((Integer doc) -> score(similarity, query, vectors[doc])).reversed())
+            .limit(k)
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+}
@@ -13,10 +13,12 @@ import org.elasticsearch.Version;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.MapperTestCase;
 import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.xpack.vectors.Vectors;
+import org.elasticsearch.xpack.vectors.codec.HnswVectorDocValuesFormat;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -49,6 +51,72 @@ public class DenseVectorFieldMapperTests extends MapperTestCase {
         checker.registerConflictCheck("dims",
             fieldMapping(b -> b.field("type", "dense_vector").field("dims", 4)),
             fieldMapping(b -> b.field("type", "dense_vector").field("dims", 5)));
+        checker.registerConflictCheck("quantization", b -> b.field("quantization", "int8"));
+        checker.registerConflictCheck("similarity",
+            fieldMapping(b -> b.field("type", "dense_vector").field("dims", 4).field("index", true).field("similarity", "l2_norm")),
+            fieldMapping(b -> b.field("type", "dense_vector").field("dims", 4).field("index", true).field("similarity", "cosine")));
+        checker.registerConflictCheck("index_options",
+            fieldMapping(b -> b.field("type", "dense_vector").field("dims", 4).field("index", true).field("similarity", "l2_norm")
+                .startObject("index_options").field("m", 8).endObject()),
+            fieldMapping(b -> b.field("type", "dense_vector").field("dims", 4).field("index", true).field("similarity", "l2_norm")
+                .startObject("index_options").field("m", 16).endObject()));
+    }
+
+    public void testIndexedRequiresSimilarity() {
+        Exception e = expectThrows(MapperParsingException.class, () -> createMapperService(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", 3);
+            b.field("index", true);
+        })));
+        assertThat(e.getMessage(), containsString("requires [similarity] to be set when [index] is true"));
+
+        e = expectThrows(MapperParsingException.class, () -> createMapperService(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", 3);
+            b.field("similarity", "l2_norm");
+        })));
+        assertThat(e.getMessage(), containsString("only supports [similarity] when [index] is true"));
+    }
+
+    public void testUnknownSimilarity() {
+        Exception e = expectThrows(MapperParsingException.class, () -> createMapperService(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", 3);
+            b.field("index", true);
+            b.field("similarity", "manhattan");
+        })));
+        assertThat(e.getMessage(), containsString("Unknown vector similarity [manhattan], must be one of [l2_norm, dot_product, cosine]"));
+    }
+
+    public void testIndexedUsesGraphFormat() throws Exception {
+        MapperService mapperService = createMapperService(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", 3);
+            b.field("index", true);
+            b.field("similarity", "cosine");
+            b.startObject("index_options").field("type", "hnsw").field("m", 8).field("ef_construction", 50).endObject();
+        }));
+        DenseVectorFieldMapper.DenseVectorFieldType fieldType =
+            (DenseVectorFieldMapper.DenseVectorFieldType) mapperService.fieldType("field");
+        assertTrue(fieldType.isSearchable());
+        assertEquals(VectorSimilarity.COSINE, fieldType.similarity());
+        assertThat(fieldType.docValuesFormat(), instanceOf(HnswVectorDocValuesFormat.class));
+
+        MapperService notIndexed = createMapperService(fieldMapping(b -> b.field("type", "dense_vector").field("dims", 3)));
+        assertNull(((DenseVectorFieldMapper.DenseVectorFieldType) notIndexed.fieldType("field")).docValuesFormat());
+    }
+
+    public void testDotProductRequiresUnitVectors() throws Exception {
+        DocumentMapper mapper = createDocumentMapper(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", 3);
+            b.field("index", true);
+            b.field("similarity", "dot_product");
+        }));
+        mapper.parse(source(b -> b.array("field", new float[] {0.6f, 0.8f, 0f})));
+        MapperParsingException e = expectThrows(MapperParsingException.class,
+            () -> mapper.parse(source(b -> b.array("field", new float[] {1f, 1f, 1f}))));
+        assertThat(e.getCause().getMessage(), containsString("must have a unit length vector"));
     }
 
     public void testDims() {
@@ -135,6 +203,28 @@ public class DenseVectorFieldMapperTests extends MapperTestCase {
         return vector;
     }
 
+    public void testQuantized() throws Exception {
+        DocumentMapper mapper = createDocumentMapper(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", 3);
+            b.field("quantization", "int8");
+        }));
+
+        float[] validVector = {-12.1f, 100.7f, -4};
+        ParsedDocument doc1 = mapper.parse(source(b -> b.array("field", validVector)));
+        IndexableField[] fields = doc1.rootDoc().getFields("field");
+        assertEquals(1, fields.length);
+        BytesRef vectorBR = fields[0].binaryValue();
+        assertEquals(3 + VectorEncoderDecoder.QUANTIZED_TRAILER_BYTES, vectorBR.length);
+
+        float[] decodedValues = new float[3];
+        VectorEncoderDecoder.decodeQuantized(vectorBR, decodedValues);
+        // values are off by at most half a quantization step
+        float halfStep = (100.7f + 12.1f) / 255 / 2;
+        assertArrayEquals(validVector, decodedValues, halfStep + 0.001f);
+        assertEquals(Math.sqrt(12.1 * 12.1 + 100.7 * 100.7 + 4 * 4), VectorEncoderDecoder.decodeQuantizedMagnitude(vectorBR), 0.001f);
+    }
+
     public void testDocumentsWithIncorrectDims() throws Exception {
 
         int dims = 3;
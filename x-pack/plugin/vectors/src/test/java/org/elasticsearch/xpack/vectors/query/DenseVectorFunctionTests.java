@@ -57,6 +57,27 @@ public class DenseVectorFunctionTests extends ESTestCase {
         }
     }
     
+    public void testQuantizedVectorFunctions() {
+        float magnitude = 0;
+        for (float value : docVector) {
+            magnitude += value * value;
+        }
+        BytesRef encodedDocVector = new BytesRef(VectorEncoderDecoder.encodeQuantized(docVector, (float) Math.sqrt(magnitude)));
+        DenseVectorScriptDocValues docValues = mock(DenseVectorScriptDocValues.class);
+        when(docValues.getEncodedValue()).thenReturn(encodedDocVector);
+        when(docValues.isQuantized()).thenReturn(true);
+
+        ScoreScript scoreScript = mock(ScoreScript.class);
+        when(scoreScript._getIndexVersion()).thenReturn(Version.CURRENT);
+        when(scoreScript.getDoc()).thenReturn(Collections.singletonMap(field, docValues));
+
+        // quantization steps are about 2 for the doc vector, so results are only close to the float ones
+        assertEquals(65425.624, new DotProduct(scoreScript, queryVector, field).dotProduct(), 300);
+        assertEquals(0.790, new CosineSimilarity(scoreScript, queryVector, field).cosineSimilarity(), 0.01);
+        assertEquals(485.184, new L1Norm(scoreScript, queryVector, field).l1norm(), 5);
+        assertEquals(301.361, new L2Norm(scoreScript, queryVector, field).l2norm(), 3);
+    }
+
     private void testDotProduct(ScoreScript scoreScript) {
         DotProduct function = new DotProduct(scoreScript, queryVector, field);
         double result = function.dotProduct();
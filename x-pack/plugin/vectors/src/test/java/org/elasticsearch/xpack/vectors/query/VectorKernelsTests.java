@@ -0,0 +1,79 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
+
+import java.nio.ByteBuffer;
+
+public class VectorKernelsTests extends ESTestCase {
+
+    public void testKernelsMatchScalarLoops() {
+        int dims = randomIntBetween(1, 67);
+        float[] query = randomVector(dims);
+        float[] doc = randomVector(dims);
+        // encode at a random offset, with the magnitude at the end, like the field mapper does
+        int offset = randomIntBetween(0, 16);
+        ByteBuffer byteBuffer = ByteBuffer.allocate(offset + (dims + 1) * Float.BYTES);
+        byteBuffer.position(offset);
+        double expectedDot = 0;
+        double expectedL1 = 0;
+        double expectedL2 = 0;
+        double expectedMagnitude = 0;
+        for (int i = 0; i < dims; i++) {
+            byteBuffer.putFloat(doc[i]);
+            expectedDot += query[i] * doc[i];
+            expectedL1 += Math.abs(query[i] - doc[i]);
+            expectedL2 += (query[i] - doc[i]) * (query[i] - doc[i]);
+            expectedMagnitude += doc[i] * doc[i];
+        }
+        byteBuffer.putFloat((float) Math.sqrt(expectedMagnitude));
+        BytesRef encoded = new BytesRef(byteBuffer.array(), offset, (dims + 1) * Float.BYTES);
+
+        assertEquals(expectedDot, VectorKernels.dotProduct(query, encoded), 1e-3);
+        assertEquals(expectedL1, VectorKernels.l1Norm(query, encoded), 1e-3);
+        assertEquals(expectedL2, VectorKernels.l2NormSquared(query, encoded), 1e-3);
+        assertEquals(expectedMagnitude, VectorKernels.squaredMagnitude(dims, encoded), 1e-3);
+    }
+
+    public void testQuantizedKernelsMatchDecodedVectors() {
+        int dims = randomIntBetween(1, 67);
+        float[] query = randomVector(dims);
+        float[] doc = randomVector(dims);
+        BytesRef encoded = new BytesRef(VectorEncoderDecoder.encodeQuantized(doc, 1f));
+        assertEquals(dims, VectorEncoderDecoder.quantizedDenseVectorLength(encoded));
+
+        float[] decoded = new float[dims];
+        VectorEncoderDecoder.decodeQuantized(encoded, decoded);
+        double querySum = 0;
+        double expectedDot = 0;
+        double expectedL1 = 0;
+        double expectedL2 = 0;
+        for (int i = 0; i < dims; i++) {
+            // each dimension is off by at most half a quantization step, which is less than 20 / 255 / 2
+            assertEquals(doc[i], decoded[i], 0.04f);
+            querySum += query[i];
+            expectedDot += query[i] * decoded[i];
+            expectedL1 += Math.abs(query[i] - decoded[i]);
+            expectedL2 += (query[i] - decoded[i]) * (query[i] - decoded[i]);
+        }
+
+        assertEquals(expectedDot, VectorKernels.quantizedDotProduct(query, querySum, encoded), 1e-2);
+        assertEquals(expectedL1, VectorKernels.quantizedL1Norm(query, encoded), 1e-2);
+        assertEquals(expectedL2, VectorKernels.quantizedL2NormSquared(query, encoded), 1e-2);
+    }
+
+    private static float[] randomVector(int dims) {
+        float[] vector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = randomFloat() * 20 - 10;
+        }
+        return vector;
+    }
+}